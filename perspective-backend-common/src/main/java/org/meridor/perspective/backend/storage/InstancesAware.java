@@ -1,5 +1,6 @@
 package org.meridor.perspective.backend.storage;
 
+import com.hazelcast.query.Predicate;
 import org.meridor.perspective.beans.Instance;
 
 import java.util.Collection;
@@ -15,6 +16,13 @@ public interface InstancesAware {
     
     Collection<Instance> getInstances(Set<String> ids);
 
+    /**
+     * Returns instances matching predicate. Implementations are allowed to
+     * return instances not matching predicate, so callers should filter
+     * results once again if needed.
+     */
+    Collection<Instance> getInstances(Predicate<String, Instance> predicate);
+
     Optional<Instance> getInstance(String instanceId);
 
     void saveInstance(Instance instance);
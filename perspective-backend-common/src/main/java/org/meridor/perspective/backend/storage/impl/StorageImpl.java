@@ -5,6 +5,7 @@ import com.hazelcast.core.EntryEvent;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.IMap;
 import com.hazelcast.map.listener.*;
+import com.hazelcast.query.Predicate;
 import org.meridor.perspective.beans.Image;
 import org.meridor.perspective.beans.Instance;
 import org.meridor.perspective.beans.Project;
@@ -53,6 +54,16 @@ public class StorageImpl implements ApplicationListener<ContextClosedEvent>, Ins
     @PostConstruct
     public void init() {
         getSupportedOperationsMap().addEntryListener(new OperationsListener(), true);
+        addInstanceIndexes();
+    }
+
+    //Indexes are used by queries passed to getInstances(predicate)
+    private void addInstanceIndexes() {
+        IMap<String, Instance> instancesByIdMap = getInstancesByIdMap();
+        instancesByIdMap.addIndex("name", true);
+        instancesByIdMap.addIndex("realId", false);
+        instancesByIdMap.addIndex("projectId", false);
+        instancesByIdMap.addIndex("cloudId", false);
     }
 
     @Override
@@ -207,6 +218,11 @@ public class StorageImpl implements ApplicationListener<ContextClosedEvent>, Ins
         return getInstancesByIdMap().getAll(ids).values();
     }
 
+    @Override
+    public Collection<Instance> getInstances(Predicate<String, Instance> predicate) {
+        return getInstancesByIdMap().values(predicate);
+    }
+
     @Override
     public Optional<Instance> getInstance(String instanceId) {
         return readInstance(instanceId, map -> Optional.ofNullable(map.get(instanceId)));
@@ -1,5 +1,6 @@
 package org.meridor.perspective.backend.messaging;
 
+import com.hazelcast.query.Predicate;
 import org.meridor.perspective.beans.Image;
 import org.meridor.perspective.beans.Instance;
 import org.meridor.perspective.beans.Project;
@@ -65,8 +66,9 @@ public class TestStorage implements InstancesAware, ProjectsAware, ImagesAware,
         StorageEvent event = imageExists(imageId) ?
                 MODIFIED :
                 ADDED;
-        imageListeners.forEach(l -> l.onEvent(image, imageMap.get(imageId), event));
-        imageMap.put(image.getId(), image);
+        //Like in real storage listeners are notified after entity is saved
+        Image oldImage = imageMap.put(imageId, image);
+        imageListeners.forEach(l -> l.onEvent(image, oldImage, event));
     }
 
     @Override
@@ -77,8 +79,8 @@ public class TestStorage implements InstancesAware, ProjectsAware, ImagesAware,
     @Override
     public void deleteImage(String imageId) {
         Image image = getImage(imageId).get();
-        imageListeners.forEach(l -> l.onEvent(image, null, DELETED));
         imageMap.remove(imageId);
+        imageListeners.forEach(l -> l.onEvent(image, null, DELETED));
     }
 
     @Override
@@ -104,6 +106,12 @@ public class TestStorage implements InstancesAware, ProjectsAware, ImagesAware,
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Collection<Instance> getInstances(Predicate<String, Instance> predicate) {
+        //Built-in predicates can only be applied to Hazelcast map entries
+        return getInstances();
+    }
+
     @Override
     public Optional<Instance> getInstance(String instanceId) {
         return Optional.ofNullable(instanceMap.get(instanceId));
@@ -115,8 +123,9 @@ public class TestStorage implements InstancesAware, ProjectsAware, ImagesAware,
         StorageEvent event = instanceExists(instanceId) ?
                 MODIFIED :
                 ADDED;
-        instanceListeners.forEach(l -> l.onEvent(instance, instanceMap.get(instanceId), event));
-        instanceMap.put(instance.getId(), instance);
+        //Like in real storage listeners are notified after entity is saved
+        Instance oldInstance = instanceMap.put(instanceId, instance);
+        instanceListeners.forEach(l -> l.onEvent(instance, oldInstance, event));
     }
 
     @Override
@@ -127,8 +136,8 @@ public class TestStorage implements InstancesAware, ProjectsAware, ImagesAware,
     @Override
     public void deleteInstance(String instanceId) {
         Instance instance = getInstance(instanceId).get();
-        instanceListeners.forEach(l -> l.onEvent(instance, null, DELETED));
         instanceMap.remove(instanceId);
+        instanceListeners.forEach(l -> l.onEvent(instance, null, DELETED));
     }
 
     @Override
@@ -165,8 +174,9 @@ public class TestStorage implements InstancesAware, ProjectsAware, ImagesAware,
         StorageEvent event = getProject(projectId).isPresent() ?
                 MODIFIED :
                 ADDED;
-        projectListeners.forEach(l -> l.onEvent(project, projectMap.get(projectId), event));
-        projectMap.put(project.getId(), project);
+        //Like in real storage listeners are notified after entity is saved
+        Project oldProject = projectMap.put(projectId, project);
+        projectListeners.forEach(l -> l.onEvent(project, oldProject, event));
     }
 
     @Override
@@ -1,5 +1,7 @@
 package org.meridor.perspective.backend.storage.impl;
 
+import com.hazelcast.query.Predicate;
+import com.hazelcast.query.Predicates;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.meridor.perspective.beans.Image;
@@ -75,6 +77,13 @@ public class StorageImplTest {
         assertThat(instancesAware.getInstance("missing"), equalTo(Optional.empty()));
         assertThat(instancesAware.getInstances(), contains(instance));
         assertThat(instancesAware.getInstances(Collections.singleton(instanceId)), contains(instance));
+        //Hazelcast predicates are not generic
+        @SuppressWarnings("unchecked")
+        Predicate<String, Instance> matchingPredicate = Predicates.equal("name", instance.getName());
+        assertThat(instancesAware.getInstances(matchingPredicate), contains(instance));
+        @SuppressWarnings("unchecked")
+        Predicate<String, Instance> notMatchingPredicate = Predicates.equal("name", "missing");
+        assertThat(instancesAware.getInstances(notMatchingPredicate), is(empty()));
         instancesAware.deleteInstance(instanceId);
         assertThat(instancesAware.instanceExists(instanceId), is(false));
         assertThat(instancesAware.isInstanceDeleted(instanceId), is(true));
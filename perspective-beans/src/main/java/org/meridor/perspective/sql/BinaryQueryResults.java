@@ -0,0 +1,154 @@
+package org.meridor.perspective.sql;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of query results. Values are written column by
+ * column: each column starts with a dictionary of its distinct strings
+ * followed by tagged values where strings are dictionary indexes and
+ * integers are zigzag varints. All lengths and counts are varints.
+ * @see BinaryQueryResultsWriter
+ */
+public final class BinaryQueryResults {
+
+    public static final String MEDIA_TYPE = "application/x-perspective-query-results";
+
+    static final int VERSION = 1;
+
+    static final int NULL = 0;
+    static final int FALSE = 1;
+    static final int TRUE = 2;
+    static final int INTEGER = 3;
+    static final int DOUBLE = 4;
+    static final int STRING = 5;
+
+    /**
+     * Decodes results written by {@link BinaryQueryResultsWriter}. Integer
+     * values are returned as {@link Integer} when they fit and as
+     * {@link Long} otherwise like when reading JSON.
+     */
+    public static List<QueryResult> read(InputStream inputStream) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException(String.format("Unsupported query results version: %d", version));
+        }
+        int resultsCount = readVarInt(input);
+        List<QueryResult> queryResults = new ArrayList<>(resultsCount);
+        for (int i = 0; i <= resultsCount - 1; i++) {
+            queryResults.add(readQueryResult(input));
+        }
+        return queryResults;
+    }
+
+    private static QueryResult readQueryResult(DataInputStream input) throws IOException {
+        QueryResult queryResult = new QueryResult();
+        queryResult.setStatus(QueryStatus.fromValue(readString(input)));
+        queryResult.setCount(readVarInt(input));
+        queryResult.setMessage(readNullableString(input));
+        Data data = new Data();
+        int columnsCount = readVarInt(input);
+        for (int i = 0; i <= columnsCount - 1; i++) {
+            data.getColumnNames().add(readString(input));
+        }
+        int rowsCount = readVarInt(input);
+        for (int i = 0; i <= rowsCount - 1; i++) {
+            data.getRows().add(new Row());
+        }
+        for (int columnIndex = 0; columnIndex <= columnsCount - 1; columnIndex++) {
+            List<String> dictionary = readDictionary(input);
+            for (Row row : data.getRows()) {
+                row.getValues().add(readValue(input, dictionary));
+            }
+        }
+        queryResult.setData(data);
+        return queryResult;
+    }
+
+    private static List<String> readDictionary(DataInputStream input) throws IOException {
+        int size = readVarInt(input);
+        List<String> dictionary = new ArrayList<>(size);
+        for (int i = 0; i <= size - 1; i++) {
+            dictionary.add(readString(input));
+        }
+        return dictionary;
+    }
+
+    private static Object readValue(DataInputStream input, List<String> dictionary) throws IOException {
+        int tag = input.readUnsignedByte();
+        switch (tag) {
+            case NULL: return null;
+            case FALSE: return false;
+            case TRUE: return true;
+            case INTEGER: {
+                long value = readZigZag(input);
+                return (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) ?
+                        (Object) (int) value : (Object) value;
+            }
+            case DOUBLE: return input.readDouble();
+            case STRING: return dictionary.get(readVarInt(input));
+            default: throw new IOException(String.format("Unknown value tag: %d", tag));
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[readVarInt(input)];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readNullableString(DataInputStream input) throws IOException {
+        //Zero length means null and other lengths are shifted by one
+        int length = readVarInt(input);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int readVarInt(DataInputStream input) throws IOException {
+        long value = readVarLong(input);
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException(String.format("Value %d is too large", value));
+        }
+        return (int) value;
+    }
+
+    static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static long readZigZag(DataInputStream input) throws IOException {
+        long value = readVarLong(input);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    static void writeZigZag(DataOutputStream output, long value) throws IOException {
+        writeVarLong(output, (value << 1) ^ (value >> 63));
+    }
+
+    private BinaryQueryResults() {
+    }
+
+}
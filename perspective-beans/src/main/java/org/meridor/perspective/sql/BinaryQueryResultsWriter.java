@@ -0,0 +1,132 @@
+package org.meridor.perspective.sql;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+import static org.meridor.perspective.sql.BinaryQueryResults.*;
+
+/**
+ * Writes query results in {@link BinaryQueryResults} format one by one.
+ * Exactly the number of results passed to constructor should be written.
+ */
+public class BinaryQueryResultsWriter implements Closeable {
+
+    private final DataOutputStream output;
+
+    public BinaryQueryResultsWriter(OutputStream outputStream, int resultsCount) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(outputStream));
+        output.writeByte(VERSION);
+        writeVarLong(output, resultsCount);
+    }
+
+    public void write(QueryStatus status, int count, String message, DataContainer dataContainer) throws IOException {
+        write(status, count, message, dataContainer.getColumnNames(), getValues(dataContainer.getRows(), DataRow::getValues));
+    }
+
+    public void write(QueryResult queryResult) throws IOException {
+        Data data = (queryResult.getData() != null) ? queryResult.getData() : new Data();
+        write(
+                queryResult.getStatus(),
+                queryResult.getCount(),
+                queryResult.getMessage(),
+                data.getColumnNames(),
+                getValues(data.getRows(), Row::getValues)
+        );
+    }
+
+    private static <T> List<List<Object>> getValues(List<T> rows, Function<T, List<Object>> valuesProvider) {
+        return new AbstractList<List<Object>>() {
+            @Override
+            public List<Object> get(int index) {
+                return valuesProvider.apply(rows.get(index));
+            }
+
+            @Override
+            public int size() {
+                return rows.size();
+            }
+        };
+    }
+
+    private void write(QueryStatus status, int count, String message, List<String> columnNames, List<List<Object>> rows) throws IOException {
+        writeString(status.value());
+        writeVarLong(output, count);
+        writeNullableString(message);
+        writeVarLong(output, columnNames.size());
+        for (String columnName : columnNames) {
+            writeString(columnName);
+        }
+        writeVarLong(output, rows.size());
+        for (int columnIndex = 0; columnIndex <= columnNames.size() - 1; columnIndex++) {
+            writeColumn(rows, columnIndex);
+        }
+    }
+
+    private void writeColumn(List<List<Object>> rows, int columnIndex) throws IOException {
+        //Strings like cloud ids and states repeat a lot, so each of them is written once per column
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (List<Object> row : rows) {
+            Object value = getValue(row, columnIndex);
+            if (isString(value)) {
+                dictionary.putIfAbsent(value.toString(), dictionary.size());
+            }
+        }
+        writeVarLong(output, dictionary.size());
+        for (String value : dictionary.keySet()) {
+            writeString(value);
+        }
+        for (List<Object> row : rows) {
+            writeValue(getValue(row, columnIndex), dictionary);
+        }
+    }
+
+    private static Object getValue(List<Object> row, int columnIndex) {
+        return (columnIndex <= row.size() - 1) ? row.get(columnIndex) : null;
+    }
+
+    //Values of other types are written as strings
+    private static boolean isString(Object value) {
+        return value != null && !(value instanceof Boolean) && !(value instanceof Number);
+    }
+
+    private void writeValue(Object value, Map<String, Integer> dictionary) throws IOException {
+        if (value == null) {
+            output.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            output.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            output.writeByte(INTEGER);
+            writeZigZag(output, ((Number) value).longValue());
+        } else if (value instanceof Number) {
+            output.writeByte(DOUBLE);
+            output.writeDouble(((Number) value).doubleValue());
+        } else {
+            output.writeByte(STRING);
+            writeVarLong(output, dictionary.get(value.toString()));
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(output, bytes.length);
+        output.write(bytes);
+    }
+
+    private void writeNullableString(String value) throws IOException {
+        if (value == null) {
+            writeVarLong(output, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(output, bytes.length + 1);
+        output.write(bytes);
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+
+}
@@ -0,0 +1,135 @@
+package org.meridor.perspective.sql;
+
+import java.util.*;
+
+/**
+ * Immutable description of data container columns with all column positions
+ * resolved in advance. Containers created from the same columns map share
+ * one layout, so their rows can be passed around without copying.
+ */
+final class ColumnLayout {
+
+    private static final int AMBIGUOUS = -1;
+
+    private static final String COMPOUND_NAME_DELIMITER = ".";
+
+    private final Map<String, List<String>> columnsMap;
+
+    private final List<String> columnNames;
+
+    private final Map<String, Integer> ordinals = new HashMap<>();
+
+    private final Map<String, Map<String, Integer>> tableOrdinals = new HashMap<>();
+
+    private final Map<String, Integer> compoundOrdinals = new HashMap<>();
+
+    private ColumnLayout(Map<String, List<String>> columnsMap) {
+        Map<String, List<String>> columnsMapCopy = new LinkedHashMap<>();
+        List<String> allColumnNames = new ArrayList<>();
+        if (columnsMap != null) {
+            columnsMap.forEach((tableAlias, tableColumnNames) -> {
+                Map<String, Integer> currentTableOrdinals = new HashMap<>();
+                for (String columnName : tableColumnNames) {
+                    int ordinal = allColumnNames.size();
+                    allColumnNames.add(columnName);
+                    putOrdinal(ordinals, columnName, ordinal);
+                    putOrdinal(currentTableOrdinals, columnName, ordinal);
+                    putOrdinal(compoundOrdinals, tableAlias + COMPOUND_NAME_DELIMITER + columnName, ordinal);
+                }
+                tableOrdinals.put(tableAlias, currentTableOrdinals);
+                columnsMapCopy.put(tableAlias, Collections.unmodifiableList(new ArrayList<>(tableColumnNames)));
+            });
+        }
+        this.columnsMap = new LayoutColumnsMap(this, Collections.unmodifiableMap(columnsMapCopy));
+        this.columnNames = Collections.unmodifiableList(allColumnNames);
+    }
+
+    static ColumnLayout of(Map<String, List<String>> columnsMap) {
+        return (columnsMap instanceof LayoutColumnsMap) ?
+                ((LayoutColumnsMap) columnsMap).layout :
+                new ColumnLayout(columnsMap);
+    }
+
+    private static void putOrdinal(Map<String, Integer> ordinals, String columnName, int ordinal) {
+        ordinals.merge(columnName, ordinal, (o, n) -> AMBIGUOUS);
+    }
+
+    Map<String, List<String>> getColumnsMap() {
+        return columnsMap;
+    }
+
+    List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    Optional<Integer> getOrdinal(String columnName) {
+        Integer ordinal = ordinals.get(columnName);
+        if (ordinal == null) {
+            //Column name can be written as table_alias.column_name
+            ordinal = compoundOrdinals.get(columnName);
+        }
+        return toOrdinal(columnName, ordinal);
+    }
+
+    Optional<Integer> getOrdinal(String columnName, String tableAlias) {
+        Map<String, Integer> currentTableOrdinals = tableOrdinals.get(tableAlias);
+        return currentTableOrdinals != null ?
+                toOrdinal(columnName, currentTableOrdinals.get(columnName)) :
+                Optional.empty();
+    }
+
+    private static Optional<Integer> toOrdinal(String columnName, Integer ordinal) {
+        if (ordinal != null && ordinal == AMBIGUOUS) {
+            throw new IllegalArgumentException(String.format("Ambiguous column name: %s", columnName));
+        }
+        return Optional.ofNullable(ordinal);
+    }
+
+    //Layouts are equal when tables and columns go in the same order
+    @Override
+    public boolean equals(Object another) {
+        if (this == another) {
+            return true;
+        }
+        if (!(another instanceof ColumnLayout)) {
+            return false;
+        }
+        ColumnLayout anotherLayout = (ColumnLayout) another;
+        return columnNames.equals(anotherLayout.columnNames) &&
+                new ArrayList<>(columnsMap.entrySet()).equals(new ArrayList<>(anotherLayout.columnsMap.entrySet()));
+    }
+
+    @Override
+    public int hashCode() {
+        return columnNames.hashCode();
+    }
+
+    //Remembers its layout so that containers created from this map don't compute it again
+    private static class LayoutColumnsMap extends AbstractMap<String, List<String>> {
+
+        private final ColumnLayout layout;
+
+        private final Map<String, List<String>> columnsMap;
+
+        LayoutColumnsMap(ColumnLayout layout, Map<String, List<String>> columnsMap) {
+            this.layout = layout;
+            this.columnsMap = columnsMap;
+        }
+
+        @Override
+        public Set<Entry<String, List<String>>> entrySet() {
+            return columnsMap.entrySet();
+        }
+
+        @Override
+        public List<String> get(Object key) {
+            return columnsMap.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return columnsMap.containsKey(key);
+        }
+    }
+
+}
@@ -2,15 +2,17 @@ package org.meridor.perspective.sql;
 
 import java.util.*;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 public class DataContainer implements Comparable<DataContainer> {
     
     private static final String ANY = "any";
     
-    private final Map<String, List<String>> columnsMap = new LinkedHashMap<>();
+    private final ColumnLayout layout;
     
     private final List<DataRow> rows = new ArrayList<>();
+    
+    //Rows are read from view until the first row is added
+    private RowsView rowsView;
 
     public static DataContainer empty(){
         return new DataContainer(Collections.emptyMap());
@@ -30,7 +32,16 @@ public class DataContainer implements Comparable<DataContainer> {
     }
     
     public DataContainer(Map<String, List<String>> columnsMap) {
-        updateColumnsMap(columnsMap);
+        this.layout = ColumnLayout.of(columnsMap);
+    }
+    
+    /**
+     * Creates container reading rows from view. View rows are copied to the
+     * container when a row is added.
+     */
+    public DataContainer(Map<String, List<String>> columnsMap, RowsView rowsView) {
+        this(columnsMap);
+        this.rowsView = rowsView;
     }
     
     public DataContainer(DataContainer another, Function<List<DataRow>, List<DataRow>> processor) {
@@ -38,35 +49,94 @@ public class DataContainer implements Comparable<DataContainer> {
         processor.apply(another.getRows()).forEach(this::addRow);
     }
     
-    private void updateColumnsMap(Map<String, List<String>> columnsMap) {
-        if (columnsMap != null) {
-            this.columnsMap.putAll(columnsMap);
-        }
-    }
-    
     public void addRow(List<Object> values) {
-        rows.add(createRow(values));
+        getModifiableRows().add(createRow(values));
     }
-    
+
+    /**
+     * Adds existing row. Rows of this container are added by reference and
+     * rows of other containers are bound to this one sharing their values.
+     */
     public void addRow(DataRow dataRow) {
-        rows.add(createRow(dataRow.getValues()));
+        getModifiableRows().add(
+                dataRow.getDataContainer() == this ?
+                        dataRow :
+                        new DataRow(this, dataRow)
+        );
+    }
+
+    private List<DataRow> getModifiableRows() {
+        if (rowsView != null) {
+            rows.addAll(getRows());
+            rowsView = null;
+        }
+        return rows;
     }
 
     private DataRow createRow(List<Object> values) {
         return new DataRow(this, values);
     }
 
+    ColumnLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Returns unmodifiable map of table aliases to column names
+     */
     public Map<String, List<String>> getColumnsMap() {
-        return columnsMap;
+        return layout.getColumnsMap();
     }
 
     public List<String> getColumnNames() {
-        return columnsMap.values().stream()
-                .flatMap(Collection::stream)
-                .collect(Collectors.toList());
+        return layout.getColumnNames();
+    }
+
+    public int indexOf(String columnName, String tableAlias) {
+        Optional<Integer> columnIndex = layout.getOrdinal(columnName, tableAlias);
+        if (!columnIndex.isPresent()) {
+            throw new IllegalArgumentException(String.format("Column %s does not exist for table %s", columnName, tableAlias));
+        }
+        return columnIndex.get();
+    }
+
+    public int indexOf(String columnName) {
+        Optional<Integer> columnIndex = layout.getOrdinal(columnName);
+        if (!columnIndex.isPresent()) {
+            throw new IllegalArgumentException(String.format("Column %s does not exist", columnName));
+        }
+        return columnIndex.get();
     }
     
+    /**
+     * Returns rows view when container rows are not yet copied from it
+     */
+    public Optional<RowsView> getRowsView() {
+        return Optional.ofNullable(rowsView);
+    }
+    
+    /**
+     * Returns container rows. Rows read from view can't be modified
+     * through returned list.
+     */
     public List<DataRow> getRows() {
+        RowsView currentRowsView = rowsView;
+        if (currentRowsView != null) {
+            return new AbstractList<DataRow>() {
+                @Override
+                public DataRow get(int index) {
+                    if (index < 0 || index > currentRowsView.size() - 1) {
+                        throw new IndexOutOfBoundsException(String.format("Row index should be one of 0..%d", currentRowsView.size() - 1));
+                    }
+                    return currentRowsView.get(DataContainer.this, index);
+                }
+
+                @Override
+                public int size() {
+                    return currentRowsView.size();
+                }
+            };
+        }
         return rows;
     }
     
@@ -0,0 +1,16 @@
+package org.meridor.perspective.sql;
+
+/**
+ * Read-only rows stored outside of data container, e.g. as column vectors.
+ * Rows are created on access.
+ */
+public interface RowsView {
+
+    int size();
+
+    /**
+     * Returns row with given index belonging to given data container
+     */
+    DataRow get(DataContainer dataContainer, int index);
+
+}
@@ -0,0 +1,88 @@
+package org.meridor.perspective.sql;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class BinaryQueryResultsTest {
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        DataContainer dataContainer = new DataContainer(Arrays.asList("id", "state", "value", "flag"));
+        dataContainer.addRow(Arrays.asList(1, "launched", 2.5, true));
+        dataContainer.addRow(Arrays.asList(-2, "launched", null, false));
+        dataContainer.addRow(Arrays.asList(Long.MAX_VALUE, "запущен", 0.1f, null));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (BinaryQueryResultsWriter writer = new BinaryQueryResultsWriter(outputStream, 2)) {
+            writer.write(QueryStatus.SUCCESS, 3, "", dataContainer);
+            writer.write(QueryStatus.ABORTED, 0, null, DataContainer.empty());
+        }
+        List<QueryResult> queryResults = BinaryQueryResults.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertThat(queryResults, hasSize(2));
+
+        QueryResult queryResult = queryResults.get(0);
+        assertThat(queryResult.getStatus(), equalTo(QueryStatus.SUCCESS));
+        assertThat(queryResult.getCount(), equalTo(3));
+        assertThat(queryResult.getMessage(), equalTo(""));
+        assertThat(queryResult.getData().getColumnNames(), contains("id", "state", "value", "flag"));
+        List<Row> rows = queryResult.getData().getRows();
+        assertThat(rows, hasSize(3));
+        assertThat(rows.get(0).getValues(), contains(1, "launched", 2.5, true));
+        assertThat(rows.get(1).getValues(), contains(-2, "launched", null, false));
+        assertThat(rows.get(2).getValues(), contains(Long.MAX_VALUE, "запущен", (double) 0.1f, null));
+
+        QueryResult abortedQueryResult = queryResults.get(1);
+        assertThat(abortedQueryResult.getStatus(), equalTo(QueryStatus.ABORTED));
+        assertThat(abortedQueryResult.getMessage(), is(nullValue()));
+        assertThat(abortedQueryResult.getData().getColumnNames(), is(empty()));
+        assertThat(abortedQueryResult.getData().getRows(), is(empty()));
+    }
+
+    @Test
+    public void testWriteQueryResult() throws Exception {
+        QueryResult queryResult = new QueryResult();
+        queryResult.setStatus(QueryStatus.SUCCESS);
+        queryResult.setCount(1);
+        queryResult.setMessage("");
+        Data data = new Data();
+        data.getColumnNames().add("name");
+        Row row = new Row();
+        row.getValues().add("test");
+        data.getRows().add(row);
+        queryResult.setData(data);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (BinaryQueryResultsWriter writer = new BinaryQueryResultsWriter(outputStream, 1)) {
+            writer.write(queryResult);
+        }
+        List<QueryResult> queryResults = BinaryQueryResults.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertThat(queryResults, equalTo(Collections.singletonList(queryResult)));
+    }
+
+    @Test
+    public void testRepeatedStringsAreWrittenOnce() throws Exception {
+        DataContainer dataContainer = new DataContainer(Collections.singletonList("cloud_id"));
+        for (int i = 0; i <= 999; i++) {
+            dataContainer.addRow(Collections.singletonList("some-long-cloud-identifier"));
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (BinaryQueryResultsWriter writer = new BinaryQueryResultsWriter(outputStream, 1)) {
+            writer.write(QueryStatus.SUCCESS, 1000, "", dataContainer);
+        }
+        //Each value is a tag and one byte index
+        assertThat(outputStream.size(), lessThan(2100));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnsupportedVersion() throws Exception {
+        BinaryQueryResults.read(new ByteArrayInputStream(new byte[]{42, 0}));
+    }
+
+}
@@ -31,6 +31,7 @@ public final class ApiAware {
         Retrofit retrofit =
                 new Retrofit.Builder()
                         .baseUrl(baseUrl)
+                        .addConverterFactory(new BinaryQueryResultsConverterFactory())
                         .addConverterFactory(JacksonConverterFactory.create(objectMapper))
                         .client(httpClient).build();
         return retrofit.create(serviceClass);
@@ -50,11 +51,13 @@ public final class ApiAware {
     private OkHttpClient createClient() {
         return new OkHttpClient.Builder()
                 .addInterceptor(chain -> {
-                    Request request = chain.request()
-                            .newBuilder()
-                            .addHeader("Accept", "application/json")
-                            .build();
-                    return chain.proceed(request);
+                    //Some methods accept other formats too
+                    Request request = chain.request();
+                    return chain.proceed(
+                            request.header("Accept") == null ?
+                                    request.newBuilder().addHeader("Accept", "application/json").build() :
+                                    request
+                    );
                 })
                 .readTimeout(2, TimeUnit.MINUTES)
                 .connectTimeout(10, TimeUnit.SECONDS)
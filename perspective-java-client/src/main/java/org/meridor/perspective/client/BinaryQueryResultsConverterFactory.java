@@ -0,0 +1,56 @@
+package org.meridor.perspective.client;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.meridor.perspective.sql.BinaryQueryResults;
+import org.meridor.perspective.sql.QueryResult;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Decodes query results returned in binary format and passes
+ * responses in other formats to the next converter
+ */
+class BinaryQueryResultsConverterFactory extends Converter.Factory {
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        if (!isQueryResultsType(type)) {
+            return null;
+        }
+        Converter<ResponseBody, ?> nextConverter = retrofit.nextResponseBodyConverter(this, type, annotations);
+        return body -> {
+            if (!isBinary(body.contentType())) {
+                return nextConverter.convert(body);
+            }
+            try {
+                return BinaryQueryResults.read(body.byteStream());
+            } finally {
+                body.close();
+            }
+        };
+    }
+
+    private static boolean isQueryResultsType(Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return false;
+        }
+        //Decoded results are returned as list, so e.g. Collection<QueryResult> is also supported
+        ParameterizedType parameterizedType = (ParameterizedType) type;
+        Type rawType = parameterizedType.getRawType();
+        Type[] typeArguments = parameterizedType.getActualTypeArguments();
+        return rawType instanceof Class && ((Class<?>) rawType).isAssignableFrom(List.class) &&
+                typeArguments.length == 1 && typeArguments[0] == QueryResult.class;
+    }
+
+    private static boolean isBinary(MediaType mediaType) {
+        return mediaType != null &&
+                BinaryQueryResults.MEDIA_TYPE.equals(String.format("%s/%s", mediaType.type(), mediaType.subtype()));
+    }
+
+}
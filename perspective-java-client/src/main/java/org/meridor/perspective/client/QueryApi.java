@@ -1,16 +1,25 @@
 package org.meridor.perspective.client;
 
+import org.meridor.perspective.sql.BinaryQueryResults;
 import org.meridor.perspective.sql.Query;
 import org.meridor.perspective.sql.QueryResult;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
+import retrofit2.http.Headers;
 import retrofit2.http.POST;
+import retrofit2.http.PUT;
 
 import java.util.Collection;
 
 public interface QueryApi {
     
+    //Binary results are smaller than JSON ones, so they are preferred
+    @Headers("Accept: " + BinaryQueryResults.MEDIA_TYPE + ", application/json;q=0.9")
     @POST("/query")
     Call<Collection<QueryResult>> query(@Body Collection<Query> queries);
     
+    @PUT("/query/cancel")
+    Call<ResponseBody> cancel(@Body Collection<Query> queries);
+    
 }
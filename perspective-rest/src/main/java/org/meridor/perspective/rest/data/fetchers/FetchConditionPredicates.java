@@ -0,0 +1,88 @@
+package org.meridor.perspective.rest.data.fetchers;
+
+import com.hazelcast.query.Predicate;
+import com.hazelcast.query.Predicates;
+import org.meridor.perspective.sql.impl.expression.FetchCondition;
+import org.meridor.perspective.sql.impl.expression.ValueRange;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Converts fetch condition to Hazelcast predicate. Conditions which can't be
+ * evaluated by Hazelcast in the same way as query filter does are skipped,
+ * so returned predicate always matches a superset of rows.
+ */
+final class FetchConditionPredicates {
+
+    //Other characters have special meaning in regular expressions used by LIKE
+    private static final Pattern SAFE_LIKE_PATTERN = Pattern.compile("[\\w%\\- ]*");
+
+    static <K, V> Optional<Predicate<K, V>> toPredicate(FetchCondition condition, Map<String, String> columnsToAttributes) {
+        List<Predicate> predicates = new ArrayList<>();
+
+        condition.getFixedValueConditions().forEach((columnName, values) -> {
+            String attribute = columnsToAttributes.get(columnName);
+            if (attribute != null && values.stream().allMatch(v -> v instanceof String)) {
+                predicates.add(
+                        values.size() == 1 ?
+                                Predicates.equal(attribute, (String) values.iterator().next()) :
+                                Predicates.in(attribute, values.toArray(new String[values.size()]))
+                );
+            }
+        });
+
+        condition.getRangeConditions().forEach((columnName, valueRange) -> {
+            String attribute = columnsToAttributes.get(columnName);
+            if (attribute != null) {
+                toPredicates(attribute, valueRange).forEach(predicates::add);
+            }
+        });
+
+        condition.getLikeConditions().forEach((columnName, patterns) -> {
+            String attribute = columnsToAttributes.get(columnName);
+            if (attribute != null) {
+                patterns.stream()
+                        .filter(p -> SAFE_LIKE_PATTERN.matcher(p).matches())
+                        .forEach(p -> predicates.add(Predicates.like(attribute, "%" + p + "%")));
+            }
+        });
+
+        if (predicates.isEmpty()) {
+            return Optional.empty();
+        }
+        @SuppressWarnings("unchecked")
+        Predicate<K, V> predicate = (predicates.size() == 1) ?
+                predicates.get(0) :
+                Predicates.and(predicates.toArray(new Predicate[predicates.size()]));
+        return Optional.of(predicate);
+    }
+
+    //Only string bounds are used because all attributes are strings
+    private static List<Predicate> toPredicates(String attribute, ValueRange valueRange) {
+        List<Predicate> ret = new ArrayList<>();
+        Optional<Object> lowerBound = valueRange.getLowerBound();
+        if (lowerBound.isPresent() && lowerBound.get() instanceof String) {
+            String value = (String) lowerBound.get();
+            ret.add(
+                    valueRange.isLowerBoundInclusive() ?
+                            Predicates.greaterEqual(attribute, value) :
+                            Predicates.greaterThan(attribute, value)
+            );
+        }
+        Optional<Object> upperBound = valueRange.getUpperBound();
+        if (upperBound.isPresent() && upperBound.get() instanceof String) {
+            String value = (String) upperBound.get();
+            ret.add(
+                    valueRange.isUpperBoundInclusive() ?
+                            Predicates.lessEqual(attribute, value) :
+                            Predicates.lessThan(attribute, value)
+            );
+        }
+        return ret;
+    }
+
+    private FetchConditionPredicates() {
+    }
+
+}
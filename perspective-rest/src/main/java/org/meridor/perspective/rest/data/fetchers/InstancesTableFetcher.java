@@ -1,18 +1,31 @@
 package org.meridor.perspective.rest.data.fetchers;
 
+import com.hazelcast.query.Predicate;
 import org.meridor.perspective.beans.Instance;
 import org.meridor.perspective.backend.storage.InstancesAware;
 import org.meridor.perspective.rest.data.TableName;
+import org.meridor.perspective.sql.impl.expression.FetchCondition;
 import org.meridor.perspective.sql.impl.storage.impl.BaseTableFetcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.Collection;
-import java.util.Set;
+import java.util.*;
 
 @Component
 public class InstancesTableFetcher extends BaseTableFetcher<Instance> {
 
+    //Only plain string instance fields can be queried in storage
+    private static final Map<String, String> COLUMNS_TO_ATTRIBUTES = new HashMap<String, String>(){
+        {
+            put("id", "id");
+            put("real_id", "realId");
+            put("name", "name");
+            put("cloud_id", "cloudId");
+            put("project_id", "projectId");
+            put("fqdn", "fqdn");
+        }
+    };
+
     @Autowired
     private InstancesAware instancesAware;
 
@@ -31,6 +44,14 @@ public class InstancesTableFetcher extends BaseTableFetcher<Instance> {
         return instancesAware.getInstances(ids);
     }
 
+    @Override
+    protected Collection<Instance> getRawEntities(FetchCondition condition) {
+        Optional<Predicate<String, Instance>> predicate = FetchConditionPredicates.toPredicate(condition, COLUMNS_TO_ATTRIBUTES);
+        return predicate.isPresent() ?
+                instancesAware.getInstances(predicate.get()) :
+                getAllRawEntities();
+    }
+
     @Override
     protected Collection<Instance> getAllRawEntities() {
         return instancesAware.getInstances();
@@ -2,20 +2,115 @@ package org.meridor.perspective.rest.data.listeners;
 
 import org.meridor.perspective.backend.storage.EntityListener;
 import org.meridor.perspective.backend.storage.StorageEvent;
+import org.meridor.perspective.sql.impl.QueryCache;
 import org.meridor.perspective.sql.impl.index.Indexer;
+import org.meridor.perspective.sql.impl.storage.ObjectMapper;
+import org.meridor.perspective.sql.impl.storage.ObjectMapperAware;
+import org.meridor.perspective.sql.impl.storage.impl.DerivedTableFetcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Component
-public abstract class BaseEntityListener<T> implements EntityListener<T> {
+public abstract class BaseEntityListener<T> implements EntityListener<T>, ApplicationListener<ContextRefreshedEvent> {
+    
+    private static final Logger LOG = LoggerFactory.getLogger(BaseEntityListener.class);
     
     @Autowired
     private Indexer indexer;
+    
+    @Autowired
+    private QueryCache queryCache;
+
+    @Autowired
+    private ObjectMapperAware objectMapperAware;
+
+    @Autowired(required = false)
+    private List<DerivedTableFetcher<?, ?>> derivedTableFetchers = Collections.emptyList();
+
+    @Autowired(required = false)
+    private List<TableChangeListener> tableChangeListeners = Collections.emptyList();
+
+    //Events are applied concurrently but never during repair, so it can't overwrite them with stale entities
+    private final ReadWriteLock repairLock = new ReentrantReadWriteLock();
+
+    private final AtomicBoolean repaired = new AtomicBoolean();
+
+    /**
+     * Entities stored before listener was added never get to indexes, so
+     * indexes are compared with storage contents once on startup. Context
+     * refresh event is also sent by child contexts and repeated refreshes.
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (!repaired.compareAndSet(false, true)) {
+            return;
+        }
+        repairLock.writeLock().lock();
+        try {
+            repairIndexes();
+        } finally {
+            repairLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads entities from storage and repairs table indexes. Entities should
+     * be read here so that changes made after that are applied by listener.
+     */
+    protected abstract void repairIndexes();
+
+    protected <I> void repairIndexes(String tableName, Collection<I> entities) {
+        Set<?> repairedIndexes = indexer.repairIndexes(tableName, entities);
+        if (!repairedIndexes.isEmpty()) {
+            LOG.info("Repaired {} indexes of \"{}\" table", repairedIndexes.size(), tableName);
+            queryCache.invalidate(tableName);
+            tableChangeListeners.forEach(l -> l.onTableChanged(tableName, Collections.emptySet()));
+        }
+    }
+
+    protected <I, O> void repairDerivedIndexes(String tableName, Collection<I> entities, Function<I, Stream<O>> mapper) {
+        List<O> derivedEntities = entities.stream()
+                .flatMap(mapper)
+                .collect(Collectors.toList());
+        repairIndexes(tableName, derivedEntities);
+    }
 
     protected <I> void updateEntity(StorageEvent event, String tableName, I entity, I oldEntity) {
+        repairLock.readLock().lock();
+        try {
+            updateIndexes(event, tableName, entity, oldEntity);
+        } finally {
+            repairLock.readLock().unlock();
+        }
+        queryCache.invalidate(tableName);
+        //Deleted entity can be passed as an old one
+        Set<String> ids = Collections.singleton(getId(entity != null ? entity : oldEntity));
+        tableChangeListeners.forEach(l -> l.onTableChanged(tableName, ids));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <I> String getId(I entity) {
+        ObjectMapper<I> objectMapper = (ObjectMapper<I>) objectMapperAware.get(entity.getClass());
+        return objectMapper.getId(entity);
+    }
+
+    private <I> void updateIndexes(StorageEvent event, String tableName, I entity, I oldEntity) {
         switch (event) {
             case ADDED: {
                 indexer.add(tableName, entity);
@@ -35,6 +130,19 @@ public abstract class BaseEntityListener<T> implements EntityListener<T> {
     }
     
     protected <I, O> void updateDerivedEntities(StorageEvent event, String tableName, I entity, I oldEntity, Function<I, Stream<O>> mapper) {
+        repairLock.readLock().lock();
+        try {
+            updateDerivedIndexes(event, tableName, entity, oldEntity, mapper);
+        } finally {
+            repairLock.readLock().unlock();
+        }
+        updateMaterializedEntities(event, tableName, entity, oldEntity);
+        queryCache.invalidate(tableName);
+        //Derived rows have their own ids which are not tracked here
+        tableChangeListeners.forEach(l -> l.onTableChanged(tableName, Collections.emptySet()));
+    }
+
+    private <I, O> void updateDerivedIndexes(StorageEvent event, String tableName, I entity, I oldEntity, Function<I, Stream<O>> mapper) {
         Stream<O> derivedEntities = entity != null ? mapper.apply(entity) : Stream.empty();
         Stream<O> oldDerivedEntities = oldEntity != null ? mapper.apply(oldEntity) : Stream.empty();
         switch (event) {
@@ -49,10 +157,39 @@ public abstract class BaseEntityListener<T> implements EntityListener<T> {
             }
             case DELETED:
             case EVICTED:{
-                derivedEntities.forEach(de -> indexer.delete(tableName, de));
+                //Deleted entity can be passed as an old one
+                Stream<O> deletedEntities = entity != null ? derivedEntities : oldDerivedEntities;
+                deletedEntities.forEach(de -> indexer.delete(tableName, de));
+                break;
+            }
+        }
+    }
+
+    private <I> void updateMaterializedEntities(StorageEvent event, String tableName, I entity, I oldEntity) {
+        Optional<DerivedTableFetcher<I, ?>> derivedTableFetcher = getDerivedTableFetcher(tableName);
+        if (!derivedTableFetcher.isPresent()) {
+            return;
+        }
+        switch (event) {
+            case ADDED:
+            case MODIFIED: {
+                derivedTableFetcher.get().updateMaterializedEntities(oldEntity, entity);
+                break;
+            }
+            case DELETED:
+            case EVICTED: {
+                derivedTableFetcher.get().updateMaterializedEntities(entity != null ? entity : oldEntity, null);
                 break;
             }
         }
     }
+
+    @SuppressWarnings("unchecked")
+    private <I> Optional<DerivedTableFetcher<I, ?>> getDerivedTableFetcher(String tableName) {
+        return derivedTableFetchers.stream()
+                .filter(tf -> tableName.equals(tf.getTableName()))
+                .<DerivedTableFetcher<I, ?>>map(tf -> (DerivedTableFetcher<I, ?>) tf)
+                .findFirst();
+    }
     
 }
@@ -8,6 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.util.Collection;
 
 import static org.meridor.perspective.rest.data.TableName.*;
 
@@ -29,4 +30,12 @@ public class ImagesListener extends BaseEntityListener<Image> {
         updateDerivedEntities(event, PROJECT_IMAGES.getTableName(), image, oldImage, ImageConverters::imageToProjectImages);
     }
 
+    @Override
+    protected void repairIndexes() {
+        Collection<Image> images = imagesAware.getImages();
+        repairIndexes(IMAGES.getTableName(), images);
+        repairDerivedIndexes(IMAGE_METADATA.getTableName(), images, ImageConverters::imageToMetadata);
+        repairDerivedIndexes(PROJECT_IMAGES.getTableName(), images, ImageConverters::imageToProjectImages);
+    }
+
 }
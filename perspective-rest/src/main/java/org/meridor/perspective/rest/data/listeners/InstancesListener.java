@@ -8,6 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.util.Collection;
 
 import static org.meridor.perspective.rest.data.TableName.*;
 
@@ -29,4 +30,12 @@ public class InstancesListener extends BaseEntityListener<Instance> {
         updateDerivedEntities(event, INSTANCE_NETWORKS.getTableName(), instance, oldInstance, InstanceConverters::instanceToNetworks);
     }
 
+    @Override
+    protected void repairIndexes() {
+        Collection<Instance> instances = instancesAware.getInstances();
+        repairIndexes(INSTANCES.getTableName(), instances);
+        repairDerivedIndexes(INSTANCE_METADATA.getTableName(), instances, InstanceConverters::instanceToMetadata);
+        repairDerivedIndexes(INSTANCE_NETWORKS.getTableName(), instances, InstanceConverters::instanceToNetworks);
+    }
+
 }
@@ -8,6 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.util.Collection;
 
 import static org.meridor.perspective.rest.data.TableName.*;
 
@@ -35,4 +36,18 @@ public class ProjectsListener extends BaseEntityListener<Project> {
         updateDerivedEntities(event, NETWORK_SUBNETS.getTableName(), project, oldProject, ProjectConverters::projectToNetworkSubnets);
     }
 
+    @Override
+    protected void repairIndexes() {
+        Collection<Project> projects = projectsAware.getProjects();
+        repairIndexes(PROJECTS.getTableName(), projects);
+        repairDerivedIndexes(PROJECT_METADATA.getTableName(), projects, ProjectConverters::projectToMetadata);
+        repairDerivedIndexes(PROJECT_QUOTA.getTableName(), projects, ProjectConverters::projectToQuota);
+        repairDerivedIndexes(AVAILABILITY_ZONES.getTableName(), projects, ProjectConverters::projectToAvailabilityZones);
+        repairDerivedIndexes(CLOUDS.getTableName(), projects, ProjectConverters::projectToCloud);
+        repairDerivedIndexes(FLAVORS.getTableName(), projects, ProjectConverters::projectToFlavors);
+        repairDerivedIndexes(KEYPAIRS.getTableName(), projects, ProjectConverters::projectToKeypairs);
+        repairDerivedIndexes(NETWORKS.getTableName(), projects, ProjectConverters::projectToNetworks);
+        repairDerivedIndexes(NETWORK_SUBNETS.getTableName(), projects, ProjectConverters::projectToNetworkSubnets);
+    }
+
 }
@@ -0,0 +1,17 @@
+package org.meridor.perspective.rest.data.listeners;
+
+import java.util.Set;
+
+/**
+ * Gets notified after table data changes and cached query results
+ * depending on it were invalidated
+ */
+public interface TableChangeListener {
+
+    /**
+     * @param tableName changed table name
+     * @param ids ids of changed rows or empty set when any rows could change
+     */
+    void onTableChanged(String tableName, Set<String> ids);
+
+}
@@ -0,0 +1,18 @@
+package org.meridor.perspective.rest.handler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Response entity written directly to response stream in one of the
+ * content types listed in resource method {@code @Produces} annotation
+ */
+public interface StreamingEntity {
+
+    /**
+     * @param outputStream response stream
+     * @param contentType content type negotiated using Accept header
+     */
+    void write(OutputStream outputStream, String contentType) throws IOException;
+
+}
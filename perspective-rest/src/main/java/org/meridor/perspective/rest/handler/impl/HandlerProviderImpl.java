@@ -20,11 +20,15 @@ import io.undertow.websockets.core.StreamSourceFrameChannel;
 import io.undertow.websockets.core.WebSocketChannel;
 import org.meridor.perspective.rest.handler.HandlerProvider;
 import org.meridor.perspective.rest.handler.Response;
+import org.meridor.perspective.rest.handler.StreamingEntity;
 import org.meridor.perspective.rest.handler.WebsocketResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
@@ -36,7 +40,9 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static io.undertow.util.Headers.ACCEPT;
+import static io.undertow.util.Headers.CHUNKED;
 import static io.undertow.util.Headers.CONTENT_TYPE;
+import static io.undertow.util.Headers.TRANSFER_ENCODING;
 import static io.undertow.util.StatusCodes.UNSUPPORTED_MEDIA_TYPE;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static org.meridor.perspective.api.SerializationUtils.createDefaultMapper;
@@ -44,6 +50,8 @@ import static org.meridor.perspective.api.SerializationUtils.serialize;
 
 public class HandlerProviderImpl implements HandlerProvider {
 
+    private static final Logger LOG = LoggerFactory.getLogger(HandlerProviderImpl.class);
+
     private static final String SLASH = "/";
     private static final String DEFAULT_CONTENT_TYPE = APPLICATION_JSON;
 
@@ -174,7 +182,7 @@ public class HandlerProviderImpl implements HandlerProvider {
                         Optional<String> supportedResponseContentType = getSupportedContentType(exchange, ACCEPT, outputMediaTypes);
                         if (supportedResponseContentType.isPresent()) {
                             exchange.getResponseHeaders().put(CONTENT_TYPE, supportedResponseContentType.get());
-                            writeResultIfNeeded(exchange, method.getReturnType(), result);
+                            writeResultIfNeeded(exchange, method.getReturnType(), result, supportedResponseContentType.get());
                         } else {
                             exchange.setStatusCode(UNSUPPORTED_MEDIA_TYPE);
                             exchange.endExchange();
@@ -270,13 +278,46 @@ public class HandlerProviderImpl implements HandlerProvider {
                 Optional.ofNullable(supportedContentTypes.get(0));
     }
 
-    private static Optional<String> getSupportedContentType(String contentTypeCandidate, List<String> supportedContentTypes) {
-        if (MediaType.WILDCARD.equals(contentTypeCandidate) && !supportedContentTypes.isEmpty()) {
-            return Optional.of(supportedContentTypes.get(0));
+    /**
+     * Returns the first supported content type in header order. Types with
+     * greater quality go first, e.g. "text/plain;q=0.5, application/json",
+     * and types with zero quality are not acceptable.
+     */
+    private static Optional<String> getSupportedContentType(String headerValue, List<String> supportedContentTypes) {
+        List<String> contentTypeCandidates = Arrays.stream(headerValue.split(","))
+                .map(String::trim)
+                .filter(ct -> !ct.isEmpty() && getQuality(ct) > 0)
+                .sorted(Comparator.comparing(HandlerProviderImpl::getQuality).reversed())
+                .map(ct -> ct.split(";")[0].trim())
+                .collect(Collectors.toList());
+        for (String contentTypeCandidate : contentTypeCandidates) {
+            if (MediaType.WILDCARD.equals(contentTypeCandidate) && !supportedContentTypes.isEmpty()) {
+                return Optional.of(supportedContentTypes.get(0));
+            }
+            Optional<String> supportedContentType = supportedContentTypes.stream()
+                    .filter(contentTypeCandidate::equalsIgnoreCase)
+                    .findFirst();
+            if (supportedContentType.isPresent()) {
+                return supportedContentType;
+            }
         }
-        return supportedContentTypes.stream()
-                .filter(contentTypeCandidate::contains)
-                .findFirst();
+        return Optional.empty();
+    }
+
+    private static double getQuality(String contentType) {
+        return Arrays.stream(contentType.split(";"))
+                .skip(1)
+                .map(String::trim)
+                .filter(p -> p.startsWith("q="))
+                .findFirst()
+                .map(p -> {
+                    try {
+                        return Double.parseDouble(p.substring(2));
+                    } catch (NumberFormatException e) {
+                        return 0d;
+                    }
+                })
+                .orElse(1d);
     }
 
     private static Optional<String> getHeader(HttpServerExchange exchange, HttpString headerName) {
@@ -304,7 +345,7 @@ public class HandlerProviderImpl implements HandlerProvider {
     }
 
     private static void writeResultIfNeeded(
-            HttpServerExchange exchange, Class<?> returnType, Object result) {
+            HttpServerExchange exchange, Class<?> returnType, Object result, String contentType) {
         try {
             if (Response.class.isAssignableFrom(returnType)) {
                 Response response = Response.class.cast(result);
@@ -318,6 +359,8 @@ public class HandlerProviderImpl implements HandlerProvider {
                     Object entity = entityCandidate.get();
                     write(entity, exchange);
                 }
+            } else if (result instanceof StreamingEntity) {
+                stream((StreamingEntity) result, contentType, exchange);
             } else if (result != null) {
                 write(result, exchange);
             }
@@ -326,6 +369,26 @@ public class HandlerProviderImpl implements HandlerProvider {
         }
     }
 
+    private static void stream(StreamingEntity entity, String contentType, HttpServerExchange exchange) {
+        //Blocking writes are not allowed in IO thread
+        if (exchange.isInIoThread()) {
+            exchange.dispatch(() -> stream(entity, contentType, exchange));
+            return;
+        }
+        //Response length is unknown until everything is written
+        if (exchange.isHttp11()) {
+            exchange.getResponseHeaders().put(TRANSFER_ENCODING, CHUNKED.toString());
+        }
+        exchange.startBlocking();
+        try (OutputStream outputStream = exchange.getOutputStream()) {
+            entity.write(outputStream, contentType);
+        } catch (IOException e) {
+            LOG.debug("Failed to stream response", e);
+        } finally {
+            exchange.endExchange();
+        }
+    }
+
     private static void write(Object body, HttpServerExchange exchange) throws IOException {
         exchange.getResponseSender().send(serialize(body));
     }
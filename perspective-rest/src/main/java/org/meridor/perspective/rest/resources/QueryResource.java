@@ -1,9 +1,12 @@
 package org.meridor.perspective.rest.resources;
 
+import org.meridor.perspective.rest.handler.Response;
+import org.meridor.perspective.rest.handler.StreamingEntity;
+import org.meridor.perspective.sql.BinaryQueryResults;
 import org.meridor.perspective.sql.Parameter;
 import org.meridor.perspective.sql.Query;
 import org.meridor.perspective.sql.QueryProcessor;
-import org.meridor.perspective.sql.QueryResult;
+import org.meridor.perspective.sql.RawQueryResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +14,7 @@ import org.springframework.stereotype.Component;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import java.util.List;
@@ -18,6 +22,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.meridor.perspective.rest.handler.Response.ok;
 import static org.springframework.util.StringUtils.isEmpty;
 
 @Component
@@ -37,27 +42,41 @@ public class QueryResource {
 
     @POST
     @Consumes(APPLICATION_JSON)
-    @Produces(APPLICATION_JSON)
-    public List<QueryResult> query(List<Query> queries) {
+    @Produces({APPLICATION_JSON, BinaryQueryResults.MEDIA_TYPE})
+    public StreamingEntity query(List<Query> queries) {
         long queryId = queryCounter.incrementAndGet();
-        List<QueryResult> results = queries.stream().flatMap(q -> {
-            LOG.info(
-                    "Processing query #{} with sql = \"{}\" and parameters = [{}]",
-                    queryId,
-                    q.getSql(),
-                    q.getParameters().stream().map(Parameter::toString).collect(Collectors.joining(", "))
-            );
-            return queryProcessor.process(q).stream();
-        }).collect(Collectors.toList());
+        queries.forEach(q -> LOG.info(
+                "Processing query #{} with sql = \"{}\" and parameters = [{}]",
+                queryId,
+                q.getSql(),
+                q.getParameters().stream().map(Parameter::toString).collect(Collectors.joining(", "))
+        ));
+        //Queries are processed concurrently but results are returned in request order
+        //Rows are written to response one by one without converting them to beans
+        List<RawQueryResult> results = queryProcessor.processRaw(queries);
         String queryStatus = results.stream()
                 .map(QueryResource::getQueryStatus)
                 .collect(Collectors.joining("; "));
         LOG.debug("Query #{} results = [{}]", queryId, queryStatus);
-        LOG.trace("Query #{} results raw data = {}", results);
-        return results;
+        return new QueryResultsOutput(results);
     }
     
-    private static String getQueryStatus(QueryResult r) {
+    //Queries are matched by ids, so the same ids should be passed
+    @PUT
+    @Path("/cancel")
+    @Consumes(APPLICATION_JSON)
+    public Response cancelQueries(List<Query> queries) {
+        queries.stream()
+                .filter(q -> q.getId() != null)
+                .forEach(q -> {
+                    if (queryProcessor.cancel(q.getId())) {
+                        LOG.info("Cancelled query with id = {} and sql = \"{}\"", q.getId(), q.getSql());
+                    }
+                });
+        return ok();
+    }
+    
+    private static String getQueryStatus(RawQueryResult r) {
         return String.format(
                 "%d rows, status = %s, message = %s",
                 r.getCount(),
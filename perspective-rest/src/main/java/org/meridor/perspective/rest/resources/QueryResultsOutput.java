@@ -0,0 +1,92 @@
+package org.meridor.perspective.rest.resources;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.meridor.perspective.rest.handler.StreamingEntity;
+import org.meridor.perspective.sql.BinaryQueryResults;
+import org.meridor.perspective.sql.BinaryQueryResultsWriter;
+import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.DataRow;
+import org.meridor.perspective.sql.QueryResult;
+import org.meridor.perspective.sql.RawQueryResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import static org.meridor.perspective.api.SerializationUtils.createDefaultMapper;
+
+/**
+ * Writes query results as the same JSON as serialized list of
+ * {@link QueryResult} but row by row, so that no intermediate
+ * objects or strings are created for the whole response. Clients
+ * accepting {@link BinaryQueryResults#MEDIA_TYPE} get binary results.
+ */
+public class QueryResultsOutput implements StreamingEntity {
+
+    private final List<RawQueryResult> queryResults;
+
+    public QueryResultsOutput(List<RawQueryResult> queryResults) {
+        this.queryResults = queryResults;
+    }
+
+    @Override
+    public void write(OutputStream outputStream, String contentType) throws IOException {
+        if (BinaryQueryResults.MEDIA_TYPE.equals(contentType)) {
+            writeBinary(outputStream);
+        } else {
+            writeJson(outputStream);
+        }
+    }
+
+    private void writeBinary(OutputStream outputStream) throws IOException {
+        try (BinaryQueryResultsWriter writer = new BinaryQueryResultsWriter(outputStream, queryResults.size())) {
+            for (RawQueryResult queryResult : queryResults) {
+                writer.write(queryResult.getStatus(), queryResult.getCount(), queryResult.getMessage(), queryResult.getData());
+            }
+        }
+    }
+
+    private void writeJson(OutputStream outputStream) throws IOException {
+        //Mapper is used as codec so that values are serialized the same way as in beans
+        try (JsonGenerator generator = createDefaultMapper().getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            for (RawQueryResult queryResult : queryResults) {
+                writeQueryResult(generator, queryResult);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static void writeQueryResult(JsonGenerator generator, RawQueryResult queryResult) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("status", queryResult.getStatus().value());
+        generator.writeNumberField("count", queryResult.getCount());
+        generator.writeFieldName("data");
+        writeData(generator, queryResult.getData());
+        generator.writeStringField("message", queryResult.getMessage());
+        generator.writeEndObject();
+    }
+
+    private static void writeData(JsonGenerator generator, DataContainer dataContainer) throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("columnName");
+        for (String columnName : dataContainer.getColumnNames()) {
+            generator.writeString(columnName);
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("row");
+        for (DataRow dataRow : dataContainer.getRows()) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("value");
+            for (Object value : dataRow.getValues()) {
+                generator.writeObject(value);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+}
@@ -0,0 +1,181 @@
+package org.meridor.perspective.rest.resources;
+
+import io.undertow.websockets.core.WebSocketCallback;
+import io.undertow.websockets.core.WebSocketChannel;
+import io.undertow.websockets.core.WebSockets;
+import org.meridor.perspective.rest.data.listeners.TableChangeListener;
+import org.meridor.perspective.rest.handler.WebsocketResource;
+import org.meridor.perspective.sql.Query;
+import org.meridor.perspective.sql.QueryChanges;
+import org.meridor.perspective.sql.QueryProcessor;
+import org.meridor.perspective.sql.QueryResult;
+import org.meridor.perspective.sql.QuerySubscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.ws.rs.Path;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.meridor.perspective.api.SerializationUtils.serialize;
+import static org.meridor.perspective.api.SerializationUtils.unserialize;
+
+/**
+ * Keeps queries sent by clients and pushes changed rows to them every time
+ * storage data changes. Only queries reading data from changed tables are
+ * evaluated again. Single table queries without joins and aggregates are
+ * only evaluated against changed rows when their ids are known, other
+ * queries are evaluated completely and compared with previous results.
+ */
+@SuppressWarnings("RestResourceMethodInspection")
+@Component
+@Path("/subscriptions")
+public class QuerySubscriptionResource implements WebsocketResource, TableChangeListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuerySubscriptionResource.class);
+
+    private final QueryProcessor queryProcessor;
+
+    //Subscriptions are only modified and evaluated in this thread
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+    private final Map<WebSocketChannel, Map<String, StandingQuery>> subscriptions = new ConcurrentHashMap<>();
+
+    //Changed table names to ids of changed rows, empty set means that any rows could change
+    private final Map<String, Set<String>> changedRows = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean isRefreshScheduled = new AtomicBoolean();
+
+    @Autowired
+    public QuerySubscriptionResource(QueryProcessor queryProcessor) {
+        this.queryProcessor = queryProcessor;
+    }
+
+    @Override
+    public void onMessage(String message, WebSocketChannel channel) {
+        try {
+            QuerySubscription querySubscription = unserialize(message, QuerySubscription.class);
+            executorService.submit(() -> subscribe(querySubscription, channel));
+        } catch (IOException e) {
+            LOG.error(String.format("Failed to parse subscription %s", message), e);
+        }
+    }
+
+    @Override
+    public void onClose(WebSocketChannel channel) {
+        executorService.submit(() -> subscriptions.remove(channel));
+    }
+
+    @Override
+    public void onTableChanged(String tableName, Set<String> ids) {
+        changedRows.merge(tableName, ids, QuerySubscriptionResource::mergeIds);
+        //Multiple changes in a row lead to one refresh
+        if (isRefreshScheduled.compareAndSet(false, true)) {
+            executorService.submit(this::refresh);
+        }
+    }
+
+    private static Set<String> mergeIds(Set<String> ids, Set<String> otherIds) {
+        if (ids.isEmpty() || otherIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> mergedIds = new HashSet<>(ids);
+        mergedIds.addAll(otherIds);
+        return mergedIds;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executorService.shutdownNow();
+    }
+
+    private void subscribe(QuerySubscription querySubscription, WebSocketChannel channel) {
+        String subscriptionId = querySubscription.getId();
+        Map<String, StandingQuery> channelSubscriptions = subscriptions.computeIfAbsent(channel, ch -> new ConcurrentHashMap<>());
+        if (querySubscription.getQuery() == null) {
+            LOG.debug("Cancelling subscription {}", subscriptionId);
+            channelSubscriptions.remove(subscriptionId);
+            return;
+        }
+        LOG.debug("Adding subscription {} with sql = \"{}\"", subscriptionId, querySubscription.getQuery().getSql());
+        Query query = querySubscription.getQuery();
+        StandingQuery standingQuery = new StandingQuery(subscriptionId, query, queryProcessor.getTableNames(query));
+        channelSubscriptions.put(subscriptionId, standingQuery);
+        update(standingQuery, channel);
+    }
+
+    private void refresh() {
+        isRefreshScheduled.set(false);
+        //Tables changed after this point are processed by the next refresh
+        Map<String, Set<String>> tablesRows = new HashMap<>();
+        new ArrayList<>(changedRows.keySet()).forEach(tn -> {
+            Set<String> ids = changedRows.remove(tn);
+            if (ids != null) {
+                tablesRows.put(tn, ids);
+            }
+        });
+        subscriptions.forEach((channel, channelSubscriptions) -> {
+            if (!channel.isOpen()) {
+                subscriptions.remove(channel);
+                return;
+            }
+            channelSubscriptions.values().stream()
+                    .filter(sq -> sq.dependsOn(tablesRows.keySet()))
+                    .forEach(sq -> update(sq, tablesRows, channel));
+        });
+    }
+
+    private void update(StandingQuery standingQuery, WebSocketChannel channel) {
+        update(standingQuery, Collections.emptyMap(), channel);
+    }
+
+    private void update(StandingQuery standingQuery, Map<String, Set<String>> tablesRows, WebSocketChannel channel) {
+        try {
+            Query query = standingQuery.getQuery();
+            Optional<Set<String>> changedIds = standingQuery.getChangedIds(tablesRows);
+            Optional<QueryResult> changedRowsResult = changedIds.isPresent() ?
+                    queryProcessor.processRows(query, changedIds.get()) :
+                    Optional.empty();
+            //Joins, aggregates and unknown changes require evaluating the whole query
+            Optional<QueryChanges> queryChanges = changedRowsResult.isPresent() ?
+                    standingQuery.update(changedIds.get(), changedRowsResult.get()) :
+                    standingQuery.update(queryProcessor.process(query));
+            queryChanges.ifPresent(qc -> sendChanges(qc, channel));
+        } catch (Exception e) {
+            LOG.error(String.format("Failed to update subscription %s", standingQuery.getId()), e);
+        }
+    }
+
+    private static void sendChanges(QueryChanges queryChanges, WebSocketChannel channel) {
+        String subscriptionId = queryChanges.getSubscriptionId();
+        try {
+            WebSockets.sendText(serialize(queryChanges), channel, new WebSocketCallback<Void>() {
+                @Override
+                public void complete(WebSocketChannel channel, Void context) {
+                    LOG.trace("Successfully sent changes for subscription {}", subscriptionId);
+                }
+
+                @Override
+                public void onError(WebSocketChannel channel, Void context, Throwable t) {
+                    LOG.error(String.format("Failed to send changes for subscription %s", subscriptionId), t);
+                }
+            });
+        } catch (IOException e) {
+            LOG.error(String.format("Failed to serialize changes for subscription %s", subscriptionId), e);
+        }
+    }
+
+}
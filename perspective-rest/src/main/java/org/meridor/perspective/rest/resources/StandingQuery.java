@@ -0,0 +1,205 @@
+package org.meridor.perspective.rest.resources;
+
+import org.meridor.perspective.sql.*;
+
+import java.util.*;
+
+import static org.meridor.perspective.sql.QueryStatus.EVALUATION_ERROR;
+import static org.meridor.perspective.sql.QueryStatus.SUCCESS;
+
+/**
+ * Query result which is kept between evaluations to send only changed rows
+ * to subscriber. Rows are matched by "id" column when query returns it and
+ * by all values otherwise, so in the latter case changed row is returned as
+ * deleted and inserted one. Query is only evaluated again when tables it
+ * reads data from change. When query returns "id" column and reads one
+ * table, rows can also be updated by evaluating query against changed table
+ * rows only.
+ */
+class StandingQuery {
+
+    private static final String ID_COLUMN = "id";
+
+    private final String id;
+
+    private final Query query;
+
+    private final Set<String> tableNames;
+
+    private List<QueryResult> lastQueryResults;
+
+    private QueryStatus lastStatus;
+
+    private String lastMessage;
+
+    private List<String> columnNames = Collections.emptyList();
+
+    private Map<List<Object>, List<Object>> rows = Collections.emptyMap();
+
+    StandingQuery(String id, Query query, Set<String> tableNames) {
+        this.id = id;
+        this.query = query;
+        this.tableNames = tableNames;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    Query getQuery() {
+        return query;
+    }
+
+    boolean dependsOn(Set<String> changedTableNames) {
+        return !Collections.disjoint(tableNames, changedTableNames);
+    }
+
+    /**
+     * Returns ids of changed rows of the only table query reads when its
+     * previous result can be updated using these rows only
+     * @param tablesRows changed table names to ids of changed rows, empty
+     *                   set means that any rows could change
+     */
+    Optional<Set<String>> getChangedIds(Map<String, Set<String>> tablesRows) {
+        if (lastStatus != SUCCESS || !columnNames.contains(ID_COLUMN) || tableNames.size() != 1) {
+            return Optional.empty();
+        }
+        Set<String> ids = tablesRows.get(tableNames.iterator().next());
+        return (ids != null && !ids.isEmpty()) ?
+                Optional.of(ids) :
+                Optional.empty();
+    }
+
+    /**
+     * Returns changes since previous evaluation or nothing when result is
+     * the same. First evaluation returns all rows as inserted.
+     */
+    Optional<QueryChanges> update(List<QueryResult> queryResults) {
+        //Changed tables don't always change query result
+        if (queryResults.equals(lastQueryResults)) {
+            return Optional.empty();
+        }
+        boolean isFirstUpdate = lastStatus == null;
+        lastQueryResults = queryResults;
+
+        QueryResult queryResult = getQueryResult(queryResults);
+        QueryStatus status = queryResult.getStatus();
+        String message = queryResult.getMessage();
+        boolean isStatusChanged = status != lastStatus || !Objects.equals(message, lastMessage);
+        lastStatus = status;
+        lastMessage = message;
+        QueryChanges queryChanges = createQueryChanges(status, message);
+        if (status != SUCCESS) {
+            return isStatusChanged ?
+                    Optional.of(queryChanges) :
+                    Optional.empty();
+        }
+
+        Data data = queryResult.getData();
+        Map<List<Object>, List<Object>> newRows = getRowsByKey(data.getColumnNames(), data.getRows());
+        if (!data.getColumnNames().equals(columnNames)) {
+            rows.values().forEach(r -> queryChanges.getDeletedRows().add(createRow(r)));
+            rows = Collections.emptyMap();
+        }
+        Map<List<Object>, List<Object>> oldRows = rows;
+        newRows.forEach((key, values) -> {
+            List<Object> oldValues = oldRows.get(key);
+            if (oldValues == null) {
+                queryChanges.getInsertedRows().add(createRow(values));
+            } else if (!oldValues.equals(values)) {
+                queryChanges.getUpdatedRows().add(createRow(values));
+            }
+        });
+        oldRows.keySet().stream()
+                .filter(key -> !newRows.containsKey(key))
+                .forEach(key -> queryChanges.getDeletedRows().add(createRow(oldRows.get(key))));
+        columnNames = data.getColumnNames();
+        rows = newRows;
+        queryChanges.getColumnNames().addAll(columnNames);
+
+        boolean hasChanges =
+                !queryChanges.getInsertedRows().isEmpty() ||
+                !queryChanges.getUpdatedRows().isEmpty() ||
+                !queryChanges.getDeletedRows().isEmpty();
+        return (isFirstUpdate || isStatusChanged || hasChanges) ?
+                Optional.of(queryChanges) :
+                Optional.empty();
+    }
+
+    /**
+     * Returns changes of rows with given ids or nothing when they don't
+     * change the result. Other rows are kept as is.
+     * @param ids ids of changed table rows
+     * @param changedRowsResult query evaluated against changed rows, i.e.
+     *                          their versions still matching query
+     */
+    Optional<QueryChanges> update(Set<String> ids, QueryResult changedRowsResult) {
+        Map<List<Object>, List<Object>> changedRows = getRowsByKey(columnNames, changedRowsResult.getData().getRows());
+        QueryChanges queryChanges = createQueryChanges(SUCCESS, lastMessage);
+        changedRows.forEach((key, values) -> {
+            List<Object> oldValues = rows.put(key, values);
+            if (oldValues == null) {
+                queryChanges.getInsertedRows().add(createRow(values));
+            } else if (!oldValues.equals(values)) {
+                queryChanges.getUpdatedRows().add(createRow(values));
+            }
+        });
+        //Rows which stopped matching query
+        ids.stream()
+                .map(id -> Arrays.<Object>asList(id, 1))
+                .filter(key -> !changedRows.containsKey(key))
+                .map(rows::remove)
+                .filter(Objects::nonNull)
+                .forEach(values -> queryChanges.getDeletedRows().add(createRow(values)));
+        queryChanges.getColumnNames().addAll(columnNames);
+        //Rows no longer match last results, so the next full evaluation should be compared with them
+        lastQueryResults = null;
+
+        boolean hasChanges =
+                !queryChanges.getInsertedRows().isEmpty() ||
+                !queryChanges.getUpdatedRows().isEmpty() ||
+                !queryChanges.getDeletedRows().isEmpty();
+        return hasChanges ?
+                Optional.of(queryChanges) :
+                Optional.empty();
+    }
+
+    private static QueryResult getQueryResult(List<QueryResult> queryResults) {
+        if (queryResults.size() == 1) {
+            return queryResults.get(0);
+        }
+        QueryResult queryResult = new QueryResult();
+        queryResult.setStatus(EVALUATION_ERROR);
+        queryResult.setMessage("Subscription should contain exactly one query");
+        return queryResult;
+    }
+
+    private QueryChanges createQueryChanges(QueryStatus status, String message) {
+        QueryChanges queryChanges = new QueryChanges();
+        queryChanges.setSubscriptionId(id);
+        queryChanges.setStatus(status);
+        queryChanges.setMessage(message);
+        return queryChanges;
+    }
+
+    private static Map<List<Object>, List<Object>> getRowsByKey(List<String> columnNames, List<Row> rows) {
+        int idColumnIndex = columnNames.indexOf(ID_COLUMN);
+        Map<Object, Integer> occurrences = new HashMap<>();
+        Map<List<Object>, List<Object>> ret = new LinkedHashMap<>();
+        rows.forEach(r -> {
+            List<Object> values = r.getValues();
+            Object key = (idColumnIndex >= 0) ? values.get(idColumnIndex) : values;
+            //Rows with the same key are told apart by their order
+            int occurrence = occurrences.merge(key, 1, Integer::sum);
+            ret.put(Arrays.asList(key, occurrence), values);
+        });
+        return ret;
+    }
+
+    private static Row createRow(List<Object> values) {
+        Row row = new Row();
+        row.getValues().addAll(values);
+        return row;
+    }
+
+}
@@ -0,0 +1,68 @@
+package org.meridor.perspective.rest.data;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.meridor.perspective.backend.EntityGenerator;
+import org.meridor.perspective.backend.storage.InstancesAware;
+import org.meridor.perspective.beans.Instance;
+import org.meridor.perspective.beans.MetadataKey;
+import org.meridor.perspective.beans.MetadataMap;
+import org.meridor.perspective.sql.impl.storage.DataFetcher;
+import org.meridor.perspective.sql.impl.table.Column;
+import org.meridor.perspective.sql.impl.table.TablesAware;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.*;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+@ContextConfiguration(locations = "/META-INF/spring/data-fetcher-context.xml")
+@TestPropertySource(properties = "perspective.sql.derived.tables.materialized=true")
+@RunWith(SpringJUnit4ClassRunner.class)
+public class MaterializedDataFetcherTest {
+
+    private static final String INSTANCE_ID = "test-instance";
+
+    private static final String METADATA_ID = "test-instance:region";
+
+    @Autowired
+    private InstancesAware instancesAware;
+
+    @Autowired
+    private DataFetcher dataFetcher;
+
+    @Autowired
+    private TablesAware tablesAware;
+
+    @Test
+    public void testDerivedEntitiesAreUpdated() {
+        instancesAware.saveInstance(EntityGenerator.getInstance());
+        assertThat(fetchInstanceMetadata(null), equalTo(Collections.singletonMap(METADATA_ID, Collections.singletonList("test-region"))));
+
+        Instance modifiedInstance = EntityGenerator.getInstance();
+        MetadataMap metadataMap = new MetadataMap();
+        metadataMap.put(MetadataKey.REGION, "another-region");
+        modifiedInstance.setMetadata(metadataMap);
+        instancesAware.saveInstance(modifiedInstance);
+        assertThat(fetchInstanceMetadata(null), equalTo(Collections.singletonMap(METADATA_ID, Collections.singletonList("another-region"))));
+        assertThat(fetchInstanceMetadata(Collections.singleton(METADATA_ID)), equalTo(Collections.singletonMap(METADATA_ID, Collections.singletonList("another-region"))));
+
+        instancesAware.deleteInstance(INSTANCE_ID);
+        assertThat(fetchInstanceMetadata(null).keySet(), is(empty()));
+        assertThat(fetchInstanceMetadata(Collections.singleton(METADATA_ID)).keySet(), is(empty()));
+    }
+
+    private Map<String, List<Object>> fetchInstanceMetadata(Set<String> ids) {
+        String tableName = TableName.INSTANCE_METADATA.getTableName();
+        List<Column> columns = new ArrayList<>();
+        tablesAware.getColumns(tableName).stream()
+                .filter(c -> "value".equals(c.getName()))
+                .forEach(columns::add);
+        return dataFetcher.fetch(tableName, columns, ids);
+    }
+
+}
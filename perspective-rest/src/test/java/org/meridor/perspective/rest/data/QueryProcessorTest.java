@@ -14,8 +14,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
@@ -110,6 +111,100 @@ public class QueryProcessorTest {
         assertThat(data.getRows().size(), is(greaterThan(0)));
     }
 
+    @Test
+    public void testExplainAnalyzeJoinQuery() {
+        Query query = new Query() {
+            {
+                setSql("explain analyze select i.name, p.name from instances as i inner join projects as p on i.project_id = p.id");
+            }
+        };
+        List<QueryResult> queryResults = queryProcessor.process(query);
+        assertThat(queryResults, hasSize(1));
+        QueryResult queryResult = queryResults.get(0);
+        assertThat(queryResult.getStatus(), equalTo(QueryStatus.SUCCESS));
+        Data data = queryResult.getData();
+        assertThat(data.getColumnNames(), contains("step", "description", "rows_in", "rows_out", "time_ms", "allocated_bytes"));
+        List<Object> steps = new ArrayList<>();
+        data.getRows().forEach(r -> steps.add(r.getValues().get(0)));
+        assertThat(steps, hasItems("task", "strategy", "join", "fetch"));
+        List<Object> totalRow = data.getRows().get(data.getRows().size() - 1).getValues();
+        assertThat(totalRow.get(0), equalTo("total"));
+        assertThat(totalRow.get(3), equalTo(1));
+    }
+
+    @Test
+    public void testInSubqueryQuery() {
+        assertThat(getCount("select i.name from instances as i where i.project_id in (select id from projects)"), equalTo(1));
+        assertThat(getCount("select i.name from instances as i where i.project_id not in (select id from projects)"), equalTo(0));
+    }
+
+    @Test
+    public void testExistsQuery() {
+        assertThat(getCount("select name from projects where exists (select id from instances)"), is(greaterThan(0)));
+        assertThat(getCount("select name from projects where not exists (select id from instances)"), equalTo(0));
+    }
+
+    @Test
+    public void testSubqueryInFromClause() {
+        assertThat(getCount("select d.name from (select i.name from instances as i) as d where d.name = 'test-instance'"), equalTo(1));
+        assertThat(getCount("select name from (select name from instances) as d where name = 'missing'"), equalTo(0));
+        doInnerJoinWithConditionAssertions("select p.name as project_name, d.instance_name as instance_name, f.name as flavor_name " +
+                "from (select name as instance_name, project_id, flavor_id from instances) as d " +
+                "inner join projects as p on d.project_id = p.id " +
+                "inner join flavors as f on d.flavor_id = f.id and d.project_id = f.project_id"
+        );
+    }
+
+    @Test
+    public void testSelectAsteriskFromSubquery() {
+        doAsteriskTest("select * from (select * from instances) as d");
+        doAsteriskTest("select d.* from (select i.* from instances as i) as d");
+    }
+
+    @Test
+    public void testBatchQueries() {
+        List<Query> queries = Stream.of(
+                "select i.name from instances as i inner join projects as p on i.project_id = p.id",
+                "select p.id from projects as p",
+                "select i.id from instances as i"
+        ).map(sql -> {
+            Query query = new Query();
+            query.setSql(sql);
+            return query;
+        }).collect(Collectors.toList());
+        List<QueryResult> queryResults = queryProcessor.process(queries);
+        assertThat(queryResults, hasSize(3));
+        queryResults.forEach(r -> assertThat(r.getStatus(), equalTo(QueryStatus.SUCCESS)));
+        assertThat(queryResults.get(0).getData().getColumnNames(), contains("i.name"));
+        assertThat(queryResults.get(1).getData().getColumnNames(), contains("p.id"));
+        assertThat(queryResults.get(2).getData().getColumnNames(), contains("i.id"));
+    }
+
+    @Test
+    public void testProcessChangedRows() {
+        Query query = new Query();
+        query.setSql("select id, name from images where name like '%image%'");
+        Optional<QueryResult> queryResult = queryProcessor.processRows(query, new HashSet<>(Arrays.asList("second-image", "missing")));
+        assertThat(queryResult.isPresent(), is(true));
+        List<DataRow> rows = fromData(queryResult.get().getData()).getRows();
+        assertThat(rows, hasSize(1));
+        assertThat(rows.get(0).get("id"), equalTo("second-image"));
+
+        //Join results depend on rows of both tables
+        query.setSql("select i.id from instances as i inner join projects as p on i.project_id = p.id");
+        assertThat(queryProcessor.processRows(query, Collections.singleton("test-instance")).isPresent(), is(false));
+    }
+
+    private int getCount(String sql) {
+        Query query = new Query();
+        query.setSql(sql);
+        List<QueryResult> queryResults = queryProcessor.process(query);
+        assertThat(queryResults, hasSize(1));
+        QueryResult queryResult = queryResults.get(0);
+        assertThat(queryResult.getMessage(), queryResult.getStatus(), equalTo(QueryStatus.SUCCESS));
+        return queryResult.getCount();
+    }
+
     @Test
     public void testSelectVersion() {
         Query query = new Query() {
@@ -188,6 +283,43 @@ public class QueryProcessorTest {
         assertThat(rows.get(0).get("state"), equalTo("launched"));
     }
 
+    @Test
+    public void testOnePlanIsUsedForDifferentPlaceholderValues() {
+        String sql = "select name from images where id = ?";
+        List<DataRow> rows = processWithParameters(sql, createParameter(1, null, "second-image"));
+        assertThat(rows, hasSize(1));
+        assertThat(rows.get(0).get("name"), equalTo("second-image"));
+        assertThat(processWithParameters(sql, createParameter(1, null, "missing")), is(empty()));
+
+        sql = "select name from images where name like :pattern:";
+        assertThat(processWithParameters(sql, createParameter(null, "pattern", "%image%")), hasSize(2));
+        assertThat(processWithParameters(sql, createParameter(null, "pattern", "%missing%")), is(empty()));
+    }
+
+    @Test
+    public void testPlaceholderInLimitClause() {
+        List<DataRow> rows = processWithParameters("select name from images order by name limit ?", createParameter(1, null, "1"));
+        assertThat(rows, hasSize(1));
+    }
+
+    private List<DataRow> processWithParameters(String sql, Parameter... parameters) {
+        Query query = new Query();
+        query.setSql(sql);
+        query.getParameters().addAll(Arrays.asList(parameters));
+        List<QueryResult> queryResults = queryProcessor.process(query);
+        assertThat(queryResults, hasSize(1));
+        assertThat(queryResults.get(0).getStatus(), equalTo(QueryStatus.SUCCESS));
+        return fromData(queryResults.get(0).getData()).getRows();
+    }
+
+    private static Parameter createParameter(Integer index, String name, String value) {
+        Parameter parameter = new Parameter();
+        parameter.setIndex(index);
+        parameter.setName(name);
+        parameter.setValue(value);
+        return parameter;
+    }
+
     @Test
     public void testImplicitInnerJoinWithCondition() {
         doInnerJoinWithConditionAssertions(
@@ -304,6 +436,42 @@ public class QueryProcessorTest {
         assertThat(rows.get(1).get("name"), equalTo("test-image"));
     }
     
+    @Test
+    public void testAggregateFunctions() {
+        Query query = new Query();
+        query.setSql("select count(*) as total, max(name) as last_name from images having count(*) > 1");
+        List<QueryResult> queryResults = queryProcessor.process(query);
+        assertThat(queryResults, hasSize(1));
+        QueryResult queryResult = queryResults.get(0);
+        assertThat(queryResult.getStatus(), equalTo(QueryStatus.SUCCESS));
+        assertThat(queryResult.getData().getColumnNames(), contains("total", "last_name"));
+        List<DataRow> rows = fromData(queryResult.getData()).getRows();
+        assertThat(rows, hasSize(1));
+        assertThat(rows.get(0).get("total"), equalTo(2));
+        assertThat(rows.get(0).get("last_name"), equalTo("test-image"));
+    }
+    
+    @Test
+    public void testCachedResultIsInvalidatedOnChange() {
+        Query query = new Query();
+        query.setSql("select name from images where id = 'second-image'");
+        assertThat(getSingleValue(queryProcessor.process(query)), equalTo("second-image"));
+        
+        Image image = EntityGenerator.getImage();
+        image.setId("second-image");
+        image.setName("renamed-image");
+        imagesAware.saveImage(image);
+        assertThat(getSingleValue(queryProcessor.process(query)), equalTo("renamed-image"));
+    }
+    
+    private static Object getSingleValue(List<QueryResult> queryResults) {
+        assertThat(queryResults, hasSize(1));
+        assertThat(queryResults.get(0).getStatus(), equalTo(QueryStatus.SUCCESS));
+        List<DataRow> rows = fromData(queryResults.get(0).getData()).getRows();
+        assertThat(rows, hasSize(1));
+        return rows.get(0).getValues().get(0);
+    }
+    
     @Test
     public void testInProcessing() {
         Query query = new Query();
@@ -333,6 +501,23 @@ public class QueryProcessorTest {
         assertThat(rows.get(1).getValues(), contains("test-image", "test-project"));
     }
     
+    @Test
+    public void testJoinOrderIsChanged() {
+        //Projects and images are not related directly so they should not be joined first
+        Query query = new Query();
+        query.setSql("select images.name, projects.id from projects, images, project_images " +
+                "where images.id = project_images.image_id and projects.id = project_images.project_id " +
+                "and projects.id = 'test-project' order by images.name");
+        List<QueryResult> queryResults = queryProcessor.process(query);
+        assertThat(queryResults, hasSize(1));
+        QueryResult queryResult = queryResults.get(0);
+        assertThat(queryResult.getStatus(), equalTo(QueryStatus.SUCCESS));
+        List<DataRow> rows = fromData(queryResult.getData()).getRows();
+        assertThat(rows, hasSize(2));
+        assertThat(rows.get(0).getValues(), contains("second-image", "test-project"));
+        assertThat(rows.get(1).getValues(), contains("test-image", "test-project"));
+    }
+    
     private static DataContainer fromData(Data data) {
         DataContainer dataContainer = new DataContainer(data.getColumnNames());
         data.getRows().forEach(r -> dataContainer.addRow(r.getValues()));
@@ -11,6 +11,7 @@ import org.meridor.perspective.backend.EntityGenerator;
 import org.meridor.perspective.backend.storage.ImagesAware;
 import org.meridor.perspective.backend.storage.InstancesAware;
 import org.meridor.perspective.backend.storage.ProjectsAware;
+import org.meridor.perspective.sql.BinaryQueryResults;
 import org.meridor.perspective.sql.Query;
 import org.meridor.perspective.sql.QueryResult;
 import org.meridor.perspective.sql.QueryStatus;
@@ -79,6 +80,8 @@ public class QueryResourceTest extends BaseResourceTest<QueryApi> {
         queries.add(query);
         Response<Collection<QueryResult>> response = getApi().query(queries).execute();
         assertThat(response.isSuccessful(), is(true));
+        assertThat(response.headers().get("Transfer-Encoding"), equalTo("chunked"));
+        assertThat(response.headers().get("Content-Type"), equalTo(BinaryQueryResults.MEDIA_TYPE));
         List<QueryResult> queryResults = new ArrayList<>(response.body());
         assertThat(queryResults, hasSize(1));
         QueryResult queryResult = queryResults.get(0);
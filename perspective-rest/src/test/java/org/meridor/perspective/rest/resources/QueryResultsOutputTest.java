@@ -0,0 +1,63 @@
+package org.meridor.perspective.rest.resources;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.junit.Test;
+import org.meridor.perspective.sql.BinaryQueryResults;
+import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.QueryResult;
+import org.meridor.perspective.sql.RawQueryResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.meridor.perspective.api.SerializationUtils.createDefaultMapper;
+import static org.meridor.perspective.sql.DataContainer.empty;
+import static org.meridor.perspective.sql.QueryStatus.ABORTED;
+import static org.meridor.perspective.sql.QueryStatus.SUCCESS;
+
+public class QueryResultsOutputTest {
+
+    @Test
+    public void testWriteJson() throws Exception {
+        List<RawQueryResult> rawQueryResults = createRawQueryResults();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new QueryResultsOutput(rawQueryResults).write(outputStream, APPLICATION_JSON);
+        List<QueryResult> queryResults = createDefaultMapper().readValue(
+                outputStream.toByteArray(),
+                new TypeReference<List<QueryResult>>() {}
+        );
+        assertThat(queryResults, equalTo(getExpectedQueryResults(rawQueryResults)));
+    }
+
+    @Test
+    public void testWriteBinary() throws Exception {
+        List<RawQueryResult> rawQueryResults = createRawQueryResults();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new QueryResultsOutput(rawQueryResults).write(outputStream, BinaryQueryResults.MEDIA_TYPE);
+        List<QueryResult> queryResults = BinaryQueryResults.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertThat(queryResults, equalTo(getExpectedQueryResults(rawQueryResults)));
+    }
+
+    private static List<RawQueryResult> createRawQueryResults() {
+        DataContainer dataContainer = new DataContainer(Arrays.asList("id", "name", "value"));
+        dataContainer.addRow(Arrays.asList(1, "first", 2.5));
+        dataContainer.addRow(Arrays.asList(2, null, true));
+        return Arrays.asList(
+                new RawQueryResult(SUCCESS, 2, dataContainer, ""),
+                new RawQueryResult(ABORTED, 0, empty(), "Query was cancelled")
+        );
+    }
+
+    private static List<QueryResult> getExpectedQueryResults(List<RawQueryResult> rawQueryResults) {
+        return rawQueryResults.stream()
+                .map(RawQueryResult::toQueryResult)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,147 @@
+package org.meridor.perspective.rest.resources;
+
+import org.glassfish.tyrus.client.ClientManager;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.junit.runner.RunWith;
+import org.meridor.perspective.backend.EntityGenerator;
+import org.meridor.perspective.backend.storage.InstancesAware;
+import org.meridor.perspective.beans.Instance;
+import org.meridor.perspective.client.ApiAware;
+import org.meridor.perspective.rest.Server;
+import org.meridor.perspective.sql.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.websocket.ClientEndpoint;
+import javax.websocket.OnMessage;
+import javax.websocket.Session;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.meridor.perspective.api.SerializationUtils.serialize;
+import static org.meridor.perspective.api.SerializationUtils.unserialize;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD;
+
+@ContextConfiguration(locations = "/META-INF/spring/integration-test-context.xml")
+@RunWith(SpringJUnit4ClassRunner.class)
+@DirtiesContext(classMode = BEFORE_EACH_TEST_METHOD)
+@ClientEndpoint
+public class QuerySubscriptionResourceTest {
+
+    private static final String SUBSCRIPTION_ID = "test-subscription";
+
+    @Rule
+    public Timeout timeout = new Timeout(10, TimeUnit.SECONDS);
+
+    private final BlockingQueue<QueryChanges> changes = new LinkedBlockingQueue<>();
+
+    @Autowired
+    private Server server;
+
+    @Autowired
+    private InstancesAware instancesAware;
+
+    @Test
+    public void testSubscription() throws Exception {
+        instancesAware.saveInstance(EntityGenerator.getInstance());
+        ClientManager client = ClientManager.createClient();
+        URI endpoint = new URI(ApiAware.withUrl(server.getBaseUrl()).getWebSocketUrl("subscriptions"));
+        Session session = client.connectToServer(this, endpoint);
+        session.getBasicRemote().sendText(serialize(createSubscription("select id, name from instances")));
+
+        QueryChanges initialChanges = changes.take();
+        assertThat(initialChanges.getSubscriptionId(), equalTo(SUBSCRIPTION_ID));
+        assertThat(initialChanges.getStatus(), equalTo(QueryStatus.SUCCESS));
+        assertThat(initialChanges.getColumnNames(), contains("id", "name"));
+        assertThat(getValues(initialChanges.getInsertedRows()), equalTo(singleRow("test-instance", "test-instance")));
+        assertThat(initialChanges.getUpdatedRows(), is(empty()));
+        assertThat(initialChanges.getDeletedRows(), is(empty()));
+
+        Instance renamedInstance = EntityGenerator.getInstance();
+        renamedInstance.setName("renamed-instance");
+        instancesAware.saveInstance(renamedInstance);
+        QueryChanges updateChanges = changes.take();
+        assertThat(updateChanges.getInsertedRows(), is(empty()));
+        assertThat(getValues(updateChanges.getUpdatedRows()), equalTo(singleRow("test-instance", "renamed-instance")));
+        assertThat(updateChanges.getDeletedRows(), is(empty()));
+
+        instancesAware.deleteInstance(renamedInstance.getId());
+        QueryChanges deleteChanges = changes.take();
+        assertThat(deleteChanges.getInsertedRows(), is(empty()));
+        assertThat(deleteChanges.getUpdatedRows(), is(empty()));
+        assertThat(getValues(deleteChanges.getDeletedRows()), equalTo(singleRow("test-instance", "renamed-instance")));
+    }
+
+    @Test
+    public void testRowsLeavingFilter() throws Exception {
+        instancesAware.saveInstance(EntityGenerator.getInstance());
+        ClientManager client = ClientManager.createClient();
+        URI endpoint = new URI(ApiAware.withUrl(server.getBaseUrl()).getWebSocketUrl("subscriptions"));
+        Session session = client.connectToServer(this, endpoint);
+        session.getBasicRemote().sendText(serialize(createSubscription("select id, name from instances where name like 'test%'")));
+        assertThat(getValues(changes.take().getInsertedRows()), equalTo(singleRow("test-instance", "test-instance")));
+
+        Instance renamedInstance = EntityGenerator.getInstance();
+        renamedInstance.setName("renamed-instance");
+        instancesAware.saveInstance(renamedInstance);
+        QueryChanges renameChanges = changes.take();
+        assertThat(renameChanges.getColumnNames(), contains("id", "name"));
+        assertThat(renameChanges.getInsertedRows(), is(empty()));
+        assertThat(renameChanges.getUpdatedRows(), is(empty()));
+        assertThat(getValues(renameChanges.getDeletedRows()), equalTo(singleRow("test-instance", "test-instance")));
+
+        instancesAware.saveInstance(EntityGenerator.getInstance());
+        QueryChanges restoreChanges = changes.take();
+        assertThat(getValues(restoreChanges.getInsertedRows()), equalTo(singleRow("test-instance", "test-instance")));
+        assertThat(restoreChanges.getUpdatedRows(), is(empty()));
+        assertThat(restoreChanges.getDeletedRows(), is(empty()));
+    }
+
+    @Test
+    public void testInvalidQuery() throws Exception {
+        ClientManager client = ClientManager.createClient();
+        URI endpoint = new URI(ApiAware.withUrl(server.getBaseUrl()).getWebSocketUrl("subscriptions"));
+        Session session = client.connectToServer(this, endpoint);
+        session.getBasicRemote().sendText(serialize(createSubscription("select from")));
+        QueryChanges queryChanges = changes.take();
+        assertThat(queryChanges.getSubscriptionId(), equalTo(SUBSCRIPTION_ID));
+        assertThat(queryChanges.getStatus(), equalTo(QueryStatus.SYNTAX_ERROR));
+    }
+
+    private static QuerySubscription createSubscription(String sql) {
+        Query query = new Query();
+        query.setSql(sql);
+        QuerySubscription querySubscription = new QuerySubscription();
+        querySubscription.setId(SUBSCRIPTION_ID);
+        querySubscription.setQuery(query);
+        return querySubscription;
+    }
+
+    private static List<List<Object>> singleRow(Object... values) {
+        return Collections.singletonList(Arrays.asList(values));
+    }
+
+    private static List<List<Object>> getValues(List<Row> rows) {
+        return rows.stream()
+                .map(Row::getValues)
+                .collect(Collectors.toList());
+    }
+
+    @OnMessage
+    public void onMessage(String message, Session session) throws Exception {
+        changes.put(unserialize(message, QueryChanges.class));
+    }
+
+}
@@ -72,7 +72,8 @@ public class QueryCommands extends BaseCommands {
             }
             case SYNTAX_ERROR:
             case MISSING_PARAMETERS:
-            case EVALUATION_ERROR: {
+            case EVALUATION_ERROR:
+            case ABORTED: {
                 error(String.format(
                         "SQL error: status = %s, message = %s",
                         result.getStatus().value(),
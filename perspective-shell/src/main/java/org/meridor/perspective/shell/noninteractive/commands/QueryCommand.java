@@ -43,7 +43,8 @@ public class QueryCommand extends CommandWithDependencyInjection {
             }
             case SYNTAX_ERROR:
             case MISSING_PARAMETERS:
-            case EVALUATION_ERROR: {
+            case EVALUATION_ERROR:
+            case ABORTED: {
                 System.err.println(String.format("Error: %s", result.getMessage()));
                 break;
             }
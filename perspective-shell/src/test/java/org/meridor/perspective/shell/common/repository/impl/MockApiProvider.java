@@ -12,6 +12,7 @@ import org.meridor.perspective.client.ServiceApi;
 import org.meridor.perspective.config.CloudType;
 import org.meridor.perspective.config.OperationType;
 import org.meridor.perspective.shell.common.repository.ApiProvider;
+import org.meridor.perspective.sql.Query;
 import org.meridor.perspective.sql.QueryResult;
 import retrofit2.Call;
 import retrofit2.http.Body;
@@ -124,7 +125,17 @@ public class MockApiProvider implements ApiProvider {
 
     @Override
     public QueryApi getQueryApi() {
-        return queries -> new MockCall<>(success(queryResults));
+        return new QueryApi() {
+            @Override
+            public Call<Collection<QueryResult>> query(@Body Collection<Query> queries) {
+                return new MockCall<>(success(queryResults));
+            }
+
+            @Override
+            public Call<ResponseBody> cancel(@Body Collection<Query> queries) {
+                return ok();
+            }
+        };
     }
 
     @Override
@@ -5,6 +5,10 @@ lexer grammar SQLLexer;
 EXPLAIN
    : 'explain'
    ;
+
+ANALYZE
+   : 'analyze'
+   ;
    
 SELECT
    : 'select'
@@ -292,6 +296,11 @@ FLOAT
 STRING
    : '\'' ( ~'\'' )* '\''
    ;
+
+//Placeholder of prepared query template, e.g. ?1 or ?:name
+PARAMETER
+   : '?' ( ( '0' .. '9' )+ | ':' ( '0' .. '9' | 'a' .. 'z' | 'A' .. 'Z' | '_' | '.' )+ )
+   ;
    
 ID
    : ( '0' .. '9' | 'a' .. 'z' | 'A' .. 'Z' | '_' )+
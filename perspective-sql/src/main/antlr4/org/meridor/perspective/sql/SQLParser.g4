@@ -26,7 +26,7 @@ column_name
 
 // Explain query
 explain_query
-   : EXPLAIN select_query
+   : EXPLAIN ( ANALYZE )? select_query
    ;
    
 // Select query
@@ -34,9 +34,9 @@ select_query
    : select_clause ( from_clause )? ( where_clause )? ( group_clause )? ( having_clause )? ( order_clause )? ( limit_clause )? ( SEMICOLON )?
    ;
 
-//subquery
-//   : LPAREN select_query RPAREN
-//   ;
+subquery
+   : LPAREN select_query RPAREN
+   ;
    
 select_clause
    : SELECT select_expression
@@ -116,6 +116,7 @@ literal
    | TRUE
    | FALSE
    | NULL
+   | PARAMETER
    ;
 
 expression
@@ -172,6 +173,8 @@ simple_boolean_expression
    | expression (NOT)? LIKE expression
    | expression (NOT)? REGEXP expression
    | expression (NOT)? IN LPAREN expression (COMMA expression)* RPAREN
+   | expression (NOT)? IN subquery
+   | EXISTS subquery
    | TRUE
    | FALSE
    ;
@@ -209,7 +212,7 @@ join_clause
 
 table_atom
    : table_name ( alias_clause )? 
-//   | subquery alias_clause 
+   | subquery alias_clause 
    | LPAREN table_references RPAREN
    ;
 
@@ -1,9 +1,54 @@
 package org.meridor.perspective.sql;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 public interface QueryProcessor {
     
     List<QueryResult> process(Query query);
+
+    /**
+     * Processes independent queries concurrently
+     * @param queries queries to process
+     * @return results of all queries in queries order
+     */
+    List<QueryResult> process(List<Query> queries);
+
+    /**
+     * Processes queries like {@link #process(List)} but does not copy
+     * result rows to {@link Data}, so that they can be streamed to the client
+     * @param queries queries to process
+     * @return results of all queries in queries order
+     */
+    List<RawQueryResult> processRaw(List<Query> queries);
+
+    /**
+     * Evaluates query only against table rows with given ids, e.g. to
+     * update results of standing query when these rows change. Only
+     * possible when query consists of one statement reading one table and
+     * each result row depends only on the table row with the same id.
+     * Results are not cached.
+     * @param query query to evaluate
+     * @param ids ids of changed table rows
+     * @return result with matching rows among given ones or empty if query
+     * can't be evaluated this way or its evaluation failed
+     */
+    Optional<QueryResult> processRows(Query query, Set<String> ids);
+    
+    /**
+     * Aborts evaluation of the query running in another thread
+     * @param queryId id of the query to abort
+     * @return whether query with such id was running
+     */
+    boolean cancel(String queryId);
+
+    /**
+     * Returns names of tables query reads data from, so that it's only
+     * evaluated again when some of them change
+     * @param query query to plan
+     * @return table names or empty set if query can't be planned
+     */
+    Set<String> getTableNames(Query query);
     
 }
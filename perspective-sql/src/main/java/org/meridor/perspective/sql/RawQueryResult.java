@@ -0,0 +1,50 @@
+package org.meridor.perspective.sql;
+
+/**
+ * Query result keeping rows in the container produced by query engine, so
+ * that they can be written to the client one by one instead of being
+ * copied to {@link Data} first
+ */
+public class RawQueryResult {
+
+    private final QueryStatus status;
+
+    private final int count;
+
+    private final DataContainer data;
+
+    private final String message;
+
+    public RawQueryResult(QueryStatus status, int count, DataContainer data, String message) {
+        this.status = status;
+        this.count = count;
+        this.data = data;
+        this.message = message;
+    }
+
+    public QueryStatus getStatus() {
+        return status;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public DataContainer getData() {
+        return data;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public QueryResult toQueryResult() {
+        QueryResult queryResult = new QueryResult();
+        queryResult.setStatus(status);
+        queryResult.setCount(count);
+        queryResult.setData(data.toData());
+        queryResult.setMessage(message);
+        return queryResult;
+    }
+
+}
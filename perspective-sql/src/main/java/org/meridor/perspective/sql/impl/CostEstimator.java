@@ -0,0 +1,134 @@
+package org.meridor.perspective.sql.impl;
+
+import org.meridor.perspective.sql.impl.expression.ParameterExpression;
+import org.meridor.perspective.sql.impl.expression.ValueRange;
+import org.meridor.perspective.sql.impl.index.*;
+import org.meridor.perspective.sql.impl.index.impl.IndexSignature;
+import org.meridor.perspective.sql.impl.storage.IndexStorage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.meridor.perspective.sql.impl.parser.DataSourceUtils.crossProduct;
+
+/**
+ * Compares index scans with full table scans using table and index
+ * statistics. All costs are measured in rows read by full table scan.
+ */
+@Component
+public class CostEstimator {
+
+    //Fetching row by id is slower than reading it during full scan
+    static final double FETCH_ROW_COST = 2;
+
+    //Reading id from posting list and intersecting it with other ids
+    static final double INDEX_ID_COST = 0.1;
+
+    //When condition contains too many keys the largest posting list size is used
+    private static final int MAX_KEYS_TO_COUNT = 1000;
+
+    @Autowired
+    private Indexer indexer;
+
+    @Autowired
+    private IndexStorage indexStorage;
+
+    /**
+     * Returns table rows count or empty if table statistics is not collected
+     */
+    public Optional<Long> getRowsCount(String tableName) {
+        return indexer.getRowsCount(tableName);
+    }
+
+    /**
+     * Returns number of ids matching fixed values condition
+     * @param indexSignature index to use
+     * @param condition column name to allowed values map containing all index columns
+     */
+    public long estimateIds(IndexSignature indexSignature, Map<String, Set<Object>> condition) {
+        Optional<Index> indexCandidate = indexStorage.get(indexSignature);
+        if (!indexCandidate.isPresent()) {
+            return Long.MAX_VALUE;
+        }
+        Index index = indexCandidate.get();
+        List<Collection<Object>> values = new ArrayList<>(condition.values());
+        long keysCount = values.stream()
+                .mapToLong(Collection::size)
+                .reduce(1, (l, r) -> l * r);
+        //Values of parameters are not known while planning
+        boolean containsParameters = values.stream()
+                .flatMap(Collection::stream)
+                .anyMatch(v -> v instanceof ParameterExpression);
+        if (keysCount > MAX_KEYS_TO_COUNT || containsParameters) {
+            return estimateIds(index.getStatistics(), keysCount);
+        }
+        return crossProduct(values).stream()
+                .mapToLong(v -> index.count(Keys.key(index.getKeyLength(), v.toArray())))
+                .sum();
+    }
+
+    /**
+     * Returns number of ids matching given number of unknown keys. Values
+     * are usually skewed (e.g. most of instances have the same state), so
+     * every key is assumed to match as many ids as the largest posting list.
+     * @param statistics index statistics
+     * @param keysCount number of keys in condition
+     */
+    static long estimateIds(IndexStatistics statistics, long keysCount) {
+        return (long) Math.min(statistics.getIdsCount(), (double) keysCount * statistics.getMaxIdsPerKey());
+    }
+
+    /**
+     * Returns number of ids matching range condition
+     * @param indexSignature sorted index to use
+     * @param valueRange values range
+     */
+    public long estimateIds(IndexSignature indexSignature, ValueRange valueRange) {
+        return indexStorage.get(indexSignature)
+                .filter(i -> i instanceof SortedIndex)
+                .map(i -> ((SortedIndex) i).count(
+                        valueRange.getLowerBound().map(Keys::key).orElse(null),
+                        valueRange.isLowerBoundInclusive(),
+                        valueRange.getUpperBound().map(Keys::key).orElse(null),
+                        valueRange.isUpperBoundInclusive()
+                ))
+                .orElse(Long.MAX_VALUE);
+    }
+
+    /**
+     * Greedily chooses indexes which make table access cheaper than full
+     * scan. Most selective indexes are tried first and every next index is
+     * only added when ids it removes from result are worth reading it.
+     * Conditions are considered independent.
+     * @param rowsCount table rows count
+     * @param estimatedIds index to number of matched ids map
+     * @return chosen indexes in intersection order or empty list if full scan is cheaper
+     */
+    public <T> List<T> chooseIndexes(long rowsCount, Map<T, Long> estimatedIds) {
+        List<T> candidates = estimatedIds.keySet().stream()
+                .sorted(Comparator.comparing(estimatedIds::get))
+                .collect(Collectors.toList());
+        List<T> ret = new ArrayList<>();
+        double bestCost = rowsCount;
+        double lookupCost = 0;
+        double estimatedRows = rowsCount;
+        for (T candidate : candidates) {
+            long ids = estimatedIds.get(candidate);
+            double newLookupCost = lookupCost + ids * INDEX_ID_COST;
+            double newEstimatedRows = ret.isEmpty() ?
+                    ids :
+                    estimatedRows * ids / rowsCount;
+            double cost = newLookupCost + newEstimatedRows * FETCH_ROW_COST;
+            if (cost < bestCost) {
+                ret.add(candidate);
+                bestCost = cost;
+                lookupCost = newLookupCost;
+                estimatedRows = newEstimatedRows;
+            }
+        }
+        return ret;
+    }
+
+}
@@ -0,0 +1,175 @@
+package org.meridor.perspective.sql.impl;
+
+import org.meridor.perspective.beans.BooleanRelation;
+import org.meridor.perspective.sql.impl.expression.*;
+import org.meridor.perspective.sql.impl.table.Column;
+import org.meridor.perspective.sql.impl.table.TablesAware;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+import static org.meridor.perspective.sql.impl.expression.BinaryBooleanOperator.AND;
+import static org.meridor.perspective.sql.impl.expression.BinaryBooleanOperator.OR;
+import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.*;
+
+/**
+ * Extracts conditions which can be passed to storage while fetching table
+ * contents. Only top level conjuncts of where clause are used: equality, IN,
+ * range and LIKE conditions comparing one table column with constants (or
+ * parameters for equality and IN). All
+ * of them never match NULL so they can also be applied to outer joined
+ * tables before joining.
+ */
+@Component
+public class FetchConditionExtractor {
+
+    @Autowired
+    private TablesAware tablesAware;
+
+    public Optional<FetchCondition> extract(String tableAlias, List<BooleanExpression> whereConditions, Map<String, String> tableAliases) {
+        String tableName = tableAliases.get(tableAlias);
+        Map<String, Set<Object>> fixedValueConditions = new HashMap<>();
+        Map<String, ValueRange> rangeConditions = new HashMap<>();
+        Map<String, Set<String>> likeConditions = new HashMap<>();
+
+        List<BooleanExpression> conjuncts = new ArrayList<>();
+        whereConditions.forEach(wc -> splitByAnd(wc, conjuncts));
+        for (BooleanExpression conjunct : conjuncts) {
+            Optional<ColumnExpression> columnCandidate = getColumn(tableAlias, conjunct, tableAliases);
+            if (!columnCandidate.isPresent()) {
+                continue;
+            }
+            String columnName = columnCandidate.get().getColumnName();
+            String columnTableAlias = columnCandidate.get().getTableAlias();
+            Optional<Set<Object>> fixedValues = getFixedValues(conjunct);
+            if (fixedValues.isPresent()) {
+                //Two conditions for the same column mean intersection but their union is also fine
+                mergeFixedValueConditions(fixedValueConditions, Collections.singletonMap(columnName, fixedValues.get()));
+            } else if (isLikeCondition(conjunct)) {
+                String pattern = (String) ((SimpleBooleanExpression) conjunct).getRight();
+                likeConditions.computeIfAbsent(columnName, cn -> new HashSet<>()).add(pattern);
+            } else {
+                ValueRange valueRange = conjunct.getRangeConditions(columnTableAlias).get(columnName);
+                if (valueRange != null) {
+                    rangeConditions.merge(columnName, valueRange, ValueRange::intersect);
+                }
+            }
+        }
+
+        //Default values are set after fetching so storage can't check them
+        Set<String> columnsWithDefaultValues = new HashSet<>();
+        tablesAware.getColumns(tableName).stream()
+                .filter(c -> c.getDefaultValue() != null)
+                .map(Column::getName)
+                .forEach(columnsWithDefaultValues::add);
+        fixedValueConditions.keySet().removeAll(columnsWithDefaultValues);
+        rangeConditions.keySet().removeAll(columnsWithDefaultValues);
+        likeConditions.keySet().removeAll(columnsWithDefaultValues);
+
+        FetchCondition fetchCondition = new FetchCondition(fixedValueConditions, rangeConditions, likeConditions);
+        return fetchCondition.isEmpty() ?
+                Optional.empty() :
+                Optional.of(fetchCondition);
+    }
+
+    private static void splitByAnd(BooleanExpression booleanExpression, List<BooleanExpression> conjuncts) {
+        if (
+                booleanExpression instanceof BinaryBooleanExpression &&
+                ((BinaryBooleanExpression) booleanExpression).getBinaryBooleanOperator() == AND
+        ) {
+            BinaryBooleanExpression binaryBooleanExpression = (BinaryBooleanExpression) booleanExpression;
+            Object left = binaryBooleanExpression.getLeft();
+            Object right = binaryBooleanExpression.getRight();
+            if (left instanceof BooleanExpression && right instanceof BooleanExpression) {
+                splitByAnd((BooleanExpression) left, conjuncts);
+                splitByAnd((BooleanExpression) right, conjuncts);
+                return;
+            }
+        }
+        conjuncts.add(booleanExpression);
+    }
+
+    //Returns the only table column used in condition
+    private Optional<ColumnExpression> getColumn(String tableAlias, BooleanExpression booleanExpression, Map<String, String> tableAliases) {
+        List<ColumnExpression> columnExpressions = getColumnExpressions(booleanExpression);
+        if (columnExpressions.isEmpty()) {
+            return Optional.empty();
+        }
+        ColumnExpression columnExpression = columnExpressions.get(0);
+        String columnName = columnExpression.getColumnName();
+        boolean isOneTableColumn = columnExpressions.stream().allMatch(
+                ce -> !ce.useAnyColumn() &&
+                        ce.getColumnName().equals(columnName) &&
+                        isTableColumn(tableAlias, ce, tableAliases)
+        );
+        return isOneTableColumn ?
+                Optional.of(columnExpression) :
+                Optional.empty();
+    }
+
+    private boolean isTableColumn(String tableAlias, ColumnExpression columnExpression, Map<String, String> tableAliases) {
+        String columnName = columnExpression.getColumnName();
+        if (!columnExpression.useAnyTable()) {
+            return columnExpression.getTableAlias().equals(tableAlias);
+        }
+        //Column without table alias should belong to exactly one table
+        return tableAliases.keySet().stream()
+                .filter(ta -> tablesAware.getColumn(tableAliases.get(ta), columnName).isPresent())
+                .reduce((l, r) -> null)
+                .filter(tableAlias::equals)
+                .isPresent();
+    }
+
+    //Equality, IN and OR of them for the same column
+    private static Optional<Set<Object>> getFixedValues(Object expression) {
+        if (expression instanceof SimpleBooleanExpression) {
+            SimpleBooleanExpression simpleBooleanExpression = (SimpleBooleanExpression) expression;
+            if (simpleBooleanExpression.getBooleanRelation() != BooleanRelation.EQUAL) {
+                return Optional.empty();
+            }
+            Object left = simpleBooleanExpression.getLeft();
+            Object right = simpleBooleanExpression.getRight();
+            if (isColumnExpression(left) && isConstantOrParameter(right)) {
+                return Optional.of(Collections.singleton(right));
+            } else if (isConstantOrParameter(left) && isColumnExpression(right)) {
+                return Optional.of(Collections.singleton(left));
+            }
+        } else if (expression instanceof InExpression) {
+            InExpression inExpression = (InExpression) expression;
+            Set<Object> candidates = inExpression.getCandidates();
+            if (
+                    isColumnExpression(inExpression.getValue()) &&
+                    !candidates.isEmpty() &&
+                    candidates.stream().allMatch(ExpressionUtils::isConstantOrParameter)
+            ) {
+                return Optional.of(candidates);
+            }
+        } else if (
+                expression instanceof BinaryBooleanExpression &&
+                ((BinaryBooleanExpression) expression).getBinaryBooleanOperator() == OR
+        ) {
+            BinaryBooleanExpression binaryBooleanExpression = (BinaryBooleanExpression) expression;
+            Optional<Set<Object>> leftValues = getFixedValues(binaryBooleanExpression.getLeft());
+            Optional<Set<Object>> rightValues = getFixedValues(binaryBooleanExpression.getRight());
+            if (leftValues.isPresent() && rightValues.isPresent()) {
+                Set<Object> values = new HashSet<>(leftValues.get());
+                values.addAll(rightValues.get());
+                return Optional.of(values);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static boolean isLikeCondition(BooleanExpression booleanExpression) {
+        if (!(booleanExpression instanceof SimpleBooleanExpression)) {
+            return false;
+        }
+        SimpleBooleanExpression simpleBooleanExpression = (SimpleBooleanExpression) booleanExpression;
+        return
+                simpleBooleanExpression.getBooleanRelation() == BooleanRelation.LIKE &&
+                isColumnExpression(simpleBooleanExpression.getLeft()) &&
+                simpleBooleanExpression.getRight() instanceof String;
+    }
+
+}
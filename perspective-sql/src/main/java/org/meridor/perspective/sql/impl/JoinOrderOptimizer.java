@@ -0,0 +1,418 @@
+package org.meridor.perspective.sql.impl;
+
+import org.meridor.perspective.sql.impl.expression.BinaryBooleanExpression;
+import org.meridor.perspective.sql.impl.expression.BinaryBooleanOperator;
+import org.meridor.perspective.sql.impl.expression.BooleanExpression;
+import org.meridor.perspective.sql.impl.expression.ColumnRelation;
+import org.meridor.perspective.sql.impl.expression.ValueRange;
+import org.meridor.perspective.sql.impl.index.Index;
+import org.meridor.perspective.sql.impl.index.SortedIndex;
+import org.meridor.perspective.sql.impl.index.impl.IndexSignature;
+import org.meridor.perspective.sql.impl.parser.DataSource;
+import org.meridor.perspective.sql.impl.parser.JoinType;
+import org.meridor.perspective.sql.impl.storage.IndexStorage;
+import org.meridor.perspective.sql.impl.table.TablesAware;
+import org.meridor.perspective.sql.impl.table.annotation.ForeignKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+import static org.meridor.perspective.sql.impl.expression.BinaryBooleanOperator.AND;
+
+/**
+ * Reorders leading inner joins of the original data source chain so that
+ * intermediate join results are as small as possible. Only the tables
+ * joined before the first outer join can be reordered: outer joins and
+ * everything after them are kept in place. Join conditions are split by
+ * AND and moved to the first join having all tables they refer to.
+ * Cardinalities are estimated with table statistics, where clause
+ * conditions and declared foreign keys.
+ */
+@Component
+public class JoinOrderOptimizer {
+
+    //Used when condition selectivity can't be estimated with an index
+    static final double DEFAULT_SELECTIVITY = 0.1;
+
+    //Bigger joins are ordered greedily
+    private static final int MAX_TABLES_TO_ENUMERATE = 10;
+
+    @Autowired
+    private CostEstimator costEstimator;
+
+    @Autowired
+    private TablesAware tablesAware;
+
+    @Autowired
+    private IndexStorage indexStorage;
+
+    /**
+     * Returns data source with reordered joins or the same data source if
+     * order can't be changed or statistics is missing
+     * @param dataSource original data source chain
+     * @param whereConditions where clause conditions joined by AND
+     * @param tableAliases table alias to table name map
+     */
+    public DataSource optimize(DataSource dataSource, List<BooleanExpression> whereConditions, Map<String, String> tableAliases) {
+        List<DataSource> dataSources = toList(dataSource);
+        int innerJoinsCount = getInnerJoinsCount(dataSources);
+        //Two tables can only be joined in one way
+        if (innerJoinsCount < 2) {
+            return dataSource;
+        }
+        List<DataSource> innerJoins = dataSources.subList(0, innerJoinsCount + 1);
+        List<String> tableAliasesToOrder = new ArrayList<>();
+        innerJoins.forEach(ds -> tableAliasesToOrder.add(ds.getTableAlias().get()));
+        if (!areConditionsMovable(innerJoins, tableAliasesToOrder)) {
+            return dataSource;
+        }
+
+        double[] rowsCounts = new double[tableAliasesToOrder.size()];
+        for (int i = 0; i <= tableAliasesToOrder.size() - 1; i++) {
+            String tableAlias = tableAliasesToOrder.get(i);
+            Optional<Long> rowsCount = costEstimator.getRowsCount(tableAliases.get(tableAlias));
+            if (!rowsCount.isPresent()) {
+                return dataSource;
+            }
+            rowsCounts[i] = rowsCount.get() * getSelectivity(tableAlias, tableAliases.get(tableAlias), rowsCount.get(), whereConditions);
+        }
+
+        List<BooleanExpression> allConditions = new ArrayList<>(whereConditions);
+        innerJoins.forEach(ds -> ds.getCondition().ifPresent(allConditions::add));
+        int size = tableAliasesToOrder.size();
+        double[][] selectivities = new double[size][size];
+        boolean[][] relations = new boolean[size][size];
+        fillJoinSelectivities(tableAliasesToOrder, tableAliases, allConditions, selectivities, relations);
+
+        List<Integer> order = findOrder(rowsCounts, selectivities, relations);
+        return reorder(dataSource, innerJoinsCount, order);
+    }
+
+    private static List<DataSource> toList(DataSource dataSource) {
+        List<DataSource> ret = new ArrayList<>();
+        Optional<DataSource> current = Optional.of(dataSource);
+        while (current.isPresent()) {
+            ret.add(current.get());
+            current = current.get().getRightDataSource();
+        }
+        return ret;
+    }
+
+    //Returns number of inner joins before the first outer join
+    private static int getInnerJoinsCount(List<DataSource> dataSources) {
+        int ret = 0;
+        for (DataSource dataSource : dataSources.subList(1, dataSources.size())) {
+            if (
+                    !dataSource.getTableAlias().isPresent() ||
+                    dataSource.getJoinType().orElse(null) != JoinType.INNER ||
+                    dataSource.isNaturalJoin() || //These ones refer to previous table implicitly
+                    !dataSource.getColumns().isEmpty()
+            ) {
+                break;
+            }
+            ret++;
+        }
+        return ret;
+    }
+
+    //Conditions are only movable when we know all tables they refer to
+    private static boolean areConditionsMovable(List<DataSource> innerJoins, List<String> tableAliases) {
+        return innerJoins.stream()
+                .flatMap(ds -> ds.getCondition().map(JoinOrderOptimizer::splitByAnd).orElse(Collections.emptyList()).stream())
+                .allMatch(c -> tableAliases.containsAll(c.getTableAliases()));
+    }
+
+    private static List<BooleanExpression> splitByAnd(BooleanExpression booleanExpression) {
+        if (booleanExpression instanceof BinaryBooleanExpression) {
+            BinaryBooleanExpression binaryBooleanExpression = (BinaryBooleanExpression) booleanExpression;
+            if (
+                    binaryBooleanExpression.getBinaryBooleanOperator() == AND &&
+                    binaryBooleanExpression.getLeft() instanceof BooleanExpression &&
+                    binaryBooleanExpression.getRight() instanceof BooleanExpression
+            ) {
+                List<BooleanExpression> ret = new ArrayList<>();
+                ret.addAll(splitByAnd((BooleanExpression) binaryBooleanExpression.getLeft()));
+                ret.addAll(splitByAnd((BooleanExpression) binaryBooleanExpression.getRight()));
+                return ret;
+            }
+        }
+        return Collections.singletonList(booleanExpression);
+    }
+
+    //Returns share of table rows matching where clause conditions
+    private double getSelectivity(String tableAlias, String tableName, long rowsCount, List<BooleanExpression> whereConditions) {
+        double ret = 1;
+        for (BooleanExpression whereCondition : whereConditions) {
+            Map<String, Set<Object>> fixedValueConditions = whereCondition.getFixedValueConditions(tableAlias);
+            for (String columnName : fixedValueConditions.keySet()) {
+                Set<Object> values = fixedValueConditions.get(columnName);
+                IndexSignature indexSignature = new IndexSignature(tableName, Collections.singleton(columnName));
+                ret *= indexStorage.getSignatures().contains(indexSignature) && rowsCount > 0 ?
+                        (double) costEstimator.estimateIds(indexSignature, Collections.singletonMap(columnName, values)) / rowsCount :
+                        Math.min(1, DEFAULT_SELECTIVITY * values.size());
+            }
+            Map<String, ValueRange> rangeConditions = whereCondition.getRangeConditions(tableAlias);
+            for (String columnName : rangeConditions.keySet()) {
+                IndexSignature indexSignature = new IndexSignature(tableName, Collections.singleton(columnName));
+                boolean isSorted = indexStorage.get(indexSignature).filter(i -> i instanceof SortedIndex).isPresent();
+                ret *= isSorted && rowsCount > 0 ?
+                        (double) costEstimator.estimateIds(indexSignature, rangeConditions.get(columnName)) / rowsCount :
+                        DEFAULT_SELECTIVITY;
+            }
+        }
+        return Math.min(1, ret);
+    }
+
+    private void fillJoinSelectivities(
+            List<String> tableAliasesToOrder,
+            Map<String, String> tableAliases,
+            List<BooleanExpression> conditions,
+            double[][] selectivities,
+            boolean[][] relations
+    ) {
+        for (double[] row : selectivities) {
+            Arrays.fill(row, 1);
+        }
+        conditions.stream()
+                .flatMap(c -> c.getColumnRelations().stream())
+                .filter(cr -> cr.toList().stream().allMatch(r -> r.getJoinOperator() == AND))
+                .flatMap(cr -> cr.toList().stream())
+                .forEach(cr -> {
+                    int left = tableAliasesToOrder.indexOf(cr.getLeftTableAlias());
+                    int right = tableAliasesToOrder.indexOf(cr.getRightTableAlias());
+                    if (left != -1 && right != -1 && left != right) {
+                        //Several conditions are usually parts of the same key so the most selective one is used
+                        double selectivity = Math.min(selectivities[left][right], getJoinSelectivity(cr, tableAliases));
+                        selectivities[left][right] = selectivity;
+                        selectivities[right][left] = selectivity;
+                        relations[left][right] = true;
+                        relations[right][left] = true;
+                    }
+                });
+    }
+
+    //Each row references exactly one row by foreign key. Otherwise values are considered uniformly distributed.
+    private double getJoinSelectivity(ColumnRelation columnRelation, Map<String, String> tableAliases) {
+        String leftTableName = tableAliases.get(columnRelation.getLeftTableAlias());
+        String rightTableName = tableAliases.get(columnRelation.getRightTableAlias());
+        String leftColumn = columnRelation.getLeftColumn();
+        String rightColumn = columnRelation.getRightColumn();
+        if (isForeignKey(leftTableName, leftColumn, rightTableName, rightColumn)) {
+            return 1 / Math.max(1, getRowsCount(rightTableName));
+        }
+        if (isForeignKey(rightTableName, rightColumn, leftTableName, leftColumn)) {
+            return 1 / Math.max(1, getRowsCount(leftTableName));
+        }
+        return 1 / Math.max(1, Math.max(
+                getDistinctValuesCount(leftTableName, leftColumn),
+                getDistinctValuesCount(rightTableName, rightColumn)
+        ));
+    }
+
+    private boolean isForeignKey(String tableName, String columnName, String foreignTableName, String foreignColumnName) {
+        for (ForeignKey foreignKey : tablesAware.getForeignKeys(tableName)) {
+            if (foreignKey.table().equals(foreignTableName)) {
+                int columnIndex = Arrays.asList(foreignKey.columns()).indexOf(columnName);
+                if (columnIndex != -1 && foreignKey.tableColumns()[columnIndex].equals(foreignColumnName)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private double getRowsCount(String tableName) {
+        return costEstimator.getRowsCount(tableName).orElse(0L);
+    }
+
+    private double getDistinctValuesCount(String tableName, String columnName) {
+        Optional<Index> indexCandidate = indexStorage.get(new IndexSignature(tableName, Collections.singleton(columnName)));
+        return indexCandidate.isPresent() ?
+                indexCandidate.get().getStatistics().getKeysCount() :
+                getRowsCount(tableName);
+    }
+
+    /**
+     * Returns left deep join order minimizing total size of intermediate
+     * results. Conditions are considered independent and cross joins are
+     * only used when some tables are not related by join conditions at all.
+     * @param rowsCounts estimated rows count of each table
+     * @param selectivities share of rows pairs matching join conditions
+     * @param relations whether tables pair has join conditions
+     * @return table indexes in join order
+     */
+    static List<Integer> findOrder(double[] rowsCounts, double[][] selectivities, boolean[][] relations) {
+        return rowsCounts.length <= MAX_TABLES_TO_ENUMERATE ?
+                enumerateOrders(rowsCounts, selectivities, relations) :
+                findOrderGreedily(rowsCounts, selectivities, relations);
+    }
+
+    //Dynamic programming over table subsets represented as bit masks
+    private static List<Integer> enumerateOrders(double[] rowsCounts, double[][] selectivities, boolean[][] relations) {
+        int size = rowsCounts.length;
+        int subsetsCount = 1 << size;
+        boolean[] isConnected = new boolean[subsetsCount];
+        double[] costs = new double[subsetsCount];
+        int[] lastTables = new int[subsetsCount];
+        Arrays.fill(costs, Double.MAX_VALUE);
+        for (int i = 0; i <= size - 1; i++) {
+            isConnected[1 << i] = true;
+            costs[1 << i] = 0;
+            lastTables[1 << i] = i;
+        }
+        for (int subset = 1; subset <= subsetsCount - 1; subset++) {
+            for (int i = 0; i <= size - 1 && !isConnected[subset]; i++) {
+                int previousSubset = subset & ~(1 << i);
+                isConnected[subset] =
+                        previousSubset != subset &&
+                        isConnected[previousSubset] &&
+                        isRelated(i, previousSubset, relations);
+            }
+        }
+        //Cross joins are only used when query has no conditions between some tables
+        boolean avoidCrossJoins = isConnected[subsetsCount - 1];
+        for (int subset = 1; subset <= subsetsCount - 1; subset++) {
+            if (Integer.bitCount(subset) < 2 || avoidCrossJoins && !isConnected[subset]) {
+                continue;
+            }
+            double rowsCount = getRowsCount(subset, rowsCounts, selectivities);
+            //Going from the last table so that original order wins when costs are equal
+            for (int i = size - 1; i >= 0; i--) {
+                int previousSubset = subset & ~(1 << i);
+                if (
+                        previousSubset == subset ||
+                        costs[previousSubset] == Double.MAX_VALUE ||
+                        avoidCrossJoins && !isRelated(i, previousSubset, relations)
+                ) {
+                    continue;
+                }
+                double cost = costs[previousSubset] + rowsCount;
+                if (cost < costs[subset]) {
+                    costs[subset] = cost;
+                    lastTables[subset] = i;
+                }
+            }
+        }
+        LinkedList<Integer> ret = new LinkedList<>();
+        int subset = subsetsCount - 1;
+        while (subset != 0) {
+            int lastTable = lastTables[subset];
+            ret.addFirst(lastTable);
+            subset &= ~(1 << lastTable);
+        }
+        return ret;
+    }
+
+    //Starts from the smallest table and each time joins the one giving the smallest result
+    private static List<Integer> findOrderGreedily(double[] rowsCounts, double[][] selectivities, boolean[][] relations) {
+        int size = rowsCounts.length;
+        List<Integer> ret = new ArrayList<>();
+        int subset = 0;
+        while (ret.size() < size) {
+            int bestTable = -1;
+            double bestRowsCount = Double.MAX_VALUE;
+            boolean bestIsRelated = false;
+            for (int i = 0; i <= size - 1; i++) {
+                if ((subset & (1 << i)) != 0) {
+                    continue;
+                }
+                boolean isRelated = isRelated(i, subset, relations);
+                double rowsCount = getRowsCount(subset | (1 << i), rowsCounts, selectivities);
+                if (
+                        bestTable == -1 ||
+                        isRelated && !bestIsRelated ||
+                        isRelated == bestIsRelated && rowsCount < bestRowsCount
+                ) {
+                    bestTable = i;
+                    bestRowsCount = rowsCount;
+                    bestIsRelated = isRelated;
+                }
+            }
+            ret.add(bestTable);
+            subset |= 1 << bestTable;
+        }
+        return ret;
+    }
+
+    private static boolean isRelated(int table, int subset, boolean[][] relations) {
+        for (int i = 0; i <= relations.length - 1; i++) {
+            if ((subset & (1 << i)) != 0 && relations[table][i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double getRowsCount(int subset, double[] rowsCounts, double[][] selectivities) {
+        double ret = 1;
+        for (int i = 0; i <= rowsCounts.length - 1; i++) {
+            if ((subset & (1 << i)) != 0) {
+                ret *= rowsCounts[i];
+                for (int j = i + 1; j <= rowsCounts.length - 1; j++) {
+                    if ((subset & (1 << j)) != 0) {
+                        ret *= selectivities[i][j];
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns a copy of data source chain with first inner joins reordered
+     * @param dataSource original data source chain
+     * @param innerJoinsCount number of inner joins to reorder
+     * @param order new order of the first tables
+     */
+    static DataSource reorder(DataSource dataSource, int innerJoinsCount, List<Integer> order) {
+        List<DataSource> dataSources = toList(dataSource);
+        List<DataSource> innerJoins = dataSources.subList(0, innerJoinsCount + 1);
+        if (isOriginalOrder(order)) {
+            return dataSource;
+        }
+
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i <= order.size() - 1; i++) {
+            positions.put(innerJoins.get(order.get(i)).getTableAlias().get(), i);
+        }
+        Map<Integer, List<BooleanExpression>> conditions = new HashMap<>();
+        innerJoins.forEach(ds -> ds.getCondition().ifPresent(c -> splitByAnd(c).forEach(condition -> {
+            int position = condition.getTableAliases().stream()
+                    .mapToInt(positions::get)
+                    .max()
+                    .orElse(1);
+            conditions.computeIfAbsent(Math.max(1, position), p -> new ArrayList<>()).add(condition);
+        })));
+
+        DataSource ret = null;
+        DataSource previousDataSource = null;
+        for (int i = 0; i <= order.size() - 1; i++) {
+            DataSource newDataSource = new DataSource(innerJoins.get(order.get(i)).getTableAlias().get());
+            if (i > 0) {
+                newDataSource.setJoinType(JoinType.INNER);
+                conditions.getOrDefault(i, Collections.emptyList()).stream()
+                        .reduce((l, r) -> new BinaryBooleanExpression(l, BinaryBooleanOperator.AND, r))
+                        .ifPresent(newDataSource::setCondition);
+                previousDataSource.setRightDataSource(newDataSource);
+            } else {
+                ret = newDataSource;
+            }
+            previousDataSource = newDataSource;
+        }
+        if (dataSources.size() > innerJoins.size()) {
+            previousDataSource.setRightDataSource(dataSources.get(innerJoins.size()).copy());
+        }
+        return ret;
+    }
+
+    private static boolean isOriginalOrder(List<Integer> order) {
+        for (int i = 0; i <= order.size() - 1; i++) {
+            if (order.get(i) != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
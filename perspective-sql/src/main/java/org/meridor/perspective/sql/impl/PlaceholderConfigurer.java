@@ -7,10 +7,14 @@ import org.meridor.perspective.sql.Parameter;
 import org.meridor.perspective.sql.ParametersLexer;
 import org.meridor.perspective.sql.ParametersParser;
 import org.meridor.perspective.sql.ParametersParserBaseListener;
+import org.meridor.perspective.sql.impl.expression.ParameterExpression;
 
 import java.sql.SQLDataException;
 import java.util.*;
 
+/**
+ * Splits SQL text into fragments and placeholders. See {@link PreparedQuery}.
+ */
 public class PlaceholderConfigurer extends ParametersParserBaseListener {
     
     private class InternalErrorListener extends BaseErrorListener {
@@ -23,19 +27,26 @@ public class PlaceholderConfigurer extends ParametersParserBaseListener {
     }
     
     private final String sqlWithPlaceholders;
-    private final Map<String, String> parametersByName = new HashMap<>();
-    private final Map<Integer, String> parametersByIndex = new HashMap<>();
+    private final List<Parameter> parameters;
     private Integer parameterIndex = 1;
-    private String currentQuery = "";
-    private final List<String> preparedQueries = new ArrayList<>();
+    private List<Object> currentQuery = new ArrayList<>();
+    private final List<List<Object>> preparedQueries = new ArrayList<>();
     private Optional<SQLDataException> exception = Optional.empty(); 
 
     public PlaceholderConfigurer(String sqlWithPlaceholders, List<Parameter> parameters) {
         this.sqlWithPlaceholders = sqlWithPlaceholders;
-        classifyParameters(parameters);
+        this.parameters = parameters;
+    }
+
+    PlaceholderConfigurer(String sqlWithPlaceholders) {
+        this(sqlWithPlaceholders, Collections.emptyList());
     }
 
     public List<String> getQueries() throws SQLDataException {
+        return prepare().bind(parameters);
+    }
+
+    PreparedQuery prepare() throws SQLDataException {
         CharStream input = new ANTLRInputStream(sqlWithPlaceholders);
         ANTLRErrorListener errorListener = new InternalErrorListener();
         ParametersLexer parametersLexer = new ParametersLexer(input);
@@ -51,17 +62,7 @@ public class PlaceholderConfigurer extends ParametersParserBaseListener {
         if (exception.isPresent()) {
             throw exception.get();
         }
-        return preparedQueries;
-    }
-    
-    private void classifyParameters(List<Parameter> parameters) {
-        for (Parameter parameter : parameters) {
-            if (parameter.getName() != null) {
-                parametersByName.put(parameter.getName(), parameter.getValue());
-            } else if (parameter.getIndex() != null) {
-                parametersByIndex.put(parameter.getIndex(), parameter.getValue());
-            }
-        }
+        return new PreparedQuery(sqlWithPlaceholders, preparedQueries);
     }
     
     @Override
@@ -69,61 +70,34 @@ public class PlaceholderConfigurer extends ParametersParserBaseListener {
         if (!currentQuery.isEmpty()) {
             preparedQueries.add(currentQuery);
         }
-        currentQuery = "";
+        currentQuery = new ArrayList<>();
     }
 
     @Override
     public void exitText(ParametersParser.TextContext ctx) {
-        currentQuery += ctx.getText();
+        String text = ctx.getText();
+        if (text.isEmpty()) {
+            return;
+        }
+        //Adjacent text fragments are merged to make binding faster
+        int lastIndex = currentQuery.size() - 1;
+        if (lastIndex >= 0 && currentQuery.get(lastIndex) instanceof String) {
+            currentQuery.set(lastIndex, currentQuery.get(lastIndex) + text);
+        } else {
+            currentQuery.add(text);
+        }
     }
 
     @Override
     public void exitPositional_placeholder(ParametersParser.Positional_placeholderContext ctx) {
-        if (!parametersByIndex.containsKey(parameterIndex)) {
-            String message = String.format("Parameter for placeholder #%d is missing", parameterIndex);
-            exception = Optional.of(new SQLDataException(message));
-            return;
-        }
-        currentQuery += processValue(parametersByIndex.get(parameterIndex));
+        currentQuery.add(ParameterExpression.positional(parameterIndex));
         parameterIndex++;
     }
 
     @Override
     public void exitNamed_placeholder(ParametersParser.Named_placeholderContext ctx) {
         if (ctx.ID() != null) {
-            String parameterName = ctx.ID().getText();
-            if (!parametersByName.containsKey(parameterName)) {
-                String message = String.format("Parameter for placeholder \"%s\" is missing", parameterName);
-                exception = Optional.of(new SQLDataException(message));
-                return;
-            }
-            currentQuery += processValue(parametersByName.get(parameterName));
-        }
-    }
-
-    private String processValue(String value) {
-        if (value == null) {
-            throw new IllegalArgumentException("Value to process can't be null");
+            currentQuery.add(ParameterExpression.named(ctx.ID().getText()));
         }
-        return isPositiveInteger(value) ?
-                value :
-                String.format("'%s'", escapeValue(value));
-    }
-    
-    private static boolean isPositiveInteger(String value) {
-        for (int i = 0; i < value.length(); i++) {
-            char c = value.charAt(i);
-            if (c < '0' || c > '9') {
-                return false;
-            }
-        }
-        return true;
-    }
-    
-    private static String escapeValue(String value) {
-        return value
-                .replace("\\", "\\\\")
-                .replace("'", "\\'")
-                .replace(";", "\\;");
     }
 }
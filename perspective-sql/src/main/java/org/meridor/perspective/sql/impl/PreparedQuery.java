@@ -0,0 +1,196 @@
+package org.meridor.perspective.sql.impl;
+
+import org.meridor.perspective.sql.Parameter;
+import org.meridor.perspective.sql.impl.expression.ParameterExpression;
+
+import java.sql.SQLDataException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * SQL text with placeholders split into fragments once. Binding parameters
+ * only concatenates fragments with escaped values and does not parse SQL
+ * again, so one prepared query can be safely reused by concurrent requests.
+ * Templates keep placeholders as parameter expressions, so that their plans
+ * can be shared by all parameter values.
+ */
+public class PreparedQuery {
+
+    private final String sql;
+
+    //Each fragment is either a string or a parameter expression
+    private final List<List<Object>> queries;
+
+    private final List<String> templates;
+
+    PreparedQuery(String sql, List<List<Object>> queries) {
+        this.sql = sql;
+        this.queries = queries;
+        this.templates = queries.stream()
+                .map(PreparedQuery::toTemplate)
+                .collect(Collectors.toList());
+    }
+
+    public static PreparedQuery prepare(String sql) throws SQLDataException {
+        return new PlaceholderConfigurer(normalize(sql)).prepare();
+    }
+
+    /**
+     * Returns queries with all placeholders replaced by parameter values
+     */
+    public List<String> bind(List<Parameter> parameters) throws SQLDataException {
+        Map<ParameterExpression, String> values = getValues(parameters);
+        List<String> ret = new ArrayList<>(queries.size());
+        for (List<Object> fragments : queries) {
+            StringBuilder query = new StringBuilder();
+            for (Object fragment : fragments) {
+                if (fragment instanceof ParameterExpression) {
+                    query.append(processValue(values.get(fragment)));
+                } else {
+                    query.append(fragment);
+                }
+            }
+            ret.add(query.toString());
+        }
+        return ret;
+    }
+
+    /**
+     * Returns queries with placeholders written as parameter expressions
+     */
+    public List<String> getTemplates() {
+        return templates;
+    }
+
+    /**
+     * Returns placeholder values having the same types as respective
+     * literals of bound queries: positive integers and strings
+     */
+    public Map<ParameterExpression, Object> getParameterValues(List<Parameter> parameters) throws SQLDataException {
+        Map<ParameterExpression, Object> ret = new HashMap<>();
+        getValues(parameters).forEach((p, v) -> ret.put(p, toLiteral(v)));
+        return ret;
+    }
+
+    //Spaces prevent parameter expressions from merging with adjacent tokens
+    private static String toTemplate(List<Object> fragments) {
+        return fragments.stream()
+                .map(f -> (f instanceof ParameterExpression) ? String.format(" %s ", f) : String.valueOf(f))
+                .collect(Collectors.joining());
+    }
+
+    private Map<ParameterExpression, String> getValues(List<Parameter> parameters) throws SQLDataException {
+        Map<String, String> parametersByName = new HashMap<>();
+        Map<Integer, String> parametersByIndex = new HashMap<>();
+        for (Parameter parameter : parameters) {
+            if (parameter.getName() != null) {
+                parametersByName.put(parameter.getName(), parameter.getValue());
+            } else if (parameter.getIndex() != null) {
+                parametersByIndex.put(parameter.getIndex(), parameter.getValue());
+            }
+        }
+        Map<ParameterExpression, String> ret = new HashMap<>();
+        for (List<Object> fragments : queries) {
+            for (Object fragment : fragments) {
+                if (fragment instanceof ParameterExpression) {
+                    ParameterExpression parameter = (ParameterExpression) fragment;
+                    ret.put(parameter, getValue(parameter, parametersByName, parametersByIndex));
+                }
+            }
+        }
+        return ret;
+    }
+
+    private static String getValue(ParameterExpression parameter, Map<String, String> parametersByName, Map<Integer, String> parametersByIndex) throws SQLDataException {
+        String name = parameter.getName();
+        if (name != null) {
+            if (!parametersByName.containsKey(name)) {
+                String message = String.format("Parameter for placeholder \"%s\" is missing", name);
+                throw new SQLDataException(message);
+            }
+            return parametersByName.get(name);
+        }
+        Integer index = parameter.getIndex();
+        if (!parametersByIndex.containsKey(index)) {
+            String message = String.format("Parameter for placeholder #%d is missing", index);
+            throw new SQLDataException(message);
+        }
+        return parametersByIndex.get(index);
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Collapses whitespace outside of string literals so that the same
+     * query written differently is prepared only once. Line breaks are
+     * preserved because they delimit queries.
+     */
+    public static String normalize(String sql) {
+        StringBuilder ret = new StringBuilder(sql.length());
+        boolean insideLiteral = false;
+        boolean lineBreak = false;
+        boolean whitespace = false;
+        for (int i = 0; i <= sql.length() - 1; i++) {
+            char c = sql.charAt(i);
+            if (!insideLiteral && Character.isWhitespace(c)) {
+                whitespace = true;
+                lineBreak |= c == '\n';
+                continue;
+            }
+            if (whitespace && ret.length() > 0) {
+                ret.append(lineBreak ? '\n' : ' ');
+            }
+            whitespace = false;
+            lineBreak = false;
+            ret.append(c);
+            if (c == '\'') {
+                insideLiteral = !insideLiteral;
+            }
+        }
+        return ret.toString();
+    }
+
+    private static String processValue(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value to process can't be null");
+        }
+        return isPositiveInteger(value) ?
+                value :
+                String.format("'%s'", escapeValue(value));
+    }
+
+    //Integers which don't fit into int are parsed as strings instead of failing
+    private static Object toLiteral(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value to process can't be null");
+        }
+        if (!value.isEmpty() && isPositiveInteger(value)) {
+            try {
+                return Integer.valueOf(value);
+            } catch (NumberFormatException e) {
+                return value;
+            }
+        }
+        return value;
+    }
+
+    private static boolean isPositiveInteger(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String escapeValue(String value) {
+        return value
+                .replace("\\", "\\\\")
+                .replace("'", "\\'")
+                .replace(";", "\\;");
+    }
+
+}
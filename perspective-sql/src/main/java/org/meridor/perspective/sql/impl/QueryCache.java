@@ -0,0 +1,27 @@
+package org.meridor.perspective.sql.impl;
+
+import com.google.common.cache.CacheStats;
+
+public interface QueryCache {
+
+    /**
+     * Marks all cached query results depending on table as stale. Should be
+     * called every time table data changes.
+     * @param tableName changed table name
+     */
+    void invalidate(String tableName);
+
+    /**
+     * Returns table version which is incremented every time table is
+     * invalidated, so that values computed from table data can be told
+     * apart from stale ones
+     * @param tableName table name
+     */
+    long getVersion(String tableName);
+
+    /**
+     * Returns cache statistics. Stale results are not counted as hits.
+     */
+    CacheStats getStats();
+
+}
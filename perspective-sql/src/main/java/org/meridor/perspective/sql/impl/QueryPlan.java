@@ -4,11 +4,30 @@ import org.meridor.perspective.sql.impl.parser.QueryType;
 import org.meridor.perspective.sql.impl.task.Task;
 
 import java.util.Queue;
+import java.util.Set;
 
 public interface QueryPlan {
 
+    /**
+     * Name of the column containing ids of table rows
+     */
+    String ID_COLUMN = "id";
+
     Queue<Task> getTasks();
     
     QueryType getQueryType();
     
+    /**
+     * Returns names of tables this plan reads data from
+     */
+    Set<String> getTableNames();
+
+    /**
+     * Returns whether every result row of this plan depends only on the
+     * table row with the same value of {@link #ID_COLUMN} column, so that
+     * plan can be evaluated against changed rows only instead of the whole
+     * table
+     */
+    boolean isIncremental();
+    
 }
@@ -0,0 +1,173 @@
+package org.meridor.perspective.sql.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.meridor.perspective.sql.impl.index.Indexer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+
+/**
+ * Keeps prepared queries by normalized SQL with placeholders and query
+ * plans by query templates, so that one plan is used for all parameter
+ * values. Parameters are bound when plan is executed. Templates which can't
+ * be planned without knowing parameter values (e.g. with placeholder in
+ * LIMIT clause) are planned for each SQL with bound parameters instead.
+ * Planner and parser beans are only created when plan is missing in cache.
+ * Plans remember rows counts of their tables and are created again when
+ * any of them changes noticeably, because chosen indexes and join order
+ * depend on these statistics.
+ */
+@Component
+public class QueryPlanCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryPlanCache.class);
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private Indexer indexer;
+
+    @Value("${perspective.sql.plan.cache.size:1000}")
+    private int cacheSize;
+
+    //Plan is created again when table rows count changes this number of times
+    @Value("${perspective.sql.plan.statistics.change.ratio:2}")
+    private double statisticsChangeRatio;
+
+    private Cache<String, PreparedQuery> preparedQueries;
+
+    private Cache<String, CachedPlan> queryPlans;
+
+    //Empty plan means that template can't be planned
+    private Cache<String, Optional<CachedPlan>> templatePlans;
+
+    @PostConstruct
+    public void init() {
+        preparedQueries = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+        queryPlans = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+        templatePlans = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    public PreparedQuery prepare(String sql) throws SQLDataException {
+        String normalizedSql = PreparedQuery.normalize(sql);
+        try {
+            return preparedQueries.get(normalizedSql, () -> PreparedQuery.prepare(normalizedSql));
+        } catch (ExecutionException e) {
+            throw (SQLDataException) e.getCause();
+        }
+    }
+
+    /**
+     * Returns plan of query template or plan of SQL with bound parameters
+     * when template can't be planned
+     * @param template query with parameter expressions
+     * @param sql the same query with bound parameters
+     */
+    public QueryPlan getQueryPlan(String template, String sql) throws SQLException {
+        if (!template.equals(sql)) {
+            try {
+                Optional<CachedPlan> templatePlan = getValidPlan(
+                        templatePlans,
+                        template,
+                        () -> planTemplate(template),
+                        p -> p.map(CachedPlan::isValid).orElse(true)
+                );
+                if (templatePlan.isPresent()) {
+                    return templatePlan.get().getQueryPlan();
+                }
+            } catch (ExecutionException e) {
+                throw new SQLException(e.getCause());
+            }
+        }
+        return getQueryPlan(sql);
+    }
+
+    private Optional<CachedPlan> planTemplate(String template) {
+        try {
+            return Optional.of(plan(template));
+        } catch (SQLException | RuntimeException e) {
+            LOG.debug("Query template \"{}\" will be planned with bound parameters", template, e);
+            return Optional.empty();
+        }
+    }
+
+    private QueryPlan getQueryPlan(String sql) throws SQLException {
+        try {
+            return getValidPlan(queryPlans, sql, () -> plan(sql), CachedPlan::isValid).getQueryPlan();
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof SQLException) ?
+                    (SQLException) e.getCause() :
+                    new SQLException(e.getCause());
+        }
+    }
+
+    private static <T> T getValidPlan(Cache<String, T> cache, String key, Callable<T> loader, Predicate<T> isValid) throws ExecutionException {
+        T cachedPlan = cache.get(key, loader);
+        if (!isValid.test(cachedPlan)) {
+            LOG.debug("Table statistics changed, planning query \"{}\" again", key);
+            cache.asMap().remove(key, cachedPlan);
+            cachedPlan = cache.get(key, loader);
+        }
+        return cachedPlan;
+    }
+
+    private CachedPlan plan(String sql) throws SQLException {
+        QueryPlan queryPlan = applicationContext.getBean(QueryPlanner.class).plan(sql);
+        Map<String, Long> rowsCounts = new HashMap<>();
+        queryPlan.getTableNames().forEach(tn -> rowsCounts.put(tn, getRowsCount(tn)));
+        return new CachedPlan(queryPlan, rowsCounts);
+    }
+
+    private long getRowsCount(String tableName) {
+        return indexer.getRowsCount(tableName).orElse(0L);
+    }
+
+    private class CachedPlan {
+
+        private final QueryPlan queryPlan;
+
+        //Rows counts of tables when plan was created
+        private final Map<String, Long> rowsCounts;
+
+        CachedPlan(QueryPlan queryPlan, Map<String, Long> rowsCounts) {
+            this.queryPlan = queryPlan;
+            this.rowsCounts = rowsCounts;
+        }
+
+        QueryPlan getQueryPlan() {
+            return queryPlan;
+        }
+
+        boolean isValid() {
+            return rowsCounts.entrySet().stream()
+                    .allMatch(e -> !isChangedNoticeably(e.getValue(), getRowsCount(e.getKey())));
+        }
+
+        //Small tables are not planned again after every added row
+        private boolean isChangedNoticeably(long oldRowsCount, long newRowsCount) {
+            return Math.max(oldRowsCount, newRowsCount) > statisticsChangeRatio * Math.max(1, Math.min(oldRowsCount, newRowsCount));
+        }
+    }
+
+}
@@ -3,17 +3,33 @@ package org.meridor.perspective.sql.impl;
 import org.meridor.perspective.sql.impl.parser.QueryType;
 import org.meridor.perspective.sql.impl.task.Task;
 
+import java.util.Collections;
 import java.util.Queue;
+import java.util.Set;
 
 public class QueryPlanImpl implements QueryPlan {
     
     private final Queue<Task> tasksQueue;
     
     private final QueryType queryType;
+    
+    private final Set<String> tableNames;
+
+    private final boolean isIncremental;
 
     public QueryPlanImpl(Queue<Task> tasksQueue, QueryType queryType) {
+        this(tasksQueue, queryType, Collections.emptySet());
+    }
+
+    public QueryPlanImpl(Queue<Task> tasksQueue, QueryType queryType, Set<String> tableNames) {
+        this(tasksQueue, queryType, tableNames, false);
+    }
+
+    public QueryPlanImpl(Queue<Task> tasksQueue, QueryType queryType, Set<String> tableNames, boolean isIncremental) {
         this.tasksQueue = tasksQueue;
         this.queryType = queryType;
+        this.tableNames = tableNames;
+        this.isIncremental = isIncremental;
     }
 
     @Override
@@ -25,4 +41,14 @@ public class QueryPlanImpl implements QueryPlan {
     public QueryType getQueryType() {
         return queryType;
     }
+
+    @Override
+    public Set<String> getTableNames() {
+        return tableNames;
+    }
+
+    @Override
+    public boolean isIncremental() {
+        return isIncremental;
+    }
 }
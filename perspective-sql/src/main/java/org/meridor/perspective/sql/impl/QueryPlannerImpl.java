@@ -3,6 +3,7 @@ package org.meridor.perspective.sql.impl;
 import org.meridor.perspective.beans.BooleanRelation;
 import org.meridor.perspective.sql.impl.expression.*;
 import org.meridor.perspective.sql.impl.index.Index;
+import org.meridor.perspective.sql.impl.index.SortedIndex;
 import org.meridor.perspective.sql.impl.index.impl.IndexSignature;
 import org.meridor.perspective.sql.impl.parser.*;
 import org.meridor.perspective.sql.impl.storage.IndexStorage;
@@ -16,22 +17,29 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 
 import java.sql.SQLException;
 import java.sql.SQLSyntaxErrorException;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static org.meridor.perspective.sql.impl.QueryPlan.ID_COLUMN;
 import static org.meridor.perspective.sql.impl.QueryPlannerImpl.OptimizedTask.*;
 import static org.meridor.perspective.sql.impl.expression.BinaryBooleanOperator.AND;
 import static org.meridor.perspective.sql.impl.expression.BinaryBooleanOperator.OR;
 import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.columnsToCondition;
 import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.columnsToNames;
+import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.getColumnExpressions;
+import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.getSubqueries;
 import static org.meridor.perspective.sql.impl.parser.DataSource.DataSourceType.INDEX_FETCH;
 import static org.meridor.perspective.sql.impl.parser.DataSource.DataSourceType.INDEX_SCAN;
+import static org.meridor.perspective.sql.impl.parser.DataSource.DataSourceType.SUBQUERY_SCAN;
+import static org.meridor.perspective.sql.impl.parser.DataSource.DataSourceType.TABLE_SCAN;
 import static org.meridor.perspective.sql.impl.parser.DataSourceUtils.*;
 import static org.meridor.perspective.sql.impl.table.Column.ANY_TABLE;
 
@@ -52,7 +60,22 @@ public class QueryPlannerImpl implements QueryPlanner {
     @Autowired
     private IndexStorage indexStorage;
     
+    @Autowired
+    private CostEstimator costEstimator;
+    
+    @Autowired
+    private JoinOrderOptimizer joinOrderOptimizer;
+
+    @Autowired
+    private FetchConditionExtractor fetchConditionExtractor;
+    
     private final Queue<Task> tasksQueue = new LinkedList<>();
+    
+    private final Set<String> tableNames = new HashSet<>();
+
+    private boolean hasSubqueries;
+
+    private boolean isIncremental;
 
     @Override
     public QueryPlan plan(String sql) throws SQLException {
@@ -61,9 +84,12 @@ public class QueryPlannerImpl implements QueryPlanner {
         QueryType queryType = queryParser.getQueryType();
         switch (queryType) {
             case EXPLAIN:
+            case EXPLAIN_ANALYZE:
             case SELECT: {
                 SelectQueryAware selectQueryAware = queryParser.getSelectQueryAware();
                 processSelectQuery(selectQueryAware);
+                tableNames.addAll(getTableNames(selectQueryAware));
+                isIncremental = queryType == QueryType.SELECT && isIncremental(selectQueryAware);
                 break;
             }
             case SHOW_TABLES: {
@@ -72,12 +98,14 @@ public class QueryPlannerImpl implements QueryPlanner {
             }
             case UNKNOWN: throw new SQLSyntaxErrorException("Unknown query type");
         }
-        return new QueryPlanImpl(tasksQueue, queryType);
+        return new QueryPlanImpl(tasksQueue, queryType, tableNames, isIncremental);
     }
 
     private void processSelectQuery(SelectQueryAware selectQueryAware) throws SQLException {
         try {
             
+            planSubqueries(selectQueryAware);
+
             Map<OptimizedTask, Task> optimizedQuery = optimizeSelectQuery(selectQueryAware);
 
             if (optimizedQuery.containsKey(DATASOURCE)) {
@@ -90,9 +118,11 @@ public class QueryPlannerImpl implements QueryPlanner {
                 tasksQueue.add(optimizedQuery.get(WHERE));
             }
 
-            if (!selectQueryAware.getGroupByExpressions().isEmpty()) {
+            List<AggregateFunctionExpression> aggregateFunctions = getAggregateFunctions(selectQueryAware);
+            if (!selectQueryAware.getGroupByExpressions().isEmpty() || !aggregateFunctions.isEmpty()) {
                 GroupTask groupTask = applicationContext.getBean(GroupTask.class);
                 selectQueryAware.getGroupByExpressions().forEach(groupTask::addExpression);
+                aggregateFunctions.forEach(groupTask::addAggregateFunction);
                 tasksQueue.add(groupTask);
             }
 
@@ -103,7 +133,11 @@ public class QueryPlannerImpl implements QueryPlanner {
             if (!selectQueryAware.getOrderByExpressions().isEmpty()) {
                 OrderTask orderTask = applicationContext.getBean(OrderTask.class);
                 selectQueryAware.getOrderByExpressions().forEach(orderTask::addExpression);
-                tasksQueue.add(orderTask);
+                tasksQueue.add(createOrderTask(
+                        orderTask,
+                        selectQueryAware.getLimitOffset(),
+                        selectQueryAware.getLimitCount()
+                ));
             }
 
             SelectTask selectTask = applicationContext.getBean(SelectTask.class, selectQueryAware.getSelectionMap(), selectQueryAware.getTableAliases());
@@ -121,6 +155,66 @@ public class QueryPlannerImpl implements QueryPlanner {
         }
     }
     
+    //Subqueries are uncorrelated so each one gets its own plan evaluated by filtering tasks or derived table scans
+    private void planSubqueries(SelectQueryAware selectQueryAware) throws SQLException {
+        List<Object> conditions = new ArrayList<>();
+        List<Subquery> subqueries = new ArrayList<>();
+        selectQueryAware.getWhereExpression().ifPresent(conditions::add);
+        selectQueryAware.getHavingExpression().ifPresent(conditions::add);
+        selectQueryAware.getDataSource().ifPresent(ds -> {
+            collectJoinConditions(ds, conditions);
+            collectDerivedTables(ds, subqueries);
+        });
+        conditions.forEach(c -> subqueries.addAll(getSubqueries(c)));
+        for (Subquery subquery : subqueries) {
+            hasSubqueries = true;
+            QueryPlannerImpl subqueryPlanner = applicationContext.getBean(QueryPlannerImpl.class);
+            SelectQueryAware subquerySelectQueryAware = subquery.getSelectQueryAware();
+            subqueryPlanner.processSelectQuery(subquerySelectQueryAware);
+            subquery.setTasks(subqueryPlanner.tasksQueue);
+            //Cached plan should be invalidated when subquery tables change too
+            tableNames.addAll(subqueryPlanner.tableNames);
+            tableNames.addAll(getTableNames(subquerySelectQueryAware));
+        }
+    }
+
+    //Derived tables are not stored so only tables of their subqueries are used by query
+    private static Set<String> getTableNames(SelectQueryAware selectQueryAware) {
+        return selectQueryAware.getTableAliases().values().stream()
+                .filter(tn -> !Subquery.DERIVED_TABLE.equals(tn))
+                .collect(Collectors.toSet());
+    }
+
+    //Every result row of single table query without grouping, limit and subqueries depends only
+    //on one table row, so that query can be evaluated against changed rows identified by ids
+    private boolean isIncremental(SelectQueryAware selectQueryAware) {
+        return selectQueryAware.getTableAliases().size() == 1 &&
+                !hasSubqueries &&
+                selectQueryAware.getGroupByExpressions().isEmpty() &&
+                getAggregateFunctions(selectQueryAware).isEmpty() &&
+                !selectQueryAware.getHavingExpression().isPresent() &&
+                !selectQueryAware.getLimitCount().isPresent() &&
+                selectsId(selectQueryAware.getSelectionMap());
+    }
+
+    private static boolean selectsId(Map<String, Object> selectionMap) {
+        Object idExpression = selectionMap.get(ID_COLUMN);
+        return selectionMap.values().stream().anyMatch(e -> e instanceof ColumnExpression && ((ColumnExpression) e).useAnyColumn()) ||
+                (idExpression instanceof ColumnExpression && ID_COLUMN.equals(((ColumnExpression) idExpression).getColumnName()));
+    }
+
+    private static void collectJoinConditions(DataSource dataSource, List<Object> conditions) {
+        dataSource.getCondition().ifPresent(conditions::add);
+        dataSource.getLeftDataSource().ifPresent(ds -> collectJoinConditions(ds, conditions));
+        dataSource.getRightDataSource().ifPresent(ds -> collectJoinConditions(ds, conditions));
+    }
+
+    private static void collectDerivedTables(DataSource dataSource, List<Subquery> subqueries) {
+        dataSource.getSubquery().ifPresent(subqueries::add);
+        dataSource.getLeftDataSource().ifPresent(ds -> collectDerivedTables(ds, subqueries));
+        dataSource.getRightDataSource().ifPresent(ds -> collectDerivedTables(ds, subqueries));
+    }
+
     private Map<OptimizedTask, Task> optimizeSelectQuery(SelectQueryAware selectQueryAware) {
         
         Map<OptimizedTask, Task> ret = new HashMap<>();
@@ -141,6 +235,7 @@ public class QueryPlannerImpl implements QueryPlanner {
                     originalDataSourceCandidate.get(),
                     whereConditions.getFirst(),
                     selectQueryAware.getSelectionMap(),
+                    getReferencedExpressions(selectQueryAware),
                     selectQueryAware.getTableAliases()
             );
 
@@ -157,6 +252,29 @@ public class QueryPlannerImpl implements QueryPlanner {
         return ret;
     }
 
+    //Aggregate functions can be used in select, having and order by clauses
+    private static List<AggregateFunctionExpression> getAggregateFunctions(SelectQueryAware selectQueryAware) {
+        List<Object> expressions = new ArrayList<>(selectQueryAware.getSelectionMap().values());
+        if (selectQueryAware.getHavingExpression().isPresent()) {
+            expressions.add(selectQueryAware.getHavingExpression().get());
+        }
+        expressions.addAll(selectQueryAware.getOrderByExpressions());
+        return expressions.stream()
+                .flatMap(e -> ExpressionUtils.getAggregateFunctions(e).stream())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    //Expressions which can refer to table columns except join conditions
+    private static List<Object> getReferencedExpressions(SelectQueryAware selectQueryAware) {
+        List<Object> expressions = new ArrayList<>(selectQueryAware.getSelectionMap().values());
+        selectQueryAware.getWhereExpression().ifPresent(expressions::add);
+        expressions.addAll(selectQueryAware.getGroupByExpressions());
+        selectQueryAware.getHavingExpression().ifPresent(expressions::add);
+        expressions.addAll(selectQueryAware.getOrderByExpressions());
+        return expressions;
+    }
+
     //Deciding whether having clause can be moved to where clause
     private Pair<List<BooleanExpression>, Optional<BooleanExpression>> extractWhereConditions(SelectQueryAware selectQueryAware) {
         
@@ -166,7 +284,9 @@ public class QueryPlannerImpl implements QueryPlanner {
             whereConditions.add(whereExpressionCandidate.get());
         }
         
-        boolean noGroupByTaskExists = selectQueryAware.getGroupByExpressions().isEmpty();
+        boolean noGroupByTaskExists =
+                selectQueryAware.getGroupByExpressions().isEmpty() &&
+                getAggregateFunctions(selectQueryAware).isEmpty();
         Optional<BooleanExpression> havingExpressionCandidate = selectQueryAware.getHavingExpression();
         if (havingExpressionCandidate.isPresent() && noGroupByTaskExists) {
             whereConditions.add(havingExpressionCandidate.get());
@@ -181,18 +301,106 @@ public class QueryPlannerImpl implements QueryPlanner {
             DataSource originalDataSource,
             List<BooleanExpression> originalWhereConditions,
             Map<String, Object> selectionMap,
+            List<Object> referencedExpressions,
             Map<String, String> tableAliases
     ) {
 
-        OptimizationContext optimizationContext = analyzeOriginalData(originalDataSource, originalWhereConditions, tableAliases);
+        //Select all returns columns in join order so it should not change
+        DataSource dataSource = isSelectAll(selectionMap) ?
+                originalDataSource :
+                joinOrderOptimizer.optimize(originalDataSource, originalWhereConditions, tableAliases);
+
+        OptimizationContext optimizationContext = analyzeOriginalData(dataSource, originalWhereConditions, tableAliases);
 
-        DataSource optimizedDataSource = createOptimizedDataSource(originalDataSource, optimizationContext, selectionMap, tableAliases);
+        Map<String, List<String>> fetchedColumns = getFetchedColumns(dataSource, referencedExpressions, tableAliases);
+
+        DataSource optimizedDataSource = createOptimizedDataSource(dataSource, optimizationContext, selectionMap, tableAliases);
+        setFetchedColumns(optimizedDataSource, fetchedColumns);
+        setFetchConditions(optimizedDataSource, originalWhereConditions, tableAliases);
 
         Optional<BooleanExpression> optimizedWhereCondition = createOptimizedWhereCondition(optimizationContext);
 
         return new Pair<>(optimizedDataSource, optimizedWhereCondition);
     }
 
+    /**
+     * Returns table columns referenced by query for each table alias. Data
+     * source should already have natural joins replaced by join columns.
+     * Aliases selected with asterisk are not returned and thus all their
+     * columns are fetched.
+     */
+    private Map<String, List<String>> getFetchedColumns(DataSource dataSource, List<Object> referencedExpressions, Map<String, String> tableAliases) {
+        List<ColumnExpression> columnExpressions = new ArrayList<>();
+        referencedExpressions.forEach(e -> columnExpressions.addAll(getColumnExpressions(e)));
+        iterateDataSource(dataSource, (pds, ds, nds) -> {
+            if (ds.getCondition().isPresent()) {
+                columnExpressions.addAll(getColumnExpressions(ds.getCondition().get()));
+            }
+            ds.getColumns().forEach(cn -> columnExpressions.add(new ColumnExpression(cn)));
+        });
+
+        Map<String, Set<String>> columnNames = new HashMap<>();
+        Set<String> allColumnsTableAliases = new HashSet<>();
+        for (ColumnExpression columnExpression : columnExpressions) {
+            if (columnExpression.useAnyColumn()) {
+                if (columnExpression.useAnyTable()) {
+                    return Collections.emptyMap();
+                }
+                allColumnsTableAliases.add(columnExpression.getTableAlias());
+            } else {
+                Set<String> columnTableAliases = columnExpression.useAnyTable() ?
+                        tableAliases.keySet() :
+                        Collections.singleton(columnExpression.getTableAlias());
+                columnTableAliases.forEach(ta -> columnNames.computeIfAbsent(ta, k -> new HashSet<>()).add(columnExpression.getColumnName()));
+            }
+        }
+
+        Map<String, List<String>> ret = new HashMap<>();
+        tableAliases.keySet().stream()
+                .filter(ta -> !allColumnsTableAliases.contains(ta))
+                .forEach(ta -> {
+                    Set<String> tableAliasColumnNames = columnNames.getOrDefault(ta, Collections.emptySet());
+                    List<String> tableColumnNames = columnsToNames(tablesAware.getColumns(tableAliases.get(ta)));
+                    List<String> fetchedColumnNames = tableColumnNames.stream()
+                            .filter(tableAliasColumnNames::contains)
+                            .collect(Collectors.toList());
+                    //E.g. for count(*) at least one column is needed to keep table rows
+                    if (fetchedColumnNames.isEmpty() && !tableColumnNames.isEmpty()) {
+                        fetchedColumnNames.add(tableColumnNames.get(0));
+                    }
+                    ret.put(ta, fetchedColumnNames);
+                });
+        return ret;
+    }
+
+    private static void setFetchedColumns(DataSource dataSource, Map<String, List<String>> fetchedColumns) {
+        DataSource.DataSourceType type = dataSource.getType();
+        if ((type == TABLE_SCAN || type == INDEX_SCAN) && dataSource.getTableAlias().isPresent()) {
+            List<String> tableAliasFetchedColumns = fetchedColumns.get(dataSource.getTableAlias().get());
+            if (tableAliasFetchedColumns != null) {
+                dataSource.getFetchedColumns().clear();
+                dataSource.getFetchedColumns().addAll(tableAliasFetchedColumns);
+            }
+        }
+        dataSource.getLeftDataSource().ifPresent(ds -> setFetchedColumns(ds, fetchedColumns));
+        dataSource.getRightDataSource().ifPresent(ds -> setFetchedColumns(ds, fetchedColumns));
+    }
+
+    //Where conditions are still checked after fetching so storage may return more rows
+    private void setFetchConditions(DataSource dataSource, List<BooleanExpression> whereConditions, Map<String, String> tableAliases) {
+        if (dataSource.getType() == TABLE_SCAN && dataSource.getTableAlias().isPresent()) {
+            Optional<FetchCondition> fetchCondition = fetchConditionExtractor.extract(dataSource.getTableAlias().get(), whereConditions, tableAliases);
+            fetchCondition.ifPresent(dataSource::setFetchCondition);
+        }
+        dataSource.getLeftDataSource().ifPresent(ds -> setFetchConditions(ds, whereConditions, tableAliases));
+        dataSource.getRightDataSource().ifPresent(ds -> setFetchConditions(ds, whereConditions, tableAliases));
+    }
+
+    private static boolean isSelectAll(Map<String, Object> selectionMap) {
+        return selectionMap.values().stream()
+                .anyMatch(e -> e instanceof ColumnExpression && ((ColumnExpression) e).useAnyTable() && ((ColumnExpression) e).useAnyColumn());
+    }
+
     private OptimizationContext analyzeOriginalData(DataSource originalDataSource, List<BooleanExpression> originalWhereConditions, Map<String, String> tableAliases) {
         //Assumption: original data source is a chain of data sources 
         // corresponding to a chain of joins in SQL request. This probably will
@@ -200,6 +408,8 @@ public class QueryPlannerImpl implements QueryPlanner {
         
         OptimizationContext optimizationContext = new OptimizationContext();
         originalWhereConditions.forEach(optimizationContext::addExpression);
+        //Range conditions from joins are not used because they should not filter outer join rows
+        originalWhereConditions.forEach(optimizationContext::addRangeConditions);
 
         //Analyzing data sources
         iterateDataSource(originalDataSource, (pds, ds, nds) -> {
@@ -271,7 +481,10 @@ public class QueryPlannerImpl implements QueryPlanner {
 
             String tableAlias = ds.getTableAlias().get();
 
-            if (isSuitableForIndexFetch(optimizedChildDataSource, tableAliases, columnNamesToSelect)) {
+            //Derived table rows are produced by its subquery so no indexes and statistics exist for them
+            boolean isDerivedTable = ds.getSubquery().isPresent();
+
+            if (!isDerivedTable && isSuitableForIndexFetch(optimizedChildDataSource, tableAliases, columnNamesToSelect)) {
                 optimizedChildDataSource.setType(INDEX_FETCH);
                 Set<String> tableColumnNamesToSelect = columnNamesToSelect.get(tableAlias);
                 optimizedChildDataSource.getColumns().clear();
@@ -285,12 +498,19 @@ public class QueryPlannerImpl implements QueryPlanner {
                 Optional<String> foreignTableAliasCandidate = firstIndexScanDataSourceAdded.get() ?
                         ( pds.isPresent() ? pds.get().getTableAlias() : Optional.empty() ):
                         ( nds.isPresent() ? nds.get().getTableAlias() : Optional.empty() );
-                List<ColumnRelation> indexedColumnRelations = foreignTableAliasCandidate.isPresent() ?
+                List<ColumnRelation> indexedColumnRelations = foreignTableAliasCandidate.isPresent() && !isDerivedTable ?
                         getIndexedColumnRelations(tableAlias, foreignTableAliasCandidate.get(), tableAliases, columnRelations):
                         Collections.emptyList();
                 Map<String, Map<String, Set<Object>>> fixedValuesConditions = optimizationContext.getFixedValuesConditions();
                 
-                Optional<IndexBooleanExpression> indexScanBooleanExpressionCandidate = getIndexScanBooleanExpression(tableAlias, tableAliases, fixedValuesConditions);
+                //Conditions not used by indexes are moved to where clause, so this is only safe for a standalone table
+                boolean isCostBased = indexedColumnRelations.isEmpty() && !optimizedChildDataSource.getJoinType().isPresent();
+                Optional<IndexBooleanExpression> indexScanBooleanExpressionCandidate = !isDerivedTable ?
+                        getIndexScanBooleanExpression(tableAlias, tableAliases, fixedValuesConditions, isCostBased) :
+                        Optional.empty();
+                Map<String, ValueRange> indexRangeConditions = !isDerivedTable ?
+                        getIndexRangeConditions(tableAlias, tableAliases, optimizationContext.getRangeConditions(), isCostBased) :
+                        Collections.emptyMap();
                 DataSource tailDataSource = getTail(optimizedDataSource);
 
                 if (!indexedColumnRelations.isEmpty()) {
@@ -318,12 +538,25 @@ public class QueryPlannerImpl implements QueryPlanner {
                 } else if (indexScanBooleanExpressionCandidate.isPresent()) {
                     //Simple index scan
                     optimizedChildDataSource.setType(INDEX_SCAN);
-                    optimizedChildDataSource.setCondition(indexScanBooleanExpressionCandidate.get());
+                    optimizedChildDataSource.setCondition(new IndexBooleanExpression(
+                            indexScanBooleanExpressionCandidate.get().getFixedValueConditions(tableAlias),
+                            indexRangeConditions
+                    ));
+                    addToDataSource(optimizedDataSource, optimizedChildDataSource);
+                } else if (!indexRangeConditions.isEmpty() && !optimizedChildDataSource.getJoinType().isPresent()) {
+                    //Sorted index range scan. Range conditions also remain in where clause.
+                    firstIndexScanDataSourceAdded.set(false);
+                    optimizedChildDataSource.setType(INDEX_SCAN);
+                    optimizedChildDataSource.setRightDataSource(null);
+                    optimizedChildDataSource.setCondition(new IndexBooleanExpression(Collections.emptyMap(), indexRangeConditions));
                     addToDataSource(optimizedDataSource, optimizedChildDataSource);
                 } else {
-                    //Add table scan data source either to previous data source or as a separate tree leaf
+                    //Add table or subquery scan data source either to previous data source or as a separate tree leaf
                     firstIndexScanDataSourceAdded.set(false);
                     optimizedChildDataSource.setRightDataSource(null);
+                    if (isDerivedTable) {
+                        optimizedChildDataSource.setType(SUBQUERY_SCAN);
+                    }
                     if (optimizedChildDataSource.getJoinType().isPresent()) {
                         Optional<BooleanExpression> joinCondition = optimizedChildDataSource.getCondition();
                         if (joinCondition.isPresent()) {
@@ -374,12 +607,19 @@ public class QueryPlannerImpl implements QueryPlanner {
     }
     
     private Set<String> getSimilarColumns(DataSource left, DataSource right, Map<String, String> tableAliases) {
-        String leftTableName = tableAliases.get(left.getTableAlias().get());
-        String rightTableName = tableAliases.get(right.getTableAlias().get());
-        Set<String> leftColumnNames = new HashSet<>(columnsToNames(tablesAware.getColumns(leftTableName)));
-        Set<String> rightColumnNames = new HashSet<>(columnsToNames(tablesAware.getColumns(rightTableName)));
+        Set<String> leftColumnNames = new HashSet<>(getColumnNames(left, tableAliases));
+        Set<String> rightColumnNames = new HashSet<>(getColumnNames(right, tableAliases));
         return intersection(leftColumnNames, rightColumnNames);
     }
+
+    private List<String> getColumnNames(DataSource dataSource, Map<String, String> tableAliases) {
+        Optional<Subquery> subqueryCandidate = dataSource.getSubquery();
+        if (subqueryCandidate.isPresent()) {
+            return subqueryCandidate.get().getColumnNames();
+        }
+        String tableName = tableAliases.get(dataSource.getTableAlias().get());
+        return columnsToNames(tablesAware.getColumns(tableName));
+    }
     
     private boolean isSuitableForIndexFetch(DataSource ds, Map<String, String> tableAliases, Map<String, Set<String>> columnNamesToSelect) {
         boolean simpleChecksPassed =
@@ -402,28 +642,33 @@ public class QueryPlannerImpl implements QueryPlanner {
     private Optional<IndexBooleanExpression> getIndexScanBooleanExpression(
             String tableAlias,
             Map<String, String> tableAliases,
-            Map<String, Map<String, Set<Object>>> fixedValuesConditions
+            Map<String, Map<String, Set<Object>>> fixedValuesConditions,
+            boolean isCostBased
     ) {
         String tableName = tableAliases.get(tableAlias);
         preprocessFixedValueConditions(tableAlias, tableAliases, fixedValuesConditions);
         boolean hasFixedValuesConditions = fixedValuesConditions.containsKey(tableAlias);
         if (hasFixedValuesConditions) {
             Map<String, Set<Object>> tableFixedValuesConditions = fixedValuesConditions.get(tableAlias);
-            Map<String, Set<Object>> matchingFixedValuesConditions = new HashMap<>();
-            HashSet<String> columnNames = new HashSet<>(tableFixedValuesConditions.keySet());
-            for (String columnName : columnNames) {
+            Map<IndexSignature, Map<String, Set<Object>>> indexConditions = new HashMap<>();
+            for (String columnName : tableFixedValuesConditions.keySet()) {
                 Optional<Column> columnCandidate = tablesAware.getColumn(tableName, columnName);
                 Assert.isTrue(columnCandidate.isPresent(), String.format("Column %s should be present in table %s", columnName, tableName));
                 Column column = columnCandidate.get();
                 for (IndexSignature indexSignature : column.getIndexes(indexStorage.getSignatures())) {
                     Set<String> allIndexColumns = indexSignature.getDesiredColumns().get(tableName);
-                    allIndexColumns.removeAll(tableFixedValuesConditions.keySet());
-                    if (allIndexColumns.isEmpty()) {
-                        //I.e. all index columns of at least one index are present in fixed value conditions
-                        matchingFixedValuesConditions.put(columnName, tableFixedValuesConditions.remove(columnName));
+                    if (tableFixedValuesConditions.keySet().containsAll(allIndexColumns)) {
+                        //I.e. all index columns are present in fixed value conditions
+                        Map<String, Set<Object>> indexCondition = new HashMap<>();
+                        allIndexColumns.forEach(cn -> indexCondition.put(cn, tableFixedValuesConditions.get(cn)));
+                        indexConditions.put(indexSignature, indexCondition);
                     }
                 }
             }
+            Map<String, Set<Object>> matchingFixedValuesConditions = new HashMap<>();
+            chooseIndexes(tableName, indexConditions, isCostBased)
+                    .forEach(is -> matchingFixedValuesConditions.putAll(indexConditions.get(is)));
+            matchingFixedValuesConditions.keySet().forEach(tableFixedValuesConditions::remove);
             if (fixedValuesConditions.get(tableAlias).isEmpty()) {
                 fixedValuesConditions.remove(tableAlias);
             }
@@ -434,6 +679,72 @@ public class QueryPlannerImpl implements QueryPlanner {
         return Optional.empty();
     }
     
+    //Without table statistics all suitable indexes are used
+    private List<IndexSignature> chooseIndexes(
+            String tableName,
+            Map<IndexSignature, Map<String, Set<Object>>> indexConditions,
+            boolean isCostBased
+    ) {
+        Optional<Long> rowsCount = costEstimator.getRowsCount(tableName);
+        if (!isCostBased || !rowsCount.isPresent()) {
+            return new ArrayList<>(indexConditions.keySet());
+        }
+        Map<IndexSignature, Long> estimatedIds = new HashMap<>();
+        indexConditions.forEach((is, c) -> estimatedIds.put(is, costEstimator.estimateIds(is, c)));
+        return costEstimator.chooseIndexes(rowsCount.get(), estimatedIds);
+    }
+    
+    //Returns range conditions for columns having sorted single column indexes
+    private Map<String, ValueRange> getIndexRangeConditions(
+            String tableAlias,
+            Map<String, String> tableAliases,
+            Map<String, Map<String, ValueRange>> rangeConditions,
+            boolean isCostBased
+    ) {
+        Map<String, ValueRange> candidates = new HashMap<>(rangeConditions.getOrDefault(tableAlias, Collections.emptyMap()));
+        rangeConditions.getOrDefault(ANY_TABLE, Collections.emptyMap()).forEach((columnName, valueRange) -> {
+            if (getColumnTableAliases(columnName, tableAliases).equals(Collections.singleton(tableAlias))) {
+                candidates.merge(columnName, valueRange, ValueRange::intersect);
+            }
+        });
+        String tableName = tableAliases.get(tableAlias);
+        Map<String, ValueRange> ret = new HashMap<>();
+        candidates.forEach((columnName, valueRange) -> {
+            Optional<Column> columnCandidate = tablesAware.getColumn(tableName, columnName);
+            IndexSignature indexSignature = new IndexSignature(tableName, Collections.singleton(columnName));
+            if (
+                    columnCandidate.isPresent() &&
+                    isRangeApplicable(columnCandidate.get().getType(), valueRange) &&
+                    indexStorage.getSignatures().contains(indexSignature) &&
+                    indexStorage.get(indexSignature).filter(i -> i instanceof SortedIndex).isPresent()
+            ) {
+                ret.put(columnName, valueRange);
+            }
+        });
+        Optional<Long> rowsCount = costEstimator.getRowsCount(tableName);
+        if (isCostBased && rowsCount.isPresent() && !ret.isEmpty()) {
+            //Range conditions also remain in where clause so unprofitable ones can be simply dropped
+            Map<String, Long> estimatedIds = new HashMap<>();
+            ret.forEach((cn, vr) -> estimatedIds.put(
+                    cn,
+                    costEstimator.estimateIds(new IndexSignature(tableName, Collections.singleton(cn)), vr)
+            ));
+            ret.keySet().retainAll(costEstimator.chooseIndexes(rowsCount.get(), estimatedIds));
+        }
+        return ret;
+    }
+    
+    //Numeric ranges are only applicable to numeric columns and string ranges - to string columns
+    private static boolean isRangeApplicable(Class<?> columnType, ValueRange valueRange) {
+        Class<?> columnClass = ClassUtils.resolvePrimitiveIfNecessary(columnType);
+        Predicate<Object> boundMatchesColumn = bound -> 
+                ExpressionUtils.isNumber(bound.getClass()) && ExpressionUtils.isNumber(columnClass) ||
+                ExpressionUtils.isString(bound.getClass()) && ExpressionUtils.isString(columnClass);
+        return
+                (!valueRange.getLowerBound().isPresent() || boundMatchesColumn.test(valueRange.getLowerBound().get())) &&
+                (!valueRange.getUpperBound().isPresent() || boundMatchesColumn.test(valueRange.getUpperBound().get()));
+    }
+    
     //Moves conditions with * table alias to respective real aliases if possible
     private void preprocessFixedValueConditions(
             String tableAlias,
@@ -531,9 +842,12 @@ public class QueryPlannerImpl implements QueryPlanner {
                 .collect(Collectors.toSet());
     }
 
-    private Set<String> getRestOfExpressionsColumnNamesToSelect(String tableAlias, List<BooleanExpression> restOfExpressions) {
+    //Evaluator only returns column names of value expressions so boolean expressions are traversed here
+    private static Set<String> getRestOfExpressionsColumnNamesToSelect(String tableAlias, List<BooleanExpression> restOfExpressions) {
         return restOfExpressions.stream()
-                .flatMap(be -> expressionEvaluator.getColumnNames(be).getOrDefault(tableAlias, Collections.emptySet()).stream())
+                .flatMap(be -> getColumnExpressions(be).stream())
+                .filter(ce -> !ce.useAnyColumn() && tableAlias.equals(ce.getTableAlias()))
+                .map(ColumnExpression::getColumnName)
                 .collect(Collectors.toSet());
     }
 
@@ -567,6 +881,13 @@ public class QueryPlannerImpl implements QueryPlanner {
         );
     }
 
+    //Sorting followed by limit is replaced with top N rows selection
+    private Task createOrderTask(OrderTask orderTask, Optional<Integer> limitOffset, Optional<Integer> limitCount) {
+        return limitCount.isPresent() ?
+                new TopNTask(orderTask, limitOffset.orElse(0), limitCount.get()) :
+                orderTask;
+    }
+
     private LimitTask createLimitTask(Optional<Integer> limitOffset, Integer limitCount) {
         return limitOffset.isPresent() ?
                 new LimitTask(limitOffset.get(), limitCount) :
@@ -585,6 +906,19 @@ public class QueryPlannerImpl implements QueryPlanner {
         private final Map<String, Map<String, Set<Object>>> fixedValuesConditions = new HashMap<>();
         private final ColumnRelationsStorage columnRelations = new ColumnRelationsStorage();
         private final List<BooleanExpression> restOfExpressions = new ArrayList<>();
+        private final Map<String, Map<String, ValueRange>> rangeConditions = new HashMap<>();
+
+        void addRangeConditions(BooleanExpression booleanExpression) {
+            booleanExpression.getTableAliases().forEach(ta -> {
+                Map<String, ValueRange> tableRangeConditions = booleanExpression.getRangeConditions(ta);
+                if (!tableRangeConditions.isEmpty()) {
+                    rangeConditions.putIfAbsent(ta, new HashMap<>());
+                    tableRangeConditions.forEach((columnName, valueRange) ->
+                            rangeConditions.get(ta).merge(columnName, valueRange, ValueRange::intersect)
+                    );
+                }
+            });
+        }
 
         void addExpression(BooleanExpression booleanExpression) {
             getFixedValuesConsumer(fixedValuesConditions).accept(booleanExpression);
@@ -623,6 +957,10 @@ public class QueryPlannerImpl implements QueryPlanner {
             return columnRelations;
         }
 
+        Map<String, Map<String, ValueRange>> getRangeConditions() {
+            return rangeConditions;
+        }
+
         List<BooleanExpression> getRestOfExpressions() {
             return restOfExpressions;
         }
@@ -1,114 +1,359 @@
 package org.meridor.perspective.sql.impl;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.cache.CacheStats;
 import org.meridor.perspective.sql.*;
+import org.meridor.perspective.sql.impl.expression.ParameterExpression;
 import org.meridor.perspective.sql.impl.parser.QueryType;
+import org.meridor.perspective.sql.impl.task.BatchExecutor;
+import org.meridor.perspective.sql.impl.task.ExecutionProfiler;
+import org.meridor.perspective.sql.impl.task.ExecutionStep;
+import org.meridor.perspective.sql.impl.task.ProfilingRowIterator;
+import org.meridor.perspective.sql.impl.task.QueryAbortedException;
+import org.meridor.perspective.sql.impl.task.QueryContext;
+import org.meridor.perspective.sql.impl.task.RowIterator;
+import org.meridor.perspective.sql.impl.task.SharedValues;
 import org.meridor.perspective.sql.impl.task.Task;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import java.sql.SQLDataException;
 import java.sql.SQLException;
 import java.sql.SQLSyntaxErrorException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.meridor.perspective.sql.DataContainer.empty;
 import static org.meridor.perspective.sql.QueryStatus.*;
-import static org.meridor.perspective.sql.impl.parser.QueryType.EXPLAIN;
+import static org.meridor.perspective.sql.impl.parser.QueryType.EXPLAIN_ANALYZE;
+import static org.meridor.perspective.sql.impl.task.ExecutionProfiler.getAllocatedBytes;
+import static org.meridor.perspective.sql.impl.task.ExecutionProfiler.getAllocatedBytesSince;
+import static org.meridor.perspective.sql.impl.task.TaskUtils.chain;
+import static org.meridor.perspective.sql.impl.task.TaskUtils.materialize;
 
 @Component
-public class QueryProcessorImpl implements QueryProcessor {
+public class QueryProcessorImpl implements QueryProcessor, QueryCache {
     
     private static final Logger LOG = LoggerFactory.getLogger(QueryProcessorImpl.class);
     
     @Autowired
-    private ApplicationContext applicationContext;
-    
-    private LoadingCache<Query, List<QueryResult>> queryCache = CacheBuilder.newBuilder()
-            .concurrencyLevel(4) //This can be converted to property
-            .expireAfterAccess(10, TimeUnit.SECONDS)
-            .expireAfterWrite(10, TimeUnit.SECONDS)
-            .build(
-                    new CacheLoader<Query, List<QueryResult>>() {
-                        public List<QueryResult> load(Query query) throws Exception {
-                            return processQuery(query);
-                        }
-                    }
-            );
-
+    private QueryPlanCache queryPlanCache;
+    
+    @Autowired
+    private ExecutionProfiler executionProfiler;
+    
+    @Autowired
+    private BatchExecutor batchExecutor;
+    
+    @Value("${perspective.sql.query.cache.size:1000}")
+    private int cacheSize;
+    
+    //Results are invalidated by table changes so this is only a safety net
+    @Value("${perspective.sql.query.cache.ttl:600}")
+    private int cacheTtl;
+    
+    //Timeout in milliseconds, can be changed for each query
+    @Value("${perspective.sql.query.timeout:60000}")
+    private int queryTimeout;
+    
+    //Rows fetched from storage and produced by joins and tasks
+    @Value("${perspective.sql.query.max.rows:10000000}")
+    private long maxRows;
+    
+    @Value("${perspective.sql.query.max.allocated.bytes:2147483648}")
+    private long maxAllocatedBytes;
+    
+    //Queries are cancelled by ids, so that identical queries of different clients are not affected
+    private final Map<String, QueryContext> runningQueries = new ConcurrentHashMap<>();
+    
+    private final Map<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+    
+    private final AtomicLong staleCount = new AtomicLong();
+    
+    private Cache<Query, CachedResults> queryCache;
+    
+    @PostConstruct
+    public void init() {
+        queryCache = CacheBuilder.newBuilder()
+                .concurrencyLevel(4)
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
 
     @Override
     public List<QueryResult> process(Query query) {
+        return toQueryResults(process(query, null));
+    }
+
+    @Override
+    public List<QueryResult> process(List<Query> queries) {
+        return toQueryResults(processRaw(queries));
+    }
+
+    @Override
+    public List<RawQueryResult> processRaw(List<Query> queries) {
+        //Queries in batch are independent so they are processed concurrently and share identical table fetches
+        SharedValues batchValues = (queries.size() > 1) ? new SharedValues() : null;
+        List<Supplier<List<RawQueryResult>>> actions = queries.stream()
+                .map(q -> (Supplier<List<RawQueryResult>>) () -> process(q, batchValues))
+                .collect(Collectors.toList());
+        return batchExecutor.execute(actions).stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+    
+    private static List<QueryResult> toQueryResults(List<RawQueryResult> rawQueryResults) {
+        return rawQueryResults.stream()
+                .map(RawQueryResult::toQueryResult)
+                .collect(Collectors.toList());
+    }
+
+    private List<RawQueryResult> process(Query query, SharedValues batchValues) {
+        Query cacheKey = getCacheKey(query);
+        AtomicBoolean isLoaded = new AtomicBoolean();
+        Callable<CachedResults> loader = () -> {
+            isLoaded.set(true);
+            return processQuery(query, batchValues);
+        };
         try {
-            return queryCache.get(query);
+            CachedResults cachedResults = queryCache.get(cacheKey, loader);
+            if (!isLoaded.get() && !cachedResults.isValid()) {
+                staleCount.incrementAndGet();
+                queryCache.asMap().remove(cacheKey, cachedResults);
+                cachedResults = queryCache.get(cacheKey, loader);
+            }
+            //Identical query loaded concurrently could be cancelled by another client, so we evaluate our own
+            if (!isLoaded.get() && !cachedResults.isCacheable()) {
+                return processQuery(query, batchValues).getQueryResults();
+            }
+            //Aborted and EXPLAIN ANALYZE results are not cached. Results of query evaluated while tables were changing
+            //are returned but not cached too: waiting for fresh ones would never finish when
+            //tables change faster than query is evaluated.
+            if (!cachedResults.isCacheable() || !cachedResults.isValid()) {
+                queryCache.asMap().remove(cacheKey, cachedResults);
+            }
+            return cachedResults.getQueryResults();
         } catch (ExecutionException e) {
             return Collections.singletonList(getQueryResult(EVALUATION_ERROR, 0, empty(), e.getMessage()));
         }
     }
-    
-    private List<QueryResult> processQuery(Query query) {
+
+    @Override
+    public Optional<QueryResult> processRows(Query query, Set<String> ids) {
         try {
-            List<String> sqlQueries = prepareSQL(query);
-            List<QueryResult> queryResults = new ArrayList<>();
-            for (String sqlQuery : sqlQueries) {
-                try {
-                    QueryPlan queryPlan = parseSQL(sqlQuery);
-                    Queue<Task> tasks = queryPlan.getTasks();
-                    QueryType queryType = queryPlan.getQueryType();
-                    ExecutionResult executionResult = (queryType != EXPLAIN) ?
-                            executeTasks(tasks.iterator(), null) :
-                            createExplainExecutionResult(tasks);
-                    queryResults.add(getQueryResult(SUCCESS, executionResult.getCount(), executionResult.getData(), ""));
-                } catch (SQLSyntaxErrorException e) {
-                    LOG.debug("Marking query as having syntax error", e);
-                    queryResults.add(getQueryResult(SYNTAX_ERROR, 0, empty(), e.getMessage()));
-                } catch (SQLException e) {
-                    LOG.debug("Marking query as having evaluation error", e);
-                    String message = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
-                    queryResults.add(getQueryResult(EVALUATION_ERROR, 0, empty(), message));
-                }
+            PreparedQuery preparedQuery = queryPlanCache.prepare(query.getSql());
+            List<String> templates = preparedQuery.getTemplates();
+            List<String> sqlQueries = preparedQuery.bind(query.getParameters());
+            if (sqlQueries.size() != 1) {
+                return Optional.empty();
             }
-            return queryResults;
+            String template = templates.get(0);
+            String sqlQuery = sqlQueries.get(0);
+            QueryPlan queryPlan = queryPlanCache.getQueryPlan(template, sqlQuery);
+            if (!queryPlan.isIncremental()) {
+                return Optional.empty();
+            }
+            int timeout = (query.getTimeout() != null) ? query.getTimeout() : queryTimeout;
+            QueryContext queryContext = new QueryContext(timeout, maxRows, maxAllocatedBytes, null, preparedQuery.getParameterValues(query.getParameters()));
+            queryPlan.getTableNames().forEach(tn -> queryContext.restrictRows(tn, ids));
+            RawQueryResult queryResult = queryContext.call(() -> evaluateQuery(template, sqlQuery)).getQueryResults().get(0);
+            return (queryResult.getStatus() == SUCCESS) ?
+                    Optional.of(queryResult.toQueryResult()) :
+                    Optional.empty();
+        } catch (SQLException e) {
+            LOG.debug("Failed to evaluate query with sql = \"{}\" against rows with ids = {}", query.getSql(), ids, e);
+            return Optional.empty();
+        }
+    }
+
+    //Query id only identifies running query and does not change its results
+    private static Query getCacheKey(Query query) {
+        if (query.getId() == null) {
+            return query;
+        }
+        Query cacheKey = new Query();
+        cacheKey.setSql(query.getSql());
+        cacheKey.setParameters(query.getParameters());
+        cacheKey.setTimeout(query.getTimeout());
+        return cacheKey;
+    }
+
+    @Override
+    public boolean cancel(String queryId) {
+        QueryContext queryContext = runningQueries.get(queryId);
+        if (queryContext == null) {
+            return false;
+        }
+        LOG.debug("Cancelling query with id = {}", queryId);
+        queryContext.cancel();
+        return true;
+    }
+
+    @Override
+    public Set<String> getTableNames(Query query) {
+        try {
+            Set<String> tableNames = new HashSet<>();
+            getQueryPlans(query).forEach(qp -> tableNames.addAll(qp.getTableNames()));
+            return tableNames;
+        } catch (SQLException e) {
+            LOG.debug("Failed to get table names of query with sql = \"{}\"", query.getSql(), e);
+            return Collections.emptySet();
+        }
+    }
+
+    private List<QueryPlan> getQueryPlans(Query query) throws SQLException {
+        PreparedQuery preparedQuery = queryPlanCache.prepare(query.getSql());
+        List<String> templates = preparedQuery.getTemplates();
+        List<String> sqlQueries = preparedQuery.bind(query.getParameters());
+        List<QueryPlan> queryPlans = new ArrayList<>(sqlQueries.size());
+        for (int i = 0; i <= sqlQueries.size() - 1; i++) {
+            queryPlans.add(queryPlanCache.getQueryPlan(templates.get(i), sqlQueries.get(i)));
+        }
+        return queryPlans;
+    }
+
+    @Override
+    public void invalidate(String tableName) {
+        getTableVersion(tableName).incrementAndGet();
+    }
+
+    @Override
+    public long getVersion(String tableName) {
+        return getTableVersion(tableName).get();
+    }
+
+    @Override
+    public CacheStats getStats() {
+        //Stale result is followed by a miss when loading fresh one
+        CacheStats stats = queryCache.stats();
+        return new CacheStats(
+                stats.hitCount() - staleCount.get(),
+                stats.missCount(),
+                stats.loadSuccessCount(),
+                stats.loadExceptionCount(),
+                stats.totalLoadTime(),
+                stats.evictionCount()
+        );
+    }
+    
+    private AtomicLong getTableVersion(String tableName) {
+        return tableVersions.computeIfAbsent(tableName, tn -> new AtomicLong());
+    }
+    
+    private CachedResults processQuery(Query query, SharedValues batchValues) {
+        PreparedQuery preparedQuery;
+        List<String> sqlQueries;
+        Map<ParameterExpression, Object> parameters;
+        try {
+            preparedQuery = queryPlanCache.prepare(query.getSql());
+            sqlQueries = preparedQuery.bind(query.getParameters());
+            parameters = preparedQuery.getParameterValues(query.getParameters());
         } catch (SQLDataException e) {
-            return Collections.singletonList(getQueryResult(MISSING_PARAMETERS, 0, empty(), e.getMessage()));
+            return new CachedResults(
+                    Collections.singletonList(getQueryResult(MISSING_PARAMETERS, 0, empty(), e.getMessage())),
+                    Collections.emptyMap(),
+                    true
+            );
+        }
+        List<String> templates = preparedQuery.getTemplates();
+        //Statements produced from one query with list parameters form a batch too
+        SharedValues sharedValues = (batchValues == null && sqlQueries.size() > 1) ? new SharedValues() : batchValues;
+        int timeout = (query.getTimeout() != null) ? query.getTimeout() : queryTimeout;
+        QueryContext queryContext = new QueryContext(timeout, maxRows, maxAllocatedBytes, sharedValues, parameters);
+        String queryId = query.getId();
+        if (queryId != null && runningQueries.putIfAbsent(queryId, queryContext) != null) {
+            LOG.debug("Query with id = {} is already running, so this one can't be cancelled", queryId);
+        }
+        try {
+            List<Supplier<CachedResults>> actions = IntStream.range(0, sqlQueries.size())
+                    .mapToObj(i -> (Supplier<CachedResults>) () -> queryContext.call(() -> evaluateQuery(templates.get(i), sqlQueries.get(i))))
+                    .collect(Collectors.toList());
+            List<CachedResults> statementsResults = batchExecutor.execute(actions);
+            List<RawQueryResult> queryResults = new ArrayList<>();
+            Map<String, Long> queryTableVersions = new HashMap<>();
+            boolean isCacheable = true;
+            for (CachedResults statementResults : statementsResults) {
+                queryResults.addAll(statementResults.getQueryResults());
+                //The oldest version is kept so that any concurrent change makes result stale
+                statementResults.tableVersions.forEach((tn, v) -> queryTableVersions.merge(tn, v, Math::min));
+                isCacheable &= statementResults.isCacheable();
+            }
+            return new CachedResults(queryResults, queryTableVersions, isCacheable);
+        } finally {
+            if (queryId != null) {
+                runningQueries.remove(queryId, queryContext);
+            }
         }
     }
     
-    private List<String> prepareSQL(Query query) throws SQLDataException {
-        final PlaceholderConfigurer placeholderConfigurer = new PlaceholderConfigurer(
-                query.getSql(),
-                query.getParameters()
-        ); 
-        return placeholderConfigurer.getQueries();
+    private CachedResults evaluateQuery(String template, String sqlQuery) {
+        Map<String, Long> queryTableVersions = new HashMap<>();
+        try {
+            QueryPlan queryPlan = queryPlanCache.getQueryPlan(template, sqlQuery);
+            //Versions are remembered before reading data so that concurrent changes make result stale
+            queryPlan.getTableNames().forEach(
+                    tn -> queryTableVersions.putIfAbsent(tn, getTableVersion(tn).get())
+            );
+            Queue<Task> tasks = queryPlan.getTasks();
+            QueryType queryType = queryPlan.getQueryType();
+            ExecutionResult executionResult = executeQueryPlan(tasks, queryType);
+            RawQueryResult queryResult = getQueryResult(SUCCESS, executionResult.getCount(), executionResult.getData(), "");
+            //Each EXPLAIN ANALYZE should really execute the query
+            return new CachedResults(Collections.singletonList(queryResult), queryTableVersions, queryType != EXPLAIN_ANALYZE);
+        } catch (SQLSyntaxErrorException e) {
+            LOG.debug("Marking query as having syntax error", e);
+            return new CachedResults(Collections.singletonList(getQueryResult(SYNTAX_ERROR, 0, empty(), e.getMessage())), queryTableVersions, true);
+        } catch (QueryAbortedException e) {
+            LOG.debug("Marking query as aborted", e);
+            return new CachedResults(Collections.singletonList(getQueryResult(ABORTED, 0, empty(), e.getMessage())), queryTableVersions, false);
+        } catch (SQLException e) {
+            //Lazily evaluated rows throw wrapped exceptions
+            Optional<QueryAbortedException> queryAbortedException = getQueryAbortedException(e);
+            if (queryAbortedException.isPresent()) {
+                LOG.debug("Marking query as aborted", e);
+                return new CachedResults(Collections.singletonList(getQueryResult(ABORTED, 0, empty(), queryAbortedException.get().getMessage())), queryTableVersions, false);
+            }
+            LOG.debug("Marking query as having evaluation error", e);
+            String message = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            return new CachedResults(Collections.singletonList(getQueryResult(EVALUATION_ERROR, 0, empty(), message)), queryTableVersions, true);
+        }
     }
     
-    private QueryPlan parseSQL(String sqlQuery) throws SQLException {
-        QueryPlanner queryPlanner = applicationContext.getBean(QueryPlanner.class);
-        return queryPlanner.plan(sqlQuery);
+    private static Optional<QueryAbortedException> getQueryAbortedException(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof QueryAbortedException) {
+                return Optional.of((QueryAbortedException) cause);
+            }
+        }
+        return Optional.empty();
     }
     
-    private ExecutionResult executeTasks(Iterator<Task> tasks, ExecutionResult previousTaskResult) throws SQLException {
-        if (!tasks.hasNext()) {
-            return previousTaskResult;
+    private ExecutionResult executeQueryPlan(Queue<Task> tasks, QueryType queryType) throws SQLException {
+        switch (queryType) {
+            case EXPLAIN: return createExplainExecutionResult(tasks);
+            case EXPLAIN_ANALYZE: return createExplainAnalyzeExecutionResult(tasks);
+            default: return materialize(chain(tasks));
         }
-        Task currentTask = tasks.next();
-        return executeTasks(tasks, currentTask.execute(previousTaskResult));
     }
     
-    private static QueryResult getQueryResult(QueryStatus queryStatus, int count, DataContainer dataContainer, String message) {
-        QueryResult queryResult = new QueryResult();
-        queryResult.setStatus(queryStatus);
-        queryResult.setCount(count);
-        queryResult.setData(dataContainer.toData());
-        queryResult.setMessage(message);
-        return queryResult;
+    //Rows are kept as evaluated and only converted when needed, so cache stores them once
+    private static RawQueryResult getQueryResult(QueryStatus queryStatus, int count, DataContainer dataContainer, String message) {
+        return new RawQueryResult(queryStatus, count, dataContainer, message);
     }
     
     private static ExecutionResult createExplainExecutionResult(Queue<Task> tasks) {
@@ -121,4 +366,106 @@ public class QueryProcessorImpl implements QueryProcessor {
         return executionResult;
     }
     
+    /**
+     * Executes tasks measuring each of them. Tasks are evaluated lazily so
+     * time of each task is computed as its total time minus the total time
+     * of previous task. Data source strategies, joins and fetches are
+     * reported after tasks with nested steps indented.
+     */
+    private ExecutionResult createExplainAnalyzeExecutionResult(Queue<Task> tasks) throws SQLException {
+        List<Task> tasksList = new ArrayList<>(tasks);
+        List<ProfilingRowIterator> tasksRows = new ArrayList<>();
+        List<ExecutionStep> steps;
+        int resultCount = 0;
+        long startTime = System.nanoTime();
+        long startAllocatedBytes = getAllocatedBytes();
+        executionProfiler.start();
+        try {
+            RowIterator previousTaskRows = null;
+            for (Task task : tasksList) {
+                long taskStartTime = System.nanoTime();
+                long taskStartAllocatedBytes = getAllocatedBytes();
+                RowIterator taskRows = task.iterate(previousTaskRows);
+                ProfilingRowIterator profilingTaskRows = new ProfilingRowIterator(
+                        taskRows,
+                        System.nanoTime() - taskStartTime,
+                        getAllocatedBytesSince(taskStartAllocatedBytes)
+                );
+                tasksRows.add(profilingTaskRows);
+                previousTaskRows = profilingTaskRows;
+            }
+            if (previousTaskRows != null) {
+                resultCount = materialize(previousTaskRows).getCount();
+            }
+        } finally {
+            steps = executionProfiler.stop();
+        }
+        long totalTime = System.nanoTime() - startTime;
+        Long totalAllocatedBytes = getAllocatedBytesSince(startAllocatedBytes);
+        
+        DataContainer data = new DataContainer(Arrays.asList(
+                "step", "description", "rows_in", "rows_out", "time_ms", "allocated_bytes"
+        ));
+        for (int i = 0; i <= tasksList.size() - 1; i++) {
+            ProfilingRowIterator taskRows = tasksRows.get(i);
+            ProfilingRowIterator previousTaskRows = (i > 0) ? tasksRows.get(i - 1) : null;
+            long time = taskRows.getTime();
+            Long allocatedBytes = taskRows.getAllocatedBytes();
+            Integer rowsIn = null;
+            if (previousTaskRows != null) {
+                time = Math.max(0, time - previousTaskRows.getTime());
+                allocatedBytes = (allocatedBytes != null && previousTaskRows.getAllocatedBytes() != null) ?
+                        Math.max(0, allocatedBytes - previousTaskRows.getAllocatedBytes()) : null;
+                rowsIn = previousTaskRows.getRowsCount();
+            }
+            data.addRow(Arrays.asList("task", tasksList.get(i).toString(), rowsIn, taskRows.getRowsCount(), toMilliseconds(time), allocatedBytes));
+        }
+        steps.forEach(s -> data.addRow(Arrays.asList(
+                s.getName(),
+                String.join("", Collections.nCopies(s.getDepth(), "  ")) + s.getDescription(),
+                s.getRowsIn(),
+                s.getRowsOut(),
+                toMilliseconds(s.getTime()),
+                s.getAllocatedBytes()
+        )));
+        data.addRow(Arrays.asList("total", "", null, resultCount, toMilliseconds(totalTime), totalAllocatedBytes));
+        
+        ExecutionResult executionResult = new ExecutionResult();
+        executionResult.setCount(data.getRows().size());
+        executionResult.setData(data);
+        return executionResult;
+    }
+    
+    private static double toMilliseconds(long nanoseconds) {
+        return Math.round(nanoseconds / 1000d) / 1000d;
+    }
+    
+    private class CachedResults {
+        
+        private final List<RawQueryResult> queryResults;
+        
+        private final Map<String, Long> tableVersions;
+        
+        private final boolean isCacheable;
+
+        CachedResults(List<RawQueryResult> queryResults, Map<String, Long> tableVersions, boolean isCacheable) {
+            this.queryResults = queryResults;
+            this.tableVersions = tableVersions;
+            this.isCacheable = isCacheable;
+        }
+
+        List<RawQueryResult> getQueryResults() {
+            return queryResults;
+        }
+
+        boolean isCacheable() {
+            return isCacheable;
+        }
+
+        boolean isValid() {
+            return tableVersions.entrySet().stream()
+                    .allMatch(e -> getTableVersion(e.getKey()).get() == e.getValue());
+        }
+    }
+    
 }
@@ -0,0 +1,18 @@
+package org.meridor.perspective.sql.impl.expression;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+public enum AggregateFunction {
+    
+    COUNT,
+    SUM,
+    AVG,
+    MIN,
+    MAX;
+
+    public static Optional<AggregateFunction> fromString(String name) {
+        return Arrays.stream(values())
+                .filter(v -> v.name().equalsIgnoreCase(name)).findFirst();
+    }
+}
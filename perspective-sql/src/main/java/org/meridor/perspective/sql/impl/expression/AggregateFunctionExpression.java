@@ -0,0 +1,53 @@
+package org.meridor.perspective.sql.impl.expression;
+
+/**
+ * Aggregate function call like COUNT(*) or SUM(column). Its value is computed
+ * by group task and then read from a column of {@link #AGGREGATES_TABLE_ALIAS} table.
+ */
+public class AggregateFunctionExpression {
+    
+    public static final String AGGREGATES_TABLE_ALIAS = "$aggregates";
+    
+    private final AggregateFunction aggregateFunction;
+    
+    private final Object argument;
+
+    public AggregateFunctionExpression(AggregateFunction aggregateFunction, Object argument) {
+        this.aggregateFunction = aggregateFunction;
+        this.argument = argument;
+    }
+
+    public AggregateFunction getAggregateFunction() {
+        return aggregateFunction;
+    }
+
+    public Object getArgument() {
+        return argument;
+    }
+
+    //COUNT(*) counts all rows including the ones with NULL values
+    public boolean isCountAll() {
+        return 
+                aggregateFunction == AggregateFunction.COUNT &&
+                argument instanceof ColumnExpression &&
+                ((ColumnExpression) argument).useAnyColumn();
+    }
+
+    @Override
+    public boolean equals(Object another) {
+        return
+                another instanceof AggregateFunctionExpression
+                && aggregateFunction.equals(((AggregateFunctionExpression) another).getAggregateFunction())
+                && argument.equals(((AggregateFunctionExpression) another).getArgument());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s(%s)", aggregateFunction.name().toLowerCase(), argument);
+    }
+}
@@ -74,6 +74,25 @@ public class BinaryBooleanExpression implements BooleanExpression {
         return ret;
     }
 
+    @Override
+    public Map<String, ValueRange> getRangeConditions(String tableAlias) {
+        Map<String, ValueRange> ret = new HashMap<>();
+        //Ranges from OR and XOR branches can't be combined into one range
+        if (binaryBooleanOperator != BinaryBooleanOperator.AND) {
+            return ret;
+        }
+        Optional<BooleanExpression> leftAsBooleanExpression = asBooleanExpression(left);
+        Optional<BooleanExpression> rightAsBooleanExpression = asBooleanExpression(right);
+        if (leftAsBooleanExpression.isPresent()) {
+            ret.putAll(leftAsBooleanExpression.get().getRangeConditions(tableAlias));
+        }
+        if (rightAsBooleanExpression.isPresent()) {
+            rightAsBooleanExpression.get().getRangeConditions(tableAlias)
+                    .forEach((columnName, valueRange) -> ret.merge(columnName, valueRange, ValueRange::intersect));
+        }
+        return ret;
+    }
+
     @Override
     public List<ColumnRelation> getColumnRelations() {
         Optional<BooleanExpression> leftAsBooleanExpression = asBooleanExpression(left);
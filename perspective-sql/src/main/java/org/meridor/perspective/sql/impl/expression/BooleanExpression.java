@@ -18,6 +18,15 @@ public interface BooleanExpression {
         return Collections.emptyMap();
     }
 
+    /**
+     * Returns conditions like table.column > 'value'. These conditions are
+     * only used to narrow down sorted index lookups and are always also
+     * returned as a part of the rest of expression.
+     */
+    default Map<String, ValueRange> getRangeConditions(String tableAlias) {
+        return Collections.emptyMap();
+    }
+
     /**
      * Returns conditions like table1.column1 = table2.column2
      * Each condition in the list is independent from the others i.e. does not
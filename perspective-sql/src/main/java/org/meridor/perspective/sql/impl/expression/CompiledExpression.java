@@ -0,0 +1,26 @@
+package org.meridor.perspective.sql.impl.expression;
+
+import org.meridor.perspective.sql.DataRow;
+
+/**
+ * Expression tree converted to a reusable evaluator. Function lookups, patterns
+ * and column positions are resolved once so that evaluating a row does not
+ * traverse the tree again.
+ */
+@FunctionalInterface
+public interface CompiledExpression {
+
+    Object evaluate(DataRow dataRow);
+
+    default <T extends Comparable<? super T>> T evaluateAs(DataRow dataRow, Class<T> cls) {
+        Object result = evaluate(dataRow);
+        if (result == null) {
+            return null;
+        }
+        if (!cls.isAssignableFrom(result.getClass())) {
+            throw new IllegalArgumentException(String.format("Column type \"%s\" should subclass \"%s\"", result.getClass().getCanonicalName(), cls.getCanonicalName()));
+        }
+        return cls.cast(result);
+    }
+
+}
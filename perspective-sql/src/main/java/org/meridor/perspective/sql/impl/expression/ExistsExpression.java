@@ -0,0 +1,37 @@
+package org.meridor.perspective.sql.impl.expression;
+
+import java.util.Optional;
+
+/**
+ * EXISTS (SELECT ...) condition. Its value does not depend on outer query
+ * rows so the subquery is evaluated once and stops after the first row.
+ */
+public class ExistsExpression implements BooleanExpression {
+
+    private final Subquery subquery;
+
+    public ExistsExpression(Subquery subquery) {
+        this.subquery = subquery;
+    }
+
+    public Subquery getSubquery() {
+        return subquery;
+    }
+
+    @Override
+    public boolean equals(Object another) {
+        return
+                another instanceof ExistsExpression
+                && subquery == ((ExistsExpression) another).getSubquery();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EXISTS %s", subquery);
+    }
+
+    @Override
+    public Optional<BooleanExpression> getRestOfExpression() {
+        return Optional.of(this);
+    }
+}
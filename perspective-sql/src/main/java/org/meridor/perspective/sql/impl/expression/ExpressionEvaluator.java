@@ -13,4 +13,11 @@ public interface ExpressionEvaluator {
     
     Map<String, Set<String>> getColumnNames(Object expression);
 
+    /**
+     * Converts expression to an evaluator which can be applied to many rows.
+     * Evaluation errors are reported when the compiled expression is applied
+     * to a row, not during compilation.
+     */
+    CompiledExpression compile(Object expression);
+
 }
@@ -6,6 +6,7 @@ import org.meridor.perspective.sql.impl.function.Function;
 import org.meridor.perspective.sql.impl.function.FunctionName;
 import org.meridor.perspective.sql.impl.function.FunctionsAware;
 import org.meridor.perspective.sql.impl.table.DataType;
+import org.meridor.perspective.sql.impl.task.QueryContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,10 +15,12 @@ import org.springframework.util.Assert;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.function.ToIntFunction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static org.meridor.perspective.sql.impl.expression.AggregateFunctionExpression.AGGREGATES_TABLE_ALIAS;
 import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.*;
 
 @Component
@@ -45,6 +48,11 @@ public class ExpressionEvaluatorImpl implements ExpressionEvaluator {
                 ret.get(k).addAll(m.get(k));
             }));
             return ret;
+        } else if (expression instanceof AggregateFunctionExpression) {
+            AggregateFunctionExpression aggregateFunctionExpression = (AggregateFunctionExpression) expression;
+            return aggregateFunctionExpression.isCountAll() ?
+                    Collections.emptyMap() :
+                    getColumnNames(aggregateFunctionExpression.getArgument());
         } else if (expression instanceof UnaryArithmeticExpression) {
             return getColumnNames(((UnaryArithmeticExpression) expression).getValue());
         } else if (expression instanceof BinaryArithmeticExpression) {
@@ -69,133 +77,235 @@ public class ExpressionEvaluatorImpl implements ExpressionEvaluator {
     
     @Override
     public <T extends Comparable<? super T>> T evaluate(Object expression, DataRow dataRow) {
+        return cast(compile(expression).evaluate(dataRow), Comparable.class);
+    }
+
+    @Override
+    public <T extends Comparable<? super T>> T evaluateAs(Object expression, DataRow dataRow, Class<T> cls) {
+        Object result = evaluate(expression, dataRow);
+        return result != null ? cast(result, result.getClass(), cls): null;
+    }
+
+    @Override
+    public CompiledExpression compile(Object expression) {
         Assert.notNull(expression, "Expression can't be null");
-        if (expression instanceof Null) {
-            return null;
+        return compileExpression(expression);
+    }
+
+    private CompiledExpression compileExpression(Object expression) {
+        if (expression == null) {
+            return fail("Expression can't be null");
+        } else if (expression instanceof Null) {
+            return dr -> null;
         } else if (isColumnExpression(expression)) {
-            return evaluateColumnExpression((ColumnExpression) expression, dataRow);
+            return compileColumnExpression((ColumnExpression) expression);
+        } else if (expression instanceof ParameterExpression) {
+            ParameterExpression parameterExpression = (ParameterExpression) expression;
+            return dr -> parameterExpression.getValue();
         } else if (expression instanceof FunctionExpression) {
-            return evaluateFunctionExpression((FunctionExpression) expression, dataRow);
+            return compileFunctionExpression((FunctionExpression) expression);
+        } else if (expression instanceof AggregateFunctionExpression) {
+            return compileAggregateFunctionExpression((AggregateFunctionExpression) expression);
         } else if (expression instanceof IsNullExpression) {
-            return cast(evaluateIsNullExpression((IsNullExpression) expression, dataRow), Boolean.class, Comparable.class);
+            return compileIsNullExpression((IsNullExpression) expression);
         } else if (expression instanceof InExpression) {
-            return cast(evaluateInExpression((InExpression) expression, dataRow), Boolean.class, Comparable.class);
+            return compileInExpression((InExpression) expression);
+        } else if (expression instanceof InSubqueryExpression) {
+            return compileInSubqueryExpression((InSubqueryExpression) expression);
+        } else if (expression instanceof ExistsExpression) {
+            Subquery subquery = ((ExistsExpression) expression).getSubquery();
+            return dr -> subquery.hasRows();
         } else if (expression instanceof LiteralBooleanExpression) {
-            return cast(evaluateLiteralBooleanExpression((LiteralBooleanExpression) expression), Boolean.class, Comparable.class);
+            boolean literal = evaluateLiteralBooleanExpression((LiteralBooleanExpression) expression);
+            return dr -> literal;
         } else if (expression instanceof SimpleBooleanExpression) {
-            return cast(evaluateSimpleBooleanExpression((SimpleBooleanExpression) expression, dataRow), Boolean.class, Comparable.class);
+            return compileSimpleBooleanExpression((SimpleBooleanExpression) expression);
         } else if (expression instanceof BinaryBooleanExpression) {
-            return cast(evaluateBinaryBooleanExpression((BinaryBooleanExpression) expression, dataRow), Boolean.class, Comparable.class);
+            return compileBinaryBooleanExpression((BinaryBooleanExpression) expression);
         } else if (expression instanceof UnaryBooleanExpression) {
-            return cast(evaluateUnaryBooleanExpression((UnaryBooleanExpression) expression, dataRow), Boolean.class, Comparable.class);
+            return compileUnaryBooleanExpression((UnaryBooleanExpression) expression);
         } else if (expression instanceof BinaryArithmeticExpression) {
-            return evaluateBinaryArithmeticExpression((BinaryArithmeticExpression) expression, dataRow);
+            return compileBinaryArithmeticExpression((BinaryArithmeticExpression) expression);
         } else if (expression instanceof UnaryArithmeticExpression) {
-            return evaluateUnaryArithmeticExpression((UnaryArithmeticExpression) expression, dataRow);
+            return compileUnaryArithmeticExpression((UnaryArithmeticExpression) expression);
         }
-        return evaluateConstant(expression);
-    }
-
-    @Override
-    public <T extends Comparable<? super T>> T evaluateAs(Object expression, DataRow dataRow, Class<T> cls) {
-        Object result = evaluate(expression, dataRow);
-        return result != null ? cast(result, result.getClass(), cls): null;
+        return compileConstant(expression);
     }
 
-    private <T extends Comparable<? super T>> T  evaluateAsOrDefault(Object expression, DataRow dataRow, Class<T> cls, T defaultValue) {
-        if (expression == null) {
-            return defaultValue;
-        }
-        T result = evaluateAs(expression, dataRow, cls);
-        return (result != null) ? result : defaultValue; 
+    private static CompiledExpression fail(String message) {
+        return dr -> {
+            throw new IllegalArgumentException(message);
+        };
     }
 
-    private <T extends Comparable<? super T>> T evaluateConstant(Object expression) {
+    private CompiledExpression compileConstant(Object expression) {
         Class<?> expressionClass = expression.getClass();
         if (isConstant(expressionClass)) {
-            return cast(expression, expressionClass, Comparable.class);
+            return dr -> expression;
         }
-        throw new IllegalArgumentException(String.format("Constant should be a string or a number but %s was given", expressionClass.getCanonicalName()));
+        return fail(String.format("Constant should be a string or a number but %s was given", expressionClass.getCanonicalName()));
     }
 
-    
-    private <T extends Comparable<? super T>> T evaluateColumnExpression(ColumnExpression columnExpression, DataRow dataRow) {
+    //Values read from the row can still be expressions, so we evaluate them once more
+    private Object toConstant(Object value, DataRow dataRow) {
+        return (value == null || isConstant(value.getClass())) ? value : evaluate(value, dataRow);
+    }
+
+    private CompiledExpression compileColumnExpression(ColumnExpression columnExpression) {
         String columnName = columnExpression.getColumnName();
-        Object value = columnExpression.useAnyTable() ?
-                dataRow.get(columnName) :
-                dataRow.get(columnName, columnExpression.getTableAlias());
-        return cast(value, Comparable.class);
+        String tableAlias = columnExpression.getTableAlias();
+        ColumnAccessor columnAccessor = columnExpression.useAnyTable() ?
+                new ColumnAccessor(dr -> dr.indexOf(columnName)) :
+                new ColumnAccessor(dr -> dr.indexOf(columnName, tableAlias));
+        return dr -> Comparable.class.cast(columnAccessor.get(dr));
+    }
+
+    //Aggregated values are computed by group task and stored as separate columns
+    private CompiledExpression compileAggregateFunctionExpression(AggregateFunctionExpression aggregateFunctionExpression) {
+        String columnName = aggregateFunctionExpression.toString();
+        ColumnAccessor columnAccessor = new ColumnAccessor(dr -> {
+            try {
+                return dr.indexOf(columnName, AGGREGATES_TABLE_ALIAS);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(String.format(
+                        "Aggregate function %s can only be used in select, having and order by clauses",
+                        aggregateFunctionExpression
+                ), e);
+            }
+        });
+        return dr -> Comparable.class.cast(columnAccessor.get(dr));
     }
 
-    private <T extends Comparable<? super T>> T evaluateFunctionExpression(FunctionExpression functionExpression, DataRow dataRow) {
+    private CompiledExpression compileFunctionExpression(FunctionExpression functionExpression) {
         String functionName = functionExpression.getFunctionName();
         Optional<Function<?>> functionCandidate = functionsAware.getFunction(functionName);
         if (!functionCandidate.isPresent()) {
-            throw new IllegalArgumentException(String.format("Function '%s' does not exist", functionName));
+            return fail(String.format("Function '%s' does not exist", functionName));
         }
-        List<Object> passedArgs = functionExpression.getArgs(); //This one can contain expressions, so we try to evaluate them
-        List<Object> realArgs = passedArgs.stream()
-                .map(a -> evaluate(a, dataRow))
-                .collect(Collectors.toList());
         Function<?> function = functionCandidate.get();
-        Set<String> errors = function.validateInput(realArgs);
-        if (!errors.isEmpty()) {
-            throw new IllegalArgumentException(errors.stream().collect(Collectors.joining("; ")));
+        Class<?> returnType = function.getReturnType();
+        if (!Comparable.class.isAssignableFrom(returnType)) {
+            return fail(String.format("Column type \"%s\" should subclass \"%s\"", returnType.getCanonicalName(), Comparable.class.getCanonicalName()));
+        }
+        List<Object> passedArgs = functionExpression.getArgs(); //This one can contain expressions, so we compile them
+        if (passedArgs.stream().allMatch(ExpressionUtils::isConstant)) {
+            //Constant arguments are validated only once
+            Set<String> errors = function.validateInput(passedArgs);
+            if (!errors.isEmpty()) {
+                return fail(errors.stream().collect(Collectors.joining("; ")));
+            }
+            return dr -> returnType.cast(function.apply(passedArgs));
         }
-        Object result = function.apply(realArgs);
-        return cast(result, function.getReturnType(), Comparable.class);
+        List<CompiledExpression> compiledArgs = passedArgs.stream()
+                .map(this::compileExpression)
+                .collect(Collectors.toList());
+        return dr -> {
+            List<Object> realArgs = new ArrayList<>(compiledArgs.size());
+            for (CompiledExpression compiledArg : compiledArgs) {
+                realArgs.add(compiledArg.evaluate(dr));
+            }
+            Set<String> errors = function.validateInput(realArgs);
+            if (!errors.isEmpty()) {
+                throw new IllegalArgumentException(errors.stream().collect(Collectors.joining("; ")));
+            }
+            return returnType.cast(function.apply(realArgs));
+        };
     }
 
-    private boolean evaluateInExpression(InExpression inExpression, DataRow dataRow) {
-        if (inExpression == null) {
-            return false;
-        }
+    private CompiledExpression compileInExpression(InExpression inExpression) {
         Set<Object> candidates = inExpression.getCandidates();
-        Set<String> candidatesAsConstants = candidates.stream()
-                .filter(c -> c != null)
-                .map(c -> (isConstant(c.getClass())) ? c : evaluate(c, dataRow))
+        Set<String> constantCandidates = candidates.stream()
+                .filter(ExpressionUtils::isConstant)
                 .map(String::valueOf)
                 .collect(Collectors.toSet());
-        if (candidates.isEmpty()) {
-            return false;
-        }
+        List<CompiledExpression> otherCandidates = candidates.stream()
+                .filter(c -> c != null && !isConstant(c))
+                .map(this::compileExpression)
+                .collect(Collectors.toList());
         Object value = inExpression.getValue();
-        if (value == null) {
-            return false;
+        if (candidates.isEmpty() || value == null) {
+            return dr -> false;
         }
-        Class<?> valueClass = value.getClass();
-        if (!isConstant(valueClass)) {
-            return evaluateInExpression(new InExpression(evaluate(value, dataRow), candidates), dataRow);
-        }
-        return candidatesAsConstants.contains(String.valueOf(value));
+        CompiledExpression compiledValue = compileExpression(value);
+        return dr -> {
+            Set<String> candidatesAsConstants = constantCandidates;
+            if (!otherCandidates.isEmpty()) {
+                candidatesAsConstants = new HashSet<>(constantCandidates);
+                for (CompiledExpression otherCandidate : otherCandidates) {
+                    candidatesAsConstants.add(String.valueOf(otherCandidate.evaluate(dr)));
+                }
+            }
+            Object currentValue = toConstant(compiledValue.evaluate(dr), dr);
+            return currentValue != null && candidatesAsConstants.contains(String.valueOf(currentValue));
+        };
     }
 
-    private Object evaluateIsNullExpression(IsNullExpression expression, DataRow dataRow) {
-        FunctionExpression isNullExpression = new FunctionExpression(FunctionName.TYPEOF.name(), Arrays.asList(expression.getValue(), DataType.NULL));
-        return evaluateFunctionExpression(isNullExpression, dataRow);
+    //Subquery values are not known at compile time because plans are cached and data changes
+    private CompiledExpression compileInSubqueryExpression(InSubqueryExpression inSubqueryExpression) {
+        Subquery subquery = inSubqueryExpression.getSubquery();
+        CompiledExpression compiledValue = compileExpression(inSubqueryExpression.getValue());
+        return dr -> {
+            Object currentValue = toConstant(compiledValue.evaluate(dr), dr);
+            return currentValue != null && subquery.getValues().contains(String.valueOf(currentValue));
+        };
     }
 
+    private CompiledExpression compileIsNullExpression(IsNullExpression expression) {
+        FunctionExpression isNullExpression = new FunctionExpression(FunctionName.TYPEOF.name(), Arrays.asList(expression.getValue(), DataType.NULL));
+        return compileFunctionExpression(isNullExpression);
+    }
 
     private boolean evaluateLiteralBooleanExpression(LiteralBooleanExpression literalBooleanExpression) {
         return literalBooleanExpression != null && literalBooleanExpression.getLiteral();
     }
 
-    private boolean evaluateSimpleBooleanExpression(SimpleBooleanExpression simpleBooleanExpression, DataRow dataRow) {
-        if (simpleBooleanExpression == null) {
-            return false;
-        }
+    private CompiledExpression compileSimpleBooleanExpression(SimpleBooleanExpression simpleBooleanExpression) {
         Object left = simpleBooleanExpression.getLeft();
         Object right = simpleBooleanExpression.getRight();
         BooleanRelation booleanRelation = simpleBooleanExpression.getBooleanRelation();
         if (oneOfIsNull(left, right)) {
-            return false;
+            return dr -> false;
         }
-        if (!isConstant(left.getClass())) {
-            return evaluateSimpleBooleanExpression(new SimpleBooleanExpression(evaluate(left, dataRow), booleanRelation, right), dataRow);
+        CompiledExpression compiledLeft = compileExpression(left);
+        boolean isPatternRelation = booleanRelation == BooleanRelation.LIKE || booleanRelation == BooleanRelation.REGEXP;
+        if (isPatternRelation && right instanceof String) {
+            //Constant pattern is compiled only once
+            String regex = booleanRelation == BooleanRelation.LIKE ?
+                    likeToRegex((String) right) : (String) right;
+            Optional<Pattern> pattern = compilePattern(regex);
+            return dr -> {
+                Object leftValue = toConstant(compiledLeft.evaluate(dr), dr);
+                return leftValue != null && pattern.isPresent() && pattern.get().matcher(asString(leftValue)).find();
+            };
         }
-        if (!isConstant(right.getClass())) {
-            return evaluateSimpleBooleanExpression(new SimpleBooleanExpression(left, booleanRelation, evaluate(right, dataRow)), dataRow);
+        if (isPatternRelation && right instanceof ParameterExpression) {
+            //Parameter pattern is compiled once per query execution
+            ParameterExpression parameterExpression = (ParameterExpression) right;
+            Object patternKey = new Object();
+            return dr -> {
+                Object leftValue = toConstant(compiledLeft.evaluate(dr), dr);
+                if (leftValue == null) {
+                    return false;
+                }
+                Optional<Pattern> pattern = QueryContext.computeOnce(patternKey, () -> {
+                    String value = asString(parameterExpression.getValue());
+                    return compilePattern(booleanRelation == BooleanRelation.LIKE ? likeToRegex(value) : value);
+                });
+                return pattern.isPresent() && pattern.get().matcher(asString(leftValue)).find();
+            };
         }
+        CompiledExpression compiledRight = compileExpression(right);
+        return dr -> {
+            Object leftValue = toConstant(compiledLeft.evaluate(dr), dr);
+            if (leftValue == null) {
+                return false;
+            }
+            Object rightValue = toConstant(compiledRight.evaluate(dr), dr);
+            return rightValue != null && compare(leftValue, booleanRelation, rightValue);
+        };
+    }
+
+    private static boolean compare(Object left, BooleanRelation booleanRelation, Object right) {
         Class<?> leftClass = left.getClass();
         Class<?> rightClass = right.getClass();
         if (bothAreNumbers(leftClass, rightClass)) {
@@ -244,14 +354,7 @@ public class ExpressionEvaluatorImpl implements ExpressionEvaluator {
             switch (booleanRelation) {
                 case EQUAL: return leftAsString.equals(rightAsString);
                 case NOT_EQUAL: return !leftAsString.equals(rightAsString);
-                case LIKE: {
-                    String rightAsRegex = rightAsString
-                            .replaceAll("(?<!\\\\)%", ".*") //We use look-behinds here (http://www.regular-expressions.info/lookaround.html)
-                            .replaceAll("\\%", "%")
-                            .replaceAll("(?<!\\\\)_", ".")
-                            .replaceAll("\\_", "_");
-                    return matchPattern(leftAsString, rightAsRegex);
-                }
+                case LIKE: return matchPattern(leftAsString, likeToRegex(rightAsString));
                 case REGEXP: return matchPattern(leftAsString, rightAsString);
                 default: throw new IllegalArgumentException(String.format(
                         "%s operation is not applicable to strings: '%s' %s '%s'",
@@ -263,40 +366,94 @@ public class ExpressionEvaluatorImpl implements ExpressionEvaluator {
             }
         }
     }
-    
-    private static boolean matchPattern(String value, String regex) {
+
+    private static String likeToRegex(String likePattern) {
+        return likePattern
+                .replaceAll("(?<!\\\\)%", ".*") //We use look-behinds here (http://www.regular-expressions.info/lookaround.html)
+                .replaceAll("\\%", "%")
+                .replaceAll("(?<!\\\\)_", ".")
+                .replaceAll("\\_", "_");
+    }
+
+    private static Optional<Pattern> compilePattern(String regex) {
         try {
-            Pattern pattern = Pattern.compile(regex);
-            return pattern.matcher(value).find();
+            return Optional.of(Pattern.compile(regex));
         } catch (Exception e) {
             LOG.debug(String.format("Evaluating pattern expression to false as provided pattern \"%s\" is not correct", regex), e);
-            return false;
+            return Optional.empty();
         }
     }
 
-    private boolean evaluateBinaryBooleanExpression(BinaryBooleanExpression binaryBooleanExpression, DataRow dataRow) {
-        boolean left = evaluateAsOrDefault(binaryBooleanExpression.getLeft(), dataRow, Boolean.class, false);
-        boolean right = evaluateAsOrDefault(binaryBooleanExpression.getRight(), dataRow, Boolean.class, false);
-        switch (binaryBooleanExpression.getBinaryBooleanOperator()) {
-            default:
-            case AND: return left && right;
-            case OR: return left || right;
-            case XOR: return left ^ right;
-        }
+    private static boolean matchPattern(String value, String regex) {
+        Optional<Pattern> pattern = compilePattern(regex);
+        return pattern.isPresent() && pattern.get().matcher(value).find();
     }
 
-    private boolean evaluateUnaryBooleanExpression(UnaryBooleanExpression unaryBooleanExpression, DataRow dataRow) {
-        boolean value = evaluateAsOrDefault(unaryBooleanExpression.getValue(), dataRow, Boolean.class, false);
-        switch (unaryBooleanExpression.getUnaryBooleanOperator()) {
-            default:
-            case NOT: return !value;
-        }
+    private CompiledExpression compileBinaryBooleanExpression(BinaryBooleanExpression binaryBooleanExpression) {
+        CompiledExpression compiledLeft = compileBooleanOperand(binaryBooleanExpression.getLeft());
+        CompiledExpression compiledRight = compileBooleanOperand(binaryBooleanExpression.getRight());
+        BinaryBooleanOperator binaryBooleanOperator = binaryBooleanExpression.getBinaryBooleanOperator();
+        return dr -> {
+            boolean left = evaluateAsBoolean(compiledLeft, dr);
+            boolean right = evaluateAsBoolean(compiledRight, dr);
+            switch (binaryBooleanOperator) {
+                default:
+                case AND: return left && right;
+                case OR: return left || right;
+                case XOR: return left ^ right;
+            }
+        };
     }
 
-    private <T extends Comparable<? super T>> T evaluateBinaryArithmeticExpression(BinaryArithmeticExpression binaryArithmeticExpression, DataRow dataRow) {
+    private CompiledExpression compileUnaryBooleanExpression(UnaryBooleanExpression unaryBooleanExpression) {
+        CompiledExpression compiledValue = compileBooleanOperand(unaryBooleanExpression.getValue());
+        UnaryBooleanOperator unaryBooleanOperator = unaryBooleanExpression.getUnaryBooleanOperator();
+        return dr -> {
+            boolean value = evaluateAsBoolean(compiledValue, dr);
+            switch (unaryBooleanOperator) {
+                default:
+                case NOT: return !value;
+            }
+        };
+    }
+
+    //Missing boolean operands are treated as false
+    private CompiledExpression compileBooleanOperand(Object expression) {
+        return expression != null ? compileExpression(expression) : dr -> false;
+    }
+
+    private static boolean evaluateAsBoolean(CompiledExpression compiledExpression, DataRow dataRow) {
+        Boolean result = compiledExpression.evaluateAs(dataRow, Boolean.class);
+        return (result != null) ? result : false;
+    }
+
+    private CompiledExpression compileBinaryArithmeticExpression(BinaryArithmeticExpression binaryArithmeticExpression) {
         Object left = binaryArithmeticExpression.getLeft();
         Object right = binaryArithmeticExpression.getRight();
         BinaryArithmeticOperator binaryArithmeticOperator = binaryArithmeticExpression.getBinaryArithmeticOperator();
+        if (oneOfIsNull(left, right)) {
+            return dr -> calculate(left, binaryArithmeticOperator, right);
+        }
+        CompiledExpression compiledLeft = compileExpression(left);
+        CompiledExpression compiledRight = compileExpression(right);
+        return dr -> {
+            Object leftValue = toConstant(compiledLeft.evaluate(dr), dr);
+            Object rightValue = toConstant(compiledRight.evaluate(dr), dr);
+            return calculate(leftValue, binaryArithmeticOperator, rightValue);
+        };
+    }
+
+    private CompiledExpression compileUnaryArithmeticExpression(UnaryArithmeticExpression unaryArithmeticExpression) {
+        Object value = unaryArithmeticExpression.getValue();
+        UnaryArithmeticOperator unaryArithmeticOperator = unaryArithmeticExpression.getUnaryArithmeticOperator();
+        if (value == null) {
+            return dr -> calculate(unaryArithmeticOperator, null);
+        }
+        CompiledExpression compiledValue = compileExpression(value);
+        return dr -> calculate(unaryArithmeticOperator, toConstant(compiledValue.evaluate(dr), dr));
+    }
+
+    private static <T extends Comparable<? super T>> T calculate(Object left, BinaryArithmeticOperator binaryArithmeticOperator, Object right) {
         if (oneOfIsNull(left, right)) {
             throw new IllegalArgumentException(String.format(
                     "Nulls are not allowed in arithmetic expressions: %s %s %s",
@@ -305,12 +462,6 @@ public class ExpressionEvaluatorImpl implements ExpressionEvaluator {
                     right
             ));
         }
-        if (!isConstant(left.getClass())) {
-            return evaluateBinaryArithmeticExpression(new BinaryArithmeticExpression(evaluate(left, dataRow), binaryArithmeticOperator, right), dataRow);
-        }
-        if (!isConstant(right.getClass())) {
-            return evaluateBinaryArithmeticExpression(new BinaryArithmeticExpression(left, binaryArithmeticOperator, evaluate(right, dataRow)), dataRow);
-        }
         Class<?> leftClass = left.getClass();
         Class<?> rightClass = right.getClass();
         if (!bothAreNumbers(leftClass, rightClass)) {
@@ -396,16 +547,11 @@ public class ExpressionEvaluatorImpl implements ExpressionEvaluator {
         }
     }
     
-    private <T extends Comparable<? super T>> T evaluateUnaryArithmeticExpression(UnaryArithmeticExpression unaryArithmeticExpression, DataRow dataRow) {
-        Object value = unaryArithmeticExpression.getValue();
+    private static <T extends Comparable<? super T>> T calculate(UnaryArithmeticOperator unaryArithmeticOperator, Object value) {
         if (value == null) {
             throw new IllegalArgumentException("Nulls are not allowed in arithmetic expressions");
         }
         Class<?> valueClass = value.getClass();
-        UnaryArithmeticOperator unaryArithmeticOperator = unaryArithmeticExpression.getUnaryArithmeticOperator();
-        if (!isConstant(valueClass)) {
-            return evaluateUnaryArithmeticExpression(new UnaryArithmeticExpression(evaluate(value, dataRow), unaryArithmeticOperator), dataRow);
-        }
         if (!isNumber(valueClass)) {
             throw new IllegalArgumentException(String.format(
                     "Arithmetic expression can contain only numbers: %s %s",
@@ -434,11 +580,11 @@ public class ExpressionEvaluatorImpl implements ExpressionEvaluator {
         }
     }
 
-    private <T extends Comparable<? super T>> T cast(Object value, Class<?> requiredSuperclass) {
+    private static <T extends Comparable<? super T>> T cast(Object value, Class<?> requiredSuperclass) {
         return cast(value, requiredSuperclass, requiredSuperclass);
     }
     
-    private <T extends Comparable<? super T>> T cast(Object value, Class<?> columnType, Class<?> requiredSuperclass) {
+    private static <T extends Comparable<? super T>> T cast(Object value, Class<?> columnType, Class<?> requiredSuperclass) {
         if (!requiredSuperclass.isAssignableFrom(columnType)) {
             throw new IllegalArgumentException(String.format("Column type \"%s\" should subclass \"%s\"", columnType.getCanonicalName(), requiredSuperclass.getCanonicalName()));
         }
@@ -446,5 +592,40 @@ public class ExpressionEvaluatorImpl implements ExpressionEvaluator {
         Class<T> typedColumnType = (Class<T>) columnType;
         return typedColumnType.cast(value);
     }
-    
+
+    //Rows of the same data container share columns map, so column index is resolved once per container
+    private static class ColumnAccessor {
+
+        private final ToIntFunction<DataRow> indexResolver;
+
+        private volatile ResolvedIndex resolvedIndex;
+
+        ColumnAccessor(ToIntFunction<DataRow> indexResolver) {
+            this.indexResolver = indexResolver;
+        }
+
+        Object get(DataRow dataRow) {
+            Map<String, List<String>> columnsMap = dataRow.getDataContainer().getColumnsMap();
+            ResolvedIndex currentIndex = resolvedIndex;
+            if (currentIndex == null || currentIndex.columnsMap != columnsMap) {
+                currentIndex = new ResolvedIndex(columnsMap, indexResolver.applyAsInt(dataRow));
+                resolvedIndex = currentIndex;
+            }
+            List<Object> values = dataRow.getValues();
+            return (currentIndex.index <= values.size() - 1) ? values.get(currentIndex.index) : null;
+        }
+    }
+
+    private static class ResolvedIndex {
+
+        private final Map<String, List<String>> columnsMap;
+
+        private final int index;
+
+        ResolvedIndex(Map<String, List<String>> columnsMap, int index) {
+            this.columnsMap = columnsMap;
+            this.index = index;
+        }
+    }
+
 }
@@ -24,6 +24,31 @@ public final class ExpressionUtils {
         return expression != null && isConstant(expression.getClass());
     }
     
+    /**
+     * Returns true for constants and parameters of prepared queries, i.e.
+     * for values which don't depend on evaluated row
+     */
+    public static boolean isConstantOrParameter(Object expression) {
+        return isConstant(expression) || expression instanceof ParameterExpression;
+    }
+
+    /**
+     * Replaces parameters in fixed value conditions by their values in
+     * currently evaluated query
+     */
+    public static Map<String, Set<Object>> bindParameters(Map<String, Set<Object>> fixedValueConditions) {
+        Map<String, Set<Object>> ret = new HashMap<>();
+        fixedValueConditions.forEach((columnName, values) -> ret.put(
+                columnName,
+                values.stream().anyMatch(v -> v instanceof ParameterExpression) ?
+                        values.stream()
+                                .map(v -> (v instanceof ParameterExpression) ? ((ParameterExpression) v).getValue() : v)
+                                .collect(Collectors.toSet()) :
+                        values
+        ));
+        return ret;
+    }
+    
     public static boolean isString(Class<?> expressionClass) {
         return String.class.isAssignableFrom(expressionClass);
     }
@@ -88,6 +113,18 @@ public final class ExpressionUtils {
         return Boolean.valueOf(asString(value));
     }
 
+    //Same as in expression evaluator: numbers are compared as doubles and everything else - as strings. Nulls go first.
+    public static int compareValues(Object left, Object right) {
+        if (left == null || right == null) {
+            return (left == null) ? ((right == null) ? 0 : -1) : 1;
+        }
+        if (bothAreNumbers(left.getClass(), right.getClass())) {
+            //Adding zero turns -0.0 to 0.0 because they are equal when evaluating expressions
+            return Double.compare(asDouble(left) + 0.0, asDouble(right) + 0.0);
+        }
+        return asString(left).compareTo(asString(right));
+    }
+
     public static ColumnExpression asColumnExpression(Object value) {
         return ColumnExpression.class.cast(value);
     }
@@ -115,6 +152,111 @@ public final class ExpressionUtils {
                         .reduce((l, r) -> new BinaryBooleanExpression(l, AND, r));
     }
 
+    public static List<AggregateFunctionExpression> getAggregateFunctions(Object expression) {
+        List<AggregateFunctionExpression> ret = new ArrayList<>();
+        collectAggregateFunctions(expression, ret);
+        return ret;
+    }
+
+    private static void collectAggregateFunctions(Object expression, List<AggregateFunctionExpression> aggregateFunctions) {
+        if (expression instanceof AggregateFunctionExpression) {
+            if (!aggregateFunctions.contains(expression)) {
+                aggregateFunctions.add((AggregateFunctionExpression) expression);
+            }
+        } else if (expression instanceof FunctionExpression) {
+            ((FunctionExpression) expression).getArgs().forEach(a -> collectAggregateFunctions(a, aggregateFunctions));
+        } else if (expression instanceof UnaryArithmeticExpression) {
+            collectAggregateFunctions(((UnaryArithmeticExpression) expression).getValue(), aggregateFunctions);
+        } else if (expression instanceof BinaryArithmeticExpression) {
+            collectAggregateFunctions(((BinaryArithmeticExpression) expression).getLeft(), aggregateFunctions);
+            collectAggregateFunctions(((BinaryArithmeticExpression) expression).getRight(), aggregateFunctions);
+        } else if (expression instanceof SimpleBooleanExpression) {
+            collectAggregateFunctions(((SimpleBooleanExpression) expression).getLeft(), aggregateFunctions);
+            collectAggregateFunctions(((SimpleBooleanExpression) expression).getRight(), aggregateFunctions);
+        } else if (expression instanceof BinaryBooleanExpression) {
+            collectAggregateFunctions(((BinaryBooleanExpression) expression).getLeft(), aggregateFunctions);
+            collectAggregateFunctions(((BinaryBooleanExpression) expression).getRight(), aggregateFunctions);
+        } else if (expression instanceof UnaryBooleanExpression) {
+            collectAggregateFunctions(((UnaryBooleanExpression) expression).getValue(), aggregateFunctions);
+        } else if (expression instanceof IsNullExpression) {
+            collectAggregateFunctions(((IsNullExpression) expression).getValue(), aggregateFunctions);
+        } else if (expression instanceof InExpression) {
+            collectAggregateFunctions(((InExpression) expression).getValue(), aggregateFunctions);
+            ((InExpression) expression).getCandidates().forEach(c -> collectAggregateFunctions(c, aggregateFunctions));
+        } else if (expression instanceof InSubqueryExpression) {
+            collectAggregateFunctions(((InSubqueryExpression) expression).getValue(), aggregateFunctions);
+        } else if (expression instanceof OrderExpression) {
+            collectAggregateFunctions(((OrderExpression) expression).getExpression(), aggregateFunctions);
+        }
+    }
+
+    /**
+     * Returns all column expressions used in expression except COUNT(*) argument
+     */
+    public static List<ColumnExpression> getColumnExpressions(Object expression) {
+        List<ColumnExpression> ret = new ArrayList<>();
+        collectColumnExpressions(expression, ret);
+        return ret;
+    }
+
+    private static void collectColumnExpressions(Object expression, List<ColumnExpression> columnExpressions) {
+        if (isColumnExpression(expression)) {
+            columnExpressions.add(asColumnExpression(expression));
+        } else if (expression instanceof AggregateFunctionExpression) {
+            AggregateFunctionExpression aggregateFunctionExpression = (AggregateFunctionExpression) expression;
+            if (!aggregateFunctionExpression.isCountAll()) {
+                collectColumnExpressions(aggregateFunctionExpression.getArgument(), columnExpressions);
+            }
+        } else if (expression instanceof FunctionExpression) {
+            ((FunctionExpression) expression).getArgs().forEach(a -> collectColumnExpressions(a, columnExpressions));
+        } else if (expression instanceof UnaryArithmeticExpression) {
+            collectColumnExpressions(((UnaryArithmeticExpression) expression).getValue(), columnExpressions);
+        } else if (expression instanceof BinaryArithmeticExpression) {
+            collectColumnExpressions(((BinaryArithmeticExpression) expression).getLeft(), columnExpressions);
+            collectColumnExpressions(((BinaryArithmeticExpression) expression).getRight(), columnExpressions);
+        } else if (expression instanceof SimpleBooleanExpression) {
+            collectColumnExpressions(((SimpleBooleanExpression) expression).getLeft(), columnExpressions);
+            collectColumnExpressions(((SimpleBooleanExpression) expression).getRight(), columnExpressions);
+        } else if (expression instanceof BinaryBooleanExpression) {
+            collectColumnExpressions(((BinaryBooleanExpression) expression).getLeft(), columnExpressions);
+            collectColumnExpressions(((BinaryBooleanExpression) expression).getRight(), columnExpressions);
+        } else if (expression instanceof UnaryBooleanExpression) {
+            collectColumnExpressions(((UnaryBooleanExpression) expression).getValue(), columnExpressions);
+        } else if (expression instanceof IsNullExpression) {
+            collectColumnExpressions(((IsNullExpression) expression).getValue(), columnExpressions);
+        } else if (expression instanceof InExpression) {
+            collectColumnExpressions(((InExpression) expression).getValue(), columnExpressions);
+            ((InExpression) expression).getCandidates().forEach(c -> collectColumnExpressions(c, columnExpressions));
+        } else if (expression instanceof InSubqueryExpression) {
+            collectColumnExpressions(((InSubqueryExpression) expression).getValue(), columnExpressions);
+        } else if (expression instanceof OrderExpression) {
+            collectColumnExpressions(((OrderExpression) expression).getExpression(), columnExpressions);
+        }
+    }
+
+    /**
+     * Returns subqueries used in boolean expression. Nested subqueries are
+     * not returned as they belong to subquery itself.
+     */
+    public static List<Subquery> getSubqueries(Object expression) {
+        List<Subquery> ret = new ArrayList<>();
+        collectSubqueries(expression, ret);
+        return ret;
+    }
+
+    private static void collectSubqueries(Object expression, List<Subquery> subqueries) {
+        if (expression instanceof InSubqueryExpression) {
+            subqueries.add(((InSubqueryExpression) expression).getSubquery());
+        } else if (expression instanceof ExistsExpression) {
+            subqueries.add(((ExistsExpression) expression).getSubquery());
+        } else if (expression instanceof BinaryBooleanExpression) {
+            collectSubqueries(((BinaryBooleanExpression) expression).getLeft(), subqueries);
+            collectSubqueries(((BinaryBooleanExpression) expression).getRight(), subqueries);
+        } else if (expression instanceof UnaryBooleanExpression) {
+            collectSubqueries(((UnaryBooleanExpression) expression).getValue(), subqueries);
+        }
+    }
+
     public static Map<String, Set<Object>> mergeFixedValueConditions(Map<String, Set<Object>> left, Map<String, Set<Object>> right) {
         right.keySet().forEach(columnName -> {
             Set<Object> newValues = right.get(columnName);
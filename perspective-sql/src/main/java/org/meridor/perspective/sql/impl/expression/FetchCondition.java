@@ -0,0 +1,84 @@
+package org.meridor.perspective.sql.impl.expression;
+
+import java.util.*;
+
+/**
+ * Conjunction of simple column conditions of one table which can be
+ * evaluated by underlying storage while fetching table contents. Storage is
+ * allowed to return rows not matching condition because the same conditions
+ * are always checked once again by query filter.
+ */
+public class FetchCondition {
+
+    private final Map<String, Set<Object>> fixedValueConditions = new HashMap<>();
+
+    private final Map<String, ValueRange> rangeConditions = new HashMap<>();
+
+    private final Map<String, Set<String>> likeConditions = new HashMap<>();
+
+    public FetchCondition(Map<String, Set<Object>> fixedValueConditions, Map<String, ValueRange> rangeConditions, Map<String, Set<String>> likeConditions) {
+        this.fixedValueConditions.putAll(fixedValueConditions);
+        this.rangeConditions.putAll(rangeConditions);
+        this.likeConditions.putAll(likeConditions);
+    }
+
+    /**
+     * Returns conditions like table.column = 'value' or table.column IN ('one', 'two')
+     */
+    public Map<String, Set<Object>> getFixedValueConditions() {
+        return Collections.unmodifiableMap(fixedValueConditions);
+    }
+
+    /**
+     * Returns conditions like table.column > 'value'
+     */
+    public Map<String, ValueRange> getRangeConditions() {
+        return Collections.unmodifiableMap(rangeConditions);
+    }
+
+    /**
+     * Returns patterns from conditions like table.column LIKE '%value%'. A
+     * pattern matches any part of column value.
+     */
+    public Map<String, Set<String>> getLikeConditions() {
+        return Collections.unmodifiableMap(likeConditions);
+    }
+
+    /**
+     * Returns the same condition with parameters replaced by their values.
+     * Only fixed value conditions can contain parameters.
+     */
+    public FetchCondition bindParameters() {
+        return new FetchCondition(ExpressionUtils.bindParameters(fixedValueConditions), rangeConditions, likeConditions);
+    }
+
+    public boolean isEmpty() {
+        return fixedValueConditions.isEmpty() && rangeConditions.isEmpty() && likeConditions.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object another) {
+        if (!(another instanceof FetchCondition)) {
+            return false;
+        }
+        FetchCondition anotherCondition = (FetchCondition) another;
+        return
+                fixedValueConditions.equals(anotherCondition.fixedValueConditions) &&
+                rangeConditions.equals(anotherCondition.rangeConditions) &&
+                likeConditions.equals(anotherCondition.likeConditions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fixedValueConditions, rangeConditions, likeConditions);
+    }
+
+    @Override
+    public String toString() {
+        return "FetchCondition{" +
+                "fixedValueConditions=" + fixedValueConditions +
+                ", rangeConditions=" + rangeConditions +
+                ", likeConditions=" + likeConditions +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+package org.meridor.perspective.sql.impl.expression;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.isColumnExpression;
+
+/**
+ * Value IN (SELECT ...) condition evaluated as hash semi join: subquery
+ * values are collected to a hash set once and each row is checked against
+ * it. NOT IN is the corresponding anti join.
+ */
+public class InSubqueryExpression implements BooleanExpression {
+
+    private final Object value;
+
+    private final Subquery subquery;
+
+    public InSubqueryExpression(Object value, Subquery subquery) {
+        this.value = value;
+        this.subquery = subquery;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public Subquery getSubquery() {
+        return subquery;
+    }
+
+    @Override
+    public boolean equals(Object another) {
+        return
+                another instanceof InSubqueryExpression
+                && value.equals(((InSubqueryExpression) another).getValue())
+                && subquery == ((InSubqueryExpression) another).getSubquery();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s IN %s", value, subquery);
+    }
+
+    @Override
+    public Set<String> getTableAliases() {
+        if (isColumnExpression(value)) {
+            return Collections.singleton(((ColumnExpression) value).getTableAlias());
+        }
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Optional<BooleanExpression> getRestOfExpression() {
+        return Optional.of(this);
+    }
+}
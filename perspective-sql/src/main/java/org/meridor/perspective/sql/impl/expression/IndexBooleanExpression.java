@@ -10,20 +10,41 @@ public class IndexBooleanExpression implements BooleanExpression {
 
     private final Map<String, Set<Object>> fixedValueConditions = new HashMap<>();
     
+    private final Map<String, ValueRange> rangeConditions = new HashMap<>();
+    
     private final List<ColumnRelation> columnRelations = new ArrayList<>();
 
     public IndexBooleanExpression(Map<String, Set<Object>> fixedValueConditions) {
         this.fixedValueConditions.putAll(fixedValueConditions);
     }
 
+    public IndexBooleanExpression(Map<String, Set<Object>> fixedValueConditions, Map<String, ValueRange> rangeConditions) {
+        this(fixedValueConditions);
+        this.rangeConditions.putAll(rangeConditions);
+    }
+
     public IndexBooleanExpression() {
     }
 
+    /**
+     * Returns the same condition with parameters replaced by their values
+     */
+    public IndexBooleanExpression bindParameters() {
+        IndexBooleanExpression ret = new IndexBooleanExpression(ExpressionUtils.bindParameters(fixedValueConditions), rangeConditions);
+        ret.columnRelations.addAll(columnRelations);
+        return ret;
+    }
+
     @Override
     public Map<String, Set<Object>> getFixedValueConditions(String tableAlias) {
         return new HashMap<>(fixedValueConditions);
     }
 
+    @Override
+    public Map<String, ValueRange> getRangeConditions(String tableAlias) {
+        return new HashMap<>(rangeConditions);
+    }
+
     @Override
     public List<ColumnRelation> getColumnRelations() {
         return columnRelations;
@@ -33,6 +54,7 @@ public class IndexBooleanExpression implements BooleanExpression {
     public String toString() {
         return "IndexBooleanExpression{" +
                 "fixedValueConditions=" + fixedValueConditions +
+                ", rangeConditions=" + rangeConditions +
                 ", columnRelations=" + columnRelations +
                 '}';
     }
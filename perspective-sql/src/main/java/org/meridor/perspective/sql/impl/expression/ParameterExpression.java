@@ -0,0 +1,82 @@
+package org.meridor.perspective.sql.impl.expression;
+
+import org.meridor.perspective.sql.impl.task.QueryContext;
+
+import java.util.Objects;
+
+/**
+ * Placeholder of prepared query like ? or :name:. Its value is taken from
+ * the context of evaluated query, so one plan is shared by all executions
+ * of prepared query regardless of parameter values.
+ */
+public class ParameterExpression {
+
+    private static final String PREFIX = "?";
+
+    private static final String NAME_PREFIX = ":";
+
+    private final String name;
+
+    private final Integer index;
+
+    private ParameterExpression(String name, Integer index) {
+        this.name = name;
+        this.index = index;
+    }
+
+    public static ParameterExpression named(String name) {
+        return new ParameterExpression(name, null);
+    }
+
+    public static ParameterExpression positional(int index) {
+        return new ParameterExpression(null, index);
+    }
+
+    /**
+     * Parses text returned by {@link #toString()}
+     */
+    public static ParameterExpression parse(String text) {
+        if (!text.startsWith(PREFIX)) {
+            throw new IllegalArgumentException(String.format("Parameter should start with \"%s\": %s", PREFIX, text));
+        }
+        String value = text.substring(PREFIX.length());
+        return value.startsWith(NAME_PREFIX) ?
+                named(value.substring(NAME_PREFIX.length())) :
+                positional(Integer.valueOf(value));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Integer getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns parameter value of currently evaluated query
+     */
+    public Object getValue() {
+        return QueryContext.getParameter(this);
+    }
+
+    @Override
+    public boolean equals(Object another) {
+        return
+                another instanceof ParameterExpression &&
+                Objects.equals(name, ((ParameterExpression) another).name) &&
+                Objects.equals(index, ((ParameterExpression) another).index);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, index);
+    }
+
+    @Override
+    public String toString() {
+        return (name != null) ?
+                PREFIX + NAME_PREFIX + name :
+                PREFIX + index;
+    }
+}
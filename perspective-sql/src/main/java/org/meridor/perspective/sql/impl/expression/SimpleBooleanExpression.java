@@ -5,10 +5,15 @@ import org.meridor.perspective.beans.BooleanRelation;
 import java.util.*;
 
 import static org.meridor.perspective.beans.BooleanRelation.EQUAL;
+import static org.meridor.perspective.beans.BooleanRelation.REGEXP;
 import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.*;
 
 public class SimpleBooleanExpression implements BooleanExpression {
     
+    private static final String REGEXP_SPECIAL_CHARACTERS = "\\^$.|?*+()[]{}";
+    
+    private static final String REGEXP_OPTIONAL_QUANTIFIERS = "?*{";
+    
     private final Object left;
     private final BooleanRelation booleanRelation;
     private final Object right;
@@ -62,7 +67,7 @@ public class SimpleBooleanExpression implements BooleanExpression {
         Map<String, Set<Object>> ret = new HashMap<>();
         //Current we support only equal conditions but should also support >, < and so on
         if (booleanRelation == EQUAL) {
-            if (isColumnExpression(left) && isConstant(right)) {
+            if (isColumnExpression(left) && isConstantOrParameter(right)) {
                 ColumnExpression leftColumnExpression = asColumnExpression(left);
                 String leftTableAlias = leftColumnExpression.getTableAlias();
                 String leftColumnName = leftColumnExpression.getColumnName();
@@ -70,7 +75,7 @@ public class SimpleBooleanExpression implements BooleanExpression {
                     ret.put(leftColumnName, Collections.singleton(right));
                 }
             }
-            if (isConstant(left) && isColumnExpression(right)) {
+            if (isConstantOrParameter(left) && isColumnExpression(right)) {
                 ColumnExpression rightColumnExpression = asColumnExpression(right);
                 String rightTableAlias = rightColumnExpression.getTableAlias();
                 String rightColumnName = rightColumnExpression.getColumnName();
@@ -82,6 +87,58 @@ public class SimpleBooleanExpression implements BooleanExpression {
         return ret;
     }
 
+    @Override
+    public Map<String, ValueRange> getRangeConditions(String tableAlias) {
+        Map<String, ValueRange> ret = new HashMap<>();
+        if (isColumnExpression(left) && asColumnExpression(left).getTableAlias().equals(tableAlias)) {
+            String columnName = asColumnExpression(left).getColumnName();
+            if (isConstant(right) && isNumber(right.getClass())) {
+                Optional<ValueRange> valueRange = toValueRange(booleanRelation, right, true);
+                valueRange.ifPresent(vr -> ret.put(columnName, vr));
+            } else if (booleanRelation == REGEXP && right instanceof String) {
+                Optional<String> prefix = getRegexpPrefix((String) right);
+                prefix.ifPresent(p -> ret.put(columnName, ValueRange.startingWith(p)));
+            }
+        } else if (isColumnExpression(right) && asColumnExpression(right).getTableAlias().equals(tableAlias)) {
+            String columnName = asColumnExpression(right).getColumnName();
+            if (isConstant(left) && isNumber(left.getClass())) {
+                Optional<ValueRange> valueRange = toValueRange(booleanRelation, left, false);
+                valueRange.ifPresent(vr -> ret.put(columnName, vr));
+            }
+        }
+        return ret;
+    }
+    
+    private static Optional<ValueRange> toValueRange(BooleanRelation booleanRelation, Object value, boolean isColumnOnTheLeft) {
+        switch (booleanRelation) {
+            case GREATER_THAN: return Optional.of(isColumnOnTheLeft ? ValueRange.greaterThan(value, false) : ValueRange.lessThan(value, false));
+            case GREATER_THAN_EQUAL: return Optional.of(isColumnOnTheLeft ? ValueRange.greaterThan(value, true) : ValueRange.lessThan(value, true));
+            case LESS_THAN: return Optional.of(isColumnOnTheLeft ? ValueRange.lessThan(value, false) : ValueRange.greaterThan(value, false));
+            case LESS_THAN_EQUAL: return Optional.of(isColumnOnTheLeft ? ValueRange.lessThan(value, true) : ValueRange.greaterThan(value, true));
+            default: return Optional.empty();
+        }
+    }
+    
+    //Returns literal prefix of expressions like ^prefix.*. LIKE is not used here because it matches substrings.
+    private static Optional<String> getRegexpPrefix(String regexp) {
+        if (!regexp.startsWith("^") || regexp.contains("|")) {
+            return Optional.empty();
+        }
+        StringBuilder prefix = new StringBuilder();
+        for (int i = 1; i <= regexp.length() - 1; i++) {
+            char character = regexp.charAt(i);
+            if (REGEXP_SPECIAL_CHARACTERS.indexOf(character) != -1) {
+                //Previous character can be missing in matched string, e.g. ^abc*
+                if (REGEXP_OPTIONAL_QUANTIFIERS.indexOf(character) != -1 && prefix.length() > 0) {
+                    prefix.setLength(prefix.length() - 1);
+                }
+                break;
+            }
+            prefix.append(character);
+        }
+        return prefix.length() > 0 ? Optional.of(prefix.toString()) : Optional.empty();
+    }
+
     @Override
     public List<ColumnRelation> getColumnRelations() {
         if (isColumnExpression(left) && isColumnExpression(right)) {
@@ -102,7 +159,7 @@ public class SimpleBooleanExpression implements BooleanExpression {
     @Override
     public Optional<BooleanExpression> getRestOfExpression() {
         return (
-                isConstant(left) && isConstant(right) ||
+                isConstantOrParameter(left) && isConstantOrParameter(right) ||
                 canNotOptimizeExpression(left) ||
                 canNotOptimizeExpression(right)
         ) ? Optional.of(this) : Optional.empty();
@@ -111,6 +168,6 @@ public class SimpleBooleanExpression implements BooleanExpression {
     private boolean canNotOptimizeExpression(Object value) {
         return 
                 (booleanRelation != EQUAL) || 
-                ( !isConstant(value) && !isColumnExpression(value) );
+                ( !isConstantOrParameter(value) && !isColumnExpression(value) );
     }
 }
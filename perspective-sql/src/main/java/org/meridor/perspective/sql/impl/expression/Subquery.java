@@ -0,0 +1,134 @@
+package org.meridor.perspective.sql.impl.expression;
+
+import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.DataRow;
+import org.meridor.perspective.sql.impl.parser.SelectQueryAware;
+import org.meridor.perspective.sql.impl.task.QueryContext;
+import org.meridor.perspective.sql.impl.task.RowIterator;
+import org.meridor.perspective.sql.impl.task.Task;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Function;
+
+import static org.meridor.perspective.sql.impl.task.TaskUtils.chain;
+
+/**
+ * Uncorrelated subquery used in IN and EXISTS conditions or as a derived
+ * table in FROM clause. It is parsed together with the outer query, planned
+ * by query planner and evaluated at most once per outer query execution.
+ */
+public class Subquery {
+
+    /**
+     * Table name derived table aliases are mapped to. It can't be parsed
+     * as a table name so it never matches a stored table.
+     */
+    public static final String DERIVED_TABLE = "(subquery)";
+
+    private final SelectQueryAware selectQueryAware;
+
+    private final List<String> columnNames = new ArrayList<>();
+
+    private final Queue<Task> tasks = new LinkedList<>();
+
+    public Subquery(SelectQueryAware selectQueryAware) {
+        this.selectQueryAware = selectQueryAware;
+    }
+
+    public Subquery(SelectQueryAware selectQueryAware, List<String> columnNames) {
+        this(selectQueryAware);
+        this.columnNames.addAll(columnNames);
+    }
+
+    public SelectQueryAware getSelectQueryAware() {
+        return selectQueryAware;
+    }
+
+    /**
+     * Returns column names of derived table in selection order
+     */
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    public Queue<Task> getTasks() {
+        return tasks;
+    }
+
+    public void setTasks(Collection<Task> tasks) {
+        this.tasks.clear();
+        this.tasks.addAll(tasks);
+    }
+
+    /**
+     * Returns distinct non-null values of the first column as strings, i.e.
+     * hash table of semi join between outer query rows and subquery rows
+     */
+    public Set<String> getValues() {
+        return QueryContext.computeOnce(this, () -> evaluate(rows -> {
+            Set<String> values = new HashSet<>();
+            while (rows.hasNext()) {
+                QueryContext.check();
+                DataRow dataRow = rows.next();
+                Object value = dataRow.get(0);
+                if (value != null) {
+                    values.add(String.valueOf(value));
+                }
+            }
+            return values;
+        }));
+    }
+
+    /**
+     * Returns whether subquery returns at least one row. Only the first row
+     * is pulled from subquery tasks.
+     */
+    public boolean hasRows() {
+        return QueryContext.computeOnce(this, () -> evaluate(RowIterator::hasNext));
+    }
+
+    /**
+     * Returns derived table rows. Subquery rows are materialized once and
+     * can only be scanned because derived tables have no indexes.
+     */
+    public DataContainer getRows(String tableAlias) {
+        List<List<Object>> rows = QueryContext.computeOnce(this, () -> evaluate(rowIterator -> {
+            List<List<Object>> values = new ArrayList<>();
+            while (rowIterator.hasNext()) {
+                QueryContext.check();
+                List<Object> rowValues = rowIterator.next().getValues();
+                if (rowValues.size() != columnNames.size()) {
+                    throw new IllegalStateException(String.format(
+                            "Derived table %s should have %d columns but subquery returned %d",
+                            tableAlias, columnNames.size(), rowValues.size()
+                    ));
+                }
+                values.add(rowValues);
+            }
+            return values;
+        }));
+        DataContainer dataContainer = new DataContainer(Collections.singletonMap(tableAlias, columnNames));
+        rows.forEach(dataContainer::addRow);
+        return dataContainer;
+    }
+
+    private <T> T evaluate(Function<RowIterator, T> action) {
+        if (tasks.isEmpty()) {
+            throw new IllegalStateException("Subquery was not planned");
+        }
+        try {
+            return action.apply(chain(tasks));
+        } catch (SQLException e) {
+            String message = (e.getCause() != null) ? e.getCause().getMessage() : e.getMessage();
+            throw new IllegalArgumentException(message, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return tasks.isEmpty() ?
+                "(subquery)" :
+                String.format("(%s)", tasks);
+    }
+}
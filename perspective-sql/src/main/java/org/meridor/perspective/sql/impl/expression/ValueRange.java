@@ -0,0 +1,119 @@
+package org.meridor.perspective.sql.impl.expression;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.compareValues;
+
+/**
+ * Range of column values like table.column > 'value'. Used to pass range
+ * conditions to sorted indexes. Missing bound means that range is not limited
+ * from respective side.
+ */
+public class ValueRange {
+
+    private final Object lowerBound;
+
+    private final boolean lowerBoundInclusive;
+
+    private final Object upperBound;
+
+    private final boolean upperBoundInclusive;
+
+    public ValueRange(Object lowerBound, boolean lowerBoundInclusive, Object upperBound, boolean upperBoundInclusive) {
+        this.lowerBound = lowerBound;
+        this.lowerBoundInclusive = lowerBoundInclusive;
+        this.upperBound = upperBound;
+        this.upperBoundInclusive = upperBoundInclusive;
+    }
+
+    public static ValueRange greaterThan(Object value, boolean inclusive) {
+        return new ValueRange(value, inclusive, null, false);
+    }
+
+    public static ValueRange lessThan(Object value, boolean inclusive) {
+        return new ValueRange(null, false, value, inclusive);
+    }
+
+    //All strings starting with prefix are less than prefix with incremented last character
+    public static ValueRange startingWith(String prefix) {
+        if (prefix.isEmpty()) {
+            return new ValueRange(null, false, null, false);
+        }
+        char lastCharacter = prefix.charAt(prefix.length() - 1);
+        String upperBound = (lastCharacter != Character.MAX_VALUE) ?
+                prefix.substring(0, prefix.length() - 1) + (char) (lastCharacter + 1) :
+                null;
+        return new ValueRange(prefix, true, upperBound, false);
+    }
+
+    public Optional<Object> getLowerBound() {
+        return Optional.ofNullable(lowerBound);
+    }
+
+    public boolean isLowerBoundInclusive() {
+        return lowerBoundInclusive;
+    }
+
+    public Optional<Object> getUpperBound() {
+        return Optional.ofNullable(upperBound);
+    }
+
+    public boolean isUpperBoundInclusive() {
+        return upperBoundInclusive;
+    }
+
+    /**
+     * Returns range containing only values present in both ranges
+     */
+    public ValueRange intersect(ValueRange another) {
+        Object newLowerBound = lowerBound;
+        boolean newLowerBoundInclusive = lowerBoundInclusive;
+        if (another.lowerBound != null) {
+            int result = (lowerBound != null) ? compareValues(another.lowerBound, lowerBound) : 1;
+            if (result > 0 || (result == 0 && !another.lowerBoundInclusive)) {
+                newLowerBound = another.lowerBound;
+                newLowerBoundInclusive = another.lowerBoundInclusive;
+            }
+        }
+        Object newUpperBound = upperBound;
+        boolean newUpperBoundInclusive = upperBoundInclusive;
+        if (another.upperBound != null) {
+            int result = (upperBound != null) ? compareValues(another.upperBound, upperBound) : -1;
+            if (result < 0 || (result == 0 && !another.upperBoundInclusive)) {
+                newUpperBound = another.upperBound;
+                newUpperBoundInclusive = another.upperBoundInclusive;
+            }
+        }
+        return new ValueRange(newLowerBound, newLowerBoundInclusive, newUpperBound, newUpperBoundInclusive);
+    }
+
+    @Override
+    public boolean equals(Object another) {
+        if (!(another instanceof ValueRange)) {
+            return false;
+        }
+        ValueRange anotherRange = (ValueRange) another;
+        return
+                Objects.equals(lowerBound, anotherRange.lowerBound) &&
+                lowerBoundInclusive == anotherRange.lowerBoundInclusive &&
+                Objects.equals(upperBound, anotherRange.upperBound) &&
+                upperBoundInclusive == anotherRange.upperBoundInclusive;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lowerBound, lowerBoundInclusive, upperBound, upperBoundInclusive);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s%s, %s%s",
+                lowerBoundInclusive ? "[" : "(",
+                lowerBound != null ? lowerBound : "-inf",
+                upperBound != null ? upperBound : "+inf",
+                upperBoundInclusive ? "]" : ")"
+        );
+    }
+}
@@ -15,10 +15,23 @@ public interface Index extends Serializable {
     
     Set<String> get(Key key);
 
+    /**
+     * Returns number of ids stored for key without copying them
+     */
+    int count(Key key);
+
     void put(Key key, String id);
 
     void delete(Key key, String id);
     
     int getKeyLength();
+
+    /**
+     * Returns read-only view of current index contents which is not affected
+     * by further modifications
+     */
+    Index snapshot();
+
+    IndexStatistics getStatistics();
     
 }
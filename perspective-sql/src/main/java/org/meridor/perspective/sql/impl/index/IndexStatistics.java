@@ -0,0 +1,77 @@
+package org.meridor.perspective.sql.impl.index;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Index contents summary used to estimate query costs. Posting list sizes
+ * histogram bucket with number n contains number of keys having from
+ * 2^n to 2^(n+1) - 1 ids.
+ */
+public class IndexStatistics implements Serializable {
+
+    public static final int BUCKETS_COUNT = Integer.SIZE;
+
+    private static final IndexStatistics EMPTY = new IndexStatistics(0, 0, new int[BUCKETS_COUNT]);
+
+    private final int keysCount;
+
+    private final long idsCount;
+
+    private final int[] postingListSizes;
+
+    public IndexStatistics(int keysCount, long idsCount, int[] postingListSizes) {
+        this.keysCount = keysCount;
+        this.idsCount = idsCount;
+        this.postingListSizes = postingListSizes;
+    }
+
+    public static IndexStatistics empty() {
+        return EMPTY;
+    }
+
+    public static int getBucket(int postingListSize) {
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(postingListSize);
+    }
+
+    /**
+     * Returns number of distinct keys
+     */
+    public int getKeysCount() {
+        return keysCount;
+    }
+
+    /**
+     * Returns total size of all posting lists
+     */
+    public long getIdsCount() {
+        return idsCount;
+    }
+
+    public double getAverageIdsPerKey() {
+        return keysCount > 0 ? (double) idsCount / keysCount : 0;
+    }
+
+    //Upper bound of the last non-empty bucket
+    public long getMaxIdsPerKey() {
+        for (int bucket = BUCKETS_COUNT - 1; bucket >= 0; bucket--) {
+            if (postingListSizes[bucket] > 0) {
+                return (1L << (bucket + 1)) - 1;
+            }
+        }
+        return 0;
+    }
+
+    public int[] getPostingListSizes() {
+        return Arrays.copyOf(postingListSizes, postingListSizes.length);
+    }
+
+    @Override
+    public String toString() {
+        return "IndexStatistics{" +
+                "keysCount=" + keysCount +
+                ", idsCount=" + idsCount +
+                ", postingListSizes=" + Arrays.toString(postingListSizes) +
+                '}';
+    }
+}
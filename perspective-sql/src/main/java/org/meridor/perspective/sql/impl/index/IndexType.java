@@ -0,0 +1,15 @@
+package org.meridor.perspective.sql.impl.index;
+
+public enum IndexType {
+    
+    /**
+     * Supports only lookups by exact key
+     */
+    HASH,
+
+    /**
+     * Keeps keys ordered and additionally supports range lookups
+     */
+    SORTED
+    
+}
@@ -1,9 +1,40 @@
 package org.meridor.perspective.sql.impl.index;
 
+import org.meridor.perspective.sql.impl.index.impl.IndexSignature;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+
 public interface Indexer {
     
     void add(String tableName, Object bean);
     
     void delete(String tableName, Object bean);
+
+    /**
+     * Returns number of rows currently stored in the table
+     * @param tableName table name
+     * @return rows count or empty if no rows were ever added to the table
+     */
+    Optional<Long> getRowsCount(String tableName);
+
+    /**
+     * Compares table indexes with actual table contents
+     * @param tableName table to check
+     * @param beans all objects currently stored in the table
+     * @return signatures of indexes not matching table contents
+     */
+    Set<IndexSignature> findInconsistentIndexes(String tableName, Collection<?> beans);
+
+    /**
+     * Updates inconsistent table indexes and rows count to match table contents.
+     * Table should not be changed by {@link #add} or {@link #delete} until
+     * repair finishes, otherwise these changes can be overwritten.
+     * @param tableName table to repair
+     * @param beans all objects currently stored in the table
+     * @return signatures of repaired indexes
+     */
+    Set<IndexSignature> repairIndexes(String tableName, Collection<?> beans);
     
 }
@@ -0,0 +1,22 @@
+package org.meridor.perspective.sql.impl.index;
+
+import java.util.Set;
+
+public interface SortedIndex extends Index {
+
+    /**
+     * Returns ids for all keys between two bounds
+     * @param from lower bound or null if range has no lower bound
+     * @param fromInclusive whether lower bound is included
+     * @param to upper bound or null if range has no upper bound
+     * @param toInclusive whether upper bound is included
+     * @return matched ids
+     */
+    Set<String> get(Key from, boolean fromInclusive, Key to, boolean toInclusive);
+
+    /**
+     * Returns number of ids for all keys between two bounds without copying them
+     */
+    long count(Key from, boolean fromInclusive, Key to, boolean toInclusive);
+    
+}
@@ -0,0 +1,238 @@
+package org.meridor.perspective.sql.impl.index.impl;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.meridor.perspective.sql.impl.index.Index;
+import org.meridor.perspective.sql.impl.index.IndexStatistics;
+import org.meridor.perspective.sql.impl.index.Key;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.UnaryOperator;
+
+/**
+ * Index storing its contents as immutable persistent maps. Every modification
+ * publishes a new version, so taking a snapshot costs O(1) and readers never
+ * see partially applied changes. Modifications are applied with compare-and-set
+ * so concurrent writers never lock each other.
+ */
+public abstract class BaseIndex implements Index {
+
+    //The same entity id is stored in every index of the table so we keep only one copy of it
+    private static final Interner<String> ID_INTERNER = Interners.newWeakInterner();
+
+    private static final AtomicReferenceFieldUpdater<BaseIndex, State> STATE_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(BaseIndex.class, State.class, "state");
+
+    private final IndexSignature signature;
+    
+    private final boolean readOnly;
+
+    private volatile State state;
+
+    protected BaseIndex(IndexSignature signature) {
+        this(signature, null);
+    }
+
+    //Sorted keys are kept in the same state as data and replaced together with it
+    protected BaseIndex(IndexSignature signature, Comparator<Key> keyComparator) {
+        this.signature = signature;
+        this.state = keyComparator != null ?
+                State.EMPTY.withSortedKeys(new ConcurrentSkipListSet<>(keyComparator)) :
+                State.EMPTY;
+        this.readOnly = false;
+    }
+
+    //Creates read-only snapshot of another index
+    protected BaseIndex(BaseIndex index) {
+        this.signature = index.signature;
+        this.state = index.state;
+        this.readOnly = true;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    PersistentHashMap<Key, PersistentHashMap<String, String>> getData() {
+        return state.data;
+    }
+
+    protected void checkKey(Key key) {
+        //Any key is accepted by default
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Index snapshot is read-only");
+        }
+    }
+
+    @Override
+    public void put(Key key, String id) {
+        checkWritable();
+        checkKey(key);
+        String storedId = ID_INTERNER.intern(id);
+        modify(current -> {
+            PersistentHashMap<String, String> ids = current.data.get(key);
+            if (ids == null) {
+                ids = PersistentHashMap.empty();
+            }
+            PersistentHashMap<String, String> newIds = ids.plus(storedId, storedId);
+            if (newIds == ids) {
+                return current;
+            }
+            if (current.sortedKeys != null) {
+                //Key should be ordered before it becomes visible to readers
+                current.sortedKeys.add(key);
+            }
+            return current.replace(key, ids, newIds);
+        });
+    }
+
+    @Override
+    public void delete(Key key, String id) {
+        checkWritable();
+        checkKey(key);
+        modify(current -> {
+            PersistentHashMap<String, String> ids = current.data.get(key);
+            if (ids == null) {
+                return current;
+            }
+            PersistentHashMap<String, String> newIds = ids.minus(id);
+            return newIds != ids ? current.replace(key, ids, newIds) : current;
+        });
+        if (state.needsPruning()) {
+            modify(current -> current.needsPruning() ? current.pruneSortedKeys() : current);
+        }
+    }
+
+    private void modify(UnaryOperator<State> action) {
+        while (true) {
+            State current = state;
+            State updated = action.apply(current);
+            if (updated == current || STATE_UPDATER.compareAndSet(this, current, updated)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public IndexSignature getSignature() {
+        return signature;
+    }
+
+    @Override
+    public Set<Key> getKeys() {
+        Set<Key> keys = new LinkedHashSet<>();
+        getData().forEach((key, ids) -> keys.add(key));
+        return keys;
+    }
+
+    @Override
+    public Set<String> getIds() {
+        Set<String> allIds = new HashSet<>();
+        getData().forEach((key, ids) -> ids.forEach((id, ignored) -> allIds.add(id)));
+        return allIds;
+    }
+
+    @Override
+    public Set<String> get(Key key) {
+        return toSet(getData().get(key));
+    }
+
+    @Override
+    public int count(Key key) {
+        PersistentHashMap<String, String> ids = getData().get(key);
+        return ids != null ? ids.size() : 0;
+    }
+
+    @Override
+    public IndexStatistics getStatistics() {
+        State current = state;
+        return new IndexStatistics(current.data.size(), current.idsCount, current.postingListSizes.clone());
+    }
+
+    static Set<String> toSet(PersistentHashMap<String, String> ids) {
+        if (ids == null) {
+            return Collections.emptySet();
+        }
+        Set<String> ret = new LinkedHashSet<>();
+        ids.forEach((id, ignored) -> ret.add(id));
+        return ret;
+    }
+
+    //Statistics and sorted keys are replaced together with data so that they always match each other
+    static final class State implements Serializable {
+
+        private static final State EMPTY = new State(PersistentHashMap.empty(), 0, new int[IndexStatistics.BUCKETS_COUNT], null, 0);
+
+        //Posting lists are stored as id -> id maps
+        private final PersistentHashMap<Key, PersistentHashMap<String, String>> data;
+
+        private final long idsCount;
+
+        private final int[] postingListSizes;
+
+        /*
+            Contains every key added since last pruning and is shared between
+            versions: keys missing in data are skipped. When removed keys
+            outnumber live ones the set is rebuilt from data in a new version,
+            so older versions and snapshots keep the old set.
+        */
+        private final NavigableSet<Key> sortedKeys;
+
+        private final int removedKeysCount;
+
+        private State(PersistentHashMap<Key, PersistentHashMap<String, String>> data, long idsCount, int[] postingListSizes, NavigableSet<Key> sortedKeys, int removedKeysCount) {
+            this.data = data;
+            this.idsCount = idsCount;
+            this.postingListSizes = postingListSizes;
+            this.sortedKeys = sortedKeys;
+            this.removedKeysCount = removedKeysCount;
+        }
+
+        PersistentHashMap<Key, PersistentHashMap<String, String>> getData() {
+            return data;
+        }
+
+        NavigableSet<Key> getSortedKeys() {
+            return sortedKeys;
+        }
+
+        private State withSortedKeys(NavigableSet<Key> sortedKeys) {
+            return new State(data, idsCount, postingListSizes, sortedKeys, 0);
+        }
+
+        private State replace(Key key, PersistentHashMap<String, String> ids, PersistentHashMap<String, String> newIds) {
+            int[] newPostingListSizes = postingListSizes.clone();
+            if (!ids.isEmpty()) {
+                newPostingListSizes[IndexStatistics.getBucket(ids.size())]--;
+            }
+            if (!newIds.isEmpty()) {
+                newPostingListSizes[IndexStatistics.getBucket(newIds.size())]++;
+            }
+            boolean keyRemoved = !ids.isEmpty() && newIds.isEmpty();
+            return new State(
+                    newIds.isEmpty() ? data.minus(key) : data.plus(key, newIds),
+                    idsCount + newIds.size() - ids.size(),
+                    newPostingListSizes,
+                    sortedKeys,
+                    keyRemoved && sortedKeys != null ? removedKeysCount + 1 : removedKeysCount
+            );
+        }
+
+        private boolean needsPruning() {
+            return sortedKeys != null && removedKeysCount > data.size();
+        }
+
+        private State pruneSortedKeys() {
+            NavigableSet<Key> prunedKeys = new ConcurrentSkipListSet<>(sortedKeys.comparator());
+            data.forEach((key, ids) -> prunedKeys.add(key));
+            return withSortedKeys(prunedKeys);
+        }
+    }
+
+}
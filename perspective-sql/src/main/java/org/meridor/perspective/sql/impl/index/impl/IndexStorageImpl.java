@@ -1,6 +1,8 @@
 package org.meridor.perspective.sql.impl.index.impl;
 
 import org.meridor.perspective.sql.impl.index.Index;
+import org.meridor.perspective.sql.impl.index.IndexType;
+import org.meridor.perspective.sql.impl.index.SortedIndex;
 import org.meridor.perspective.sql.impl.storage.IndexStorage;
 import org.springframework.stereotype.Component;
 
@@ -22,28 +24,30 @@ public class IndexStorageImpl implements IndexStorage {
 
     @Override
     public Optional<Index> get(IndexSignature indexSignature) {
-        //This emulates storage like Hazelcast returning read-only copies of objects
-        Index index = indexes.get(indexSignature);
-        return index != null ?
-                Optional.of(cloneIndex(index)) :
-                Optional.empty();
+        //Like Hazelcast we return objects not affected by further updates but snapshot does not copy data
+        return Optional.ofNullable(indexes.get(indexSignature)).map(Index::snapshot);
     }
 
-    private static Index cloneIndex(Index index) {
-        HashTableIndex ret = new HashTableIndex(index.getSignature(), index.getKeyLength());
-        index.getKeys().forEach(
-                key -> index.get(key).forEach(id -> ret.put(key, id))
-        );
-        return ret;
-    }
-    
     @Override
     public void update(IndexSignature indexSignature, UnaryOperator<Index> action) {
-        indexes.put(indexSignature, action.apply(indexes.get(indexSignature)));
+        //Index modifications are atomic themselves so we only need to publish replaced index
+        Index index = indexes.get(indexSignature);
+        Index updatedIndex = action.apply(index);
+        if (updatedIndex != index) {
+            indexes.put(indexSignature, updatedIndex);
+        }
     }
 
     @Override
-    public void create(IndexSignature indexSignature, int keyLength) {
-        update(indexSignature, any -> new HashTableIndex(indexSignature, keyLength));
+    public void create(IndexSignature indexSignature, int keyLength, IndexType indexType) {
+        indexes.compute(indexSignature, (is, existingIndex) -> {
+            //Sorted index also supports exact key lookups, so we never replace it by a hash index
+            if (indexType == IndexType.HASH && existingIndex instanceof SortedIndex) {
+                return existingIndex;
+            }
+            return indexType == IndexType.SORTED ?
+                    new SkipListIndex(indexSignature) :
+                    new HashTableIndex(indexSignature, keyLength);
+        });
     }
 }
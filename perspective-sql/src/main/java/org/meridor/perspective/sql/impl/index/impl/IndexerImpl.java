@@ -7,16 +7,15 @@ import org.meridor.perspective.sql.impl.index.Keys;
 import org.meridor.perspective.sql.impl.storage.IndexStorage;
 import org.meridor.perspective.sql.impl.storage.ObjectMapper;
 import org.meridor.perspective.sql.impl.storage.ObjectMapperAware;
-import org.meridor.perspective.sql.impl.table.Column;
 import org.meridor.perspective.sql.impl.table.TablesAware;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.Collection;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Component
@@ -32,45 +31,123 @@ public class IndexerImpl implements Indexer {
     
     @Autowired
     private ObjectMapperAware objectMapperAware;
+    
+    private final Map<String, AtomicLong> rowsCounts = new ConcurrentHashMap<>();
 
     @Override
     public void add(String tableName, Object bean) {
         LOG.trace("Adding {} to \"{}\" table indexes", bean, tableName);
+        if (bean != null) {
+            getRowsCounter(tableName).incrementAndGet();
+        }
         forEachIndex(tableName, bean, Index::put);
     }
 
     @Override
     public void delete(String tableName, Object bean) {
         LOG.trace("Deleting {} from \"{}\" table indexes", bean, tableName);
+        if (bean != null) {
+            getRowsCounter(tableName).decrementAndGet();
+        }
         forEachIndex(tableName, bean, Index::delete);
     }
+
+    @Override
+    public Optional<Long> getRowsCount(String tableName) {
+        //Deleting never added entity can make counter negative
+        return Optional.ofNullable(rowsCounts.get(tableName))
+                .map(c -> Math.max(0, c.get()));
+    }
+    
+    private AtomicLong getRowsCounter(String tableName) {
+        return rowsCounts.computeIfAbsent(tableName, tn -> new AtomicLong());
+    }
     
     private void forEachIndex(String tableName, Object bean, Action action) {
         if (bean == null) {
             return;
         }
         
-        @SuppressWarnings("unchecked")
-        ObjectMapper<Object> objectMapper = (ObjectMapper<Object>) objectMapperAware.get(bean.getClass());
+        ObjectMapper<Object> objectMapper = getObjectMapper(bean);
         Map<String, Object> columnsMap = objectMapper.map(bean);
-        Collection<Column> columns = tablesAware.getColumns(tableName);
+        String id = objectMapper.getId(bean);
         
-        columns.forEach(c -> {
-            Set<IndexSignature> indexes = c.getIndexes(indexStorage.getSignatures());
-            indexes.forEach(is -> {
-                if (indexStorage.getSignatures().contains(is)) {
-                    indexStorage.update(is, index -> {
-                        Map<String, Set<String>> desiredColumns = is.getDesiredColumns();
-                        int keyLength = index.getKeyLength();
-                        String id = objectMapper.getId(bean);
-                        Object[] columnValues = columnsToValues(desiredColumns.get(tableName), columnsMap);
-                        Key key = Keys.key(keyLength, columnValues);
-                        action.apply(index, key, id);
-                        return index;
-                    });
-                }
-            });
+        getIndexSignatures(tableName).forEach(is -> indexStorage.update(is, index -> {
+            if (index != null) {
+                action.apply(index, getKey(tableName, is, index.getKeyLength(), columnsMap), id);
+            }
+            return index;
+        }));
+    }
+
+    @Override
+    public Set<IndexSignature> findInconsistentIndexes(String tableName, Collection<?> beans) {
+        Set<IndexSignature> inconsistentIndexes = new HashSet<>();
+        getIndexSignatures(tableName).forEach(is -> indexStorage.get(is).ifPresent(index -> {
+            Map<Key, Set<String>> expectedContents = getExpectedContents(tableName, is, index.getKeyLength(), beans);
+            Map<Key, Set<String>> actualContents = getActualContents(index);
+            if (!expectedContents.equals(actualContents)) {
+                Set<Key> differentKeys = new HashSet<>(expectedContents.keySet());
+                differentKeys.addAll(actualContents.keySet());
+                differentKeys.removeIf(k -> Objects.equals(expectedContents.get(k), actualContents.get(k)));
+                LOG.warn("Index {} does not match \"{}\" table contents for {} keys", is, tableName, differentKeys.size());
+                LOG.debug("Inconsistent keys of index {} are: {}", is, differentKeys);
+                inconsistentIndexes.add(is);
+            }
+        }));
+        return inconsistentIndexes;
+    }
+
+    @Override
+    public Set<IndexSignature> repairIndexes(String tableName, Collection<?> beans) {
+        Set<IndexSignature> inconsistentIndexes = findInconsistentIndexes(tableName, beans);
+        inconsistentIndexes.forEach(is -> indexStorage.update(is, index -> {
+            if (index != null) {
+                LOG.info("Repairing index {} of \"{}\" table", is, tableName);
+                Map<Key, Set<String>> expectedContents = getExpectedContents(tableName, is, index.getKeyLength(), beans);
+                getActualContents(index).forEach((key, ids) -> ids.stream()
+                        .filter(id -> !expectedContents.getOrDefault(key, Collections.emptySet()).contains(id))
+                        .forEach(id -> index.delete(key, id)));
+                expectedContents.forEach((key, ids) -> ids.forEach(id -> index.put(key, id)));
+            }
+            return index;
+        }));
+        getRowsCounter(tableName).set(beans.size());
+        return inconsistentIndexes;
+    }
+
+    private Map<Key, Set<String>> getExpectedContents(String tableName, IndexSignature indexSignature, int keyLength, Collection<?> beans) {
+        Map<Key, Set<String>> expectedContents = new HashMap<>();
+        beans.forEach(bean -> {
+            ObjectMapper<Object> objectMapper = getObjectMapper(bean);
+            Key key = getKey(tableName, indexSignature, keyLength, objectMapper.map(bean));
+            expectedContents.computeIfAbsent(key, k -> new HashSet<>()).add(objectMapper.getId(bean));
         });
+        return expectedContents;
+    }
+
+    private static Map<Key, Set<String>> getActualContents(Index index) {
+        Map<Key, Set<String>> actualContents = new HashMap<>();
+        index.getKeys().forEach(k -> actualContents.put(k, new HashSet<>(index.get(k))));
+        return actualContents;
+    }
+
+    //Composite indexes contain several table columns but should be updated once
+    private Set<IndexSignature> getIndexSignatures(String tableName) {
+        Set<IndexSignature> allSignatures = indexStorage.getSignatures();
+        return tablesAware.getColumns(tableName).stream()
+                .flatMap(c -> c.getIndexes(allSignatures).stream())
+                .collect(Collectors.toSet());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ObjectMapper<Object> getObjectMapper(Object bean) {
+        return (ObjectMapper<Object>) objectMapperAware.get(bean.getClass());
+    }
+
+    private static Key getKey(String tableName, IndexSignature indexSignature, int keyLength, Map<String, Object> columnsMap) {
+        Set<String> columnNames = indexSignature.getDesiredColumns().get(tableName);
+        return Keys.key(keyLength, columnsToValues(columnNames, columnsMap));
     }
     
     private static Object[] columnsToValues(Set<String> columnNames, Map<String, Object> columnsMap) {
@@ -0,0 +1,336 @@
+package org.meridor.perspective.sql.impl.index.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable hash array mapped trie. Every modification returns a new map
+ * sharing all untouched nodes with the previous one, so keeping old versions
+ * is free and modifications cost O(log32 n).
+ */
+final class PersistentHashMap<K, V> implements Serializable {
+
+    private static final int BITS = 5;
+
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    private final Node<K, V> root;
+
+    private final int size;
+
+    private PersistentHashMap(Node<K, V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    V get(K key) {
+        return root != null ? root.find(0, hash(key), key) : null;
+    }
+
+    boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    PersistentHashMap<K, V> plus(K key, V value) {
+        int[] sizeDelta = new int[1];
+        Node<K, V> newRoot = (root != null) ?
+                root.plus(0, hash(key), key, value, sizeDelta) :
+                BitmapNode.<K, V>emptyNode().plus(0, hash(key), key, value, sizeDelta);
+        return newRoot != root ? new PersistentHashMap<>(newRoot, size + sizeDelta[0]) : this;
+    }
+
+    PersistentHashMap<K, V> minus(K key) {
+        if (root == null) {
+            return this;
+        }
+        int[] sizeDelta = new int[1];
+        Node<K, V> newRoot = root.minus(0, hash(key), key, sizeDelta);
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot != null ? new PersistentHashMap<>(newRoot, size + sizeDelta[0]) : empty();
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void forEach(BiConsumer<? super K, ? super V> action) {
+        if (root != null) {
+            root.forEach(action);
+        }
+    }
+
+    private static int hash(Object key) {
+        int hashCode = key.hashCode();
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private interface Node<K, V> extends Serializable {
+
+        V find(int shift, int hash, K key);
+
+        Node<K, V> plus(int shift, int hash, K key, V value, int[] sizeDelta);
+
+        //Returns null when node becomes empty
+        Node<K, V> minus(int shift, int hash, K key, int[] sizeDelta);
+
+        void forEach(BiConsumer<? super K, ? super V> action);
+
+    }
+
+    private static final class Entry<K, V> implements Serializable {
+
+        private final int hash;
+
+        private final K key;
+
+        private final V value;
+
+        Entry(int hash, K key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        boolean matches(int hash, K key) {
+            return this.hash == hash && this.key.equals(key);
+        }
+    }
+
+    //Each child is either an entry or a nested node
+    private static final class BitmapNode<K, V> implements Node<K, V> {
+
+        private static final BitmapNode<?, ?> EMPTY_NODE = new BitmapNode<>(0, new Object[0]);
+
+        private final int bitmap;
+
+        private final Object[] children;
+
+        BitmapNode(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <K, V> BitmapNode<K, V> emptyNode() {
+            return (BitmapNode<K, V>) EMPTY_NODE;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V find(int shift, int hash, K key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object child = children[index(bit)];
+            if (child instanceof Entry) {
+                Entry<K, V> entry = (Entry<K, V>) child;
+                return entry.matches(hash, key) ? entry.value : null;
+            }
+            return ((Node<K, V>) child).find(shift + BITS, hash, key);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Node<K, V> plus(int shift, int hash, K key, V value, int[] sizeDelta) {
+            int bit = bit(hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] newChildren = new Object[children.length + 1];
+                System.arraycopy(children, 0, newChildren, 0, index);
+                newChildren[index] = new Entry<>(hash, key, value);
+                System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+                sizeDelta[0] = 1;
+                return new BitmapNode<>(bitmap | bit, newChildren);
+            }
+            Object child = children[index];
+            Object newChild;
+            if (child instanceof Entry) {
+                Entry<K, V> entry = (Entry<K, V>) child;
+                if (entry.matches(hash, key)) {
+                    if (entry.value == value) {
+                        return this;
+                    }
+                    newChild = new Entry<>(hash, key, value);
+                } else {
+                    newChild = createNode(shift + BITS, entry, new Entry<>(hash, key, value));
+                    sizeDelta[0] = 1;
+                }
+            } else {
+                Node<K, V> node = (Node<K, V>) child;
+                newChild = node.plus(shift + BITS, hash, key, value, sizeDelta);
+                if (newChild == node) {
+                    return this;
+                }
+            }
+            return new BitmapNode<>(bitmap, replace(index, newChild));
+        }
+
+        private static <K, V> Node<K, V> createNode(int shift, Entry<K, V> first, Entry<K, V> second) {
+            if (first.hash == second.hash) {
+                return new CollisionNode<>(first.hash, Arrays.asList(first, second));
+            }
+            int[] ignored = new int[1];
+            return BitmapNode.<K, V>emptyNode()
+                    .plus(shift, first.hash, first.key, first.value, ignored)
+                    .plus(shift, second.hash, second.key, second.value, ignored);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Node<K, V> minus(int shift, int hash, K key, int[] sizeDelta) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object child = children[index];
+            if (child instanceof Entry) {
+                if (!((Entry<K, V>) child).matches(hash, key)) {
+                    return this;
+                }
+                sizeDelta[0] = -1;
+                return remove(bit, index);
+            }
+            Node<K, V> node = (Node<K, V>) child;
+            Node<K, V> newNode = node.minus(shift + BITS, hash, key, sizeDelta);
+            if (newNode == node) {
+                return this;
+            }
+            return newNode != null ?
+                    new BitmapNode<>(bitmap, replace(index, newNode)) :
+                    remove(bit, index);
+        }
+
+        private Object[] replace(int index, Object newChild) {
+            Object[] newChildren = children.clone();
+            newChildren[index] = newChild;
+            return newChildren;
+        }
+
+        private Node<K, V> remove(int bit, int index) {
+            if (children.length == 1) {
+                return null;
+            }
+            Object[] newChildren = new Object[children.length - 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            return new BitmapNode<>(bitmap & ~bit, newChildren);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            for (Object child : children) {
+                if (child instanceof Entry) {
+                    Entry<K, V> entry = (Entry<K, V>) child;
+                    action.accept(entry.key, entry.value);
+                } else {
+                    ((Node<K, V>) child).forEach(action);
+                }
+            }
+        }
+    }
+
+    //Holds entries with completely equal hashes
+    private static final class CollisionNode<K, V> implements Node<K, V> {
+
+        private final int hash;
+
+        //Never modified after node creation
+        private final List<Entry<K, V>> entries;
+
+        CollisionNode(int hash, List<Entry<K, V>> entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        private int indexOf(K key) {
+            for (int i = 0; i <= entries.size() - 1; i++) {
+                if (entries.get(i).key.equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public V find(int shift, int hash, K key) {
+            if (this.hash != hash) {
+                return null;
+            }
+            int index = indexOf(key);
+            return index != -1 ? entries.get(index).value : null;
+        }
+
+        @Override
+        public Node<K, V> plus(int shift, int hash, K key, V value, int[] sizeDelta) {
+            if (this.hash != hash) {
+                //Key only shares hash prefix with this node: move it one level down
+                return new BitmapNode<K, V>(bit(this.hash, shift), new Object[]{this})
+                        .plus(shift, hash, key, value, sizeDelta);
+            }
+            int index = indexOf(key);
+            if (index != -1) {
+                if (entries.get(index).value == value) {
+                    return this;
+                }
+                List<Entry<K, V>> newEntries = new ArrayList<>(entries);
+                newEntries.set(index, new Entry<>(hash, key, value));
+                return new CollisionNode<>(hash, newEntries);
+            }
+            List<Entry<K, V>> newEntries = new ArrayList<>(entries.size() + 1);
+            newEntries.addAll(entries);
+            newEntries.add(new Entry<>(hash, key, value));
+            sizeDelta[0] = 1;
+            return new CollisionNode<>(hash, newEntries);
+        }
+
+        @Override
+        public Node<K, V> minus(int shift, int hash, K key, int[] sizeDelta) {
+            int index = (this.hash == hash) ? indexOf(key) : -1;
+            if (index == -1) {
+                return this;
+            }
+            sizeDelta[0] = -1;
+            if (entries.size() == 1) {
+                return null;
+            }
+            List<Entry<K, V>> newEntries = new ArrayList<>(entries);
+            newEntries.remove(index);
+            return new CollisionNode<>(hash, newEntries);
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            for (Entry<K, V> entry : entries) {
+                action.accept(entry.key, entry.value);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package org.meridor.perspective.sql.impl.index.impl;
+
+import org.meridor.perspective.sql.impl.index.Index;
+import org.meridor.perspective.sql.impl.index.Key;
+import org.meridor.perspective.sql.impl.index.SortedIndex;
+
+import java.io.Serializable;
+import java.util.*;
+
+import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.compareValues;
+
+public class SkipListIndex extends BaseIndex implements SortedIndex {
+
+    public SkipListIndex(IndexSignature signature) {
+        super(signature, new KeyComparator());
+    }
+
+    private SkipListIndex(SkipListIndex index) {
+        super(index);
+    }
+
+    int getSortedKeysCount() {
+        return getState().getSortedKeys().size();
+    }
+
+    @Override
+    public Index snapshot() {
+        return new SkipListIndex(this);
+    }
+
+    @Override
+    public Set<Key> getKeys() {
+        State state = getState();
+        return getKeys(state.getSortedKeys(), state.getData());
+    }
+
+    @Override
+    public Set<String> get(Key from, boolean fromInclusive, Key to, boolean toInclusive) {
+        //Data and keys should be taken from the same version
+        State state = getState();
+        PersistentHashMap<Key, PersistentHashMap<String, String>> data = state.getData();
+        Set<String> ret = new LinkedHashSet<>();
+        getKeys(getRange(state.getSortedKeys(), from, fromInclusive, to, toInclusive), data).forEach(k -> ret.addAll(toSet(data.get(k))));
+        return ret;
+    }
+
+    @Override
+    public long count(Key from, boolean fromInclusive, Key to, boolean toInclusive) {
+        State state = getState();
+        PersistentHashMap<Key, PersistentHashMap<String, String>> data = state.getData();
+        long ret = 0;
+        for (Key key : getRange(state.getSortedKeys(), from, fromInclusive, to, toInclusive)) {
+            PersistentHashMap<String, String> ids = data.get(key);
+            if (ids != null) {
+                ret += ids.size();
+            }
+        }
+        return ret;
+    }
+
+    private static NavigableSet<Key> getRange(NavigableSet<Key> sortedKeys, Key from, boolean fromInclusive, Key to, boolean toInclusive) {
+        if (from != null && to != null && sortedKeys.comparator().compare(from, to) > 0) {
+            return Collections.emptyNavigableSet();
+        }
+        NavigableSet<Key> range = sortedKeys;
+        if (from != null) {
+            range = range.tailSet(from, fromInclusive);
+        }
+        if (to != null) {
+            range = range.headSet(to, toInclusive);
+        }
+        return range;
+    }
+
+    private static Set<Key> getKeys(NavigableSet<Key> keys, PersistentHashMap<Key, PersistentHashMap<String, String>> data) {
+        Set<Key> ret = new LinkedHashSet<>();
+        keys.stream()
+                .filter(data::containsKey)
+                .forEach(ret::add);
+        return ret;
+    }
+
+    //Sorted index does not support key length because truncated keys can't be ordered correctly
+    @Override
+    public int getKeyLength() {
+        return 0;
+    }
+    
+    private static class KeyComparator implements Comparator<Key>, Serializable {
+        
+        @Override
+        public int compare(Key left, Key right) {
+            List<Object> leftValues = left.getValues();
+            List<Object> rightValues = right.getValues();
+            int length = Math.min(leftValues.size(), rightValues.size());
+            for (int i = 0; i <= length - 1; i++) {
+                int result = compareValues(leftValues.get(i), rightValues.get(i));
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return Integer.compare(leftValues.size(), rightValues.size());
+        }
+    }
+}
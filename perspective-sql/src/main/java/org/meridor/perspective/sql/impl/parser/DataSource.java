@@ -1,6 +1,8 @@
 package org.meridor.perspective.sql.impl.parser;
 
 import org.meridor.perspective.sql.impl.expression.BooleanExpression;
+import org.meridor.perspective.sql.impl.expression.FetchCondition;
+import org.meridor.perspective.sql.impl.expression.Subquery;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -14,7 +16,10 @@ public class DataSource {
     private JoinType joinType;
     private BooleanExpression condition;
     private final List<String> columns = new ArrayList<>();
+    private final List<String> fetchedColumns = new ArrayList<>();
+    private FetchCondition fetchCondition;
     private DataSource rightDatasource;
+    private Subquery subquery;
     private DataSourceType type = DataSourceType.TABLE_SCAN; 
 
     public DataSource(String tableAlias) {
@@ -70,6 +75,36 @@ public class DataSource {
         return columns;
     }
 
+    /**
+     * Returns table columns to be fetched by table or index scan. Empty list
+     * means that all table columns should be fetched.
+     */
+    public List<String> getFetchedColumns() {
+        return fetchedColumns;
+    }
+
+    /**
+     * Returns condition to be passed to storage by table scan
+     */
+    public Optional<FetchCondition> getFetchCondition() {
+        return Optional.ofNullable(fetchCondition);
+    }
+
+    public void setFetchCondition(FetchCondition fetchCondition) {
+        this.fetchCondition = fetchCondition;
+    }
+
+    /**
+     * Returns subquery evaluating rows of derived table
+     */
+    public Optional<Subquery> getSubquery() {
+        return Optional.ofNullable(subquery);
+    }
+
+    public void setSubquery(Subquery subquery) {
+        this.subquery = subquery;
+    }
+
     public boolean isNaturalJoin() {
         return isNaturalJoin;
     }
@@ -86,6 +121,9 @@ public class DataSource {
         dataSource.setNaturalJoin(isNaturalJoin);
         dataSource.setJoinType(joinType);
         dataSource.getColumns().addAll(columns);
+        dataSource.getFetchedColumns().addAll(fetchedColumns);
+        dataSource.setFetchCondition(fetchCondition);
+        dataSource.setSubquery(subquery);
         if (getRightDataSource().isPresent()) {
             dataSource.setRightDataSource(getRightDataSource().get().copy());
         }
@@ -116,8 +154,13 @@ public class DataSource {
         if (condition != null ? !condition.equals(that.condition) : that.condition != null)
             return false;
         if (!columns.equals(that.columns)) return false;
+        if (!fetchedColumns.equals(that.fetchedColumns)) return false;
+        if (fetchCondition != null ? !fetchCondition.equals(that.fetchCondition) : that.fetchCondition != null)
+            return false;
         if (rightDatasource != null ? !rightDatasource.equals(that.rightDatasource) : that.rightDatasource != null)
             return false;
+        if (subquery != null ? !subquery.equals(that.subquery) : that.subquery != null)
+            return false;
         return type == that.type;
 
     }
@@ -127,6 +170,7 @@ public class DataSource {
         INDEX_FETCH,
         INDEX_SCAN,
         TABLE_SCAN,
+        SUBQUERY_SCAN,
     }
 
     @Override
@@ -150,6 +194,15 @@ public class DataSource {
         if (!columns.isEmpty()) {
             sb.append(String.format("columns=%s,", columns));
         }
+        if (!fetchedColumns.isEmpty()) {
+            sb.append(String.format("fetchedColumns=%s,", fetchedColumns));
+        }
+        if (fetchCondition != null) {
+            sb.append(String.format("fetchCondition=%s,", fetchCondition));
+        }
+        if (subquery != null) {
+            sb.append(String.format("subquery=%s,", subquery));
+        }
         if (rightDatasource != null) {
             sb.append(String.format("rightDatasource=%s,", String.valueOf(rightDatasource)));
         }
@@ -4,6 +4,7 @@ import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.InputMismatchException;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.TerminalNode;
 import org.meridor.perspective.beans.BooleanRelation;
 import org.meridor.perspective.sql.SQLLexer;
 import org.meridor.perspective.sql.SQLParser;
@@ -25,6 +26,7 @@ import java.util.stream.Collectors;
 
 import static org.meridor.perspective.beans.BooleanRelation.*;
 import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.columnsToNames;
+import static org.meridor.perspective.sql.impl.expression.Subquery.DERIVED_TABLE;
 import static org.meridor.perspective.sql.impl.parser.AliasExpressionPair.emptyPair;
 import static org.meridor.perspective.sql.impl.parser.AliasExpressionPair.pair;
 import static org.meridor.perspective.sql.impl.table.Column.ANY_COLUMN;
@@ -62,6 +64,9 @@ public class QueryParserImpl extends SQLParserBaseListener implements QueryParse
 
     private final TablesAware tablesAware;
 
+    //Subquery this parser processes, null for the top level query
+    private final SQLParser.SubqueryContext subqueryContext;
+
     private SQLParser.Select_clauseContext selectClauseContext;
     private SQLParser.From_clauseContext fromClauseContext;
     private SQLParser.Where_clauseContext whereClauseContext;
@@ -73,6 +78,7 @@ public class QueryParserImpl extends SQLParserBaseListener implements QueryParse
     private final Set<String> errors = new LinkedHashSet<>();
     private final Map<String, Object> selectionMap = new LinkedHashMap<>();
     private final Map<String, String> tableAliases = new HashMap<>();
+    private final Map<String, Subquery> derivedTables = new HashMap<>();
     private DataSource dataSource;
     //Column name -> aliases map of columns available after all joins
     private final Map<String, List<String>> availableColumns = new HashMap<>();
@@ -85,7 +91,12 @@ public class QueryParserImpl extends SQLParserBaseListener implements QueryParse
 
     @Autowired
     public QueryParserImpl(TablesAware tablesAware) {
+        this(tablesAware, null);
+    }
+
+    private QueryParserImpl(TablesAware tablesAware, SQLParser.SubqueryContext subqueryContext) {
         this.tablesAware = tablesAware;
+        this.subqueryContext = subqueryContext;
     }
 
     @Override
@@ -125,28 +136,51 @@ public class QueryParserImpl extends SQLParserBaseListener implements QueryParse
     //Explain query
     @Override
     public void exitExplain_query(SQLParser.Explain_queryContext ctx) {
-        this.queryType = QueryType.EXPLAIN;
+        this.queryType = (ctx.ANALYZE() != null) ? QueryType.EXPLAIN_ANALYZE : QueryType.EXPLAIN;
     }
 
     //Select query
     @Override
     public void exitSelect_clause(SQLParser.Select_clauseContext ctx) {
+        if (!isOwnClause(ctx)) {
+            return;
+        }
         this.queryType = QueryType.SELECT;
         selectClauseContext = ctx;
     }
 
     @Override
     public void exitFrom_clause(SQLParser.From_clauseContext ctx) {
-        fromClauseContext = ctx;
+        if (isOwnClause(ctx)) {
+            fromClauseContext = ctx;
+        }
     }
 
     @Override
     public void exitWhere_clause(SQLParser.Where_clauseContext ctx) {
-        whereClauseContext = ctx;
+        if (isOwnClause(ctx)) {
+            whereClauseContext = ctx;
+        }
     }
 
     @Override
     public void exitQuery(SQLParser.QueryContext ctx) {
+        processQuery();
+    }
+
+    /**
+     * Tree walker visits clauses of subqueries too: they are processed by
+     * separate parser instances and should be skipped by this one
+     */
+    private boolean isOwnClause(ParserRuleContext ctx) {
+        ParserRuleContext parent = ctx.getParent();
+        while (parent != null && !(parent instanceof SQLParser.SubqueryContext)) {
+            parent = parent.getParent();
+        }
+        return parent == subqueryContext;
+    }
+
+    private void processQuery() {
         processFromClause();
         processSelectClause();
         processWhereClause();
@@ -158,6 +192,9 @@ public class QueryParserImpl extends SQLParserBaseListener implements QueryParse
     private void processWhereClause() {
         if (whereClauseContext != null) {
             whereExpression = processComplexBooleanExpression(whereClauseContext.complex_boolean_expression());
+            if (!ExpressionUtils.getAggregateFunctions(whereExpression).isEmpty()) {
+                errors.add("Aggregate functions are not allowed in where clause");
+            }
         }
     }
 
@@ -251,8 +288,12 @@ public class QueryParserImpl extends SQLParserBaseListener implements QueryParse
             return processLikeExpression(simpleBooleanExpression);
         } else if (simpleBooleanExpression.REGEXP() != null) {
             return processRegexpExpression(simpleBooleanExpression);
+        } else if (simpleBooleanExpression.IN() != null && simpleBooleanExpression.subquery() != null) {
+            return processInSubqueryExpression(simpleBooleanExpression);
         } else if (simpleBooleanExpression.IN() != null && simpleBooleanExpression.expression().size() >= 2) {
             return processInExpression(simpleBooleanExpression);
+        } else if (simpleBooleanExpression.EXISTS() != null) {
+            return new ExistsExpression(processSubquery(simpleBooleanExpression.subquery()));
         } else if (simpleBooleanExpression.TRUE() != null) {
             return new LiteralBooleanExpression(true);
         } else if (simpleBooleanExpression.FALSE() != null) {
@@ -323,6 +364,33 @@ public class QueryParserImpl extends SQLParserBaseListener implements QueryParse
                 inExpression;
     }
     
+    private BooleanExpression processInSubqueryExpression(SQLParser.Simple_boolean_expressionContext simpleBooleanExpression) {
+        Object value = getExpression(simpleBooleanExpression, 0);
+        Subquery subquery = processSubquery(simpleBooleanExpression.subquery());
+        Map<String, Object> subquerySelectionMap = subquery.getSelectQueryAware().getSelectionMap();
+        boolean selectsOneColumn = subquerySelectionMap.size() == 1 && subquerySelectionMap.values().stream()
+                .noneMatch(e -> e instanceof ColumnExpression && ((ColumnExpression) e).useAnyColumn());
+        if (!selectsOneColumn) {
+            errors.add("Subquery in IN expression should select exactly one column");
+        }
+        InSubqueryExpression inSubqueryExpression = new InSubqueryExpression(value, subquery);
+        return (simpleBooleanExpression.NOT() != null) ?
+                new UnaryBooleanExpression(inSubqueryExpression, UnaryBooleanOperator.NOT) :
+                inSubqueryExpression;
+    }
+
+    private Subquery processSubquery(SQLParser.SubqueryContext subqueryContext) {
+        return new Subquery(parseSubquery(subqueryContext));
+    }
+
+    private QueryParserImpl parseSubquery(SQLParser.SubqueryContext subqueryContext) {
+        QueryParserImpl subqueryParser = new QueryParserImpl(tablesAware, subqueryContext);
+        new ParseTreeWalker().walk(subqueryParser, subqueryContext.select_query());
+        subqueryParser.processQuery();
+        errors.addAll(subqueryParser.errors);
+        return subqueryParser;
+    }
+
     private BooleanRelation processRelationalOperator(SQLParser.Relational_operatorContext relationalOperator) {
         if (relationalOperator.EQ() != null) {
             return EQUAL;
@@ -387,11 +455,7 @@ public class QueryParserImpl extends SQLParserBaseListener implements QueryParse
         final Map<String, List<String>> currentlyAvailableColumns = new HashMap<>();
         if (tableAliasCandidate.isPresent()) {
             String tableAlias = tableAliasCandidate.get();
-            String tableName = tableAliases.get(tableAlias);
-            if (!tablesAware.getTables().contains(tableName)) {
-                errors.add(String.format("Table \"%s\" does not exist", tableName));
-            }
-            List<String> columnNames = columnsToNames(tablesAware.getColumns(tableName));
+            List<String> columnNames = getTableColumnNames(tableAlias);
             currentlyAvailableColumns.putAll(createAvailableColumns(tableAlias, columnNames));
         } else {
             dataSourceCandidate.ifPresent(
@@ -413,6 +477,17 @@ public class QueryParserImpl extends SQLParserBaseListener implements QueryParse
         }
     }
     
+    private List<String> getTableColumnNames(String tableAlias) {
+        if (derivedTables.containsKey(tableAlias)) {
+            return derivedTables.get(tableAlias).getColumnNames();
+        }
+        String tableName = tableAliases.get(tableAlias);
+        if (!tablesAware.getTables().contains(tableName)) {
+            errors.add(String.format("Table \"%s\" does not exist", tableName));
+        }
+        return columnsToNames(tablesAware.getColumns(tableName));
+    }
+
     private Map<String, List<String>> createAvailableColumns(String tableAlias, List<String> columnNames) {
         return columnNames.stream().collect(Collectors.toMap(
                 Function.identity(),
@@ -549,6 +624,8 @@ public class QueryParserImpl extends SQLParserBaseListener implements QueryParse
     private DataSource processTableAtom(SQLParser.Table_atomContext tableAtom) {
         if (tableAtom.table_name() != null) {
             return processTable(tableAtom.table_name(), tableAtom.alias_clause());
+        } else if (tableAtom.subquery() != null) {
+            return processDerivedTable(tableAtom.subquery(), tableAtom.alias_clause());
         } else if (tableAtom.LPAREN() != null) {
             return processTableReferences(tableAtom.table_references());
         }
@@ -574,22 +651,112 @@ public class QueryParserImpl extends SQLParserBaseListener implements QueryParse
         return new DataSource(alias);
     }
 
+    //Derived table alias is mapped to a name not matching any stored table, its columns are taken from subquery
+    private DataSource processDerivedTable(SQLParser.SubqueryContext subqueryContext, SQLParser.Alias_clauseContext aliasClauseContext) {
+        QueryParserImpl subqueryParser = parseSubquery(subqueryContext);
+        String alias = aliasClauseContext.alias().ID().getText();
+        List<String> columnNames = subqueryParser.getSelectedColumnNames();
+        Set<String> distinctColumnNames = new LinkedHashSet<>(columnNames);
+        if (distinctColumnNames.size() != columnNames.size()) {
+            errors.add(String.format("Derived table \"%s\" has duplicate column names: %s", alias, columnNames));
+        }
+        Subquery subquery = new Subquery(subqueryParser, new ArrayList<>(distinctColumnNames));
+        if (!tableAliases.containsKey(alias)) {
+            tableAliases.put(alias, DERIVED_TABLE);
+            derivedTables.put(alias, subquery);
+        } else {
+            errors.add(String.format("Duplicate alias \"%s\"", alias));
+        }
+
+        DataSource dataSource = new DataSource(alias);
+        dataSource.setSubquery(subquery);
+        Map<String, List<String>> availableColumns = mergeAvailableColumns(getAvailableColumns(), getAvailableColumns(dataSource, Collections.emptyMap()));
+        getAvailableColumns().clear();
+        getAvailableColumns().putAll(availableColumns);
+        return dataSource;
+    }
+
+    //Selected columns are named by their aliases or by column names when no alias is given
+    private List<String> getSelectedColumnNames() {
+        List<String> ret = new ArrayList<>();
+        selectionMap.forEach((alias, expression) -> {
+            if (expression instanceof ColumnExpression) {
+                ColumnExpression columnExpression = (ColumnExpression) expression;
+                if (columnExpression.useAnyColumn() && columnExpression.useAnyTable()) {
+                    getDataSourceTableAliases().forEach(ta -> ret.addAll(getTableColumnNames(ta)));
+                    return;
+                } else if (columnExpression.useAnyColumn()) {
+                    ret.addAll(getTableColumnNames(columnExpression.getTableAlias()));
+                    return;
+                } else if (alias.equals(columnExpression.toString())) {
+                    ret.add(columnExpression.getColumnName());
+                    return;
+                }
+            }
+            ret.add(alias);
+        });
+        return ret;
+    }
+
+    //Table aliases in join order, i.e. in the order their columns are returned by select *
+    private List<String> getDataSourceTableAliases() {
+        List<String> ret = new ArrayList<>();
+        DataSource currentDataSource = dataSource;
+        while (currentDataSource != null) {
+            currentDataSource.getTableAlias().ifPresent(ret::add);
+            currentDataSource = currentDataSource.getRightDataSource().orElse(null);
+        }
+        return ret;
+    }
+
     private void processSelectClause() {
         if (selectClauseContext != null) {
             selectClauseContext.select_expression().aliased_expression().forEach(ae -> {
                 AliasExpressionPair pair = processAliasedExpression(ae);
-                selectionMap.put(pair.getAlias(), pair.getExpression());
+                Object expression = pair.getExpression();
+                if (isDerivedTableColumns(expression)) {
+                    //Select task expands alias.* to stored table columns only
+                    String tableAlias = ((ColumnExpression) expression).getTableAlias();
+                    derivedTables.get(tableAlias).getColumnNames()
+                            .forEach(cn -> selectionMap.put(cn, new ColumnExpression(cn, tableAlias)));
+                } else {
+                    selectionMap.put(pair.getAlias(), expression);
+                }
             });
         }
     }
 
+    private boolean isDerivedTableColumns(Object expression) {
+        if (!(expression instanceof ColumnExpression)) {
+            return false;
+        }
+        ColumnExpression columnExpression = (ColumnExpression) expression;
+        return columnExpression.useAnyColumn() && derivedTables.containsKey(columnExpression.getTableAlias());
+    }
+
     private AliasExpressionPair processAliasedExpression(SQLParser.Aliased_expressionContext ctx) {
         SQLParser.ExpressionContext expressionCtx = ctx.expression();
+        //Default column name would contain parameter value which is not known here
+        if (ctx.alias_clause() == null && containsParameter(expressionCtx)) {
+            errors.add(String.format("Selected expression \"%s\" with parameters should have an alias", expressionCtx.getText()));
+        }
         AliasExpressionPair defaultAliasExpressionPair = processExpression(expressionCtx, true);
         String alias = getAliasOrValue(ctx.alias_clause(), defaultAliasExpressionPair.getAlias());
         return pair(alias, defaultAliasExpressionPair.getExpression());
     }
 
+    private static boolean containsParameter(ParseTree parseTree) {
+        if (parseTree instanceof TerminalNode) {
+            return ((TerminalNode) parseTree).getSymbol().getType() == SQLParser.PARAMETER;
+        }
+        for (int i = 0; i <= parseTree.getChildCount() - 1; i++) {
+            if (containsParameter(parseTree.getChild(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private String getAliasOrValue(SQLParser.Alias_clauseContext ctx, String value) {
         return ctx != null ? ctx.alias().getText() : value;
     }
@@ -629,6 +796,9 @@ public class QueryParserImpl extends SQLParserBaseListener implements QueryParse
             return pair("TRUE", true);
         } else if (literal.FALSE() != null) {
             return pair("FALSE", false);
+        } else if (literal.PARAMETER() != null) {
+            String parameter = literal.PARAMETER().getText();
+            return pair(parameter, ParameterExpression.parse(parameter));
         }
         throw new ParseException(String.format("Unsupported literal type: \'%s\'", literal.getText()));
     }
@@ -722,6 +892,10 @@ public class QueryParserImpl extends SQLParserBaseListener implements QueryParse
     
     private AliasExpressionPair processFunctionCall(SQLParser.Function_callContext functionCall) {
         String functionName = functionCall.ID().getText();
+        Optional<AggregateFunction> aggregateFunctionCandidate = AggregateFunction.fromString(functionName);
+        if (aggregateFunctionCandidate.isPresent()) {
+            return processAggregateFunctionCall(aggregateFunctionCandidate.get(), functionCall);
+        }
         List<Object> argExpressions = new ArrayList<>();
         if (functionCall.expressions() != null) {
             foreachExpression(functionCall.expressions().expression(), p -> argExpressions.add(p.getExpression()));
@@ -731,6 +905,26 @@ public class QueryParserImpl extends SQLParserBaseListener implements QueryParse
         return pair(functionExpression.toString(), functionExpression);
     }
 
+    private AliasExpressionPair processAggregateFunctionCall(AggregateFunction aggregateFunction, SQLParser.Function_callContext functionCall) {
+        List<SQLParser.ExpressionContext> args = (functionCall.expressions() != null) ?
+                functionCall.expressions().expression() : Collections.emptyList();
+        if (args.size() != 1) {
+            errors.add(String.format("Aggregate function %s accepts exactly one argument", aggregateFunction.name()));
+            return emptyPair();
+        }
+        SQLParser.ExpressionContext arg = args.get(0);
+        boolean isCountAll =
+                aggregateFunction == AggregateFunction.COUNT &&
+                arg.column_name() != null &&
+                arg.column_name().MULTIPLY() != null &&
+                !getTableAlias(arg.column_name()).isPresent();
+        Object argExpression = isCountAll ?
+                new ColumnExpression() :
+                processExpression(arg).getExpression();
+        AggregateFunctionExpression aggregateFunctionExpression = new AggregateFunctionExpression(aggregateFunction, argExpression);
+        return pair(aggregateFunctionExpression.toString(), aggregateFunctionExpression);
+    }
+
     private AliasExpressionPair processUnaryArithmeticExpression(
             SQLParser.Unary_arithmetic_operatorContext unaryArithmeticOperatorContext,
             SQLParser.ExpressionContext expressionContext
@@ -797,21 +991,30 @@ public class QueryParserImpl extends SQLParserBaseListener implements QueryParse
 
     @Override
     public void exitHaving_clause(SQLParser.Having_clauseContext ctx) {
-        havingClauseContext = ctx;
+        if (isOwnClause(ctx)) {
+            havingClauseContext = ctx;
+        }
     }
 
     @Override
     public void exitGroup_clause(SQLParser.Group_clauseContext ctx) {
-        groupByClauseContext = ctx;
+        if (isOwnClause(ctx)) {
+            groupByClauseContext = ctx;
+        }
     }
 
     @Override
     public void exitOrder_clause(SQLParser.Order_clauseContext ctx) {
-        orderByClauseContext = ctx;
+        if (isOwnClause(ctx)) {
+            orderByClauseContext = ctx;
+        }
     }
 
     @Override
     public void exitLimit_clause(SQLParser.Limit_clauseContext ctx) {
+        if (!isOwnClause(ctx)) {
+            return;
+        }
         //According to grammar limit and offset can parsed only as positive integers
         if (ctx.offset() != null) {
             this.limitOffset = Integer.valueOf(ctx.offset().INT().getText());
@@ -4,6 +4,7 @@ public enum QueryType {
     
     SELECT,
     EXPLAIN,
+    EXPLAIN_ANALYZE,
     SHOW_TABLES,
     UNKNOWN
 }
@@ -1,6 +1,7 @@
 package org.meridor.perspective.sql.impl.storage;
 
 import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.impl.expression.FetchCondition;
 import org.meridor.perspective.sql.impl.table.Column;
 
 import java.util.Collection;
@@ -14,4 +15,6 @@ public interface DataFetcher {
     
     DataContainer fetch(String tableName, String tableAlias, Collection<Column> columns);
 
+    DataContainer fetch(String tableName, String tableAlias, Collection<Column> columns, FetchCondition condition);
+
 }
@@ -1,6 +1,7 @@
 package org.meridor.perspective.sql.impl.storage;
 
 import org.meridor.perspective.sql.impl.index.Index;
+import org.meridor.perspective.sql.impl.index.IndexType;
 import org.meridor.perspective.sql.impl.index.impl.IndexSignature;
 
 import java.util.Optional;
@@ -15,6 +16,10 @@ public interface IndexStorage {
     
     void update(IndexSignature indexSignature, UnaryOperator<Index> action);
 
-    void create(IndexSignature indexSignature, int keyLength);
+    default void create(IndexSignature indexSignature, int keyLength) {
+        create(indexSignature, keyLength, IndexType.HASH);
+    }
+
+    void create(IndexSignature indexSignature, int keyLength, IndexType indexType);
     
 }
@@ -2,6 +2,7 @@ package org.meridor.perspective.sql.impl.storage;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 public interface ObjectMapper<T> {
 
@@ -13,6 +14,17 @@ public interface ObjectMapper<T> {
      */
     Map<String, Object> map(T input);
 
+    /**
+     * Returns a function writing values of given columns to a row array in
+     * the same order. Column accessors are resolved once so the function
+     * should be reused for all objects being fetched.
+     *
+     * @param columnNames names of columns to be written
+     * @return function converting object to row values
+     * @throws IllegalArgumentException when some column is not available
+     */
+    Function<T, Object[]> getRowMapper(List<String> columnNames);
+
     /**
      * Returns a list of available column names
      *
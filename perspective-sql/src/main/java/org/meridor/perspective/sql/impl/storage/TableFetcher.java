@@ -1,5 +1,6 @@
 package org.meridor.perspective.sql.impl.storage;
 
+import org.meridor.perspective.sql.impl.expression.FetchCondition;
 import org.meridor.perspective.sql.impl.table.Column;
 
 import java.util.Collection;
@@ -11,6 +12,14 @@ public interface TableFetcher {
 
     Map<String, List<Object>> fetch(Set<String> ids, Collection<Column> columns);
 
+    /**
+     * Fetches rows matching condition. Implementations not supporting
+     * conditions can return all table rows.
+     */
+    default Map<String, List<Object>> fetch(FetchCondition condition, Collection<Column> columns) {
+        return fetch((Set<String>) null, columns);
+    }
+
     String getTableName();
 
 }
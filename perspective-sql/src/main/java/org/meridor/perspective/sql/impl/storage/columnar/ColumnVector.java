@@ -0,0 +1,12 @@
+package org.meridor.perspective.sql.impl.storage.columnar;
+
+/**
+ * Immutable values of one column
+ */
+public interface ColumnVector {
+
+    Object get(int position);
+
+    int size();
+
+}
@@ -0,0 +1,234 @@
+package org.meridor.perspective.sql.impl.storage.columnar;
+
+import java.util.*;
+
+public final class ColumnVectors {
+
+    /**
+     * Chooses the most compact representation for given values: primitive
+     * arrays when all values have the same numeric or boolean type, dictionary
+     * encoding when values repeat a lot and plain array otherwise.
+     */
+    public static ColumnVector create(List<Object> values) {
+        Class<?> valuesClass = getValuesClass(values);
+        if (valuesClass == Integer.class) {
+            return new IntVector(values);
+        }
+        if (valuesClass == Long.class) {
+            return new LongVector(values);
+        }
+        if (valuesClass == Double.class) {
+            return new DoubleVector(values);
+        }
+        if (valuesClass == Boolean.class) {
+            return new BooleanVector(values);
+        }
+        Map<Object, Integer> dictionary = createDictionary(values);
+        return (dictionary != null) ?
+                new DictionaryVector(values, dictionary) :
+                new ObjectVector(values);
+    }
+
+    //Returns common class of all non-null values or null if classes differ
+    private static Class<?> getValuesClass(List<Object> values) {
+        Class<?> valuesClass = null;
+        for (Object value : values) {
+            if (value == null) {
+                continue;
+            }
+            if (valuesClass == null) {
+                valuesClass = value.getClass();
+            } else if (valuesClass != value.getClass()) {
+                return null;
+            }
+        }
+        return valuesClass;
+    }
+
+    //Dictionary is used only when it is at least two times smaller than values list
+    private static Map<Object, Integer> createDictionary(List<Object> values) {
+        int maxDictionarySize = values.size() / 2;
+        Map<Object, Integer> dictionary = new LinkedHashMap<>();
+        for (Object value : values) {
+            if (value != null && !dictionary.containsKey(value)) {
+                if (dictionary.size() >= maxDictionarySize) {
+                    return null;
+                }
+                dictionary.put(value, dictionary.size());
+            }
+        }
+        return dictionary;
+    }
+
+    private static BitSet getNulls(List<Object> values) {
+        BitSet nulls = new BitSet(values.size());
+        for (int i = 0; i <= values.size() - 1; i++) {
+            if (values.get(i) == null) {
+                nulls.set(i);
+            }
+        }
+        return nulls;
+    }
+
+    private static class IntVector implements ColumnVector {
+
+        private final int[] values;
+
+        private final BitSet nulls;
+
+        IntVector(List<Object> values) {
+            this.nulls = getNulls(values);
+            this.values = new int[values.size()];
+            for (int i = 0; i <= values.size() - 1; i++) {
+                if (!nulls.get(i)) {
+                    this.values[i] = (Integer) values.get(i);
+                }
+            }
+        }
+
+        @Override
+        public Object get(int position) {
+            return nulls.get(position) ? null : values[position];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    private static class LongVector implements ColumnVector {
+
+        private final long[] values;
+
+        private final BitSet nulls;
+
+        LongVector(List<Object> values) {
+            this.nulls = getNulls(values);
+            this.values = new long[values.size()];
+            for (int i = 0; i <= values.size() - 1; i++) {
+                if (!nulls.get(i)) {
+                    this.values[i] = (Long) values.get(i);
+                }
+            }
+        }
+
+        @Override
+        public Object get(int position) {
+            return nulls.get(position) ? null : values[position];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    private static class DoubleVector implements ColumnVector {
+
+        private final double[] values;
+
+        private final BitSet nulls;
+
+        DoubleVector(List<Object> values) {
+            this.nulls = getNulls(values);
+            this.values = new double[values.size()];
+            for (int i = 0; i <= values.size() - 1; i++) {
+                if (!nulls.get(i)) {
+                    this.values[i] = (Double) values.get(i);
+                }
+            }
+        }
+
+        @Override
+        public Object get(int position) {
+            return nulls.get(position) ? null : values[position];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    private static class BooleanVector implements ColumnVector {
+
+        private final BitSet values;
+
+        private final BitSet nulls;
+
+        private final int size;
+
+        BooleanVector(List<Object> values) {
+            this.nulls = getNulls(values);
+            this.values = new BitSet(values.size());
+            this.size = values.size();
+            for (int i = 0; i <= values.size() - 1; i++) {
+                if (Boolean.TRUE.equals(values.get(i))) {
+                    this.values.set(i);
+                }
+            }
+        }
+
+        @Override
+        public Object get(int position) {
+            return nulls.get(position) ? null : values.get(position);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    //Code -1 means null value
+    private static class DictionaryVector implements ColumnVector {
+
+        private final int[] codes;
+
+        private final Object[] dictionary;
+
+        DictionaryVector(List<Object> values, Map<Object, Integer> dictionary) {
+            this.dictionary = dictionary.keySet().toArray();
+            this.codes = new int[values.size()];
+            for (int i = 0; i <= values.size() - 1; i++) {
+                Object value = values.get(i);
+                codes[i] = (value != null) ? dictionary.get(value) : -1;
+            }
+        }
+
+        @Override
+        public Object get(int position) {
+            int code = codes[position];
+            return code != -1 ? dictionary[code] : null;
+        }
+
+        @Override
+        public int size() {
+            return codes.length;
+        }
+    }
+
+    private static class ObjectVector implements ColumnVector {
+
+        private final Object[] values;
+
+        ObjectVector(List<Object> values) {
+            this.values = values.toArray();
+        }
+
+        @Override
+        public Object get(int position) {
+            return values[position];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    private ColumnVectors() {
+    }
+
+}
@@ -0,0 +1,45 @@
+package org.meridor.perspective.sql.impl.storage.columnar;
+
+import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.DataRow;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only row view over columnar rows
+ */
+public class ColumnarDataRow extends DataRow {
+
+    private final ColumnarRows rows;
+
+    private final int rowIndex;
+
+    private final List<Object> values = new ValuesView();
+
+    public ColumnarDataRow(DataContainer dataContainer, ColumnarRows rows, int rowIndex) {
+        super(dataContainer);
+        this.rows = rows;
+        this.rowIndex = rowIndex;
+    }
+
+    @Override
+    public List<Object> getValues() {
+        return values;
+    }
+
+    private class ValuesView extends AbstractList<Object> implements RandomAccess {
+
+        @Override
+        public Object get(int columnIndex) {
+            return rows.getValue(rowIndex, columnIndex);
+        }
+
+        @Override
+        public int size() {
+            return getDataContainer().getColumnNames().size();
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package org.meridor.perspective.sql.impl.storage.columnar;
+
+import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.DataRow;
+import org.meridor.perspective.sql.RowsView;
+
+import java.util.*;
+
+/**
+ * Immutable rows storing values as column vectors instead of boxed row
+ * lists. Filtering and projection return new rows sharing the same vectors.
+ */
+public class ColumnarRows implements RowsView {
+
+    private final ColumnVector[] vectors;
+
+    //Positions of rows in vectors or null when all vector rows are used
+    private final int[] positions;
+
+    private final int rowsCount;
+
+    private ColumnarRows(ColumnVector[] vectors, int[] positions, int rowsCount) {
+        this.vectors = vectors;
+        this.positions = positions;
+        this.rowsCount = rowsCount;
+    }
+
+    /**
+     * Returns data container reading given rows from column vectors. Vectors
+     * read values directly from rows without intermediate column lists.
+     */
+    public static DataContainer createDataContainer(Map<String, List<String>> columnsMap, Collection<List<Object>> rows) {
+        DataContainer dataContainer = new DataContainer(columnsMap);
+        int columnsCount = dataContainer.getColumnNames().size();
+        List<List<Object>> rowsList = (rows instanceof List) ? (List<List<Object>>) rows : new ArrayList<>(rows);
+        ColumnVector[] vectors = new ColumnVector[columnsCount];
+        for (int i = 0; i <= columnsCount - 1; i++) {
+            vectors[i] = ColumnVectors.create(new ColumnValues(rowsList, i));
+        }
+        return new DataContainer(dataContainer.getColumnsMap(), new ColumnarRows(vectors, null, rowsList.size()));
+    }
+
+    @Override
+    public int size() {
+        return rowsCount;
+    }
+
+    @Override
+    public DataRow get(DataContainer dataContainer, int index) {
+        return new ColumnarDataRow(dataContainer, this, index);
+    }
+
+    public Object getValue(int rowIndex, int columnIndex) {
+        int position = (positions != null) ? positions[rowIndex] : rowIndex;
+        return vectors[columnIndex].get(position);
+    }
+
+    /**
+     * Returns rows with given indexes only
+     * @param rowIndexes indexes of rows in this object
+     */
+    public ColumnarRows select(int[] rowIndexes) {
+        int[] newPositions = new int[rowIndexes.length];
+        for (int i = 0; i <= rowIndexes.length - 1; i++) {
+            newPositions[i] = (positions != null) ? positions[rowIndexes[i]] : rowIndexes[i];
+        }
+        return new ColumnarRows(vectors, newPositions, newPositions.length);
+    }
+
+    /**
+     * Returns rows with given columns only
+     * @param columnIndexes indexes of columns in this object
+     */
+    public ColumnarRows project(int[] columnIndexes) {
+        ColumnVector[] newVectors = Arrays.stream(columnIndexes)
+                .mapToObj(i -> vectors[i])
+                .toArray(ColumnVector[]::new);
+        return new ColumnarRows(newVectors, positions, rowsCount);
+    }
+
+    //Values of one column read from fetched rows
+    private static class ColumnValues extends AbstractList<Object> implements RandomAccess {
+
+        private final List<List<Object>> rows;
+
+        private final int columnIndex;
+
+        ColumnValues(List<List<Object>> rows, int columnIndex) {
+            this.rows = rows;
+            this.columnIndex = columnIndex;
+        }
+
+        @Override
+        public Object get(int index) {
+            List<Object> row = rows.get(index);
+            return columnIndex <= row.size() - 1 ? row.get(columnIndex) : null;
+        }
+
+        @Override
+        public int size() {
+            return rows.size();
+        }
+    }
+
+}
@@ -4,32 +4,60 @@ package org.meridor.perspective.sql.impl.storage.impl;
 import org.meridor.perspective.sql.impl.storage.ObjectMapper;
 
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.function.Function;
 
 public abstract class BaseObjectMapper<T> implements ObjectMapper<T> {
 
     protected static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_ZONED_DATE_TIME;
 
+    private volatile Map<String, Function<T, Object>> columnMapping;
+
     protected abstract Map<String, Function<T, Object>> getColumnMapping();
 
+    //Column mapping is static for every mapper so it's built only once
+    private Map<String, Function<T, Object>> getCachedColumnMapping() {
+        Map<String, Function<T, Object>> ret = columnMapping;
+        if (ret == null) {
+            ret = Collections.unmodifiableMap(getColumnMapping());
+            columnMapping = ret;
+        }
+        return ret;
+    }
+
     @Override
     public Map<String, Object> map(T input) {
-        Map<String, Object> ret = new LinkedHashMap<>();
-        Map<String, Function<T, Object>> columnMapping = getColumnMapping();
-        columnMapping.keySet().forEach(cn -> {
-            Object columnValue = columnMapping.get(cn).apply(input);
-            ret.put(cn, columnValue);
-        });
+        Map<String, Function<T, Object>> columnMapping = getCachedColumnMapping();
+        Map<String, Object> ret = new LinkedHashMap<>(columnMapping.size() * 2);
+        columnMapping.forEach((cn, accessor) -> ret.put(cn, accessor.apply(input)));
         return ret;
     }
 
+    @Override
+    public Function<T, Object[]> getRowMapper(List<String> columnNames) {
+        Map<String, Function<T, Object>> columnMapping = getCachedColumnMapping();
+        @SuppressWarnings("unchecked")
+        Function<T, Object>[] accessors = new Function[columnNames.size()];
+        for (int i = 0; i <= columnNames.size() - 1; i++) {
+            String columnName = columnNames.get(i);
+            Function<T, Object> accessor = columnMapping.get(columnName);
+            if (accessor == null) {
+                throw new IllegalArgumentException(String.format("Column \"%s\" is not available", columnName));
+            }
+            accessors[i] = accessor;
+        }
+        return input -> {
+            Object[] row = new Object[accessors.length];
+            for (int i = 0; i <= accessors.length - 1; i++) {
+                row[i] = accessors[i].apply(input);
+            }
+            return row;
+        };
+    }
+
     @Override
     public List<String> getAvailableColumnNames() {
-        return new ArrayList<>(getColumnMapping().keySet());
+        return new ArrayList<>(getCachedColumnMapping().keySet());
     }
 
 }
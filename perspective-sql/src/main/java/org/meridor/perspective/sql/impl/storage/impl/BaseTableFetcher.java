@@ -1,5 +1,6 @@
 package org.meridor.perspective.sql.impl.storage.impl;
 
+import org.meridor.perspective.sql.impl.expression.FetchCondition;
 import org.meridor.perspective.sql.impl.storage.ObjectMapper;
 import org.meridor.perspective.sql.impl.storage.ObjectMapperAware;
 import org.meridor.perspective.sql.impl.storage.TableFetcher;
@@ -10,7 +11,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Component
 public abstract class BaseTableFetcher<T> implements TableFetcher {
@@ -26,37 +28,61 @@ public abstract class BaseTableFetcher<T> implements TableFetcher {
     
     protected abstract Collection<T> getRawEntities(Set<String> ids);
 
+    /**
+     * Returns entities matching condition or a wider set of entities when
+     * storage can't evaluate some conditions
+     */
+    protected Collection<T> getRawEntities(FetchCondition condition) {
+        return getAllRawEntities();
+    }
+
     @Override
     public Map<String, List<Object>> fetch(Set<String> ids, Collection<Column> columns) {
+        return fetch(
+                () -> ids != null ?
+                        ( !ids.isEmpty() ? getRawEntities(ids) : Collections.emptyList() ) :
+                        getAllRawEntities(),
+                columns
+        );
+    }
+
+    @Override
+    public Map<String, List<Object>> fetch(FetchCondition condition, Collection<Column> columns) {
+        return fetch(() -> getRawEntities(condition), columns);
+    }
+
+    private Map<String, List<Object>> fetch(Supplier<Collection<T>> rawEntitiesSupplier, Collection<Column> columns) {
         Class<T> beanClass = getBeanClass();
         ObjectMapper<T> objectMapper = objectMapperAware.get(beanClass);
         String tableName = getTableName();
         try {
             List<String> availableColumnNames = objectMapper.getAvailableColumnNames();
+            List<String> columnNames = new ArrayList<>(columns.size());
+            Object[] defaultValues = new Object[columns.size()];
             columns.forEach(c -> {
                 String columnName = c.getName();
                 if (!availableColumnNames.contains(columnName)) {
                     throw new IllegalArgumentException(String.format("Table \"%s\" does not contain column \"%s\"", tableName, columnName));
                 }
+                defaultValues[columnNames.size()] = c.getDefaultValue();
+                columnNames.add(columnName);
             });
-            Collection<T> rawEntities = ids != null ? 
-                    ( !ids.isEmpty() ? getRawEntities(ids) : Collections.emptyList() ) :
-                    getAllRawEntities();
-            return rawEntities.stream()
-                    .collect(Collectors.toMap(
-                            objectMapper::getId,
-                            re -> {
-                                Map<String, Object> rowAsMap = objectMapper.map(re);
-                                return columns.stream()
-                                        .map(c -> {
-                                            Object columnValue = rowAsMap.get(c.getName());
-                                            return (columnValue == null && c.getDefaultValue() != null) ?
-                                                    c.getDefaultValue() :
-                                                    columnValue;
-                                        })
-                                        .collect(Collectors.toList());
-                            }
-                    ));
+            Function<T, Object[]> rowMapper = objectMapper.getRowMapper(columnNames);
+            Collection<T> rawEntities = rawEntitiesSupplier.get();
+            Map<String, List<Object>> ret = new HashMap<>(rawEntities.size() * 2);
+            for (T rawEntity : rawEntities) {
+                Object[] row = rowMapper.apply(rawEntity);
+                for (int i = 0; i <= row.length - 1; i++) {
+                    if (row[i] == null) {
+                        row[i] = defaultValues[i];
+                    }
+                }
+                String id = objectMapper.getId(rawEntity);
+                if (ret.put(id, Arrays.asList(row)) != null) {
+                    throw new IllegalStateException(String.format("Duplicate id \"%s\"", id));
+                }
+            }
+            return ret;
         } catch (Exception e) {
             LOG.error(String.format("Failed to fetch \"%s\" table contents", tableName), e);
             return Collections.emptyMap();
@@ -1,9 +1,14 @@
 package org.meridor.perspective.sql.impl.storage.impl;
 
 import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.impl.QueryCache;
+import org.meridor.perspective.sql.impl.expression.FetchCondition;
 import org.meridor.perspective.sql.impl.storage.DataFetcher;
 import org.meridor.perspective.sql.impl.storage.TableFetcher;
+import org.meridor.perspective.sql.impl.storage.columnar.ColumnarRows;
 import org.meridor.perspective.sql.impl.table.Column;
+import org.meridor.perspective.sql.impl.task.ExecutionProfiler;
+import org.meridor.perspective.sql.impl.task.QueryContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +17,7 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.columnsToMap;
@@ -26,9 +32,16 @@ public class DataFetcherImpl implements DataFetcher {
 
     private final ApplicationContext applicationContext;
 
+    private final ExecutionProfiler executionProfiler;
+
+    //Table versions are only needed to share fetches in batches of queries
+    @Autowired(required = false)
+    private QueryCache queryCache;
+
     @Autowired
-    public DataFetcherImpl(ApplicationContext applicationContext) {
+    public DataFetcherImpl(ApplicationContext applicationContext, ExecutionProfiler executionProfiler) {
         this.applicationContext = applicationContext;
+        this.executionProfiler = executionProfiler;
     }
 
     @PostConstruct
@@ -40,24 +53,72 @@ public class DataFetcherImpl implements DataFetcher {
 
     @Override
     public Map<String, List<Object>> fetch(String tableName, Collection<Column> columns, Set<String> ids) {
-        return fetchData(tableName, columns, ids);
+        Set<String> fetchedIds = QueryContext.getRowIds(tableName)
+                .map(rowIds -> ids.stream().filter(rowIds::contains).collect(Collectors.<String>toSet()))
+                .orElse(ids);
+        return fetchData(tableName, columns, fetchedIds);
     }
 
     @Override
     public DataContainer fetch(String tableName, String tableAlias, Collection<Column> columns) {
         LOG.trace("Fetching from {} as {} columns: {}", tableName, tableAlias, columnsToNames(columns).stream().collect(Collectors.joining(", ")));
         Map<String, List<String>> columnsMap = columnsToMap(tableAlias, columns);
-        DataContainer dataContainer = new DataContainer(columnsMap);
-        Collection<List<Object>> rows = fetchData(tableName, columns, null).values();
-        rows.forEach(dataContainer::addRow);
-        return dataContainer;
+        Optional<Set<String>> rowIds = QueryContext.getRowIds(tableName);
+        if (rowIds.isPresent()) {
+            return ColumnarRows.createDataContainer(columnsMap, fetchData(tableName, columns, rowIds.get()).values());
+        }
+        Collection<List<Object>> rows = fetchShared(tableName, columns, null, () -> profileFetch(tableName, columns, null).values());
+        QueryContext.addRows(rows.size());
+        return ColumnarRows.createDataContainer(columnsMap, rows);
+    }
+
+    @Override
+    public DataContainer fetch(String tableName, String tableAlias, Collection<Column> columns, FetchCondition condition) {
+        LOG.trace("Fetching from {} as {} rows matching {}", tableName, tableAlias, condition);
+        Map<String, List<String>> columnsMap = columnsToMap(tableAlias, columns);
+        //Condition is checked again by filter task so restricted rows are simply fetched by ids
+        Optional<Set<String>> rowIds = QueryContext.getRowIds(tableName);
+        if (rowIds.isPresent()) {
+            return ColumnarRows.createDataContainer(columnsMap, fetchData(tableName, columns, rowIds.get()).values());
+        }
+        Collection<List<Object>> rows = fetchShared(tableName, columns, condition, () -> executionProfiler.profile(
+                "fetch",
+                () -> String.format("%s rows matching %s", tableName, condition),
+                () -> getTableFetcher(tableName).fetch(condition, columns),
+                Map::size
+        ).values());
+        QueryContext.addRows(rows.size());
+        return ColumnarRows.createDataContainer(columnsMap, rows);
+    }
+
+    //Fetched rows are only read so identical table scans of queries in one batch can share them.
+    //Table version is a part of the key so that queries started after table change fetch it again.
+    private Collection<List<Object>> fetchShared(String tableName, Collection<Column> columns, FetchCondition condition, Supplier<Collection<List<Object>>> fetch) {
+        long tableVersion = (queryCache != null) ? queryCache.getVersion(tableName) : 0;
+        List<Object> key = Arrays.asList(DataFetcher.class, tableName, tableVersion, columnsToNames(columns), condition);
+        return QueryContext.computeOncePerBatch(key, fetch);
     }
 
     private Map<String, List<Object>> fetchData(String tableName, Collection<Column> columns, Set<String> ids) {
+        Map<String, List<Object>> rows = profileFetch(tableName, columns, ids);
+        QueryContext.addRows(rows.size());
+        return rows;
+    }
+
+    private Map<String, List<Object>> profileFetch(String tableName, Collection<Column> columns, Set<String> ids) {
+        return executionProfiler.profile(
+                "fetch",
+                () -> (ids != null) ? String.format("%s rows by %d ids", tableName, ids.size()) : String.format("all %s rows", tableName),
+                () -> getTableFetcher(tableName).fetch(ids, columns),
+                Map::size
+        );
+    }
+
+    private TableFetcher getTableFetcher(String tableName) {
         if (!tableFetchers.containsKey(tableName)) {
             throw new IllegalArgumentException(String.format("Fetching from table \"%s\" is not supported", tableName));
         }
-        return tableFetchers.get(tableName).fetch(ids, columns);
+        return tableFetchers.get(tableName);
     }
 
 }
@@ -3,11 +3,12 @@ package org.meridor.perspective.sql.impl.storage.impl;
 import org.meridor.perspective.sql.impl.storage.ObjectMapper;
 import org.meridor.perspective.sql.impl.storage.ObjectMapperAware;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 
-import java.util.Collection;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -15,7 +16,10 @@ import java.util.stream.Stream;
 /**
  * Fetcher for the tables that are derived from base objects in storage such as project, instance or image.
  * For derived entities we need to convert ids to match base collection against.
- * @param <T> type of the object this table is derived from
+ * Optionally derived entities are kept in memory and updated on every base
+ * entity change so that fetching them does not require loading base entities.
+ * @param <B> type of the object this table is derived from
+ * @param <T> type of derived object
  */
 @Component
 public abstract class DerivedTableFetcher<B, T> extends BaseTableFetcher<T> {
@@ -23,6 +27,13 @@ public abstract class DerivedTableFetcher<B, T> extends BaseTableFetcher<T> {
     @Autowired
     private ObjectMapperAware objectMapperAware;
 
+    @Value("${perspective.sql.derived.tables.materialized:false}")
+    private boolean materialized;
+
+    private final Map<String, T> materializedEntities = new ConcurrentHashMap<>();
+
+    private volatile boolean isMaterializedEntitiesLoaded;
+
     /**
      *   Converts derived entity ids to base entity ids 
      */
@@ -43,9 +54,57 @@ public abstract class DerivedTableFetcher<B, T> extends BaseTableFetcher<T> {
      */
     protected abstract Function<B, Stream<T>> getConverter();
 
+    /**
+     * Updates materialized derived entities when base entity changes. Old
+     * base entity is null when it was added and new one is null when it was
+     * deleted.
+     */
+    public void updateMaterializedEntities(B oldBaseEntity, B baseEntity) {
+        if (!materialized) {
+            return;
+        }
+        synchronized (materializedEntities) {
+            //Entities will be loaded from storage with all changes on first fetch
+            if (!isMaterializedEntitiesLoaded) {
+                return;
+            }
+            ObjectMapper<T> objectMapper = objectMapperAware.get(getBeanClass());
+            if (oldBaseEntity != null) {
+                getConverter().apply(oldBaseEntity)
+                        .forEach(e -> materializedEntities.remove(objectMapper.getId(e)));
+            }
+            if (baseEntity != null) {
+                getConverter().apply(baseEntity)
+                        .forEach(e -> materializedEntities.put(objectMapper.getId(e), e));
+            }
+        }
+    }
+
+    private Map<String, T> getMaterializedEntities() {
+        if (!isMaterializedEntitiesLoaded) {
+            synchronized (materializedEntities) {
+                if (!isMaterializedEntitiesLoaded) {
+                    ObjectMapper<T> objectMapper = objectMapperAware.get(getBeanClass());
+                    getAllBaseEntities().stream()
+                            .flatMap(getConverter())
+                            .forEach(e -> materializedEntities.put(objectMapper.getId(e), e));
+                    isMaterializedEntitiesLoaded = true;
+                }
+            }
+        }
+        return materializedEntities;
+    }
+
     @Override
     protected Collection<T> getRawEntities(Set<String> ids) {
         Assert.isTrue(!ids.isEmpty(), "IDs can not be empty at this point");
+        if (materialized) {
+            Map<String, T> entities = getMaterializedEntities();
+            return ids.stream()
+                    .map(entities::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        }
         ObjectMapper<T> objectMapper = objectMapperAware.get(getBeanClass());
         Set<String> baseEntityIds = ids.stream()
                 .map(this::getBaseEntityId)
@@ -59,6 +118,9 @@ public abstract class DerivedTableFetcher<B, T> extends BaseTableFetcher<T> {
 
     @Override
     protected Collection<T> getAllRawEntities() {
+        if (materialized) {
+            return new ArrayList<>(getMaterializedEntities().values());
+        }
         return getAllBaseEntities().stream()
                 .flatMap(getConverter())
                 .collect(Collectors.toList());
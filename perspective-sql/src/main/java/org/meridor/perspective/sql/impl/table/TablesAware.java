@@ -1,5 +1,8 @@
 package org.meridor.perspective.sql.impl.table;
 
+import org.meridor.perspective.sql.impl.table.annotation.ForeignKey;
+
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -11,4 +14,9 @@ public interface TablesAware {
     
     Optional<Column> getColumn(String tableName, String columnName);
     
+    /**
+     * Returns valid foreign keys declared for the table
+     */
+    List<ForeignKey> getForeignKeys(String tableName);
+    
 }
@@ -1,5 +1,6 @@
 package org.meridor.perspective.sql.impl.table;
 
+import org.meridor.perspective.sql.impl.index.IndexType;
 import org.meridor.perspective.sql.impl.index.impl.IndexSignature;
 import org.meridor.perspective.sql.impl.storage.IndexStorage;
 import org.meridor.perspective.sql.impl.table.annotation.ForeignKey;
@@ -31,6 +32,8 @@ public class TablesAwareImpl implements TablesAware {
 
     private final Map<String, Set<Column>> tables = new HashMap<>();
     
+    private final Map<String, List<ForeignKey>> foreignKeys = new HashMap<>();
+    
     @PostConstruct
     public void init() {
         forEachTable(getFieldsConsumer());
@@ -91,7 +94,12 @@ public class TablesAwareImpl implements TablesAware {
     private void processIndexAnnotation(String tableName, Index indexAnnotation) {
         String[] columnNames = indexAnnotation.columnNames();
         int keyLength = indexAnnotation.length();
-        addIndexIfValid(tableName, new LinkedHashSet<>(Arrays.asList(columnNames)),  keyLength);
+        IndexType indexType = indexAnnotation.type();
+        if (indexType == IndexType.SORTED && keyLength > 0) {
+            LOG.error("Not creating index {}: sorted index does not support key length", Arrays.toString(columnNames));
+            return;
+        }
+        addIndexIfValid(tableName, new LinkedHashSet<>(Arrays.asList(columnNames)), keyLength, indexType);
     }
 
     private void processForeignKeyAnnotation(String tableName, ForeignKey foreignKeyAnnotation) {
@@ -111,11 +119,12 @@ public class TablesAwareImpl implements TablesAware {
             return;
         }
         
-        addIndexIfValid(tableName, new LinkedHashSet<>(Arrays.asList(columnNames)), keyLength);
-        addIndexIfValid(foreignTableName, new LinkedHashSet<>(Arrays.asList(foreignTableColumnNames)), keyLength);
+        foreignKeys.computeIfAbsent(tableName, tn -> new ArrayList<>()).add(foreignKeyAnnotation);
+        addIndexIfValid(tableName, new LinkedHashSet<>(Arrays.asList(columnNames)), keyLength, IndexType.HASH);
+        addIndexIfValid(foreignTableName, new LinkedHashSet<>(Arrays.asList(foreignTableColumnNames)), keyLength, IndexType.HASH);
     }
     
-    private void addIndexIfValid(String tableName, Set<String> columnNames, int keyLength) {
+    private void addIndexIfValid(String tableName, Set<String> columnNames, int keyLength, IndexType indexType) {
         IndexSignature indexSignature = new IndexSignature(tableName, columnNames);
         Map<String, Set<String>> indexColumns = indexSignature.getDesiredColumns();
         if (!isTablePresent(tableName)) {
@@ -127,8 +136,8 @@ public class TablesAwareImpl implements TablesAware {
             LOG.error("Not creating index {}: table {} column {} does not exist", indexColumns, tableName, invalidColumnCandidate.get());
             return;
         }
-        LOG.info("Creating index {}", indexColumns);
-        indexStorage.create(indexSignature, keyLength);
+        LOG.info("Creating {} index {}", indexType.name().toLowerCase(), indexColumns);
+        indexStorage.create(indexSignature, keyLength, indexType);
     }
     
     private boolean isTablePresent(String tableName) {
@@ -161,6 +170,11 @@ public class TablesAwareImpl implements TablesAware {
                 .findFirst();
     }
 
+    @Override
+    public List<ForeignKey> getForeignKeys(String tableName) {
+        return foreignKeys.getOrDefault(tableName, Collections.emptyList());
+    }
+
     @Override
     public Set<String> getTables() {
         return tables.keySet();
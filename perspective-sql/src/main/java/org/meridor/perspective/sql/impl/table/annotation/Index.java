@@ -1,5 +1,7 @@
 package org.meridor.perspective.sql.impl.table.annotation;
 
+import org.meridor.perspective.sql.impl.index.IndexType;
+
 import java.lang.annotation.*;
 
 @Retention(RetentionPolicy.RUNTIME)
@@ -11,4 +13,6 @@ public @interface Index {
     
     int length() default 0;
     
+    IndexType type() default IndexType.HASH;
+    
 }
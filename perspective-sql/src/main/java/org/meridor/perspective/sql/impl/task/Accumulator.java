@@ -0,0 +1,17 @@
+package org.meridor.perspective.sql.impl.task;
+
+/**
+ * Incrementally computes aggregate function value for one group
+ */
+public interface Accumulator {
+    
+    void add(Object value);
+
+    /**
+     * Adds values collected by another accumulator of the same type
+     */
+    void merge(Accumulator another);
+    
+    Object getResult();
+    
+}
@@ -0,0 +1,178 @@
+package org.meridor.perspective.sql.impl.task;
+
+import org.meridor.perspective.sql.impl.expression.AggregateFunctionExpression;
+
+import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.*;
+
+public final class Accumulators {
+
+    public static Accumulator create(AggregateFunctionExpression aggregateFunctionExpression) {
+        switch (aggregateFunctionExpression.getAggregateFunction()) {
+            case COUNT: return aggregateFunctionExpression.isCountAll() ?
+                    new CountAccumulator(true) : new CountAccumulator(false);
+            case SUM: return new SumAccumulator();
+            case AVG: return new AvgAccumulator();
+            case MIN: return new ExtremumAccumulator(true);
+            case MAX: return new ExtremumAccumulator(false);
+            default: throw new IllegalArgumentException(String.format(
+                    "Unsupported aggregate function: %s",
+                    aggregateFunctionExpression.getAggregateFunction()
+            ));
+        }
+    }
+
+    //Numbers are compared as doubles just like in expression evaluator
+    @SuppressWarnings("unchecked")
+    static int compare(Object left, Object right) {
+        if (bothAreNumbers(left.getClass(), right.getClass())) {
+            return Double.compare(asDouble(left), asDouble(right));
+        }
+        if (left instanceof Comparable && left.getClass().equals(right.getClass())) {
+            return ((Comparable<Object>) left).compareTo(right);
+        }
+        return asString(left).compareTo(asString(right));
+    }
+
+    private static class CountAccumulator implements Accumulator {
+
+        private final boolean countNulls;
+
+        private int count = 0;
+
+        CountAccumulator(boolean countNulls) {
+            this.countNulls = countNulls;
+        }
+
+        @Override
+        public void add(Object value) {
+            if (countNulls || value != null) {
+                count++;
+            }
+        }
+
+        @Override
+        public void merge(Accumulator another) {
+            count += ((CountAccumulator) another).count;
+        }
+
+        @Override
+        public Object getResult() {
+            return count;
+        }
+    }
+
+    private static class SumAccumulator implements Accumulator {
+
+        private long longSum = 0;
+
+        private double doubleSum = 0;
+
+        private boolean isInteger = true;
+
+        private boolean isEmpty = true;
+
+        @Override
+        public void add(Object value) {
+            if (value == null) {
+                return;
+            }
+            isEmpty = false;
+            if (isInteger && isInteger(value.getClass())) {
+                longSum += ((Number) value).longValue();
+            } else {
+                if (isInteger) {
+                    isInteger = false;
+                    doubleSum = longSum;
+                }
+                doubleSum += asDouble(value);
+            }
+        }
+
+        @Override
+        public void merge(Accumulator another) {
+            SumAccumulator anotherSum = (SumAccumulator) another;
+            if (anotherSum.isEmpty) {
+                return;
+            }
+            isEmpty = false;
+            if (isInteger && anotherSum.isInteger) {
+                longSum += anotherSum.longSum;
+            } else {
+                doubleSum = (isInteger ? longSum : doubleSum) + (anotherSum.isInteger ? anotherSum.longSum : anotherSum.doubleSum);
+                isInteger = false;
+            }
+        }
+
+        @Override
+        public Object getResult() {
+            if (isEmpty) {
+                return null;
+            }
+            return isInteger ? (Object) longSum : (Object) doubleSum;
+        }
+    }
+
+    private static class AvgAccumulator implements Accumulator {
+
+        private double sum = 0;
+
+        private int count = 0;
+
+        @Override
+        public void add(Object value) {
+            if (value != null) {
+                sum += asDouble(value);
+                count++;
+            }
+        }
+
+        @Override
+        public void merge(Accumulator another) {
+            AvgAccumulator anotherAvg = (AvgAccumulator) another;
+            sum += anotherAvg.sum;
+            count += anotherAvg.count;
+        }
+
+        @Override
+        public Object getResult() {
+            return count > 0 ? sum / count : null;
+        }
+    }
+
+    private static class ExtremumAccumulator implements Accumulator {
+
+        private final boolean isMin;
+
+        private Object extremum;
+
+        ExtremumAccumulator(boolean isMin) {
+            this.isMin = isMin;
+        }
+
+        @Override
+        public void add(Object value) {
+            if (value == null) {
+                return;
+            }
+            if (extremum == null) {
+                extremum = value;
+                return;
+            }
+            int comparisonResult = compare(value, extremum);
+            if (isMin ? comparisonResult < 0 : comparisonResult > 0) {
+                extremum = value;
+            }
+        }
+
+        @Override
+        public void merge(Accumulator another) {
+            add(((ExtremumAccumulator) another).extremum);
+        }
+
+        @Override
+        public Object getResult() {
+            return extremum;
+        }
+    }
+
+}
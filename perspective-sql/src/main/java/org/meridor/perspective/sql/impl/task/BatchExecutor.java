@@ -0,0 +1,105 @@
+package org.meridor.perspective.sql.impl.task;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Runs independent actions, e.g. queries of one batch, concurrently on a
+ * bounded thread pool and returns results in actions order. Actions not
+ * picked up by pool threads are run by the calling thread, so batches never
+ * wait for free pool threads and nested batches can't deadlock.
+ */
+@Component
+public class BatchExecutor {
+
+    @Value("${perspective.sql.batch.threads:4}")
+    private int threadsCount;
+
+    private ExecutorService executorService;
+
+    @PostConstruct
+    public void init() {
+        if (threadsCount > 0) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+                    threadsCount,
+                    threadsCount,
+                    60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(),
+                    r -> {
+                        Thread thread = new Thread(r, "query-batch-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    //Rejected actions are run by the calling thread
+                    new ThreadPoolExecutor.DiscardPolicy()
+            );
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+            executorService = threadPoolExecutor;
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs actions concurrently and waits for all of them
+     * @param actions actions to run
+     * @return action results in actions order
+     */
+    public <T> List<T> execute(List<Supplier<T>> actions) {
+        //Zero or negative threads count disables concurrent execution
+        if (executorService == null || actions.size() <= 1) {
+            return actions.stream()
+                    .map(Supplier::get)
+                    .collect(Collectors.toList());
+        }
+        List<FutureTask<T>> tasks = actions.stream()
+                .map(a -> new FutureTask<>(a::get))
+                .collect(Collectors.toList());
+        //The first action is always run by the calling thread
+        tasks.subList(1, tasks.size()).forEach(executorService::execute);
+        List<T> results = new ArrayList<>(tasks.size());
+        for (FutureTask<T> task : tasks) {
+            //Does nothing if the task was already started by pool thread
+            task.run();
+            results.add(getResult(task));
+        }
+        return results;
+    }
+
+    private static <T> T getResult(FutureTask<T> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for batch results", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    void setThreadsCount(int threadsCount) {
+        this.threadsCount = threadsCount;
+    }
+}
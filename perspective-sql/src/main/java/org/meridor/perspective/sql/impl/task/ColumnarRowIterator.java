@@ -0,0 +1,122 @@
+package org.meridor.perspective.sql.impl.task;
+
+import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.DataRow;
+import org.meridor.perspective.sql.impl.storage.columnar.ColumnarRows;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PrimitiveIterator;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Iterates over rows of data container reading them from columnar rows. Filtering and projection only
+ * change row indexes and column vectors so that no intermediate rows are
+ * stored when materializing.
+ */
+public class ColumnarRowIterator implements RowIterator {
+
+    private final DataContainer dataContainer;
+
+    private final ColumnarRows rows;
+
+    private final PrimitiveIterator.OfInt rowIndexes;
+
+    //Whether this iterator is going to return all container rows
+    private boolean allRows;
+
+    public ColumnarRowIterator(DataContainer dataContainer, ColumnarRows rows) {
+        this(dataContainer, rows, IntStream.range(0, rows.size()).iterator(), true);
+    }
+
+    private ColumnarRowIterator(DataContainer dataContainer, ColumnarRows rows, PrimitiveIterator.OfInt rowIndexes, boolean allRows) {
+        this.dataContainer = dataContainer;
+        this.rows = rows;
+        this.rowIndexes = rowIndexes;
+        this.allRows = allRows;
+    }
+
+    @Override
+    public Map<String, List<String>> getColumnsMap() {
+        return dataContainer.getColumnsMap();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return rowIndexes.hasNext();
+    }
+
+    @Override
+    public DataRow next() {
+        allRows = false;
+        return rows.get(dataContainer, rowIndexes.nextInt());
+    }
+
+    public DataContainer getDataContainer() {
+        return dataContainer;
+    }
+
+    @Override
+    public Optional<DataContainer> getData() {
+        return allRows ? Optional.of(dataContainer) : Optional.empty();
+    }
+
+    /**
+     * Returns iterator over remaining rows matching predicate. This iterator
+     * should not be used after that.
+     */
+    public ColumnarRowIterator filter(Predicate<DataRow> predicate) {
+        allRows = false;
+        return new ColumnarRowIterator(dataContainer, rows, new PrimitiveIterator.OfInt() {
+
+            private boolean hasNextIndex;
+
+            private int nextIndex;
+
+            @Override
+            public boolean hasNext() {
+                while (!hasNextIndex && rowIndexes.hasNext()) {
+                    int rowIndex = rowIndexes.nextInt();
+                    if (predicate.test(rows.get(dataContainer, rowIndex))) {
+                        nextIndex = rowIndex;
+                        hasNextIndex = true;
+                    }
+                }
+                return hasNextIndex;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                hasNextIndex = false;
+                return nextIndex;
+            }
+        }, false);
+    }
+
+    /**
+     * Returns iterator over remaining rows having given columns only. This
+     * iterator should not be used after that.
+     */
+    public ColumnarRowIterator project(Map<String, List<String>> columnsMap, int[] columnIndexes) {
+        ColumnarRows projectedRows = rows.project(columnIndexes);
+        return new ColumnarRowIterator(new DataContainer(columnsMap, projectedRows), projectedRows, rowIndexes, allRows);
+    }
+
+    /**
+     * Returns container with remaining rows sharing column vectors with the
+     * source container
+     */
+    public DataContainer materialize() {
+        allRows = false;
+        IntStream.Builder remainingRowIndexes = IntStream.builder();
+        rowIndexes.forEachRemaining((int i) -> remainingRowIndexes.add(i));
+        return new DataContainer(getColumnsMap(), rows.select(remainingRowIndexes.build().toArray()));
+    }
+
+}
@@ -0,0 +1,113 @@
+package org.meridor.perspective.sql.impl.task;
+
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Collects execution steps statistics for EXPLAIN ANALYZE queries. Steps
+ * are only recorded in the thread evaluating such query, in other threads
+ * profiled actions are simply called. Allocated bytes are measured for
+ * query thread only, so morsels processed in parallel are not included
+ * and the value is an estimate.
+ */
+@Component
+public class ExecutionProfiler {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final ThreadLocal<Profile> currentProfile = new ThreadLocal<>();
+
+    public void start() {
+        currentProfile.set(new Profile());
+    }
+
+    /**
+     * Stops profiling in current thread
+     * @return steps in the order they were started
+     */
+    public List<ExecutionStep> stop() {
+        Profile profile = currentProfile.get();
+        currentProfile.remove();
+        return profile != null ? profile.steps : Collections.emptyList();
+    }
+
+    public <T> T profile(String name, Supplier<String> description, Supplier<T> action, ToIntFunction<T> rowsCounter) {
+        return profile(name, description, action, rowsCounter, null);
+    }
+
+    /**
+     * Runs action and records its statistics if profiling is started
+     * @param name step name, e.g. "join"
+     * @param description step description, only evaluated when profiling
+     * @param action action to run
+     * @param rowsCounter returns number of rows in action result
+     * @param rowsIn number of input rows if any
+     * @return action result
+     */
+    public <T> T profile(String name, Supplier<String> description, Supplier<T> action, ToIntFunction<T> rowsCounter, Integer rowsIn) {
+        Profile profile = currentProfile.get();
+        if (profile == null) {
+            return action.get();
+        }
+        //Step is added before calling action so that nested steps follow it
+        ExecutionStep executionStep = new ExecutionStep(name, description.get(), profile.depth);
+        executionStep.setRowsIn(rowsIn);
+        profile.steps.add(executionStep);
+        profile.depth++;
+        long startTime = System.nanoTime();
+        long startAllocatedBytes = getAllocatedBytes();
+        try {
+            T result = action.get();
+            executionStep.setRowsOut(rowsCounter.applyAsInt(result));
+            return result;
+        } finally {
+            executionStep.setTime(System.nanoTime() - startTime);
+            executionStep.setAllocatedBytes(getAllocatedBytesSince(startAllocatedBytes));
+            profile.depth--;
+        }
+    }
+
+    /**
+     * Returns total number of bytes allocated by current thread or -1 when
+     * JVM does not support measuring it
+     */
+    public static long getAllocatedBytes() {
+        return getAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Returns total number of bytes allocated by thread with specified id or
+     * -1 when JVM does not support measuring it or thread is not alive
+     */
+    public static long getAllocatedBytes(long threadId) {
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+            if (threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled()) {
+                return threadMXBean.getThreadAllocatedBytes(threadId);
+            }
+        }
+        return -1;
+    }
+
+    public static Long getAllocatedBytesSince(long startAllocatedBytes) {
+        return startAllocatedBytes >= 0 ?
+                getAllocatedBytes() - startAllocatedBytes :
+                null;
+    }
+
+    private static class Profile {
+
+        private final List<ExecutionStep> steps = new ArrayList<>();
+
+        private int depth;
+
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.meridor.perspective.sql.impl.task;
+
+/**
+ * Statistics of one query execution step shown by EXPLAIN ANALYZE
+ */
+public class ExecutionStep {
+
+    private final String name;
+
+    private final String description;
+
+    private final int depth;
+
+    private Integer rowsIn;
+
+    private int rowsOut;
+
+    private long time;
+
+    private Long allocatedBytes;
+
+    public ExecutionStep(String name, String description, int depth) {
+        this.name = name;
+        this.description = description;
+        this.depth = depth;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns how many steps contain this one, e.g. fetch inside join
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public Integer getRowsIn() {
+        return rowsIn;
+    }
+
+    public void setRowsIn(Integer rowsIn) {
+        this.rowsIn = rowsIn;
+    }
+
+    public int getRowsOut() {
+        return rowsOut;
+    }
+
+    public void setRowsOut(int rowsOut) {
+        this.rowsOut = rowsOut;
+    }
+
+    /**
+     * Returns step wall time in nanoseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    /**
+     * Returns number of bytes allocated by query thread or null when
+     * JVM can't measure it
+     */
+    public Long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public void setAllocatedBytes(Long allocatedBytes) {
+        this.allocatedBytes = allocatedBytes;
+    }
+
+}
@@ -4,6 +4,7 @@ import org.meridor.perspective.sql.DataContainer;
 import org.meridor.perspective.sql.DataRow;
 import org.meridor.perspective.sql.ExecutionResult;
 import org.meridor.perspective.sql.impl.expression.BooleanExpression;
+import org.meridor.perspective.sql.impl.expression.CompiledExpression;
 import org.meridor.perspective.sql.impl.expression.ExpressionEvaluator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
@@ -14,7 +15,9 @@ import org.springframework.stereotype.Component;
 import java.sql.SQLException;
 import java.util.Optional;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
+
+import static org.meridor.perspective.sql.impl.task.TaskUtils.filter;
+import static org.meridor.perspective.sql.impl.task.TaskUtils.materialize;
 
 @Component
 @Lazy
@@ -23,32 +26,33 @@ public class FilterTask implements Task {
 
     private BooleanExpression condition;
     
+    private CompiledExpression compiledCondition;
+    
     @Autowired
     private ExpressionEvaluator expressionEvaluator;
     
+    @Autowired
+    private ParallelExecutor parallelExecutor;
+    
     @Override
     public ExecutionResult execute(ExecutionResult previousTaskResult) throws SQLException {
-        try {
-            Predicate<DataRow> predicate = condition != null ?
-                    dr -> expressionEvaluator.evaluateAs(condition, dr, Boolean.class) :
-                    dr -> true;
-            DataContainer newData = new DataContainer(
-                    previousTaskResult.getData(),
-                    rows -> rows.stream().filter(predicate).collect(Collectors.toList())
-            );
-            return new ExecutionResult(){
-                {
-                    setCount(newData.getRows().size());
-                    setData(newData);
-                }
-            };
-        } catch (Exception e) {
-            throw new SQLException(e);
-        }
+        return materialize(iterate(TaskUtils.iterate(previousTaskResult.getData())));
+    }
+
+    @Override
+    public RowIterator iterate(RowIterator input) throws SQLException {
+        Predicate<DataRow> predicate = compiledCondition != null ?
+                dr -> compiledCondition.evaluateAs(dr, Boolean.class) :
+                dr -> true;
+        Optional<DataContainer> parallelInput = parallelExecutor.getParallelInput(input);
+        return parallelInput.isPresent() ?
+                parallelExecutor.filter(parallelInput.get(), predicate) :
+                filter(input, predicate);
     }
 
     public void setCondition(BooleanExpression condition) {
         this.condition = condition;
+        this.compiledCondition = condition != null ? expressionEvaluator.compile(condition) : null;
     }
 
     public Optional<BooleanExpression> getCondition() {
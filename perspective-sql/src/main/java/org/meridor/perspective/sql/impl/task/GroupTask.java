@@ -3,6 +3,8 @@ package org.meridor.perspective.sql.impl.task;
 import org.meridor.perspective.sql.DataContainer;
 import org.meridor.perspective.sql.DataRow;
 import org.meridor.perspective.sql.ExecutionResult;
+import org.meridor.perspective.sql.impl.expression.AggregateFunctionExpression;
+import org.meridor.perspective.sql.impl.expression.CompiledExpression;
 import org.meridor.perspective.sql.impl.expression.ExpressionEvaluator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
@@ -11,12 +13,12 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.stream.Collectors;
 
+import static org.meridor.perspective.sql.impl.expression.AggregateFunctionExpression.AGGREGATES_TABLE_ALIAS;
+import static org.meridor.perspective.sql.impl.task.TaskUtils.materialize;
+
 @Component
 @Lazy
 @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
@@ -24,82 +26,164 @@ public class GroupTask implements Task {
 
     private final List<Object> expressions = new ArrayList<>();
 
+    private final List<CompiledExpression> compiledExpressions = new ArrayList<>();
+
+    private final List<AggregateFunctionExpression> aggregateFunctions = new ArrayList<>();
+
+    //Null means that aggregate function does not need argument value, e.g. COUNT(*)
+    private final List<CompiledExpression> compiledArguments = new ArrayList<>();
+
     private final ExpressionEvaluator expressionEvaluator;
 
+    private final ParallelExecutor parallelExecutor;
+
     @Autowired
-    public GroupTask(ExpressionEvaluator expressionEvaluator) {
+    public GroupTask(ExpressionEvaluator expressionEvaluator, ParallelExecutor parallelExecutor) {
         this.expressionEvaluator = expressionEvaluator;
+        this.parallelExecutor = parallelExecutor;
     }
 
     public void addExpression(Object expression) {
         this.expressions.add(expression);
+        this.compiledExpressions.add(expressionEvaluator.compile(expression));
+    }
+
+    public void addAggregateFunction(AggregateFunctionExpression aggregateFunctionExpression) {
+        if (!aggregateFunctions.contains(aggregateFunctionExpression)) {
+            this.aggregateFunctions.add(aggregateFunctionExpression);
+            this.compiledArguments.add(
+                    aggregateFunctionExpression.isCountAll() ?
+                            null : expressionEvaluator.compile(aggregateFunctionExpression.getArgument())
+            );
+        }
     }
 
     @Override
     public ExecutionResult execute(ExecutionResult previousTaskResult) throws SQLException {
+        return materialize(iterate(TaskUtils.iterate(previousTaskResult.getData())));
+    }
+
+    //Single pass hash aggregation: we only store the first row and accumulators for each group
+    @Override
+    public RowIterator iterate(RowIterator input) throws SQLException {
         try {
-            DataContainer dataContainer = new DataContainer(previousTaskResult.getData(), rows -> {
-                List<DataRow> data = previousTaskResult.getData().getRows();
-                Map<List<Object>, List<DataRow>> initialMap = new HashMap<List<Object>, List<DataRow>>(){
-                    {
-                        put(new ArrayList<>(), data);
-                    }
-                };
-                return groupData(initialMap, expressions)
-                        .values().stream().map(v -> v.get(0)) //We take only first item
-                        .collect(Collectors.toList());
-            });
-            return new ExecutionResult(){
-                {
-                    setCount(dataContainer.getRows().size());
-                    setData(dataContainer);
-                }
-            };
+            Optional<DataContainer> parallelInput = parallelExecutor.getParallelInput(input);
+            Map<List<Object>, Group> groups = parallelInput.isPresent() ?
+                    aggregateInParallel(parallelInput.get().getRows()) :
+                    aggregate(input);
+            Map<String, List<String>> columnsMap = getColumnsMap(input.getColumnsMap());
+            if (groups.isEmpty() && expressions.isEmpty()) {
+                //Aggregate functions without group by always return one row
+                int columnsCount = input.getColumnsMap().values().stream().mapToInt(List::size).sum();
+                groups.put(Collections.emptyList(), new Group(Arrays.asList(new Object[columnsCount])));
+            }
+            DataContainer dataContainer = new DataContainer(columnsMap);
+            List<DataRow> rows = groups.values().stream()
+                    .map(g -> new DataRow(dataContainer, g.getValues()))
+                    .collect(Collectors.toList());
+            return TaskUtils.iterate(columnsMap, rows.iterator());
         } catch (Exception e) {
             throw new SQLException(e);
         }
     }
-    
-    private Map<List<Object>, List<DataRow>> groupData(Map<List<Object>, List<DataRow>> previousData, List<Object> remainingExpressions) {
-        if (remainingExpressions.isEmpty()) {
-            return previousData;
+
+    private Map<List<Object>, Group> aggregate(Iterator<DataRow> rows) {
+        Map<List<Object>, Group> groups = new LinkedHashMap<>();
+        while (rows.hasNext()) {
+            QueryContext.check();
+            DataRow dataRow = rows.next();
+            List<Object> key = getKey(dataRow);
+            Group group = groups.computeIfAbsent(key, k -> new Group(dataRow.getValues()));
+            for (int i = 0; i <= aggregateFunctions.size() - 1; i++) {
+                CompiledExpression compiledArgument = compiledArguments.get(i);
+                Object value = compiledArgument != null ?
+                        compiledArgument.evaluate(dataRow) : null;
+                group.getAccumulators().get(i).add(value);
+            }
         }
-        Object currentExpression = remainingExpressions.remove(0);
-        //Map key is a list of grouping expressions, i.e. each value contains only data rows grouped by these expressions
-        Map<List<Object>, List<DataRow>> newData = new HashMap<>();
-        previousData.keySet().forEach(k -> {
-            List<DataRow> currentKeyData = previousData.get(k);
-            Map<Object, List<DataRow>> groupedData = new HashMap<>();
-            try {
-                groupedData.putAll(currentKeyData.stream()
-                        .collect(Collectors.groupingBy( //Here we group by current expression
-                                dr -> expressionEvaluator.evaluate(currentExpression, dr)
-                        )));
-            } catch (NullPointerException e) {
-                //NPE occurs only when expression return NULL
+        return groups;
+    }
+
+    //Each morsel is aggregated separately and partial results are merged in morsel order
+    private Map<List<Object>, Group> aggregateInParallel(List<DataRow> rows) {
+        List<Map<List<Object>, Group>> partialGroups = parallelExecutor.process(
+                rows.size(),
+                (from, to) -> aggregate(rows.subList(from, to).iterator())
+        );
+        Map<List<Object>, Group> groups = new LinkedHashMap<>();
+        partialGroups.forEach(pg -> pg.forEach((key, group) -> groups.merge(key, group, Group::merge)));
+        return groups;
+    }
+
+    private List<Object> getKey(DataRow dataRow) {
+        List<Object> key = new ArrayList<>(compiledExpressions.size());
+        for (CompiledExpression compiledExpression : compiledExpressions) {
+            Object value = compiledExpression.evaluate(dataRow);
+            if (value == null) {
                 throw new RuntimeException("Can not group by NULL column values");
             }
-            groupedData.keySet().forEach(gk -> {
-                List<Object> newKey = new ArrayList<Object>(){
-                    {
-                        addAll(k);
-                        add(gk);
-                    }
-                };
-                newData.put(newKey, groupedData.get(gk));
-            });
-        });
-        return groupData(newData, remainingExpressions);
+            key.add(value);
+        }
+        return key;
+    }
+
+    private Map<String, List<String>> getColumnsMap(Map<String, List<String>> inputColumnsMap) {
+        if (aggregateFunctions.isEmpty()) {
+            return inputColumnsMap;
+        }
+        Map<String, List<String>> ret = new LinkedHashMap<>(inputColumnsMap);
+        ret.put(
+                AGGREGATES_TABLE_ALIAS,
+                aggregateFunctions.stream().map(Object::toString).collect(Collectors.toList())
+        );
+        return ret;
+    }
+
+    private class Group {
+
+        private final List<Object> firstRowValues;
+
+        private final List<Accumulator> accumulators;
+
+        Group(List<Object> firstRowValues) {
+            this.firstRowValues = firstRowValues;
+            this.accumulators = aggregateFunctions.stream()
+                    .map(Accumulators::create)
+                    .collect(Collectors.toList());
+        }
+
+        List<Accumulator> getAccumulators() {
+            return accumulators;
+        }
+
+        //First row values are taken from the group found earlier
+        Group merge(Group another) {
+            for (int i = 0; i <= accumulators.size() - 1; i++) {
+                accumulators.get(i).merge(another.getAccumulators().get(i));
+            }
+            return this;
+        }
+
+        List<Object> getValues() {
+            List<Object> ret = new ArrayList<>(firstRowValues);
+            accumulators.forEach(a -> ret.add(a.getResult()));
+            return ret;
+        }
     }
 
     public List<Object> getExpressions() {
         return new ArrayList<>(expressions);
     }
 
+    public List<AggregateFunctionExpression> getAggregateFunctions() {
+        return new ArrayList<>(aggregateFunctions);
+    }
+
     @Override
     public String toString() {
         return "GroupTask{" +
                 "expressions=" + expressions +
+                ", aggregateFunctions=" + aggregateFunctions +
                 '}';
     }
 }
@@ -1,10 +1,11 @@
 package org.meridor.perspective.sql.impl.task;
 
-import org.meridor.perspective.sql.DataContainer;
 import org.meridor.perspective.sql.ExecutionResult;
 
 import java.sql.SQLException;
-import java.util.stream.Collectors;
+
+import static org.meridor.perspective.sql.impl.task.TaskUtils.limit;
+import static org.meridor.perspective.sql.impl.task.TaskUtils.materialize;
 
 public class LimitTask implements Task {
     
@@ -23,19 +24,12 @@ public class LimitTask implements Task {
 
     @Override
     public ExecutionResult execute(ExecutionResult previousTaskResult) throws SQLException {
-        DataContainer newData = new DataContainer(
-                previousTaskResult.getData(),
-                rows -> rows.stream()
-                        .skip(offset)
-                        .limit(count)
-                        .collect(Collectors.toList()) 
-        );
-        return new ExecutionResult(){
-            {
-                setData(newData);
-                setCount(newData.getRows().size());
-            }
-        };
+        return materialize(iterate(TaskUtils.iterate(previousTaskResult.getData())));
+    }
+
+    @Override
+    public RowIterator iterate(RowIterator input) throws SQLException {
+        return limit(input, offset, count);
     }
 
     public int getOffset() {
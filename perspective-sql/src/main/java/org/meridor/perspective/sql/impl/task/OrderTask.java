@@ -3,6 +3,7 @@ package org.meridor.perspective.sql.impl.task;
 import org.meridor.perspective.sql.DataContainer;
 import org.meridor.perspective.sql.DataRow;
 import org.meridor.perspective.sql.ExecutionResult;
+import org.meridor.perspective.sql.impl.expression.CompiledExpression;
 import org.meridor.perspective.sql.impl.expression.ExpressionEvaluator;
 import org.meridor.perspective.sql.impl.expression.OrderDirection;
 import org.meridor.perspective.sql.impl.expression.OrderExpression;
@@ -41,7 +42,7 @@ public class OrderTask implements Task {
     @Override
     public ExecutionResult execute(ExecutionResult previousTaskResult) throws SQLException {
         try {
-            Comparator<DataRow> comparator = createComparator(null, expressions);
+            Comparator<DataRow> comparator = createComparator();
             if (comparator != null) {
                 return new ExecutionResult(){
                     {
@@ -62,6 +63,11 @@ public class OrderTask implements Task {
         }
     }
 
+    //Returns null when there are no expressions to sort by
+    Comparator<DataRow> createComparator() {
+        return createComparator(null, new ArrayList<>(expressions));
+    }
+
     private Comparator<DataRow> createComparator(Comparator<DataRow> comparator, List<OrderExpression> remainingExpressions) {
         if (remainingExpressions.isEmpty()) {
             return comparator;
@@ -74,14 +80,21 @@ public class OrderTask implements Task {
     }
 
     private Comparator<DataRow> getComparator(OrderExpression orderExpression) {
+        CompiledExpression compiledExpression = expressionEvaluator.compile(orderExpression.getExpression());
         Comparator<DataRow> comparator = getComparator(
-                dr -> expressionEvaluator.evaluate(orderExpression.getExpression(), dr)
+                dr -> evaluateKey(compiledExpression, dr)
         );
         return orderExpression.getOrderDirection() == OrderDirection.ASC ?
                 comparator :
                 comparator.reversed();
     }
 
+    //Values of one column have the same type so they can be compared with each other
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> evaluateKey(CompiledExpression compiledExpression, DataRow dataRow) {
+        return (Comparable<Object>) compiledExpression.evaluateAs(dataRow, Comparable.class);
+    }
+
     private <T, U extends Comparable<? super U>> Comparator<T> getComparator(
             Function<? super T, ? extends U> keyExtractor
     ) {
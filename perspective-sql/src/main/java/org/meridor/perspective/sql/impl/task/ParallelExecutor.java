@@ -0,0 +1,113 @@
+package org.meridor.perspective.sql.impl.task;
+
+import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.DataRow;
+import org.meridor.perspective.sql.RowsView;
+import org.meridor.perspective.sql.impl.storage.columnar.ColumnarRows;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Splits rows into fixed size morsels and processes them on the common
+ * fork/join pool. Morsel results are always combined in morsel order so that
+ * returned rows order does not depend on threads scheduling.
+ */
+@Component
+public class ParallelExecutor {
+
+    @Value("${perspective.sql.parallel.threshold:50000}")
+    private int threshold;
+
+    @Value("${perspective.sql.parallel.morsel.size:4096}")
+    private int morselSize;
+
+    /**
+     * Returns input rows when they are already in memory and there are
+     * enough of them to be processed in parallel
+     */
+    public Optional<DataContainer> getParallelInput(RowIterator input) {
+        return input.getData().filter(dc -> isParallel(dc.getRows().size()));
+    }
+
+    //Zero or negative threshold disables parallel execution
+    public boolean isParallel(int rowsCount) {
+        return threshold > 0 && rowsCount >= threshold;
+    }
+
+    /**
+     * Processes morsels in parallel
+     * @param rowsCount total number of rows
+     * @param morselProcessor function accepting morsel start (inclusive) and end (exclusive) row indexes
+     * @return morsel results in morsel order
+     */
+    public <T> List<T> process(int rowsCount, BiFunction<Integer, Integer, T> morselProcessor) {
+        int morselsCount = (rowsCount + morselSize - 1) / morselSize;
+        //Morsels are checked against limits of the query they belong to
+        QueryContext queryContext = QueryContext.current();
+        return IntStream.range(0, morselsCount)
+                .parallel()
+                .mapToObj(m -> {
+                    Supplier<T> morsel = () -> {
+                        QueryContext.check();
+                        return morselProcessor.apply(m * morselSize, Math.min(rowsCount, (m + 1) * morselSize));
+                    };
+                    return queryContext != null ? queryContext.call(morsel) : morsel.get();
+                })
+                .collect(Collectors.toList());
+    }
+
+    public RowIterator filter(DataContainer dataContainer, Predicate<DataRow> predicate) {
+        List<DataRow> rows = dataContainer.getRows();
+        Optional<RowsView> rowsView = dataContainer.getRowsView();
+        if (rowsView.isPresent() && rowsView.get() instanceof ColumnarRows) {
+            //Only matched row indexes are collected and column vectors are reused
+            List<int[]> matchedRowIndexes = process(rows.size(), (from, to) -> IntStream.range(from, to)
+                    .filter(i -> predicate.test(rows.get(i)))
+                    .toArray()
+            );
+            int[] allMatchedRowIndexes = matchedRowIndexes.stream()
+                    .flatMapToInt(IntStream::of)
+                    .toArray();
+            ColumnarRows matchedRows = ((ColumnarRows) rowsView.get()).select(allMatchedRowIndexes);
+            return new ColumnarRowIterator(new DataContainer(dataContainer.getColumnsMap(), matchedRows), matchedRows);
+        }
+        List<List<DataRow>> matchedRows = process(rows.size(), (from, to) -> rows.subList(from, to).stream()
+                .filter(predicate)
+                .collect(Collectors.toList())
+        );
+        DataContainer result = new DataContainer(dataContainer.getColumnsMap());
+        matchedRows.forEach(mr -> mr.forEach(result::addRow));
+        return TaskUtils.iterate(result);
+    }
+
+    public RowIterator map(DataContainer dataContainer, Map<String, List<String>> columnsMap, Function<DataRow, List<Object>> mapper) {
+        List<DataRow> rows = dataContainer.getRows();
+        List<List<List<Object>>> mappedRows = process(rows.size(), (from, to) -> {
+            List<List<Object>> ret = new ArrayList<>(to - from);
+            rows.subList(from, to).forEach(dr -> ret.add(mapper.apply(dr)));
+            return ret;
+        });
+        DataContainer result = new DataContainer(columnsMap);
+        mappedRows.forEach(mr -> mr.forEach(result::addRow));
+        return TaskUtils.iterate(result);
+    }
+
+    void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    void setMorselSize(int morselSize) {
+        this.morselSize = morselSize;
+    }
+}
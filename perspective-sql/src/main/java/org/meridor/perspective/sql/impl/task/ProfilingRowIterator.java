@@ -0,0 +1,87 @@
+package org.meridor.perspective.sql.impl.task;
+
+import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.DataRow;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.meridor.perspective.sql.impl.task.ExecutionProfiler.getAllocatedBytes;
+import static org.meridor.perspective.sql.impl.task.ExecutionProfiler.getAllocatedBytesSince;
+
+/**
+ * Measures time spent and bytes allocated while pulling rows from task and
+ * counts pulled rows. Measured values include previous tasks because they
+ * are evaluated lazily when this task pulls rows.
+ */
+public class ProfilingRowIterator implements RowIterator {
+
+    private final RowIterator rowIterator;
+
+    private long time;
+
+    private Long allocatedBytes;
+
+    private int rowsCount;
+
+    public ProfilingRowIterator(RowIterator rowIterator, long time, Long allocatedBytes) {
+        this.rowIterator = rowIterator;
+        this.time = time;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    @Override
+    public Map<String, List<String>> getColumnsMap() {
+        return rowIterator.getColumnsMap();
+    }
+
+    @Override
+    public Optional<DataContainer> getData() {
+        //Rows returned at once are considered pulled
+        Optional<DataContainer> data = rowIterator.getData();
+        data.ifPresent(dc -> rowsCount += dc.getRows().size());
+        return data;
+    }
+
+    @Override
+    public boolean hasNext() {
+        long startTime = System.nanoTime();
+        long startAllocatedBytes = getAllocatedBytes();
+        boolean hasNext = rowIterator.hasNext();
+        addMeasurements(startTime, startAllocatedBytes);
+        return hasNext;
+    }
+
+    @Override
+    public DataRow next() {
+        long startTime = System.nanoTime();
+        long startAllocatedBytes = getAllocatedBytes();
+        DataRow dataRow = rowIterator.next();
+        addMeasurements(startTime, startAllocatedBytes);
+        rowsCount++;
+        return dataRow;
+    }
+
+    private void addMeasurements(long startTime, long startAllocatedBytes) {
+        time += System.nanoTime() - startTime;
+        Long bytes = getAllocatedBytesSince(startAllocatedBytes);
+        allocatedBytes = (allocatedBytes != null && bytes != null) ? allocatedBytes + bytes : null;
+    }
+
+    /**
+     * Returns wall time in nanoseconds including the time of task iterate call
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public Long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public int getRowsCount() {
+        return rowsCount;
+    }
+
+}
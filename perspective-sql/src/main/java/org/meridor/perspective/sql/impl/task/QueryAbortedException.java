@@ -0,0 +1,12 @@
+package org.meridor.perspective.sql.impl.task;
+
+/**
+ * Thrown from row loops when query is cancelled or exceeds its limits
+ */
+public class QueryAbortedException extends RuntimeException {
+
+    public QueryAbortedException(String message) {
+        super(message);
+    }
+
+}
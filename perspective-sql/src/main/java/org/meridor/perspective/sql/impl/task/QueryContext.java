@@ -0,0 +1,250 @@
+package org.meridor.perspective.sql.impl.task;
+
+import org.meridor.perspective.sql.impl.expression.ParameterExpression;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.meridor.perspective.sql.impl.task.ExecutionProfiler.getAllocatedBytes;
+
+/**
+ * Limits resources used by one query. Context is bound to the thread
+ * evaluating query and to threads processing its morsels so that row loops
+ * in tasks and strategies can check it without passing it around. When
+ * query is cancelled or exceeds any of its limits the next check throws
+ * {@link QueryAbortedException}. Zero or negative limit means no limit.
+ * Allocated bytes limit covers all threads evaluating query while they run
+ * in this context.
+ */
+public class QueryContext {
+
+    private static final ThreadLocal<QueryContext> CURRENT = new ThreadLocal<>();
+
+    //Getting time and allocated bytes on every row is too expensive
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final long timeout;
+
+    private final long deadline;
+
+    private final long maxRows;
+
+    private final long maxAllocatedBytes;
+
+    //Ids of threads currently evaluating query to bytes allocated by them before
+    private final Map<Long, Long> threadsStartAllocatedBytes = new ConcurrentHashMap<>();
+
+    //Bytes allocated by threads which already finished evaluating their parts of query
+    private final AtomicLong finishedAllocatedBytes = new AtomicLong();
+
+    private final AtomicLong rowsCount = new AtomicLong();
+
+    private final AtomicLong checksCount = new AtomicLong();
+
+    private volatile boolean isCancelled;
+
+    private final SharedValues queryValues = new SharedValues();
+
+    private final SharedValues batchValues;
+
+    private final Map<ParameterExpression, Object> parameters = new HashMap<>();
+
+    //Table names to ids of the only rows query should read
+    private final Map<String, Set<String>> rowIds = new HashMap<>();
+
+    /**
+     * @param timeout timeout in milliseconds
+     * @param maxRows maximum number of rows fetched and produced by all query steps
+     * @param maxAllocatedBytes maximum number of bytes allocated by all threads evaluating query
+     */
+    public QueryContext(long timeout, long maxRows, long maxAllocatedBytes) {
+        this(timeout, maxRows, maxAllocatedBytes, null);
+    }
+
+    /**
+     * @param timeout timeout in milliseconds
+     * @param maxRows maximum number of rows fetched and produced by all query steps
+     * @param maxAllocatedBytes maximum number of bytes allocated by all threads evaluating query
+     * @param batchValues values shared with other queries processed in the same batch or null
+     */
+    public QueryContext(long timeout, long maxRows, long maxAllocatedBytes, SharedValues batchValues) {
+        this(timeout, maxRows, maxAllocatedBytes, batchValues, Collections.emptyMap());
+    }
+
+    /**
+     * @param timeout timeout in milliseconds
+     * @param maxRows maximum number of rows fetched and produced by all query steps
+     * @param maxAllocatedBytes maximum number of bytes allocated by all threads evaluating query
+     * @param batchValues values shared with other queries processed in the same batch or null
+     * @param parameters values of prepared query placeholders
+     */
+    public QueryContext(long timeout, long maxRows, long maxAllocatedBytes, SharedValues batchValues, Map<ParameterExpression, Object> parameters) {
+        this.batchValues = batchValues;
+        this.parameters.putAll(parameters);
+        this.timeout = timeout;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        this.maxRows = maxRows;
+        this.maxAllocatedBytes = maxAllocatedBytes;
+    }
+
+    /**
+     * Runs action with this context bound to current thread
+     */
+    public <T> T call(Supplier<T> action) {
+        QueryContext previousContext = CURRENT.get();
+        CURRENT.set(this);
+        long threadId = Thread.currentThread().getId();
+        //Nested calls in the same thread are already measured
+        boolean isMeasured = maxAllocatedBytes > 0 && previousContext != this && startMeasuring(threadId);
+        try {
+            return action.get();
+        } finally {
+            if (isMeasured) {
+                stopMeasuring(threadId);
+            }
+            if (previousContext != null) {
+                CURRENT.set(previousContext);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    public void cancel() {
+        isCancelled = true;
+    }
+
+    /**
+     * Returns context of query evaluated in current thread if any
+     */
+    public static QueryContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Should be called on every processed row
+     */
+    public static void check() {
+        addRows(0);
+    }
+
+    /**
+     * Should be called when rows are fetched or produced
+     * @param count number of new rows
+     */
+    public static void addRows(int count) {
+        QueryContext queryContext = CURRENT.get();
+        if (queryContext != null) {
+            queryContext.checkLimits(count);
+        }
+    }
+
+    /**
+     * Computes value at most once per query, e.g. result of uncorrelated
+     * subquery. Without context value is computed on every call.
+     * @param key value key
+     * @param valueSupplier computes the value
+     */
+    public static <T> T computeOnce(Object key, Supplier<T> valueSupplier) {
+        QueryContext queryContext = CURRENT.get();
+        return queryContext != null ?
+                queryContext.queryValues.get(key, valueSupplier) :
+                valueSupplier.get();
+    }
+
+    /**
+     * Computes value at most once for all queries in the batch, e.g. table
+     * fetch. Outside of batch value is computed on every call, so that
+     * it is not kept in memory longer than needed.
+     * @param key value key
+     * @param valueSupplier computes the value
+     */
+    public static <T> T computeOncePerBatch(Object key, Supplier<T> valueSupplier) {
+        QueryContext queryContext = CURRENT.get();
+        return (queryContext != null && queryContext.batchValues != null) ?
+                queryContext.batchValues.get(key, valueSupplier) :
+                valueSupplier.get();
+    }
+
+    /**
+     * Returns value of prepared query placeholder. Values are not stored in
+     * query plans because plans are shared by all parameter values.
+     * @param parameter placeholder
+     */
+    public static Object getParameter(ParameterExpression parameter) {
+        QueryContext queryContext = CURRENT.get();
+        if (queryContext == null || !queryContext.parameters.containsKey(parameter)) {
+            throw new IllegalStateException(String.format("Value of parameter %s is not bound", parameter));
+        }
+        return queryContext.parameters.get(parameter);
+    }
+
+    /**
+     * Restricts query to table rows with given ids, e.g. to evaluate it
+     * only against rows changed since previous evaluation. Should be
+     * called before query is evaluated.
+     * @param tableName table name
+     * @param ids ids of rows to read
+     */
+    public void restrictRows(String tableName, Set<String> ids) {
+        rowIds.put(tableName, ids);
+    }
+
+    /**
+     * Returns ids of the only table rows query evaluated in current thread
+     * should read if it is restricted to them
+     * @param tableName table name
+     */
+    public static Optional<Set<String>> getRowIds(String tableName) {
+        QueryContext queryContext = CURRENT.get();
+        return queryContext != null ?
+                Optional.ofNullable(queryContext.rowIds.get(tableName)) :
+                Optional.empty();
+    }
+
+    private void checkLimits(int newRowsCount) {
+        if (isCancelled) {
+            throw new QueryAbortedException("Query was cancelled");
+        }
+        long totalRowsCount = (newRowsCount > 0) ? rowsCount.addAndGet(newRowsCount) : rowsCount.get();
+        if (maxRows > 0 && totalRowsCount > maxRows) {
+            throw new QueryAbortedException(String.format("Query processed more than %d rows", maxRows));
+        }
+        if (checksCount.incrementAndGet() % CHECK_INTERVAL == 0 || newRowsCount >= CHECK_INTERVAL) {
+            if (timeout > 0 && System.nanoTime() - deadline > 0) {
+                throw new QueryAbortedException(String.format("Query took more than %d ms", timeout));
+            }
+            if (maxAllocatedBytes > 0 && getAllocatedBytesCount() > maxAllocatedBytes) {
+                throw new QueryAbortedException(String.format("Query allocated more than %d bytes", maxAllocatedBytes));
+            }
+        }
+    }
+
+    private boolean startMeasuring(long threadId) {
+        long allocatedBytes = getAllocatedBytes();
+        return allocatedBytes >= 0 && threadsStartAllocatedBytes.putIfAbsent(threadId, allocatedBytes) == null;
+    }
+
+    private void stopMeasuring(long threadId) {
+        Long startAllocatedBytes = threadsStartAllocatedBytes.remove(threadId);
+        if (startAllocatedBytes != null) {
+            finishedAllocatedBytes.addAndGet(getAllocatedBytes() - startAllocatedBytes);
+        }
+    }
+
+    //Sum of per-thread totals
+    private long getAllocatedBytesCount() {
+        long allocatedBytesCount = finishedAllocatedBytes.get();
+        for (Map.Entry<Long, Long> entry : threadsStartAllocatedBytes.entrySet()) {
+            long allocatedBytes = getAllocatedBytes(entry.getKey());
+            if (allocatedBytes >= 0) {
+                allocatedBytesCount += allocatedBytes - entry.getValue();
+            }
+        }
+        return allocatedBytesCount;
+    }
+
+}
@@ -0,0 +1,27 @@
+package org.meridor.perspective.sql.impl.task;
+
+import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.DataRow;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Lazily pulls rows from previous task. All returned rows
+ * have columns described by {@link #getColumnsMap()}.
+ */
+public interface RowIterator extends Iterator<DataRow> {
+    
+    Map<String, List<String>> getColumnsMap();
+
+    /**
+     * Returns all rows this iterator is going to return when they are
+     * already stored in memory and iteration has not yet started
+     */
+    default Optional<DataContainer> getData() {
+        return Optional.empty();
+    }
+    
+}
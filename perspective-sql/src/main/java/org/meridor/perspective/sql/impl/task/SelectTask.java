@@ -1,8 +1,11 @@
 package org.meridor.perspective.sql.impl.task;
 
+import com.google.common.collect.Iterators;
 import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.DataRow;
 import org.meridor.perspective.sql.ExecutionResult;
 import org.meridor.perspective.sql.impl.expression.ColumnExpression;
+import org.meridor.perspective.sql.impl.expression.CompiledExpression;
 import org.meridor.perspective.sql.impl.expression.ExpressionEvaluator;
 import org.meridor.perspective.sql.impl.table.TablesAware;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,9 +17,15 @@ import org.springframework.stereotype.Component;
 import javax.annotation.PostConstruct;
 import java.sql.SQLException;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static org.meridor.perspective.sql.impl.task.TaskUtils.map;
+import static org.meridor.perspective.sql.impl.task.TaskUtils.materialize;
+
 @Component
 @Lazy
 @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
@@ -27,8 +36,13 @@ public class SelectTask implements Task {
     
     @Autowired
     private TablesAware tablesAware;
+    
+    @Autowired
+    private ParallelExecutor parallelExecutor;
 
     private Map<String, Object> selectionMap;
+    
+    private List<CompiledExpression> compiledSelection;
     private final Map<String, String> tableAliases;
 
     private boolean selectAll;
@@ -41,41 +55,80 @@ public class SelectTask implements Task {
     @PostConstruct
     public void init() {
         selectionMap = processSelectionMap(selectionMap);
+        compiledSelection = selectionMap.values().stream()
+                .map(expressionEvaluator::compile)
+                .collect(Collectors.toList());
     }
 
     @Override
     public ExecutionResult execute(ExecutionResult previousTaskResult) throws SQLException {
-        try {
-            if (selectAll) {
-                return previousTaskResult;
-            }
+        if (selectAll) {
+            return previousTaskResult;
+        }
+        return materialize(iterate(TaskUtils.iterate(previousTaskResult.getData())));
+    }
 
-            DataContainer newData = new DataContainer(selectionMap.keySet());
-            previousTaskResult.getData().getRows().stream()
-                    .map(dr -> selectionMap.keySet().stream()
-                            .map(alias -> expressionEvaluator.evaluate(selectionMap.get(alias), dr))
-                            .collect(Collectors.toList()))
-                    .forEach(newData::addRow);
-            return new ExecutionResult(){
-                {
-                    DataContainer effectiveData = extractSingletonDataContainerIfNeeded(newData);
-                    setData(effectiveData);
-                    setCount(effectiveData.getRows().size());
+    @Override
+    public RowIterator iterate(RowIterator input) throws SQLException {
+        if (selectAll) {
+            return input;
+        }
+        try {
+            Map<String, List<String>> columnsMap = new DataContainer(selectionMap.keySet()).getColumnsMap();
+            if (input instanceof ColumnarRowIterator) {
+                ColumnarRowIterator columnarInput = (ColumnarRowIterator) input;
+                Optional<int[]> columnIndexes = getSelectedColumnIndexes(columnarInput.getDataContainer());
+                if (columnIndexes.isPresent()) {
+                    return columnarInput.project(columnsMap, columnIndexes.get());
                 }
-            };
+            }
+            Function<DataRow, List<Object>> mapper = dr -> compiledSelection.stream()
+                    .map(ce -> ce.evaluate(dr))
+                    .collect(Collectors.toList());
+            Optional<DataContainer> parallelInput = parallelExecutor.getParallelInput(input);
+            RowIterator rows = parallelInput.isPresent() ?
+                    parallelExecutor.map(parallelInput.get(), columnsMap, mapper) :
+                    map(input, columnsMap, mapper);
+            return extractSingletonDataContainerIfNeeded(rows);
         } catch (Exception e) {
             throw new SQLException(e);
         }
     }
 
-    private DataContainer extractSingletonDataContainerIfNeeded(DataContainer dataContainer) {
-        if (dataContainer.getColumnNames().size() == 1 && dataContainer.getRows().size() == 1) {
-            Object singletonValue = dataContainer.getRows().get(0).getValues().get(0);
+    //Selecting only existing columns does not require to evaluate anything
+    private Optional<int[]> getSelectedColumnIndexes(DataContainer dataContainer) {
+        int[] columnIndexes = new int[selectionMap.size()];
+        int i = 0;
+        for (Object expression : selectionMap.values()) {
+            if (!(expression instanceof ColumnExpression)) {
+                return Optional.empty();
+            }
+            ColumnExpression columnExpression = (ColumnExpression) expression;
+            try {
+                columnIndexes[i++] = columnExpression.useAnyTable() ?
+                        dataContainer.indexOf(columnExpression.getColumnName()) :
+                        dataContainer.indexOf(columnExpression.getColumnName(), columnExpression.getTableAlias());
+            } catch (IllegalArgumentException e) {
+                //Error will be reported when evaluating rows
+                return Optional.empty();
+            }
+        }
+        return Optional.of(columnIndexes);
+    }
+
+    //We need to look ahead at most two rows to detect singleton data container
+    private RowIterator extractSingletonDataContainerIfNeeded(RowIterator rows) {
+        if (selectionMap.size() != 1 || !rows.hasNext()) {
+            return rows;
+        }
+        DataRow firstRow = rows.next();
+        if (!rows.hasNext()) {
+            Object singletonValue = firstRow.getValues().get(0);
             if (singletonValue instanceof DataContainer) {
-                return (DataContainer) singletonValue;
+                return TaskUtils.iterate((DataContainer) singletonValue);
             }
         }
-        return dataContainer;
+        return TaskUtils.iterate(rows.getColumnsMap(), Iterators.concat(Iterators.singletonIterator(firstRow), rows));
     }
     
     //Here we convert ColumnExpression(*) expressions to a list of ColumnExpression(columnName) 
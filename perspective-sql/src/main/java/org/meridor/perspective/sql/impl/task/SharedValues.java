@@ -0,0 +1,25 @@
+package org.meridor.perspective.sql.impl.task;
+
+import com.google.common.base.Suppliers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Values computed at most once and then reused by all threads, e.g.
+ * subquery results of one query or table fetches of queries in one batch
+ */
+public class SharedValues {
+
+    private final Map<Object, com.google.common.base.Supplier<?>> values = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Supplier<T> valueSupplier) {
+        //Memoizing supplier is computed outside of map lock so that nested values can use the map too
+        return (T) values
+                .computeIfAbsent(key, k -> Suppliers.memoize(valueSupplier::get))
+                .get();
+    }
+
+}
@@ -4,8 +4,20 @@ import org.meridor.perspective.sql.ExecutionResult;
 
 import java.sql.SQLException;
 
+import static org.meridor.perspective.sql.impl.task.TaskUtils.materialize;
+
 public interface Task {
     
     ExecutionResult execute(ExecutionResult previousTaskResult) throws SQLException;
+
+    /**
+     * Returns task results as lazy iterator. Default implementation is a
+     * pipeline breaker: it pulls all input rows and calls {@link #execute(ExecutionResult)}.
+     * @param input previous task rows or null for the first task
+     */
+    default RowIterator iterate(RowIterator input) throws SQLException {
+        ExecutionResult previousTaskResult = (input != null) ? materialize(input) : null;
+        return TaskUtils.iterate(execute(previousTaskResult).getData());
+    }
     
 }
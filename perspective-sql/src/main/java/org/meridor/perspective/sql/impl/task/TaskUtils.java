@@ -0,0 +1,162 @@
+package org.meridor.perspective.sql.impl.task;
+
+import com.google.common.collect.AbstractIterator;
+import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.DataRow;
+import org.meridor.perspective.sql.ExecutionResult;
+import org.meridor.perspective.sql.RowsView;
+import org.meridor.perspective.sql.impl.storage.columnar.ColumnarRows;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+public final class TaskUtils {
+
+    public static RowIterator iterate(DataContainer dataContainer) {
+        Optional<RowsView> rowsView = dataContainer.getRowsView();
+        if (rowsView.isPresent() && rowsView.get() instanceof ColumnarRows) {
+            return new ColumnarRowIterator(dataContainer, (ColumnarRows) rowsView.get());
+        }
+        Iterator<DataRow> rows = dataContainer.getRows().iterator();
+        return new RowIteratorImpl(dataContainer.getColumnsMap()) {
+            
+            private boolean started;
+            
+            @Override
+            protected DataRow computeNext() {
+                started = true;
+                return rows.hasNext() ? rows.next() : endOfData();
+            }
+
+            @Override
+            public Optional<DataContainer> getData() {
+                return started ? Optional.empty() : Optional.of(dataContainer);
+            }
+        };
+    }
+
+    public static RowIterator iterate(Map<String, List<String>> columnsMap, Iterator<DataRow> rows) {
+        return new RowIteratorImpl(columnsMap) {
+            @Override
+            protected DataRow computeNext() {
+                return rows.hasNext() ? rows.next() : endOfData();
+            }
+        };
+    }
+
+    //Tasks are chained as lazy iterators, rows are pulled only when materializing the result
+    public static RowIterator chain(Collection<Task> tasks) throws SQLException {
+        RowIterator previousTaskRows = null;
+        for (Task task : tasks) {
+            previousTaskRows = task.iterate(previousTaskRows);
+        }
+        return previousTaskRows;
+    }
+
+    public static RowIterator filter(RowIterator input, Predicate<DataRow> predicate) {
+        if (input instanceof ColumnarRowIterator) {
+            return ((ColumnarRowIterator) input).filter(predicate);
+        }
+        return new RowIteratorImpl(input.getColumnsMap()) {
+            @Override
+            protected DataRow computeNext() {
+                while (input.hasNext()) {
+                    QueryContext.check();
+                    DataRow dataRow = input.next();
+                    if (predicate.test(dataRow)) {
+                        return dataRow;
+                    }
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    public static RowIterator map(RowIterator input, Map<String, List<String>> columnsMap, Function<DataRow, List<Object>> mapper) {
+        DataContainer dataContainer = new DataContainer(columnsMap);
+        return new RowIteratorImpl(columnsMap) {
+            @Override
+            protected DataRow computeNext() {
+                QueryContext.check();
+                return input.hasNext() ?
+                        new DataRow(dataContainer, mapper.apply(input.next())) :
+                        endOfData();
+            }
+        };
+    }
+
+    /**
+     * Skips offset rows and returns at most count rows. Stops pulling
+     * from input as soon as count rows were returned.
+     */
+    public static RowIterator limit(RowIterator input, int offset, int count) {
+        return new RowIteratorImpl(input.getColumnsMap()) {
+            
+            private int skipped = 0;
+            
+            private int returned = 0;
+            
+            @Override
+            protected DataRow computeNext() {
+                while (skipped < offset && input.hasNext()) {
+                    input.next();
+                    skipped++;
+                }
+                if (returned >= count || !input.hasNext()) {
+                    return endOfData();
+                }
+                returned++;
+                return input.next();
+            }
+        };
+    }
+
+    /**
+     * Pulls all rows from iterator. As rows are evaluated lazily all
+     * evaluation errors are thrown from here.
+     */
+    public static ExecutionResult materialize(RowIterator rows) throws SQLException {
+        try {
+            DataContainer dataContainer;
+            if (rows instanceof ColumnarRowIterator) {
+                dataContainer = ((ColumnarRowIterator) rows).materialize();
+                QueryContext.addRows(dataContainer.getRows().size());
+            } else {
+                dataContainer = new DataContainer(rows.getColumnsMap());
+                rows.forEachRemaining(dr -> {
+                    QueryContext.addRows(1);
+                    dataContainer.addRow(dr);
+                });
+            }
+            return new ExecutionResult() {
+                {
+                    setData(dataContainer);
+                    setCount(dataContainer.getRows().size());
+                }
+            };
+        } catch (Exception e) {
+            throw new SQLException(e);
+        }
+    }
+
+    private static abstract class RowIteratorImpl extends AbstractIterator<DataRow> implements RowIterator {
+
+        private final Map<String, List<String>> columnsMap;
+
+        RowIteratorImpl(Map<String, List<String>> columnsMap) {
+            this.columnsMap = columnsMap;
+        }
+
+        @Override
+        public Map<String, List<String>> getColumnsMap() {
+            return columnsMap;
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package org.meridor.perspective.sql.impl.task;
+
+import org.meridor.perspective.sql.DataRow;
+import org.meridor.perspective.sql.ExecutionResult;
+import org.meridor.perspective.sql.impl.parser.Pair;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.meridor.perspective.sql.impl.task.TaskUtils.materialize;
+
+/**
+ * Fused {@link OrderTask} and {@link LimitTask}: keeps only first offset + count
+ * rows in a bounded heap instead of sorting the whole input
+ */
+public class TopNTask implements Task {
+
+    private final OrderTask orderTask;
+
+    private final int offset;
+
+    private final int count;
+
+    public TopNTask(OrderTask orderTask, int offset, int count) {
+        this.orderTask = orderTask;
+        this.offset = offset;
+        this.count = count;
+    }
+
+    @Override
+    public ExecutionResult execute(ExecutionResult previousTaskResult) throws SQLException {
+        return materialize(iterate(TaskUtils.iterate(previousTaskResult.getData())));
+    }
+
+    @Override
+    public RowIterator iterate(RowIterator input) throws SQLException {
+        try {
+            Comparator<DataRow> comparator = orderTask.createComparator();
+            if (comparator == null) {
+                return input;
+            }
+            //Row number is used to keep the same order of equal rows as in stable sort
+            Comparator<Pair<Integer, DataRow>> rowComparator = Comparator
+                    .comparing((Pair<Integer, DataRow> p) -> p.getSecond(), comparator)
+                    .thenComparing(Pair::getFirst);
+            long heapSize = (long) offset + count;
+            PriorityQueue<Pair<Integer, DataRow>> heap = new PriorityQueue<>(rowComparator.reversed());
+            int rowNumber = 0;
+            while (input.hasNext()) {
+                QueryContext.check();
+                heap.add(new Pair<>(rowNumber++, input.next()));
+                if (heap.size() > heapSize) {
+                    heap.poll();
+                }
+            }
+            List<DataRow> rows = heap.stream()
+                    .sorted(rowComparator)
+                    .map(Pair::getSecond)
+                    .collect(Collectors.toList());
+            return TaskUtils.iterate(input.getColumnsMap(), rows.iterator());
+        } catch (Exception e) {
+            throw new SQLException(e);
+        }
+    }
+
+    public OrderTask getOrderTask() {
+        return orderTask;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "TopNTask{" +
+                "expressions=" + orderTask.getExpressions() +
+                ", offset=" + offset +
+                ", count=" + count +
+                '}';
+    }
+}
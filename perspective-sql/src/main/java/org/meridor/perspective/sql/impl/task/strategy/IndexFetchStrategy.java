@@ -6,11 +6,12 @@ import org.meridor.perspective.sql.impl.index.impl.IndexSignature;
 import org.meridor.perspective.sql.impl.parser.DataSource;
 import org.meridor.perspective.sql.impl.storage.IndexStorage;
 import org.meridor.perspective.sql.impl.table.TablesAware;
+import org.meridor.perspective.sql.impl.task.QueryContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
-import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 @Component
 public class IndexFetchStrategy implements DataSourceStrategy {
@@ -43,9 +44,11 @@ public class IndexFetchStrategy implements DataSourceStrategy {
         }
         Index index = indexCandidate.get();
         DataContainer result = new DataContainer(Collections.singletonMap(tableAlias, columnNames));
+        Optional<Set<String>> rowIds = QueryContext.getRowIds(tableName);
         index.getKeys().forEach(k -> {
-            int numIds = index.get(k).size();
-            IntStream.rangeClosed(1, numIds).forEach(any -> result.addRow(k.getValues()));
+            Set<String> ids = index.get(k);
+            long numIds = rowIds.isPresent() ? ids.stream().filter(rowIds.get()::contains).count() : ids.size();
+            LongStream.rangeClosed(1, numIds).forEach(any -> result.addRow(k.getValues()));
         });
         return result;
     }
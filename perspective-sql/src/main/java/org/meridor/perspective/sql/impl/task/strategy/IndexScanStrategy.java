@@ -3,9 +3,11 @@ package org.meridor.perspective.sql.impl.task.strategy;
 import org.meridor.perspective.sql.DataContainer;
 import org.meridor.perspective.sql.impl.expression.ColumnRelation;
 import org.meridor.perspective.sql.impl.expression.IndexBooleanExpression;
+import org.meridor.perspective.sql.impl.expression.ValueRange;
 import org.meridor.perspective.sql.impl.index.Index;
 import org.meridor.perspective.sql.impl.index.Key;
 import org.meridor.perspective.sql.impl.index.Keys;
+import org.meridor.perspective.sql.impl.index.SortedIndex;
 import org.meridor.perspective.sql.impl.index.impl.IndexSignature;
 import org.meridor.perspective.sql.impl.parser.DataSource;
 import org.meridor.perspective.sql.impl.parser.DataSourceUtils;
@@ -14,14 +16,16 @@ import org.meridor.perspective.sql.impl.parser.Pair;
 import org.meridor.perspective.sql.impl.storage.DataFetcher;
 import org.meridor.perspective.sql.impl.storage.IndexStorage;
 import org.meridor.perspective.sql.impl.table.Column;
-import org.meridor.perspective.sql.impl.table.TablesAware;
+import org.meridor.perspective.sql.impl.task.ExecutionProfiler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.columnsToMap;
 import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.columnsToNames;
@@ -35,12 +39,12 @@ public class IndexScanStrategy extends ScanStrategy {
     @Autowired
     private DataFetcher dataFetcher;
 
-    @Autowired
-    private TablesAware tablesAware;
-    
     @Autowired
     private IndexStorage indexStorage;
 
+    @Autowired
+    private ExecutionProfiler executionProfiler;
+
     @Override
     public DataContainer process(DataSource dataSource, Map<String, String> tableAliases) {
         checkLeftDataSource(dataSource);
@@ -53,26 +57,32 @@ public class IndexScanStrategy extends ScanStrategy {
             IndexBooleanExpression rightCondition = getCondition(nextDataSource);
             List<ColumnRelation> columnRelations = rightCondition.getColumnRelations();
             Assert.isTrue(columnRelations.size() > 0, "At least one column relation should be present");
-            return foreignKeyJoin(tableAlias, columnRelations, condition.getFixedValueConditions(tableAlias), rightTableAlias, rightCondition.getFixedValueConditions(rightTableAlias), nextDataSource.getJoinType().get(), tableAliases);
+            JoinType joinType = nextDataSource.getJoinType().get();
+            return executionProfiler.profile(
+                    "join",
+                    () -> String.format("foreign key join (%s)", joinType.name().toLowerCase()),
+                    () -> foreignKeyJoin(dataSource, columnRelations, condition.getFixedValueConditions(tableAlias), nextDataSource, rightCondition.getFixedValueConditions(rightTableAlias), joinType, tableAliases),
+                    dc -> dc.getRows().size()
+            );
         } else {
-            return fetch(tableAlias, condition, tableAliases);
+            return fetch(dataSource, condition, tableAliases);
         }
     }
     
     private static IndexBooleanExpression getCondition(DataSource dataSource) {
-        return (IndexBooleanExpression) dataSource.getCondition().get();
+        return ((IndexBooleanExpression) dataSource.getCondition().get()).bindParameters();
     } 
 
     //Here we assume that condition contains only indexed columns - query 
     //planner should guarantee that. 
-    private DataContainer fetch(String tableAlias, IndexBooleanExpression condition, Map<String, String> tableAliases) {
+    private DataContainer fetch(DataSource dataSource, IndexBooleanExpression condition, Map<String, String> tableAliases) {
+        String tableAlias = dataSource.getTableAlias().get();
         String tableName = tableAliases.get(tableAlias);
         Set<String> ids = getIdsFromIndex(tableName, tableAlias, condition);
-        return fetchContainer(tableName, tableAlias, ids);
+        return fetchContainer(tableName, tableAlias, ids, getFetchedColumns(dataSource, tableName));
     }
     
-    private DataContainer fetchContainer(String tableName, String tableAlias, Set<String> ids) {
-        Set<Column> columns = tablesAware.getColumns(tableName);
+    private DataContainer fetchContainer(String tableName, String tableAlias, Set<String> ids, Collection<Column> columns) {
         Map<String, List<String>> columnsMap = columnsToMap(tableAlias, columns);
         DataContainer dataContainer = new DataContainer(columnsMap);
         fetch(tableName, ids, columns).values()
@@ -84,34 +94,61 @@ public class IndexScanStrategy extends ScanStrategy {
         return dataFetcher.fetch(tableName, columns, ids);
     }
     
+    //Smallest posting lists are intersected first and intersection stops as soon as it becomes empty
     private Set<String> getIdsFromIndex(String tableName, String tableAlias, IndexBooleanExpression condition) {
         Map<IndexSignature, Map<String, Set<Object>>> conditions = splitConditionByIndexes(tableName, tableAlias, condition);
-        Optional<Set<String>> idsCandidate = conditions.keySet().stream()
-                .map(is -> getMatchedIndexIds(is, conditions.get(is)))
-                .reduce(DataSourceUtils::intersection);
-        return idsCandidate.isPresent() ? idsCandidate.get() : Collections.emptySet();
+        Map<String, ValueRange> rangeConditions = condition.getRangeConditions(tableAlias);
+        List<Pair<Long, Supplier<Set<String>>>> idsSuppliers = Stream.concat(
+                conditions.keySet().stream()
+                        .map(is -> new Pair<Long, Supplier<Set<String>>>(
+                                countMatchedIndexIds(is, conditions.get(is)),
+                                () -> getMatchedIndexIds(is, conditions.get(is))
+                        )),
+                rangeConditions.keySet().stream()
+                        .map(cn -> new Pair<Long, Supplier<Set<String>>>(
+                                countMatchedIndexIds(tableName, cn, rangeConditions.get(cn)),
+                                () -> getMatchedIndexIds(tableName, cn, rangeConditions.get(cn))
+                        ))
+        )
+                .sorted(Comparator.comparing(Pair::getFirst))
+                .collect(Collectors.toList());
+        Set<String> ids = null;
+        for (Pair<Long, Supplier<Set<String>>> idsSupplier : idsSuppliers) {
+            if (ids == null) {
+                ids = new HashSet<>(idsSupplier.getSecond().get());
+            } else {
+                ids.retainAll(idsSupplier.getSecond().get());
+            }
+            if (ids.isEmpty()) {
+                break;
+            }
+        }
+        return ids != null ? ids : Collections.emptySet();
     }
 
     private Map<IndexSignature, Map<String, Set<Object>>> splitConditionByIndexes(String tableName, String tableAlias, IndexBooleanExpression condition) {
         Map<IndexSignature, Map<String, Set<Object>>> ret = new HashMap<>();
         Map<String, Set<Object>> conditionAsMap = condition.getFixedValueConditions(tableAlias);
         Set<String> conditionColumns = conditionAsMap.keySet();
-        indexStorage.getSignatures().forEach(is -> {
-            Map<String, Set<String>> desiredColumns = is.getDesiredColumns();
-            if (desiredColumns.containsKey(tableName)) {
-                Set<String> indexColumns = desiredColumns.get(tableName);
-                if (conditionColumns.containsAll(indexColumns)) {
-                    Map<String, Set<Object>> indexCondition = new HashMap<>();
-                    indexColumns.forEach(
-                            indexColumn -> {
-                                indexCondition.put(indexColumn, conditionAsMap.get(indexColumn));
-                                conditionAsMap.remove(indexColumn);
-                            }
-                    );
-                    ret.put(is, indexCondition);
-                }
-            }
-        });
+        //Wider indexes go first, otherwise narrower ones could take away some of their columns
+        indexStorage.getSignatures().stream()
+                .sorted(Comparator.comparing(is -> -is.getDesiredColumns().getOrDefault(tableName, Collections.emptySet()).size()))
+                .forEachOrdered(is -> {
+                    Map<String, Set<String>> desiredColumns = is.getDesiredColumns();
+                    if (desiredColumns.containsKey(tableName)) {
+                        Set<String> indexColumns = desiredColumns.get(tableName);
+                        if (conditionColumns.containsAll(indexColumns)) {
+                            Map<String, Set<Object>> indexCondition = new HashMap<>();
+                            indexColumns.forEach(
+                                    indexColumn -> {
+                                        indexCondition.put(indexColumn, conditionAsMap.get(indexColumn));
+                                        conditionAsMap.remove(indexColumn);
+                                    }
+                            );
+                            ret.put(is, indexCondition);
+                        }
+                    }
+                });
         if (!conditionAsMap.isEmpty()) {
             throw new IllegalStateException(String.format(
                     "Failed to completely split condition by indexes. The following columns were not selected: %s",
@@ -129,6 +166,35 @@ public class IndexScanStrategy extends ScanStrategy {
                 .collect(Collectors.toSet());
     }
 
+    private long countMatchedIndexIds(IndexSignature indexSignature, Map<String, Set<Object>> condition) {
+        Index index = getIndex(indexSignature);
+        return conditionToKeys(index.getKeyLength(), condition).stream()
+                .mapToLong(index::count)
+                .sum();
+    }
+
+    private long countMatchedIndexIds(String tableName, String columnName, ValueRange valueRange) {
+        Index index = getIndex(tableName, columnName);
+        Assert.isTrue(index instanceof SortedIndex, String.format("Index for column %s should be sorted", columnName));
+        return ((SortedIndex) index).count(
+                valueRange.getLowerBound().map(Keys::key).orElse(null),
+                valueRange.isLowerBoundInclusive(),
+                valueRange.getUpperBound().map(Keys::key).orElse(null),
+                valueRange.isUpperBoundInclusive()
+        );
+    }
+
+    private Set<String> getMatchedIndexIds(String tableName, String columnName, ValueRange valueRange) {
+        Index index = getIndex(tableName, columnName);
+        Assert.isTrue(index instanceof SortedIndex, String.format("Index for column %s should be sorted", columnName));
+        return ((SortedIndex) index).get(
+                valueRange.getLowerBound().map(Keys::key).orElse(null),
+                valueRange.isLowerBoundInclusive(),
+                valueRange.getUpperBound().map(Keys::key).orElse(null),
+                valueRange.isUpperBoundInclusive()
+        );
+    }
+
     //Set of objects is used for OR conditions. Otherwise set contains only one value.
     private static Set<Key> conditionToKeys(int keyLength, Map<String, Set<Object>> condition) {
         return crossProduct(new ArrayList<>(condition.values())).stream()
@@ -152,15 +218,17 @@ public class IndexScanStrategy extends ScanStrategy {
     }
 
     private DataContainer foreignKeyJoin(
-            String leftTableAlias,
+            DataSource leftDataSource,
             List<ColumnRelation> columnRelations,
             Map<String, Set<Object>> leftCondition,
-            String rightTableAlias,
+            DataSource rightDataSource,
             Map<String, Set<Object>> rightCondition,
             JoinType joinType,
             Map<String, String> tableAliases
     ) {
         
+        String leftTableAlias = leftDataSource.getTableAlias().get();
+        String rightTableAlias = rightDataSource.getTableAlias().get();
         String leftTableName = tableAliases.get(leftTableAlias);
         String rightTableName = tableAliases.get(rightTableAlias);
 
@@ -187,8 +255,8 @@ public class IndexScanStrategy extends ScanStrategy {
         Set<String> allMatchedLeftIds = allMatchedIdsPair.isPresent() ? allMatchedIdsPair.get().getFirst() : Collections.emptySet();
         Set<String> allMatchedRightIds = allMatchedIdsPair.isPresent() ? allMatchedIdsPair.get().getSecond() : Collections.emptySet();
 
-        Collection<Column> leftTableColumns = tablesAware.getColumns(leftTableName); //These are all table columns
-        Collection<Column> rightTableColumns = tablesAware.getColumns(rightTableName);
+        Collection<Column> leftTableColumns = getFetchedColumns(leftDataSource, leftTableName);
+        Collection<Column> rightTableColumns = getFetchedColumns(rightDataSource, rightTableName);
 
         Map<String, List<String>> resultingColumnsMap = new LinkedHashMap<String, List<String>>() {
             {
@@ -199,8 +267,8 @@ public class IndexScanStrategy extends ScanStrategy {
         DataContainer dataContainer = new DataContainer(resultingColumnsMap);
 
         //Always adding inner join results
-        Map<String, List<Object>> leftResults = fetch(leftTableName, allMatchedLeftIds, tablesAware.getColumns(leftTableName));
-        Map<String, List<Object>> rightResults = fetch(rightTableName, allMatchedRightIds, tablesAware.getColumns(rightTableName));
+        Map<String, List<Object>> leftResults = fetch(leftTableName, allMatchedLeftIds, leftTableColumns);
+        Map<String, List<Object>> rightResults = fetch(rightTableName, allMatchedRightIds, rightTableColumns);
         columnRelationsIds.stream()
                 .flatMap(cri -> cri.getFirst().stream())
                 .filter(p -> allMatchedLeftIds.contains(p.getFirst()) && allMatchedRightIds.contains(p.getSecond()))
@@ -226,6 +294,7 @@ public class IndexScanStrategy extends ScanStrategy {
                     leftTableAlias,
                     leftIndex,
                     allMatchedLeftIds,
+                    leftTableColumns,
                     rightTableColumns.size(),
                     true,
                     dataContainer
@@ -237,6 +306,7 @@ public class IndexScanStrategy extends ScanStrategy {
                     rightTableAlias,
                     rightIndex,
                     allMatchedRightIds,
+                    rightTableColumns,
                     leftTableColumns.size(),
                     false,
                     dataContainer
@@ -317,13 +387,14 @@ public class IndexScanStrategy extends ScanStrategy {
             String tableAlias,
             Index index,
             Set<String> matchedIds,
+            Collection<Column> columns,
             int optionalColumnsSize,
             boolean isLeftJoin,
             DataContainer dataContainer
     ) {
         Set<String> allIds = index.getIds();
         Set<String> notMatchedIds = difference(allIds, matchedIds);
-        DataContainer requiredResults = fetchContainer(tableName, tableAlias, notMatchedIds);
+        DataContainer requiredResults = fetchContainer(tableName, tableAlias, notMatchedIds, columns);
         requiredResults.getRows().forEach(dr -> {
                 List<Object> values = new ArrayList<Object>() {
                     {
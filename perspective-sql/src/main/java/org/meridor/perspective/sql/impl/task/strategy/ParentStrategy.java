@@ -2,6 +2,7 @@ package org.meridor.perspective.sql.impl.task.strategy;
 
 import org.meridor.perspective.sql.DataContainer;
 import org.meridor.perspective.sql.impl.parser.DataSource;
+import org.meridor.perspective.sql.impl.task.ExecutionProfiler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
@@ -13,9 +14,12 @@ public class ParentStrategy extends ScanStrategy {
 
     private final ApplicationContext applicationContext;
 
+    private final ExecutionProfiler executionProfiler;
+
     @Autowired
-    public ParentStrategy(ApplicationContext applicationContext) {
+    public ParentStrategy(ApplicationContext applicationContext, ExecutionProfiler executionProfiler) {
         this.applicationContext = applicationContext;
+        this.executionProfiler = executionProfiler;
     }
 
     @Override
@@ -39,12 +43,24 @@ public class ParentStrategy extends ScanStrategy {
             case INDEX_FETCH: return fetchDataFromStrategy(IndexFetchStrategy.class, dataSource, tableAliases);
             case INDEX_SCAN: return fetchDataFromStrategy(IndexScanStrategy.class, dataSource, tableAliases);
             case TABLE_SCAN: return fetchDataFromStrategy(TableScanStrategy.class, dataSource, tableAliases);
+            case SUBQUERY_SCAN: return fetchDataFromStrategy(SubqueryScanStrategy.class, dataSource, tableAliases);
         }
     }
 
     private <T extends DataSourceStrategy> DataContainer fetchDataFromStrategy(Class<T> cls, DataSource dataSource, Map<String, String> tableAliases) {
         T dataSourceStrategy = applicationContext.getBean(cls);
-        return dataSourceStrategy.process(dataSource, tableAliases);
+        return executionProfiler.profile(
+                "strategy",
+                () -> getStrategyDescription(dataSource, tableAliases),
+                () -> dataSourceStrategy.process(dataSource, tableAliases),
+                dc -> dc.getRows().size()
+        );
+    }
+
+    private static String getStrategyDescription(DataSource dataSource, Map<String, String> tableAliases) {
+        String strategyName = dataSource.getType().name().toLowerCase().replace('_', ' ');
+        String tableAlias = dataSource.getTableAlias().orElse("");
+        return String.format("%s of %s as %s", strategyName, tableAliases.get(tableAlias), tableAlias);
     }
     
 }
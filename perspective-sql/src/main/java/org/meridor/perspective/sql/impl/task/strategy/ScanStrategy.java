@@ -2,17 +2,26 @@ package org.meridor.perspective.sql.impl.task.strategy;
 
 import org.meridor.perspective.sql.DataContainer;
 import org.meridor.perspective.sql.DataRow;
-import org.meridor.perspective.sql.impl.expression.BooleanExpression;
-import org.meridor.perspective.sql.impl.expression.ExpressionEvaluator;
+import org.meridor.perspective.sql.impl.expression.*;
 import org.meridor.perspective.sql.impl.parser.DataSource;
 import org.meridor.perspective.sql.impl.parser.JoinType;
+import org.meridor.perspective.sql.impl.parser.Pair;
+import org.meridor.perspective.sql.impl.table.Column;
+import org.meridor.perspective.sql.impl.table.TablesAware;
+import org.meridor.perspective.sql.impl.task.ExecutionProfiler;
+import org.meridor.perspective.sql.impl.task.ParallelExecutor;
+import org.meridor.perspective.sql.impl.task.QueryContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.columnsToCondition;
+import static org.meridor.perspective.beans.BooleanRelation.EQUAL;
+import static org.meridor.perspective.sql.impl.expression.ExpressionUtils.*;
+import static org.meridor.perspective.sql.impl.parser.DataSource.DataSourceType.SUBQUERY_SCAN;
 import static org.meridor.perspective.sql.impl.parser.DataSource.DataSourceType.TABLE_SCAN;
 import static org.meridor.perspective.sql.impl.parser.DataSourceUtils.crossProduct;
 
@@ -22,11 +31,31 @@ public abstract class ScanStrategy implements DataSourceStrategy {
     @Autowired
     private ExpressionEvaluator expressionEvaluator;
 
+    @Autowired
+    private ParallelExecutor parallelExecutor;
+
+    @Autowired
+    private TablesAware tablesAware;
+
+    @Autowired
+    private ExecutionProfiler executionProfiler;
+
+    //Query planner passes only columns used by query, otherwise all table columns are fetched
+    protected Collection<Column> getFetchedColumns(DataSource dataSource, String tableName) {
+        Set<Column> tableColumns = tablesAware.getColumns(tableName);
+        List<String> fetchedColumns = dataSource.getFetchedColumns();
+        return fetchedColumns.isEmpty() ?
+                tableColumns :
+                tableColumns.stream()
+                        .filter(c -> fetchedColumns.contains(c.getName()))
+                        .collect(Collectors.toList());
+    }
+
     protected DataContainer join(DataContainer left, DataSource rightDataSource, DataContainer right) {
         JoinType joinType = rightDataSource.getJoinType().get();
         List<String> joinColumns = rightDataSource.getColumns();
         Optional<BooleanExpression> joinCondition = 
-                rightDataSource.getType() == TABLE_SCAN ?
+                rightDataSource.getType() == TABLE_SCAN || rightDataSource.getType() == SUBQUERY_SCAN ?
                         rightDataSource.getCondition() : Optional.empty();
         boolean isNaturalJoin = rightDataSource.isNaturalJoin();
         if (isNaturalJoin) {
@@ -77,13 +106,249 @@ public abstract class ScanStrategy implements DataSourceStrategy {
         return new ArrayList<>(tableAliases).get(0);
     }
     
-    //A naive implementation filtering cross join by condition
     private DataContainer innerJoin(DataContainer left, DataContainer right, Optional<BooleanExpression> joinCondition) {
-        return crossJoin(left, right, joinCondition, JoinType.INNER);
+        return joinCondition.isPresent() ?
+                equiOrCrossJoin(left, right, joinCondition.get(), JoinType.INNER) :
+                profileJoin("cross join", JoinType.INNER, left, right, () -> crossJoin(left, right, joinCondition, JoinType.INNER));
     }
 
     private DataContainer outerJoin(DataContainer left, JoinType joinType, DataContainer right, BooleanExpression joinCondition) {
-        return crossJoin(left, right, Optional.ofNullable(joinCondition), joinType);
+        return equiOrCrossJoin(left, right, joinCondition, joinType);
+    }
+
+    private DataContainer equiOrCrossJoin(DataContainer left, DataContainer right, BooleanExpression joinCondition, JoinType joinType) {
+        Optional<List<Pair<Integer, Integer>>> keyColumns = getEquiJoinColumns(left, right, joinCondition);
+        if (keyColumns.isPresent()) {
+            List<List<Object>> leftKeys = getJoinKeys(left.getRows(), keyColumns.get(), Pair::getFirst);
+            List<List<Object>> rightKeys = getJoinKeys(right.getRows(), keyColumns.get(), Pair::getSecond);
+            if (areKeysComparable(leftKeys, rightKeys, keyColumns.get().size())) {
+                return profileJoin("hash join", joinType, left, right, () -> hashJoin(left, leftKeys, right, rightKeys, joinType));
+            }
+        }
+        //A naive implementation filtering cross join by condition
+        return profileJoin("nested loop join", joinType, left, right, () -> crossJoin(left, right, Optional.of(joinCondition), joinType));
+    }
+
+    private DataContainer profileJoin(String algorithm, JoinType joinType, DataContainer left, DataContainer right, Supplier<DataContainer> join) {
+        return executionProfiler.profile(
+                "join",
+                () -> String.format("%s (%s)", algorithm, joinType.name().toLowerCase()),
+                join,
+                dc -> dc.getRows().size(),
+                left.getRows().size() + right.getRows().size()
+        );
+    }
+
+    /**
+     * Returns pairs of left and right column indexes when join condition
+     * is a conjunction of column equalities, e.g. a.id = b.id AND a.name = b.name
+     */
+    private static Optional<List<Pair<Integer, Integer>>> getEquiJoinColumns(DataContainer left, DataContainer right, BooleanExpression joinCondition) {
+        List<Pair<Integer, Integer>> ret = new ArrayList<>();
+        return collectEquiJoinColumns(left, right, joinCondition, ret) ?
+                Optional.of(ret) : Optional.empty();
+    }
+
+    private static boolean collectEquiJoinColumns(DataContainer left, DataContainer right, Object expression, List<Pair<Integer, Integer>> keyColumns) {
+        if (expression instanceof BinaryBooleanExpression) {
+            BinaryBooleanExpression binaryBooleanExpression = (BinaryBooleanExpression) expression;
+            return
+                    binaryBooleanExpression.getBinaryBooleanOperator() == BinaryBooleanOperator.AND &&
+                    collectEquiJoinColumns(left, right, binaryBooleanExpression.getLeft(), keyColumns) &&
+                    collectEquiJoinColumns(left, right, binaryBooleanExpression.getRight(), keyColumns);
+        }
+        if (expression instanceof SimpleBooleanExpression) {
+            SimpleBooleanExpression simpleBooleanExpression = (SimpleBooleanExpression) expression;
+            Object first = simpleBooleanExpression.getLeft();
+            Object second = simpleBooleanExpression.getRight();
+            if (
+                    simpleBooleanExpression.getBooleanRelation() != EQUAL ||
+                    !isColumnExpression(first) || !isColumnExpression(second)
+            ) {
+                return false;
+            }
+            Optional<Integer> firstInLeft = getColumnIndex(left, asColumnExpression(first));
+            Optional<Integer> secondInRight = getColumnIndex(right, asColumnExpression(second));
+            if (firstInLeft.isPresent() && secondInRight.isPresent()) {
+                keyColumns.add(new Pair<>(firstInLeft.get(), secondInRight.get()));
+                return true;
+            }
+            Optional<Integer> secondInLeft = getColumnIndex(left, asColumnExpression(second));
+            Optional<Integer> firstInRight = getColumnIndex(right, asColumnExpression(first));
+            if (secondInLeft.isPresent() && firstInRight.isPresent()) {
+                keyColumns.add(new Pair<>(secondInLeft.get(), firstInRight.get()));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Optional<Integer> getColumnIndex(DataContainer dataContainer, ColumnExpression columnExpression) {
+        String columnName = columnExpression.getColumnName();
+        int offset = 0;
+        Optional<Integer> ret = Optional.empty();
+        for (Map.Entry<String, List<String>> entry : dataContainer.getColumnsMap().entrySet()) {
+            List<String> columnNames = entry.getValue();
+            if (columnExpression.useAnyTable() || entry.getKey().equals(columnExpression.getTableAlias())) {
+                int columnIndex = columnNames.indexOf(columnName);
+                if (columnIndex != -1) {
+                    if (ret.isPresent() || columnIndex != columnNames.lastIndexOf(columnName)) {
+                        //Ambiguous columns are left to expression evaluator
+                        return Optional.empty();
+                    }
+                    ret = Optional.of(offset + columnIndex);
+                }
+            }
+            offset += columnNames.size();
+        }
+        return ret;
+    }
+
+    private static List<List<Object>> getJoinKeys(List<DataRow> rows, List<Pair<Integer, Integer>> keyColumns, Function<Pair<Integer, Integer>, Integer> columnIndexProvider) {
+        List<List<Object>> ret = new ArrayList<>(rows.size());
+        for (DataRow row : rows) {
+            List<Object> values = row.getValues();
+            List<Object> key = new ArrayList<>(keyColumns.size());
+            for (Pair<Integer, Integer> keyColumn : keyColumns) {
+                int columnIndex = columnIndexProvider.apply(keyColumn);
+                Object value = columnIndex < values.size() ? values.get(columnIndex) : null;
+                if (value == null) {
+                    //Null values never match anything
+                    key = null;
+                    break;
+                }
+                key.add(value);
+            }
+            ret.add(key);
+        }
+        return ret;
+    }
+
+    /**
+     * Expression evaluator compares numbers as doubles and everything else
+     * as strings so we can only use hashing when each key column contains
+     * numbers on both sides or non-numbers on both sides
+     */
+    private static boolean areKeysComparable(List<List<Object>> leftKeys, List<List<Object>> rightKeys, int keyLength) {
+        for (int i = 0; i <= keyLength - 1; i++) {
+            boolean[] left = getValueKinds(leftKeys, i);
+            boolean[] right = getValueKinds(rightKeys, i);
+            if (left[0] && right[1] || left[1] && right[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean[] getValueKinds(List<List<Object>> keys, int position) {
+        boolean[] ret = new boolean[2]; //Contains numbers, contains non-numbers
+        for (List<Object> key : keys) {
+            if (key != null) {
+                ret[key.get(position) instanceof Number ? 0 : 1] = true;
+            }
+        }
+        return ret;
+    }
+
+    private static List<Object> toHashKey(List<Object> key) {
+        List<Object> ret = new ArrayList<>(key.size());
+        for (Object value : key) {
+            if (value instanceof Number) {
+                double valueAsDouble = asDouble(value);
+                ret.add(valueAsDouble == 0 ? 0d : valueAsDouble); //Treating -0.0 and 0.0 as equal
+            } else {
+                ret.add(asString(value));
+            }
+        }
+        return ret;
+    }
+
+    private static Map<List<Object>, List<Integer>> buildHashTable(List<List<Object>> keys) {
+        Map<List<Object>, List<Integer>> ret = new HashMap<>();
+        for (int i = 0; i <= keys.size() - 1; i++) {
+            List<Object> key = keys.get(i);
+            if (key != null) {
+                ret.computeIfAbsent(toHashKey(key), k -> new ArrayList<>()).add(i);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Builds hash table on the smaller side and probes it with rows from
+     * the bigger one. Returned rows order is the same as for cross join:
+     * right rows in original order, each followed by matching left rows.
+     */
+    private DataContainer hashJoin(DataContainer left, List<List<Object>> leftKeys, DataContainer right, List<List<Object>> rightKeys, JoinType joinType) {
+        final List<DataRow> leftRows = left.getRows();
+        final List<DataRow> rightRows = right.getRows();
+        final List<List<Integer>> matchesByRightIndex = new ArrayList<>(rightRows.size());
+
+        if (leftRows.size() <= rightRows.size()) {
+            Map<List<Object>, List<Integer>> hashTable = buildHashTable(leftKeys);
+            matchesByRightIndex.addAll(probe(hashTable, rightKeys));
+        } else {
+            Map<List<Object>, List<Integer>> hashTable = buildHashTable(rightKeys);
+            for (int i = 0; i <= rightRows.size() - 1; i++) {
+                matchesByRightIndex.add(new ArrayList<>());
+            }
+            List<List<Integer>> matchesByLeftIndex = probe(hashTable, leftKeys);
+            for (int leftIndex = 0; leftIndex <= leftKeys.size() - 1; leftIndex++) {
+                for (Integer rightIndex : matchesByLeftIndex.get(leftIndex)) {
+                    matchesByRightIndex.get(rightIndex).add(leftIndex);
+                }
+            }
+        }
+
+        boolean isLeftJoin = joinType == JoinType.LEFT;
+        boolean isRightJoin = joinType == JoinType.RIGHT;
+        int leftColumnsCount = left.getColumnNames().size();
+        int rightColumnsCount = right.getColumnNames().size();
+        final Set<Integer> matchedIndexes = new HashSet<>();
+
+        DataContainer dataContainer = mergeContainerColumns(left, right);
+        for (int rightIndex = 0; rightIndex <= rightRows.size() - 1; rightIndex++) {
+            List<Object> rightValues = rightRows.get(rightIndex).getValues();
+            for (Integer leftIndex : matchesByRightIndex.get(rightIndex)) {
+                List<Object> newRowValues = new ArrayList<>(leftColumnsCount + rightColumnsCount);
+                newRowValues.addAll(leftRows.get(leftIndex).getValues());
+                newRowValues.addAll(rightValues);
+                QueryContext.addRows(1);
+                dataContainer.addRow(newRowValues);
+                if (isLeftJoin) {
+                    matchedIndexes.add(leftIndex);
+                }
+                if (isRightJoin) {
+                    matchedIndexes.add(rightIndex);
+                }
+            }
+        }
+
+        addRowsWithNulls(dataContainer, leftRows, leftColumnsCount, rightRows, rightColumnsCount, matchedIndexes, joinType);
+        return dataContainer;
+    }
+
+    //Probing is read-only so big probe sides are split into morsels processed in parallel
+    private List<List<Integer>> probe(Map<List<Object>, List<Integer>> hashTable, List<List<Object>> keys) {
+        if (!parallelExecutor.isParallel(keys.size())) {
+            return probeKeys(hashTable, keys);
+        }
+        List<List<List<Integer>>> morselMatches = parallelExecutor.process(
+                keys.size(),
+                (from, to) -> probeKeys(hashTable, keys.subList(from, to))
+        );
+        List<List<Integer>> ret = new ArrayList<>(keys.size());
+        morselMatches.forEach(ret::addAll);
+        return ret;
+    }
+
+    private static List<List<Integer>> probeKeys(Map<List<Object>, List<Integer>> hashTable, List<List<Object>> keys) {
+        List<List<Integer>> ret = new ArrayList<>(keys.size());
+        for (List<Object> key : keys) {
+            List<Integer> matches = key != null ? hashTable.get(toHashKey(key)) : null;
+            ret.add(matches != null ? matches : Collections.emptyList());
+        }
+        return ret;
     }
 
     //Based on http://stackoverflow.com/questions/9591561/java-cartesian-product-of-a-list-of-lists
@@ -98,9 +363,12 @@ public abstract class ScanStrategy implements DataSourceStrategy {
         int rightColumnsCount = right.getColumnNames().size();
 
         DataContainer dataContainer = mergeContainerColumns(left, right);
+        Optional<CompiledExpression> compiledJoinCondition = joinCondition.map(expressionEvaluator::compile);
         crossProduct(leftRows, rightRows, DataRow::getValues, (indexesPair, newRowValues) -> {
+            QueryContext.check();
             DataRow dataRow = new DataRow(dataContainer, newRowValues);
-            if (!joinCondition.isPresent() || expressionEvaluator.evaluateAs(joinCondition.get(), dataRow, Boolean.class)) {
+            if (!compiledJoinCondition.isPresent() || compiledJoinCondition.get().evaluateAs(dataRow, Boolean.class)) {
+                QueryContext.addRows(1);
                 dataContainer.addRow(dataRow);
                 if (isLeftJoin) {
                     matchedIndexes.add(indexesPair.getFirst());
@@ -111,6 +379,13 @@ public abstract class ScanStrategy implements DataSourceStrategy {
             }
         });
 
+        addRowsWithNulls(dataContainer, leftRows, leftColumnsCount, rightRows, rightColumnsCount, matchedIndexes, joinType);
+        return dataContainer;
+    }
+
+    private static void addRowsWithNulls(DataContainer dataContainer, List<DataRow> leftRows, int leftColumnsCount, List<DataRow> rightRows, int rightColumnsCount, Set<Integer> matchedIndexes, JoinType joinType) {
+        boolean isLeftJoin = joinType == JoinType.LEFT;
+        boolean isRightJoin = joinType == JoinType.RIGHT;
         if (isLeftJoin || isRightJoin) {
             int rowsCount = isLeftJoin ? leftRows.size() : rightRows.size();
             for (int i = 0; i <= rowsCount - 1; i++) {
@@ -123,7 +398,6 @@ public abstract class ScanStrategy implements DataSourceStrategy {
                 }
             }
         }
-        return dataContainer;
     }
 
     private static List<Object> rowWithNullsValues(List<DataRow> leftRows, int leftColumnsCount, List<DataRow> rightRows, int rightColumnsCount, int index, boolean isLeftJoin) {
@@ -0,0 +1,32 @@
+package org.meridor.perspective.sql.impl.task.strategy;
+
+import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.impl.expression.Subquery;
+import org.meridor.perspective.sql.impl.parser.DataSource;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+import static org.meridor.perspective.sql.impl.parser.DataSourceUtils.checkLeftDataSource;
+
+/**
+ * Scans rows of derived table evaluated by subquery in FROM clause. Such
+ * rows are not stored so they can't be fetched by indexes.
+ */
+@Component
+public class SubqueryScanStrategy implements DataSourceStrategy {
+
+    @Override
+    public DataContainer process(DataSource dataSource, Map<String, String> tableAliases) {
+        checkLeftDataSource(dataSource, false);
+        if (dataSource.getRightDataSource().isPresent()) {
+            throw new IllegalArgumentException("Subquery scan strategy datasource should not contain joins");
+        }
+        String tableAlias = dataSource.getTableAlias().get();
+        Subquery subquery = dataSource.getSubquery().orElseThrow(
+                () -> new IllegalArgumentException("Subquery scan strategy datasource should contain subquery")
+        );
+        return subquery.getRows(tableAlias);
+    }
+
+}
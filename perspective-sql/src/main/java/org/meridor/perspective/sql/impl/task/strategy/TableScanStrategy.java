@@ -1,13 +1,16 @@
 package org.meridor.perspective.sql.impl.task.strategy;
 
 import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.impl.expression.FetchCondition;
 import org.meridor.perspective.sql.impl.parser.DataSource;
 import org.meridor.perspective.sql.impl.storage.DataFetcher;
-import org.meridor.perspective.sql.impl.table.TablesAware;
+import org.meridor.perspective.sql.impl.table.Column;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.meridor.perspective.sql.impl.parser.DataSourceUtils.checkLeftDataSource;
 import static org.meridor.perspective.sql.impl.parser.DataSourceUtils.checkRightDataSource;
@@ -18,9 +21,6 @@ public class TableScanStrategy extends ScanStrategy {
     @Autowired
     private DataFetcher dataFetcher;
     
-    @Autowired
-    private TablesAware tablesAware;
-    
     @Override
     public DataContainer process(DataSource dataSource, Map<String, String> tableAliases) {
         return fetchData(dataSource, tableAliases);
@@ -30,7 +30,11 @@ public class TableScanStrategy extends ScanStrategy {
         checkLeftDataSource(dataSource, false);
         String tableAlias = dataSource.getTableAlias().get();
         String tableName = tableAliases.get(tableAlias);
-        DataContainer leftData = dataFetcher.fetch(tableName, tableAlias, tablesAware.getColumns(tableName));
+        Collection<Column> columns = getFetchedColumns(dataSource, tableName);
+        Optional<FetchCondition> fetchCondition = dataSource.getFetchCondition().map(FetchCondition::bindParameters);
+        DataContainer leftData = fetchCondition.isPresent() ?
+                dataFetcher.fetch(tableName, tableAlias, columns, fetchCondition.get()) :
+                dataFetcher.fetch(tableName, tableAlias, columns);
         if (dataSource.getRightDataSource().isPresent()) {
             DataSource rightDataSource = dataSource.getRightDataSource().get();
             checkRightDataSource(rightDataSource, false);
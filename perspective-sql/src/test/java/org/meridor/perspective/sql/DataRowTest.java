@@ -5,8 +5,7 @@ import org.junit.Test;
 
 import java.util.*;
 
-import static org.hamcrest.Matchers.contains;
-import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 
 public class DataRowTest {
@@ -18,7 +17,6 @@ public class DataRowTest {
     private static final String FIRST_COLUMN_VALUE = "first_column_value";
     private static final String SECOND_COLUMN_VALUE = "second_column_value";
     private static final String THIRD_COLUMN_VALUE = "third_column_value";
-    private static final String NEW_VALUE = "new_value";
     
     private static final Map<String, List<String>> COLUMNS_MAP = new HashMap<String, List<String>>(){
         {
@@ -85,32 +83,35 @@ public class DataRowTest {
     }
 
     @Test
-    public void testPutByIndex() throws Exception {
-        dataRow.put(0, NEW_VALUE);
-        assertThat(dataRow.getValues(), contains(NEW_VALUE, SECOND_COLUMN_VALUE, THIRD_COLUMN_VALUE));
+    public void testGetValues() throws Exception {
+        assertThat(dataRow.getValues(), equalTo(VALUES));
     }
 
-    @Test
-    public void testPutByColumnName() throws Exception {
-        dataRow.put(SECOND_COLUMN, NEW_VALUE);
-        assertThat(dataRow.getValues(), contains(FIRST_COLUMN_VALUE, NEW_VALUE, THIRD_COLUMN_VALUE));
+    @Test(expected = UnsupportedOperationException.class)
+    public void testValuesAreUnmodifiable() throws Exception {
+        dataRow.getValues().set(0, FIRST_COLUMN_VALUE);
     }
 
     @Test
-    public void testPutByCompoundColumnName() throws Exception {
-        String columnName = getCompoundColumnName(FIRST_COLUMN, SECOND_TABLE);
-        dataRow.put(columnName, NEW_VALUE);
-        assertThat(dataRow.getValues(), contains(FIRST_COLUMN_VALUE, SECOND_COLUMN_VALUE, NEW_VALUE));
-    }
-    
-    @Test
-    public void testPutByColumnNameAndTableAlias() throws Exception {
-        dataRow.put(FIRST_COLUMN, SECOND_TABLE, NEW_VALUE);
-        assertThat(dataRow.getValues(), contains(FIRST_COLUMN_VALUE, SECOND_COLUMN_VALUE, NEW_VALUE));
+    public void testRowIsReboundToContainerWithSameColumns() {
+        DataContainer anotherContainer = new DataContainer(DATA_CONTAINER.getColumnsMap());
+        assertThat(anotherContainer.getColumnsMap(), is(sameInstance(DATA_CONTAINER.getColumnsMap())));
+        anotherContainer.addRow(dataRow);
+        DataRow addedRow = anotherContainer.getRows().get(0);
+        assertThat(addedRow.getDataContainer(), is(sameInstance(anotherContainer)));
+        assertThat(addedRow.getValues(), is(sameInstance(dataRow.getValues())));
+        
+        anotherContainer.addRow(addedRow);
+        assertThat(anotherContainer.getRows().get(1), is(sameInstance(addedRow)));
     }
 
     @Test
-    public void testGetValues() throws Exception {
-        assertThat(dataRow.getValues(), equalTo(VALUES));
+    public void testRowIsRebasedToContainerWithDifferentColumns() {
+        DataContainer anotherContainer = new DataContainer(Arrays.asList(FIRST_COLUMN, SECOND_COLUMN, "third_column"));
+        anotherContainer.addRow(dataRow);
+        DataRow addedRow = anotherContainer.getRows().get(0);
+        assertThat(addedRow.getDataContainer(), is(sameInstance(anotherContainer)));
+        assertThat(addedRow.get(FIRST_COLUMN), equalTo(FIRST_COLUMN_VALUE));
+        assertThat(addedRow.get("third_column"), equalTo(THIRD_COLUMN_VALUE));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,58 @@
+package org.meridor.perspective.sql.impl;
+
+import org.junit.Test;
+import org.meridor.perspective.sql.impl.index.IndexStatistics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CostEstimatorTest {
+
+    private final CostEstimator costEstimator = new CostEstimator();
+
+    @Test
+    public void testChooseIndexes() {
+        Map<String, Long> estimatedIds = new HashMap<>();
+        estimatedIds.put("state", 950L);
+        estimatedIds.put("project", 100L);
+        estimatedIds.put("name", 1L);
+        assertThat(costEstimator.chooseIndexes(1000, estimatedIds), contains("name"));
+        estimatedIds.put("name", 300L);
+        assertThat(costEstimator.chooseIndexes(1000, estimatedIds), contains("project", "name"));
+    }
+
+    @Test
+    public void testFullScanIsCheaper() {
+        Map<String, Long> estimatedIds = new HashMap<>();
+        estimatedIds.put("state", 950L);
+        assertThat(costEstimator.chooseIndexes(1000, estimatedIds), is(empty()));
+        assertThat(costEstimator.chooseIndexes(0, estimatedIds), is(empty()));
+    }
+
+    @Test
+    public void testEstimateSkewedIds() {
+        //95 instances are launched and 5 other ones have distinct states
+        int[] postingListSizes = new int[IndexStatistics.BUCKETS_COUNT];
+        postingListSizes[IndexStatistics.getBucket(1)] = 5;
+        postingListSizes[IndexStatistics.getBucket(95)] = 1;
+        IndexStatistics statistics = new IndexStatistics(6, 100, postingListSizes);
+        assertThat(CostEstimator.estimateIds(statistics, 1), equalTo(100L));
+        assertThat(costEstimator.chooseIndexes(100, Collections.singletonMap("state", CostEstimator.estimateIds(statistics, 1))), is(empty()));
+    }
+
+    @Test
+    public void testEstimateUniqueIds() {
+        int[] postingListSizes = new int[IndexStatistics.BUCKETS_COUNT];
+        postingListSizes[IndexStatistics.getBucket(1)] = 100;
+        IndexStatistics statistics = new IndexStatistics(100, 100, postingListSizes);
+        assertThat(CostEstimator.estimateIds(statistics, 2), equalTo(2L));
+    }
+
+}
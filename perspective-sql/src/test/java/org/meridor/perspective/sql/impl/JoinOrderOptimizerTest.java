@@ -0,0 +1,111 @@
+package org.meridor.perspective.sql.impl;
+
+import org.junit.Test;
+import org.meridor.perspective.sql.impl.expression.BinaryBooleanExpression;
+import org.meridor.perspective.sql.impl.expression.BooleanExpression;
+import org.meridor.perspective.sql.impl.expression.ColumnExpression;
+import org.meridor.perspective.sql.impl.expression.SimpleBooleanExpression;
+import org.meridor.perspective.sql.impl.parser.DataSource;
+import org.meridor.perspective.sql.impl.parser.JoinType;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.meridor.perspective.beans.BooleanRelation.EQUAL;
+import static org.meridor.perspective.sql.impl.expression.BinaryBooleanOperator.AND;
+
+public class JoinOrderOptimizerTest {
+
+    @Test
+    public void testFindOrder() {
+        //Instances reference projects and images, only one image matches where clause
+        double[] rowsCounts = new double[]{1000, 10, 1};
+        double[][] selectivities = new double[][]{
+                {1, 0.1, 0.01},
+                {0.1, 1, 1},
+                {0.01, 1, 1}
+        };
+        assertThat(JoinOrderOptimizer.findOrder(rowsCounts, selectivities, getRelations(selectivities)), contains(0, 2, 1));
+    }
+
+    @Test
+    public void testFindOrderKeepsOriginalOrderWhenCostsAreEqual() {
+        double[] rowsCounts = new double[]{10, 10, 10};
+        double[][] selectivities = new double[][]{
+                {1, 0.1, 0.1},
+                {0.1, 1, 0.1},
+                {0.1, 0.1, 1}
+        };
+        assertThat(JoinOrderOptimizer.findOrder(rowsCounts, selectivities, getRelations(selectivities)), contains(0, 1, 2));
+    }
+
+    @Test
+    public void testCrossJoinIsAvoided() {
+        //Joining two small tables first would be a cross join
+        double[] rowsCounts = new double[]{2, 1000, 3};
+        double[][] selectivities = new double[][]{
+                {1, 0.5, 1},
+                {0.5, 1, 0.001},
+                {1, 0.001, 1}
+        };
+        assertThat(JoinOrderOptimizer.findOrder(rowsCounts, selectivities, getRelations(selectivities)), contains(1, 2, 0));
+    }
+
+    @Test
+    public void testReorder() {
+        DataSource a = new DataSource("a");
+        DataSource b = new DataSource("b");
+        b.setJoinType(JoinType.INNER);
+        b.setCondition(equality("a", "x", "b", "x"));
+        a.setRightDataSource(b);
+        DataSource c = new DataSource("c");
+        c.setJoinType(JoinType.INNER);
+        c.setCondition(new BinaryBooleanExpression(equality("a", "y", "c", "y"), AND, equality("b", "z", "c", "z")));
+        b.setRightDataSource(c);
+        DataSource d = new DataSource("d");
+        d.setJoinType(JoinType.LEFT);
+        d.setCondition(equality("a", "w", "d", "w"));
+        c.setRightDataSource(d);
+
+        DataSource reordered = JoinOrderOptimizer.reorder(a, 2, Arrays.asList(0, 2, 1));
+        assertThat(reordered.getTableAlias().get(), equalTo("a"));
+        assertThat(reordered.getJoinType().isPresent(), is(false));
+
+        DataSource second = reordered.getRightDataSource().get();
+        assertThat(second.getTableAlias().get(), equalTo("c"));
+        assertThat(second.getJoinType().get(), equalTo(JoinType.INNER));
+        assertThat(second.getCondition().get(), equalTo(equality("a", "y", "c", "y")));
+
+        DataSource third = second.getRightDataSource().get();
+        assertThat(third.getTableAlias().get(), equalTo("b"));
+        assertThat(third.getJoinType().get(), equalTo(JoinType.INNER));
+        assertThat(third.getCondition().get(), equalTo(new BinaryBooleanExpression(equality("a", "x", "b", "x"), AND, equality("b", "z", "c", "z"))));
+
+        //Outer join is kept in place
+        DataSource fourth = third.getRightDataSource().get();
+        assertThat(fourth, equalTo(d));
+        assertThat(fourth.getRightDataSource().isPresent(), is(false));
+
+        assertThat(JoinOrderOptimizer.reorder(a, 2, Arrays.asList(0, 1, 2)), is(sameInstance(a)));
+    }
+
+    private static boolean[][] getRelations(double[][] selectivities) {
+        boolean[][] ret = new boolean[selectivities.length][selectivities.length];
+        for (int i = 0; i <= selectivities.length - 1; i++) {
+            for (int j = 0; j <= selectivities.length - 1; j++) {
+                ret[i][j] = selectivities[i][j] < 1;
+            }
+        }
+        return ret;
+    }
+
+    private static BooleanExpression equality(String leftTableAlias, String leftColumn, String rightTableAlias, String rightColumn) {
+        return new SimpleBooleanExpression(
+                new ColumnExpression(leftColumn, leftTableAlias),
+                EQUAL,
+                new ColumnExpression(rightColumn, rightTableAlias)
+        );
+    }
+
+}
@@ -0,0 +1,46 @@
+package org.meridor.perspective.sql.impl;
+
+import org.meridor.perspective.sql.impl.index.Indexer;
+import org.meridor.perspective.sql.impl.index.impl.IndexSignature;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Not a component so that it does not replace real indexer in scanned contexts
+public class MockIndexer implements Indexer {
+    
+    private final Map<String, Long> rowsCounts = new ConcurrentHashMap<>();
+
+    public void setRowsCount(String tableName, long rowsCount) {
+        rowsCounts.put(tableName, rowsCount);
+    }
+
+    @Override
+    public void add(String tableName, Object bean) {
+        //Do nothing
+    }
+
+    @Override
+    public void delete(String tableName, Object bean) {
+        //Do nothing
+    }
+
+    @Override
+    public Optional<Long> getRowsCount(String tableName) {
+        return Optional.ofNullable(rowsCounts.get(tableName));
+    }
+
+    @Override
+    public Set<IndexSignature> findInconsistentIndexes(String tableName, Collection<?> beans) {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Set<IndexSignature> repairIndexes(String tableName, Collection<?> beans) {
+        return Collections.emptySet();
+    }
+}
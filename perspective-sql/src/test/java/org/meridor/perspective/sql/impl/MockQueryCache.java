@@ -0,0 +1,27 @@
+package org.meridor.perspective.sql.impl;
+
+import com.google.common.cache.CacheStats;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Not a component so that it does not replace query processor in scanned contexts
+public class MockQueryCache implements QueryCache {
+    
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+    @Override
+    public void invalidate(String tableName) {
+        versions.merge(tableName, 1L, Long::sum);
+    }
+
+    @Override
+    public long getVersion(String tableName) {
+        return versions.getOrDefault(tableName, 0L);
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+}
@@ -12,6 +12,8 @@ public class MockQueryPlanner implements QueryPlanner {
     private QueryPlan queryPlan = new QueryPlanImpl(new LinkedList<>(), QueryType.UNKNOWN);
     
     private SQLException exception;
+    
+    private int plansCount;
 
     public void setQueryPlan(QueryPlan queryPlan) {
         this.queryPlan = queryPlan;
@@ -21,8 +23,13 @@ public class MockQueryPlanner implements QueryPlanner {
         this.exception = exception;
     }
 
+    public int getPlansCount() {
+        return plansCount;
+    }
+
     @Override
     public QueryPlan plan(String sql) throws SQLException {
+        plansCount++;
         if (exception != null) {
             throw exception;
         }
@@ -0,0 +1,83 @@
+package org.meridor.perspective.sql.impl;
+
+import org.junit.Test;
+import org.meridor.perspective.sql.Parameter;
+import org.meridor.perspective.sql.impl.expression.ParameterExpression;
+
+import java.sql.SQLDataException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class PreparedQueryTest {
+
+    @Test
+    public void testNormalize() {
+        assertThat(
+                PreparedQuery.normalize("  select *\t from  t where name = ' a  \\  b ' ;\n\n select 1 "),
+                equalTo("select * from t where name = ' a  \\  b ' ;\nselect 1")
+        );
+    }
+
+    @Test
+    public void testNormalizeLiteralEndingWithBackslash() {
+        //String literals have no escape sequences
+        assertThat(
+                PreparedQuery.normalize("select 'a\\'  from  t"),
+                equalTo("select 'a\\' from t")
+        );
+    }
+
+    @Test
+    public void testBindMultipleTimes() throws Exception {
+        PreparedQuery preparedQuery = PreparedQuery.prepare("select * from t where id = ? and name = :name:");
+        assertThat(
+                preparedQuery.bind(Arrays.asList(createParameter(1, null, "1"), createParameter(null, "name", "one"))),
+                contains("select * from t where id = 1 and name = 'one'")
+        );
+        assertThat(
+                preparedQuery.bind(Arrays.asList(createParameter(1, null, "2"), createParameter(null, "name", "two"))),
+                contains("select * from t where id = 2 and name = 'two'")
+        );
+    }
+
+    @Test
+    public void testTemplates() throws Exception {
+        PreparedQuery preparedQuery = PreparedQuery.prepare("select * from t where id = ? and name = :name:;select ?");
+        assertThat(
+                preparedQuery.getTemplates(),
+                contains("select * from t where id =  ?1  and name =  ?:name ", "select  ?2 ")
+        );
+    }
+
+    @Test
+    public void testParameterValues() throws Exception {
+        PreparedQuery preparedQuery = PreparedQuery.prepare("select * from t where id = ? and name = :name: and value = ?");
+        Map<ParameterExpression, Object> parameterValues = preparedQuery.getParameterValues(Arrays.asList(
+                createParameter(1, null, "1"),
+                createParameter(2, null, "-2"),
+                createParameter(null, "name", "one")
+        ));
+        assertThat(parameterValues.get(ParameterExpression.positional(1)), equalTo(1));
+        assertThat(parameterValues.get(ParameterExpression.positional(2)), equalTo("-2"));
+        assertThat(parameterValues.get(ParameterExpression.named("name")), equalTo("one"));
+    }
+
+    @Test(expected = SQLDataException.class)
+    public void testMissingParameter() throws Exception {
+        PreparedQuery.prepare("select * from t where id = ?").bind(Collections.emptyList());
+    }
+
+    private static Parameter createParameter(Integer index, String name, String value) {
+        Parameter parameter = new Parameter();
+        parameter.setIndex(index);
+        parameter.setName(name);
+        parameter.setValue(value);
+        return parameter;
+    }
+
+}
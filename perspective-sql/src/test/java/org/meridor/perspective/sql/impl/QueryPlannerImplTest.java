@@ -5,12 +5,16 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.meridor.perspective.sql.impl.expression.*;
 import org.meridor.perspective.sql.impl.index.Index;
+import org.meridor.perspective.sql.impl.index.Indexer;
 import org.meridor.perspective.sql.impl.index.impl.HashTableIndex;
 import org.meridor.perspective.sql.impl.index.impl.IndexSignature;
+import org.meridor.perspective.sql.impl.index.impl.SkipListIndex;
 import org.meridor.perspective.sql.impl.parser.DataSource;
 import org.meridor.perspective.sql.impl.storage.IndexStorage;
+import org.meridor.perspective.sql.impl.storage.impl.TestObject;
 import org.meridor.perspective.sql.impl.task.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -22,7 +26,9 @@ import java.util.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 import static org.meridor.perspective.beans.BooleanRelation.EQUAL;
+import static org.meridor.perspective.beans.BooleanRelation.LIKE;
 import static org.meridor.perspective.beans.BooleanRelation.REGEXP;
+import static org.meridor.perspective.sql.impl.expression.BinaryBooleanOperator.AND;
 import static org.meridor.perspective.sql.impl.expression.BinaryBooleanOperator.OR;
 import static org.meridor.perspective.sql.impl.parser.DataSource.DataSourceType.*;
 import static org.meridor.perspective.sql.impl.parser.JoinType.INNER;
@@ -39,6 +45,10 @@ public class QueryPlannerImplTest {
 
     private static final String VALUE = "value";
     private static final String ANOTHER_VALUE = "another_value";
+    
+    private static final String MOCK = "mock";
+    private static final String STR = "str";
+    private static final String NUM = "num";
 
     @Autowired
     private QueryPlanner queryPlanner;
@@ -49,6 +59,12 @@ public class QueryPlannerImplTest {
     @Autowired
     private IndexStorage indexStorage;
     
+    @Autowired
+    private Indexer indexer;
+    
+    @Autowired
+    private ApplicationContext applicationContext;
+    
     @PostConstruct
     public void init() {
         Index instancesNameIndex = createInstancesNameIndex();
@@ -136,6 +152,23 @@ public class QueryPlannerImplTest {
         assertThat(groupTask.getExpressions(), contains(groupByExpression));
     }
     
+    @Test
+    public void testAggregateFunctionsWithoutGroupBy() throws Exception {
+        AggregateFunctionExpression countAll = new AggregateFunctionExpression(AggregateFunction.COUNT, new ColumnExpression());
+        queryParser.setSelectQueryAware(new MockSelectQueryAware(){
+            {
+                getSelectionMap().put(countAll.toString(), countAll);
+            }
+        });
+        List<Task> tasks = new ArrayList<>(plan());
+        assertThat(tasks, hasSize(3)); //DummyFetchTask, GroupTask, SelectTask
+        Task secondTask = tasks.get(1);
+        assertThat(secondTask, is(instanceOf(GroupTask.class)));
+        GroupTask groupTask = (GroupTask) secondTask;
+        assertThat(groupTask.getExpressions(), is(empty()));
+        assertThat(groupTask.getAggregateFunctions(), contains(countAll));
+    }
+    
     @Test
     public void testOrderBy() throws Exception {
         OrderExpression orderByExpression = new OrderExpression(new ColumnExpression(NAME, INSTANCES), OrderDirection.DESC);
@@ -152,6 +185,27 @@ public class QueryPlannerImplTest {
         assertThat(orderTask.getExpressions(), contains(orderByExpression));
     }
     
+    @Test
+    public void testOrderByWithLimit() throws Exception {
+        OrderExpression orderByExpression = new OrderExpression(new ColumnExpression(NAME, INSTANCES), OrderDirection.DESC);
+        queryParser.setSelectQueryAware(new MockSelectQueryAware(){
+            {
+                getOrderByExpressions().add(orderByExpression);
+                setLimitCount(10);
+                setLimitOffset(20);
+            }
+        });
+        List<Task> tasks = new ArrayList<>(plan());
+        assertThat(tasks, hasSize(4)); //DummyFetchTask, TopNTask, SelectTask, LimitTask
+        Task secondTask = tasks.get(1);
+        assertThat(secondTask, is(instanceOf(TopNTask.class)));
+        TopNTask topNTask = (TopNTask) secondTask;
+        assertThat(topNTask.getOrderTask().getExpressions(), contains(orderByExpression));
+        assertThat(topNTask.getCount(), equalTo(10));
+        assertThat(topNTask.getOffset(), equalTo(20));
+        assertThat(tasks.get(3), is(instanceOf(LimitTask.class)));
+    }
+    
     @Test
     public void testLimit() throws Exception {
         queryParser.setSelectQueryAware(new MockSelectQueryAware(){
@@ -187,7 +241,111 @@ public class QueryPlannerImplTest {
         List<Task> tasks = new ArrayList<>(plan());
         DataSourceTask dataSourceTask = doCommonTaskAssertions(tasks);
         DataSource optimizedLeftDataSource = doOptimizedLeftDataSourceAssertions(dataSourceTask);
-        assertThat(optimizedLeftDataSource, equalTo(leftDataSource));
+        DataSource expectedDataSource = new DataSource(PROJECTS);
+        expectedDataSource.getFetchedColumns().add(PROJECT_NAME);
+        assertThat(optimizedLeftDataSource, equalTo(expectedDataSource));
+    }
+
+    @Test
+    public void testInSubquery() throws Exception {
+        Subquery subquery = new Subquery(new MockSelectQueryAware(){
+            {
+                getSelectionMap().put(ID, new ColumnExpression(ID, PROJECTS));
+                setDataSource(new DataSource(PROJECTS));
+                getTableAliases().put(PROJECTS, PROJECTS);
+            }
+        });
+        InSubqueryExpression whereCondition = new InSubqueryExpression(new ColumnExpression(PROJECT_ID, INSTANCES_ALIAS), subquery);
+        queryParser.setSelectQueryAware(new MockSelectQueryAware(){
+            {
+                getSelectionMap().put(ID, new ColumnExpression(ID, INSTANCES_ALIAS));
+                setDataSource(new DataSource(INSTANCES_ALIAS));
+                setWhereExpression(whereCondition);
+                getTableAliases().put(INSTANCES_ALIAS, INSTANCES);
+            }
+        });
+        QueryPlan queryPlan = queryPlanner.plan(STUB_SQL);
+        List<Task> tasks = new ArrayList<>(queryPlan.getTasks());
+        assertThat(tasks, hasSize(3)); //DataSourceTask, FilterTask, SelectTask
+        assertThat(tasks.get(1), is(instanceOf(FilterTask.class)));
+        assertThat(((FilterTask) tasks.get(1)).getCondition(), equalTo(Optional.of(whereCondition)));
+        
+        //Subquery is planned separately and its tables are also used by query
+        List<Task> subqueryTasks = new ArrayList<>(subquery.getTasks());
+        assertThat(subqueryTasks, hasSize(2)); //DataSourceTask, SelectTask
+        assertThat(subqueryTasks.get(0), is(instanceOf(DataSourceTask.class)));
+        assertThat(subqueryTasks.get(1), is(instanceOf(SelectTask.class)));
+        assertThat(queryPlan.getTableNames(), containsInAnyOrder(INSTANCES, PROJECTS));
+        assertThat(queryPlan.isIncremental(), is(false));
+    }
+
+    @Test
+    public void testDerivedTable() throws Exception {
+        final String DERIVED_TABLE_ALIAS = "d";
+        Subquery subquery = new Subquery(new MockSelectQueryAware(){
+            {
+                getSelectionMap().put(ID, new ColumnExpression(ID, INSTANCES));
+                getSelectionMap().put(NAME, new ColumnExpression(NAME, INSTANCES));
+                setDataSource(new DataSource(INSTANCES));
+                getTableAliases().put(INSTANCES, INSTANCES);
+            }
+        }, Arrays.asList(ID, NAME));
+        DataSource derivedDataSource = new DataSource(DERIVED_TABLE_ALIAS);
+        derivedDataSource.setSubquery(subquery);
+        //Instances name column is indexed but derived table rows can only be scanned
+        SimpleBooleanExpression whereCondition = new SimpleBooleanExpression(new ColumnExpression(NAME, DERIVED_TABLE_ALIAS), EQUAL, VALUE);
+        queryParser.setSelectQueryAware(new MockSelectQueryAware(){
+            {
+                getSelectionMap().put(ID, new ColumnExpression(ID, DERIVED_TABLE_ALIAS));
+                setDataSource(derivedDataSource);
+                setWhereExpression(whereCondition);
+                getTableAliases().put(DERIVED_TABLE_ALIAS, Subquery.DERIVED_TABLE);
+            }
+        });
+        QueryPlan queryPlan = queryPlanner.plan(STUB_SQL);
+        List<Task> tasks = new ArrayList<>(queryPlan.getTasks());
+        DataSourceTask dataSourceTask = doCommonTaskAssertions(tasks, Arrays.asList(DataSourceTask.class, FilterTask.class, SelectTask.class));
+        assertThat(((FilterTask) tasks.get(1)).getCondition(), equalTo(Optional.of(whereCondition)));
+        DataSource optimizedLeftDataSource = doOptimizedLeftDataSourceAssertions(dataSourceTask);
+        assertThat(optimizedLeftDataSource.getType(), equalTo(SUBQUERY_SCAN));
+        assertThat(optimizedLeftDataSource.getSubquery(), equalTo(Optional.of(subquery)));
+        assertThat(optimizedLeftDataSource.getFetchCondition().isPresent(), is(false));
+
+        //Derived table itself is not stored so only subquery tables are used by query
+        assertThat(subquery.getTasks(), hasSize(2)); //DataSourceTask, SelectTask
+        assertThat(queryPlan.getTableNames(), contains(INSTANCES));
+        assertThat(queryPlan.isIncremental(), is(false));
+    }
+
+    @Test
+    public void testSingleTableQueryIsIncremental() throws Exception {
+        queryParser.setSelectQueryAware(createSingleTableQuery(ID));
+        assertThat(queryPlanner.plan(STUB_SQL).isIncremental(), is(true));
+    }
+
+    @Test
+    public void testQueryWithoutIdIsNotIncremental() throws Exception {
+        queryParser.setSelectQueryAware(createSingleTableQuery(NAME));
+        assertThat(queryPlanner.plan(STUB_SQL).isIncremental(), is(false));
+    }
+
+    @Test
+    public void testGroupByQueryIsNotIncremental() throws Exception {
+        MockSelectQueryAware selectQueryAware = createSingleTableQuery(ID);
+        selectQueryAware.getGroupByExpressions().add(new ColumnExpression(ID, INSTANCES_ALIAS));
+        queryParser.setSelectQueryAware(selectQueryAware);
+        assertThat(queryPlanner.plan(STUB_SQL).isIncremental(), is(false));
+    }
+
+    private static MockSelectQueryAware createSingleTableQuery(String selectedColumn) {
+        return new MockSelectQueryAware(){
+            {
+                getSelectionMap().put(selectedColumn, new ColumnExpression(selectedColumn, INSTANCES_ALIAS));
+                setDataSource(new DataSource(INSTANCES_ALIAS));
+                setWhereExpression(new SimpleBooleanExpression(new ColumnExpression(PROJECT_ID, INSTANCES_ALIAS), EQUAL, VALUE));
+                getTableAliases().put(INSTANCES_ALIAS, INSTANCES);
+            }
+        };
     }
 
     @Test
@@ -230,6 +388,31 @@ public class QueryPlannerImplTest {
     }
     
 
+    @Test
+    public void testIndexScanStrategyWithParameter() throws Exception {
+        ParameterExpression parameter = ParameterExpression.positional(1);
+        DataSource leftDataSource = new DataSource(INSTANCES_ALIAS);
+        queryParser.setSelectQueryAware(new MockSelectQueryAware(){
+            {
+                getSelectionMap().put(ID, new ColumnExpression(ID, INSTANCES_ALIAS));
+                setDataSource(leftDataSource);
+                setWhereExpression(new SimpleBooleanExpression(new ColumnExpression(NAME, INSTANCES_ALIAS), EQUAL, parameter));
+                getTableAliases().put(INSTANCES_ALIAS, INSTANCES);
+            }
+        });
+        List<Task> tasks = new ArrayList<>(plan());
+        DataSourceTask dataSourceTask = doCommonTaskAssertions(tasks);
+        DataSource optimizedLeftDataSource = doOptimizedLeftDataSourceAssertions(dataSourceTask);
+        assertThat(optimizedLeftDataSource.getType(), equalTo(INDEX_SCAN));
+        IndexBooleanExpression optimizedCondition = (IndexBooleanExpression) optimizedLeftDataSource.getCondition().get();
+        assertThat(optimizedCondition.getFixedValueConditions(INSTANCES_ALIAS), equalTo(Collections.singletonMap(NAME, Collections.singleton(parameter))));
+        
+        //Parameter value is taken from context of executed query
+        QueryContext queryContext = new QueryContext(0, 0, 0, null, Collections.singletonMap(parameter, VALUE));
+        IndexBooleanExpression boundCondition = queryContext.call(optimizedCondition::bindParameters);
+        assertThat(boundCondition.getFixedValueConditions(INSTANCES_ALIAS), equalTo(Collections.singletonMap(NAME, Collections.singleton(VALUE))));
+    }
+
     @Test
     public void testIndexScanStrategyInnerJoin() throws Exception {
         DataSource leftDataSource = new DataSource(INSTANCES_ALIAS);
@@ -414,6 +597,193 @@ public class QueryPlannerImplTest {
         assertThat(condition.getFixedValueConditions(INSTANCES), equalTo(Collections.singletonMap(NAME, values)));
     }
     
+    @Test
+    public void testSortedIndexRangeScan() throws Exception {
+        IndexSignature instancesIdSignature = new IndexSignature(INSTANCES, Collections.singleton(ID));
+        indexStorage.update(instancesIdSignature, any -> new SkipListIndex(instancesIdSignature));
+        try {
+            DataSource leftDataSource = new DataSource(INSTANCES);
+            BooleanExpression whereCondition = new SimpleBooleanExpression(new ColumnExpression(ID, INSTANCES), REGEXP, "^abc.*");
+            queryParser.setSelectQueryAware(new MockSelectQueryAware(){
+                {
+                    getSelectionMap().put(ID, new ColumnExpression(ID, INSTANCES));
+                    getSelectionMap().put(NAME, new ColumnExpression(NAME, INSTANCES));
+                    setDataSource(leftDataSource);
+                    getTableAliases().put(INSTANCES, INSTANCES);
+                    setWhereExpression(whereCondition);
+                }
+            });
+            List<Task> tasks = new ArrayList<>(plan());
+            DataSourceTask dataSourceTask = doCommonTaskAssertions(tasks, Arrays.asList(DataSourceTask.class, FilterTask.class, SelectTask.class));
+            DataSource dataSource = doOptimizedLeftDataSourceAssertions(dataSourceTask);
+            assertThat(dataSource.getType(), equalTo(INDEX_SCAN));
+            BooleanExpression condition = dataSource.getCondition().get();
+            assertThat(condition, is(instanceOf(IndexBooleanExpression.class)));
+            assertThat(condition.getFixedValueConditions(INSTANCES).keySet(), is(empty()));
+            assertThat(condition.getRangeConditions(INSTANCES), equalTo(Collections.singletonMap(ID, ValueRange.startingWith("abc"))));
+            
+            //Range condition is also checked by filter
+            FilterTask filterTask = (FilterTask) tasks.get(1);
+            assertThat(filterTask.getCondition().get(), equalTo(whereCondition));
+        } finally {
+            indexStorage.update(instancesIdSignature, any -> new HashTableIndex(instancesIdSignature));
+        }
+    }
+    
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void testIndexScanIsChosenByCost() throws Exception {
+        List<String> values = Arrays.asList("a0", "a1", "a2", "a3", "a4", "a5", "a6", "a7", "a8", "a9");
+        IndexSignature mockStrSignature = new IndexSignature(MOCK, Collections.singleton(STR));
+        indexStorage.update(mockStrSignature, any -> new HashTableIndex(mockStrSignature));
+        values.forEach(v -> indexer.add(MOCK, new TestObject(v)));
+        
+        //Selective condition uses index
+        DataSource selectiveDataSource = planMockTable(new SimpleBooleanExpression(new ColumnExpression(STR, MOCK), EQUAL, "a0"));
+        assertThat(selectiveDataSource.getType(), equalTo(INDEX_SCAN));
+        
+        //Condition matching all rows is cheaper to check with filter
+        DataSource unselectiveDataSource = planMockTable(new InExpression(new ColumnExpression(STR, MOCK), new HashSet<>(values)));
+        assertThat(unselectiveDataSource.getType(), equalTo(TABLE_SCAN));
+    }
+    
+    private DataSource planMockTable(BooleanExpression whereCondition) throws Exception {
+        DataSource leftDataSource = new DataSource(MOCK);
+        queryParser.setSelectQueryAware(new MockSelectQueryAware(){
+            {
+                getSelectionMap().put(NUM, new ColumnExpression(NUM, MOCK));
+                setDataSource(leftDataSource);
+                getTableAliases().put(MOCK, MOCK);
+                setWhereExpression(whereCondition);
+            }
+        });
+        //Planner instance can't be reused
+        List<Task> tasks = new ArrayList<>(applicationContext.getBean(QueryPlanner.class).plan(STUB_SQL).getTasks());
+        DataSourceTask dataSourceTask = (DataSourceTask) tasks.get(0);
+        return doOptimizedLeftDataSourceAssertions(dataSourceTask);
+    }
+    
+    @Test
+    public void testOnlyReferencedColumnsAreFetched() throws Exception {
+        DataSource leftDataSource = new DataSource(INSTANCES_ALIAS);
+        DataSource rightDataSource = new DataSource(PROJECTS_ALIAS);
+        rightDataSource.setJoinType(INNER);
+        rightDataSource.setCondition(new SimpleBooleanExpression(new ColumnExpression(PROJECT_ID, INSTANCES_ALIAS), EQUAL, new ColumnExpression(ID, PROJECTS_ALIAS)));
+        leftDataSource.setRightDataSource(rightDataSource);
+        queryParser.setSelectQueryAware(new MockSelectQueryAware(){
+            {
+                getSelectionMap().put(NAME, new ColumnExpression(NAME, INSTANCES_ALIAS));
+                setDataSource(leftDataSource);
+                getTableAliases().put(INSTANCES_ALIAS, INSTANCES);
+                getTableAliases().put(PROJECTS_ALIAS, PROJECTS);
+                getOrderByExpressions().add(new OrderExpression(new ColumnExpression(PROJECT_NAME, PROJECTS_ALIAS)));
+            }
+        });
+        List<Task> tasks = new ArrayList<>(plan());
+        DataSourceTask dataSourceTask = (DataSourceTask) tasks.get(0);
+        Map<String, List<String>> fetchedColumns = getFetchedColumns(dataSourceTask.getDataSource());
+        assertThat(fetchedColumns.keySet(), containsInAnyOrder(INSTANCES_ALIAS, PROJECTS_ALIAS));
+        assertThat(fetchedColumns.get(INSTANCES_ALIAS), contains(NAME, PROJECT_ID));
+        assertThat(fetchedColumns.get(PROJECTS_ALIAS), contains(ID, PROJECT_NAME));
+    }
+
+    @Test
+    public void testIndexFetchIsNotUsedWhenWhereClauseNeedsOtherColumns() throws Exception {
+        DataSource leftDataSource = new DataSource(INSTANCES_ALIAS);
+        BooleanExpression whereCondition = new SimpleBooleanExpression(new ColumnExpression(ID, INSTANCES_ALIAS), REGEXP, VALUE);
+        queryParser.setSelectQueryAware(new MockSelectQueryAware(){
+            {
+                getSelectionMap().put(NAME, new ColumnExpression(NAME, INSTANCES_ALIAS));
+                setDataSource(leftDataSource);
+                setWhereExpression(whereCondition);
+                getTableAliases().put(INSTANCES_ALIAS, INSTANCES); //Only selected column is from index
+            }
+        });
+        List<Task> tasks = new ArrayList<>(plan());
+        DataSourceTask dataSourceTask = doCommonTaskAssertions(tasks, Arrays.asList(DataSourceTask.class, FilterTask.class, SelectTask.class));
+        DataSource optimizedLeftDataSource = doOptimizedLeftDataSourceAssertions(dataSourceTask);
+        assertThat(optimizedLeftDataSource.getType(), not(equalTo(INDEX_FETCH)));
+        assertThat(getFetchedColumns(dataSourceTask.getDataSource()).get(INSTANCES_ALIAS), containsInAnyOrder(ID, NAME));
+    }
+
+    @Test
+    public void testAllColumnsAreFetchedForAsterisk() throws Exception {
+        DataSource leftDataSource = new DataSource(INSTANCES);
+        queryParser.setSelectQueryAware(new MockSelectQueryAware(){
+            {
+                getSelectionMap().put(INSTANCES, new ColumnExpression(ANY_COLUMN, INSTANCES));
+                setDataSource(leftDataSource);
+                getTableAliases().put(INSTANCES, INSTANCES);
+            }
+        });
+        List<Task> tasks = new ArrayList<>(plan());
+        DataSourceTask dataSourceTask = doCommonTaskAssertions(tasks);
+        DataSource optimizedLeftDataSource = doOptimizedLeftDataSourceAssertions(dataSourceTask);
+        assertThat(optimizedLeftDataSource.getFetchedColumns(), is(empty()));
+    }
+
+    @Test
+    public void testWhereConditionsArePassedToTableScan() throws Exception {
+        DataSource leftDataSource = new DataSource(PROJECTS);
+        queryParser.setSelectQueryAware(new MockSelectQueryAware(){
+            {
+                getSelectionMap().put(ID, new ColumnExpression(ID, PROJECTS));
+                setDataSource(leftDataSource);
+                getTableAliases().put(PROJECTS, PROJECTS);
+                setWhereExpression(new BinaryBooleanExpression(
+                        new BinaryBooleanExpression(
+                                new SimpleBooleanExpression(new ColumnExpression(PROJECT_NAME), EQUAL, VALUE),
+                                OR,
+                                new SimpleBooleanExpression(new ColumnExpression(PROJECT_NAME, PROJECTS), EQUAL, ANOTHER_VALUE)
+                        ),
+                        AND,
+                        new SimpleBooleanExpression(new ColumnExpression(PROJECT_NAME, PROJECTS), LIKE, "value")
+                ));
+            }
+        });
+        List<Task> tasks = new ArrayList<>(plan());
+        DataSourceTask dataSourceTask = (DataSourceTask) tasks.get(0);
+        DataSource optimizedDataSource = doOptimizedLeftDataSourceAssertions(dataSourceTask);
+        assertThat(optimizedDataSource.getType(), equalTo(TABLE_SCAN));
+        FetchCondition expectedFetchCondition = new FetchCondition(
+                Collections.singletonMap(PROJECT_NAME, new HashSet<>(Arrays.asList(VALUE, ANOTHER_VALUE))),
+                Collections.emptyMap(),
+                Collections.singletonMap(PROJECT_NAME, Collections.singleton("value"))
+        );
+        assertThat(optimizedDataSource.getFetchCondition().get(), equalTo(expectedFetchCondition));
+    }
+
+    @Test
+    public void testWhereConditionsForDifferentColumnsAreNotPassedToTableScan() throws Exception {
+        DataSource leftDataSource = new DataSource(PROJECTS);
+        queryParser.setSelectQueryAware(new MockSelectQueryAware(){
+            {
+                getSelectionMap().put(ID, new ColumnExpression(ID, PROJECTS));
+                setDataSource(leftDataSource);
+                getTableAliases().put(PROJECTS, PROJECTS);
+                setWhereExpression(new BinaryBooleanExpression(
+                        new SimpleBooleanExpression(new ColumnExpression(PROJECT_NAME, PROJECTS), EQUAL, VALUE),
+                        OR,
+                        new SimpleBooleanExpression(new ColumnExpression(ID, PROJECTS), LIKE, ANOTHER_VALUE)
+                ));
+            }
+        });
+        List<Task> tasks = new ArrayList<>(plan());
+        DataSourceTask dataSourceTask = (DataSourceTask) tasks.get(0);
+        DataSource optimizedDataSource = doOptimizedLeftDataSourceAssertions(dataSourceTask);
+        assertThat(optimizedDataSource.getFetchCondition().isPresent(), is(false));
+    }
+
+    private static Map<String, List<String>> getFetchedColumns(DataSource dataSource) {
+        Map<String, List<String>> ret = new HashMap<>();
+        if (dataSource.getType() != PARENT) {
+            ret.put(dataSource.getTableAlias().get(), dataSource.getFetchedColumns());
+        }
+        dataSource.getLeftDataSource().ifPresent(ds -> ret.putAll(getFetchedColumns(ds)));
+        dataSource.getRightDataSource().ifPresent(ds -> ret.putAll(getFetchedColumns(ds)));
+        return ret;
+    }
+
     @Test
     public void testOptimizeMultipleRegexConditions() throws Exception {
         DataSource leftDataSource = new DataSource(INSTANCES);
@@ -1,9 +1,12 @@
 package org.meridor.perspective.sql.impl;
 
+import com.google.common.cache.CacheStats;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.meridor.perspective.sql.*;
+import org.meridor.perspective.sql.impl.expression.ParameterExpression;
 import org.meridor.perspective.sql.impl.parser.QueryType;
+import org.meridor.perspective.sql.impl.task.QueryContext;
 import org.meridor.perspective.sql.impl.task.Task;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.DirtiesContext;
@@ -14,8 +17,12 @@ import java.sql.SQLException;
 import java.sql.SQLSyntaxErrorException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
@@ -33,6 +40,12 @@ public class QueryProcessorImplTest {
     
     @Autowired
     private MockQueryPlanner mockQueryPlanner;
+    
+    @Autowired
+    private QueryCache queryCache;
+    
+    @Autowired
+    private MockIndexer mockIndexer;
 
     @Test
     public void testMissingParameters() {
@@ -123,6 +136,272 @@ public class QueryProcessorImplTest {
 
     }
     
+    @Test
+    public void testExplainAnalyze() {
+        AtomicInteger executionsCount = new AtomicInteger();
+        DataContainer dataContainer = new DataContainer(Collections.singletonList("col"));
+        dataContainer.addRow(Collections.singletonList("one"));
+        dataContainer.addRow(Collections.singletonList("two"));
+        mockQueryPlanner.setQueryPlan(createQueryPlan(
+                previousTaskResult -> {
+                    executionsCount.incrementAndGet();
+                    ExecutionResult executionResult = new ExecutionResult();
+                    executionResult.setCount(2);
+                    executionResult.setData(dataContainer);
+                    return executionResult;
+                },
+                QueryType.EXPLAIN_ANALYZE
+        ));
+        List<QueryResult> results = queryProcessor.process(createQuery(QUERY));
+        assertThat(results, hasSize(1));
+        QueryResult result = results.get(0);
+        assertThat(result.getStatus(), equalTo(QueryStatus.SUCCESS));
+        assertThat(result.getData().getColumnNames(), contains("step", "description", "rows_in", "rows_out", "time_ms", "allocated_bytes"));
+        List<Row> rows = result.getData().getRows();
+        assertThat(rows, hasSize(2));
+        assertThat(rows.get(0).getValues().get(0), equalTo("task"));
+        assertThat(rows.get(0).getValues().get(3), equalTo(2));
+        assertThat(rows.get(1).getValues().get(0), equalTo("total"));
+        assertThat(rows.get(1).getValues().get(3), equalTo(2));
+        
+        //Results are not cached because query should be really executed
+        queryProcessor.process(createQuery(QUERY));
+        assertThat(executionsCount.get(), equalTo(2));
+        assertThat(queryCache.getStats().hitCount(), equalTo(0L));
+    }
+    
+    @Test
+    public void testBatch() {
+        AtomicInteger executionsCount = new AtomicInteger();
+        mockQueryPlanner.setQueryPlan(createQueryPlan(
+                previousTaskResult -> {
+                    executionsCount.incrementAndGet();
+                    ExecutionResult executionResult = new ExecutionResult();
+                    executionResult.setCount(1);
+                    DataContainer dataContainer = new DataContainer(Collections.singletonList("col"));
+                    dataContainer.addRow(Collections.singletonList("value"));
+                    executionResult.setData(dataContainer);
+                    return executionResult;
+                },
+                QueryType.SELECT
+        ));
+        List<QueryResult> results = queryProcessor.process(Arrays.asList(
+                createQuery(QUERY),
+                createQuery("select * from projects"),
+                createQuery("select * from flavors")
+        ));
+        assertThat(results, hasSize(3));
+        results.forEach(r -> {
+            assertThat(r.getStatus(), equalTo(QueryStatus.SUCCESS));
+            assertThat(r.getCount(), equalTo(1));
+        });
+        assertThat(executionsCount.get(), equalTo(3));
+    }
+
+    @Test
+    public void testProcessRaw() {
+        DataContainer dataContainer = new DataContainer(Collections.singletonList("col"));
+        dataContainer.addRow(Collections.singletonList("value"));
+        mockQueryPlanner.setQueryPlan(createQueryPlan(
+                previousTaskResult -> {
+                    ExecutionResult executionResult = new ExecutionResult();
+                    executionResult.setCount(1);
+                    executionResult.setData(dataContainer);
+                    return executionResult;
+                },
+                QueryType.SELECT
+        ));
+        List<RawQueryResult> results = queryProcessor.processRaw(Collections.singletonList(createQuery(QUERY)));
+        assertThat(results, hasSize(1));
+        RawQueryResult result = results.get(0);
+        assertThat(result.getStatus(), equalTo(QueryStatus.SUCCESS));
+        assertThat(result.getCount(), equalTo(1));
+        //Row values are not copied
+        assertThat(result.getData().getRows().get(0).getValues(), is(sameInstance(dataContainer.getRows().get(0).getValues())));
+    }
+
+    @Test
+    public void testQueryTimeout() {
+        AtomicInteger executionsCount = new AtomicInteger();
+        mockQueryPlanner.setQueryPlan(createQueryPlan(
+                previousTaskResult -> {
+                    executionsCount.incrementAndGet();
+                    while (true) {
+                        QueryContext.check();
+                    }
+                },
+                QueryType.SELECT
+        ));
+        Query query = createQuery(QUERY);
+        query.setTimeout(10);
+        List<QueryResult> results = queryProcessor.process(query);
+        assertThat(results, hasSize(1));
+        assertThat(results.get(0).getStatus(), equalTo(QueryStatus.ABORTED));
+        
+        //Aborted results are not cached
+        queryProcessor.process(query);
+        assertThat(executionsCount.get(), equalTo(2));
+    }
+    
+    @Test
+    public void testCancelNotRunningQuery() {
+        assertThat(queryProcessor.cancel("missing"), is(false));
+    }
+    
+    @Test
+    public void testCancelById() throws Exception {
+        AtomicInteger executionsCount = new AtomicInteger();
+        mockQueryPlanner.setQueryPlan(createQueryPlan(
+                previousTaskResult -> {
+                    executionsCount.incrementAndGet();
+                    while (true) {
+                        QueryContext.check();
+                    }
+                },
+                QueryType.SELECT
+        ));
+        Query query = createQuery(QUERY);
+        query.setId("first");
+        CompletableFuture<List<QueryResult>> results = CompletableFuture.supplyAsync(() -> queryProcessor.process(query));
+        while (executionsCount.get() == 0) {
+            Thread.sleep(10);
+        }
+        //Identical query with another id is a different one
+        assertThat(queryProcessor.cancel("second"), is(false));
+        assertThat(queryProcessor.cancel("first"), is(true));
+        assertThat(results.get(10, TimeUnit.SECONDS).get(0).getStatus(), equalTo(QueryStatus.ABORTED));
+        assertThat(queryProcessor.cancel("first"), is(false));
+    }
+    
+    @Test
+    public void testQueryPlanIsCached() {
+        mockQueryPlanner.setQueryPlan(createQueryPlan(
+                previousTaskResult -> {
+                    ExecutionResult executionResult = new ExecutionResult();
+                    executionResult.setData(DataContainer.empty());
+                    return executionResult;
+                },
+                QueryType.SELECT
+        ));
+        queryProcessor.process(createQuery(QUERY));
+        queryProcessor.process(createQuery("select  *\tfrom instances"));
+        assertThat(mockQueryPlanner.getPlansCount(), equalTo(1));
+    }
+    
+    @Test
+    public void testQueryPlanIsSharedByParameterValues() {
+        ParameterExpression parameter = ParameterExpression.positional(1);
+        mockQueryPlanner.setQueryPlan(createQueryPlan(
+                previousTaskResult -> {
+                    DataContainer dataContainer = new DataContainer(Collections.singletonList("col"));
+                    dataContainer.addRow(Collections.singletonList(parameter.getValue()));
+                    ExecutionResult executionResult = new ExecutionResult();
+                    executionResult.setCount(1);
+                    executionResult.setData(dataContainer);
+                    return executionResult;
+                },
+                QueryType.SELECT
+        ));
+        String sql = "select * from instances where id = ?";
+        List<RawQueryResult> firstResults = queryProcessor.processRaw(Collections.singletonList(createQuery(sql, "1")));
+        List<RawQueryResult> secondResults = queryProcessor.processRaw(Collections.singletonList(createQuery(sql, "two")));
+        assertThat(mockQueryPlanner.getPlansCount(), equalTo(1));
+        assertThat(firstResults.get(0).getData().getRows().get(0).get(0), equalTo(1));
+        assertThat(secondResults.get(0).getData().getRows().get(0).get(0), equalTo("two"));
+    }
+    
+    @Test
+    public void testQueryPlanIsRecreatedWhenStatisticsChange() {
+        mockQueryPlanner.setQueryPlan(new QueryPlanImpl(
+                new LinkedList<>(Collections.singleton(previousTaskResult -> {
+                    ExecutionResult executionResult = new ExecutionResult();
+                    executionResult.setData(DataContainer.empty());
+                    return executionResult;
+                })),
+                QueryType.SELECT,
+                Collections.singleton("instances")
+        ));
+        mockIndexer.setRowsCount("instances", 100);
+        queryProcessor.process(createQuery(QUERY));
+        
+        mockIndexer.setRowsCount("instances", 150);
+        queryCache.invalidate("instances");
+        queryProcessor.process(createQuery(QUERY));
+        assertThat(mockQueryPlanner.getPlansCount(), equalTo(1));
+        
+        mockIndexer.setRowsCount("instances", 1000);
+        queryCache.invalidate("instances");
+        queryProcessor.process(createQuery(QUERY));
+        assertThat(mockQueryPlanner.getPlansCount(), equalTo(2));
+    }
+    
+    @Test
+    public void testGetTableNames() {
+        mockQueryPlanner.setQueryPlan(new QueryPlanImpl(
+                new LinkedList<>(),
+                QueryType.SELECT,
+                new HashSet<>(Arrays.asList("instances", "projects"))
+        ));
+        assertThat(queryProcessor.getTableNames(createQuery(QUERY)), containsInAnyOrder("instances", "projects"));
+        
+        mockQueryPlanner.setException(new SQLSyntaxErrorException("Some syntax error"));
+        assertThat(queryProcessor.getTableNames(createQuery("select * from projects")), is(empty()));
+    }
+    
+    @Test
+    public void testCachedResultsInvalidation() {
+        AtomicInteger executionsCount = new AtomicInteger();
+        mockQueryPlanner.setQueryPlan(new QueryPlanImpl(
+                new LinkedList<>(Collections.singleton(previousTaskResult -> {
+                    executionsCount.incrementAndGet();
+                    ExecutionResult executionResult = new ExecutionResult();
+                    executionResult.setData(DataContainer.empty());
+                    return executionResult;
+                })),
+                QueryType.SELECT,
+                Collections.singleton("instances")
+        ));
+        queryProcessor.process(createQuery(QUERY));
+        queryProcessor.process(createQuery(QUERY));
+        assertThat(executionsCount.get(), equalTo(1));
+        
+        queryCache.invalidate("projects");
+        queryProcessor.process(createQuery(QUERY));
+        assertThat(executionsCount.get(), equalTo(1));
+        
+        queryCache.invalidate("instances");
+        queryProcessor.process(createQuery(QUERY));
+        assertThat(executionsCount.get(), equalTo(2));
+        
+        CacheStats stats = queryCache.getStats();
+        assertThat(stats.hitCount(), equalTo(2L));
+        assertThat(stats.missCount(), equalTo(2L));
+    }
+    
+    @Test
+    public void testResultsOfQueryEvaluatedDuringTableChangesAreNotCached() {
+        AtomicInteger executionsCount = new AtomicInteger();
+        mockQueryPlanner.setQueryPlan(new QueryPlanImpl(
+                new LinkedList<>(Collections.singleton(previousTaskResult -> {
+                    executionsCount.incrementAndGet();
+                    //Table changes on every evaluation
+                    queryCache.invalidate("instances");
+                    ExecutionResult executionResult = new ExecutionResult();
+                    executionResult.setData(DataContainer.empty());
+                    return executionResult;
+                })),
+                QueryType.SELECT,
+                Collections.singleton("instances")
+        ));
+        List<QueryResult> results = queryProcessor.process(createQuery(QUERY));
+        assertThat(results, hasSize(1));
+        assertThat(results.get(0).getStatus(), equalTo(QueryStatus.SUCCESS));
+        assertThat(executionsCount.get(), equalTo(1));
+        
+        queryProcessor.process(createQuery(QUERY));
+        assertThat(executionsCount.get(), equalTo(2));
+    }
+    
     private QueryPlan createQueryPlan(Task task, org.meridor.perspective.sql.impl.parser.QueryType queryType) {
         return new QueryPlanImpl(new LinkedList<>(Collections.singleton(task)), queryType);
     }
@@ -133,4 +412,15 @@ public class QueryProcessorImplTest {
         return query;
     }
     
+    private static Query createQuery(String sql, String... parameterValues) {
+        Query query = createQuery(sql);
+        for (int i = 0; i <= parameterValues.length - 1; i++) {
+            Parameter parameter = new Parameter();
+            parameter.setIndex(i + 1);
+            parameter.setValue(parameterValues[i]);
+            query.getParameters().add(parameter);
+        }
+        return query;
+    }
+    
 }
\ No newline at end of file
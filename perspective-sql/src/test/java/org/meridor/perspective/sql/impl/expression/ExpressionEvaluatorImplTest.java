@@ -5,6 +5,9 @@ import org.junit.runner.RunWith;
 import org.meridor.perspective.beans.BooleanRelation;
 import org.meridor.perspective.sql.DataContainer;
 import org.meridor.perspective.sql.DataRow;
+import org.meridor.perspective.sql.ExecutionResult;
+import org.meridor.perspective.sql.impl.MockSelectQueryAware;
+import org.meridor.perspective.sql.impl.task.QueryContext;
 import org.meridor.perspective.sql.impl.table.DataType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
@@ -12,6 +15,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -177,6 +181,37 @@ public class ExpressionEvaluatorImplTest {
         assertThat(bool(null, Collections.emptySet(), EMPTY_ROW), is(false));
     }
     
+    @Test
+    public void testEvaluateInSubqueryExpression() {
+        Subquery subquery = createSubquery(new AtomicInteger(), "1", "2", null);
+        assertThat(bool(2, subquery, EMPTY_ROW), is(true));
+        assertThat(bool(STRING_COLUMN_VALUE, subquery, EMPTY_ROW), is(false));
+        assertThat(bool(new Null(), subquery, EMPTY_ROW), is(false));
+        assertThat(bool(1, createSubquery(new AtomicInteger()), EMPTY_ROW), is(false));
+    }
+
+    @Test
+    public void testEvaluateExistsExpression() {
+        assertThat(exists(createSubquery(new AtomicInteger(), "1"), EMPTY_ROW), is(true));
+        assertThat(exists(createSubquery(new AtomicInteger()), EMPTY_ROW), is(false));
+    }
+
+    @Test
+    public void testSubqueryIsEvaluatedOncePerQuery() {
+        AtomicInteger executionsCount = new AtomicInteger();
+        Subquery subquery = createSubquery(executionsCount, "1");
+        CompiledExpression compiledExpression = expressionEvaluator.compile(new InSubqueryExpression(1, subquery));
+        new QueryContext(0, 0, 0).call(() -> {
+            compiledExpression.evaluate(EMPTY_ROW);
+            return compiledExpression.evaluate(EMPTY_ROW);
+        });
+        assertThat(executionsCount.get(), equalTo(1));
+        
+        //Next query sees new subquery results
+        new QueryContext(0, 0, 0).call(() -> compiledExpression.evaluate(EMPTY_ROW));
+        assertThat(executionsCount.get(), equalTo(2));
+    }
+
     @Test
     public void testEvaluateIsNullExpression() {
         assertThat(isNull(new Null(), EMPTY_ROW), is(true));
@@ -265,6 +300,28 @@ public class ExpressionEvaluatorImplTest {
         return expressionEvaluator.evaluateAs(new InExpression(value, candidates), dataRow, Boolean.class);
     }
     
+    private boolean bool(Object value, Subquery subquery, DataRow dataRow) {
+        return expressionEvaluator.evaluateAs(new InSubqueryExpression(value, subquery), dataRow, Boolean.class);
+    }
+
+    private boolean exists(Subquery subquery, DataRow dataRow) {
+        return expressionEvaluator.evaluateAs(new ExistsExpression(subquery), dataRow, Boolean.class);
+    }
+
+    private static Subquery createSubquery(AtomicInteger executionsCount, String... values) {
+        Subquery subquery = new Subquery(new MockSelectQueryAware());
+        subquery.setTasks(Collections.singletonList(previousTaskResult -> {
+            executionsCount.incrementAndGet();
+            DataContainer dataContainer = new DataContainer(Collections.singletonList("col"));
+            Arrays.stream(values).forEach(v -> dataContainer.addRow(Collections.singletonList(v)));
+            ExecutionResult executionResult = new ExecutionResult();
+            executionResult.setCount(values.length);
+            executionResult.setData(dataContainer);
+            return executionResult;
+        }));
+        return subquery;
+    }
+
     private boolean isNull(Object value, DataRow dataRow) {
         return expressionEvaluator.evaluateAs(new IsNullExpression(value), dataRow, Boolean.class);
     }
@@ -320,4 +377,29 @@ public class ExpressionEvaluatorImplTest {
         assertThat(columns.get("mock"), contains("id"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testCompiledExpressionWithDifferentDataContainers() {
+        CompiledExpression compiledExpression = expressionEvaluator.compile(
+                new SimpleBooleanExpression(column(STRING_COLUMN_NAME, TABLE_NAME), LIKE, "te%")
+        );
+        assertThat(compiledExpression.evaluate(ROW_WITH_VALUES), equalTo(true));
+        assertThat(compiledExpression.evaluate(EMPTY_ROW), equalTo(false));
+        
+        //Same column is located at another position in this container
+        DataContainer anotherDataContainer = new DataContainer(Collections.singletonMap(
+                TABLE_NAME,
+                Arrays.asList(NUMERIC_COLUMN_NAME, STRING_COLUMN_NAME)
+        ));
+        DataRow anotherRow = new DataRow(anotherDataContainer, Arrays.asList(NUMERIC_COLUMN_VALUE, "another"));
+        assertThat(compiledExpression.evaluate(anotherRow), equalTo(false));
+        DataRow matchingRow = new DataRow(anotherDataContainer, Arrays.asList(NUMERIC_COLUMN_VALUE, "text"));
+        assertThat(compiledExpression.evaluate(matchingRow), equalTo(true));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompileMissingFunction() {
+        CompiledExpression compiledExpression = expressionEvaluator.compile(function("missing", Collections.emptyList()));
+        compiledExpression.evaluate(EMPTY_ROW);
+    }
+
+}
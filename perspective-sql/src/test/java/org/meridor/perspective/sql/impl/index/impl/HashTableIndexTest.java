@@ -6,6 +6,11 @@ import org.meridor.perspective.sql.impl.index.Key;
 import org.meridor.perspective.sql.impl.index.Keys;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.hamcrest.Matchers.contains;
@@ -24,5 +29,30 @@ public class HashTableIndexTest {
         assertThat(index.getKeys(), contains(key));
         assertThat(index.get(key), hasSize(100000));
     }
+
+    @Test(timeout = 10000)
+    public void testConcurrentModification() throws Exception {
+        IndexSignature indexSignature = new IndexSignature("test", Collections.singleton("id"));
+        Index index = new HashTableIndex(indexSignature);
+        Key key = Keys.key("key");
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = IntStream.rangeClosed(0, 3)
+                    .mapToObj(thread -> executorService.submit(() -> IntStream.rangeClosed(0, 9999).forEach(value -> {
+                        String id = thread + "-" + value;
+                        index.put(key, id);
+                        if (value % 2 == 0) {
+                            index.delete(key, id);
+                        }
+                    })))
+                    .collect(Collectors.toList());
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+        assertThat(index.get(key), hasSize(20000));
+    }
     
-}
\ No newline at end of file
+}
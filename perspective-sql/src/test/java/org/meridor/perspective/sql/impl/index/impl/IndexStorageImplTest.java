@@ -48,5 +48,35 @@ public class IndexStorageImplTest {
         assertThat(indexAfterModification.getKeys(), contains(KEY));
         assertThat(indexAfterModification.get(KEY), contains(ID));
     }
+
+    @Test
+    public void testSnapshotIsNotAffectedByUpdates() {
+        IndexSignature indexSignature = new IndexSignature(TABLE_NAME, Collections.singleton(COLUMN_NAME));
+        indexStorage.create(indexSignature, KEY_LENGTH);
+        indexStorage.update(indexSignature, index -> {
+            index.put(KEY, ID);
+            return index;
+        });
+        Index snapshot = indexStorage.get(indexSignature).get();
+        Key anotherKey = Keys.key(KEY_LENGTH, "another-key");
+        indexStorage.update(indexSignature, index -> {
+            index.delete(KEY, ID);
+            index.put(anotherKey, ID);
+            return index;
+        });
+        assertThat(snapshot.getKeys(), contains(KEY));
+        assertThat(snapshot.get(KEY), contains(ID));
+        assertThat(snapshot.get(anotherKey), is(empty()));
+        Index currentIndex = indexStorage.get(indexSignature).get();
+        assertThat(currentIndex.getKeys(), contains(anotherKey));
+        assertThat(currentIndex.get(KEY), is(empty()));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotIsReadOnly() {
+        IndexSignature indexSignature = new IndexSignature(TABLE_NAME, Collections.singleton(COLUMN_NAME));
+        indexStorage.create(indexSignature, KEY_LENGTH);
+        indexStorage.get(indexSignature).get().put(KEY, ID);
+    }
     
-}
\ No newline at end of file
+}
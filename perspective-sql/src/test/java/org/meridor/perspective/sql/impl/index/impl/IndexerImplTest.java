@@ -12,6 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Optional;
 import java.util.Set;
@@ -50,6 +51,43 @@ public class IndexerImplTest {
         assertThat(indexWithDeletedBean.get(key), is(empty()));
     }
 
+    @Test
+    public void testFindInconsistentIndexes() {
+        indexer.add(TABLE_NAME, BEAN);
+        try {
+            assertThat(indexer.findInconsistentIndexes(TABLE_NAME, Collections.singletonList(BEAN)), is(empty()));
+            assertThat(indexer.findInconsistentIndexes(TABLE_NAME, Collections.emptyList()), contains(INDEX_SIGNATURE));
+            TestObject missingBean = new TestObject("missing");
+            assertThat(indexer.findInconsistentIndexes(TABLE_NAME, Arrays.asList(BEAN, missingBean)), contains(INDEX_SIGNATURE));
+        } finally {
+            indexer.delete(TABLE_NAME, BEAN);
+        }
+    }
+
+    @Test
+    public void testRepairIndexes() {
+        TestObject missingBean = new TestObject("missing");
+        indexer.add(TABLE_NAME, missingBean);
+        try {
+            assertThat(indexer.repairIndexes(TABLE_NAME, Collections.singletonList(BEAN)), contains(INDEX_SIGNATURE));
+            assertThat(indexer.findInconsistentIndexes(TABLE_NAME, Collections.singletonList(BEAN)), is(empty()));
+            assertThat(indexer.getRowsCount(TABLE_NAME), equalTo(Optional.of(1L)));
+            assertThat(indexer.repairIndexes(TABLE_NAME, Collections.singletonList(BEAN)), is(empty()));
+        } finally {
+            indexer.delete(TABLE_NAME, BEAN);
+        }
+    }
+
+    @Test
+    public void testRowsCount() {
+        long initialRowsCount = indexer.getRowsCount(TABLE_NAME).orElse(0L);
+        indexer.add(TABLE_NAME, BEAN);
+        assertThat(indexer.getRowsCount(TABLE_NAME), equalTo(Optional.of(initialRowsCount + 1)));
+        indexer.delete(TABLE_NAME, BEAN);
+        assertThat(indexer.getRowsCount(TABLE_NAME), equalTo(Optional.of(initialRowsCount)));
+        assertThat(indexer.getRowsCount("missing").isPresent(), is(false));
+    }
+
     private Optional<Index> getIndex() {
         return indexStorage.get(INDEX_SIGNATURE);
     }
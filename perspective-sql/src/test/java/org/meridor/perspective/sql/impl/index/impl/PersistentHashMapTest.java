@@ -0,0 +1,84 @@
+package org.meridor.perspective.sql.impl.index.impl;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class PersistentHashMapTest {
+
+    @Test
+    public void testPlusAndMinus() {
+        PersistentHashMap<String, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i <= 9999; i++) {
+            map = map.plus(String.valueOf(i), i);
+        }
+        assertThat(map.size(), equalTo(10000));
+        assertThat(map.get("1234"), equalTo(1234));
+        assertThat(map.get("missing"), is(nullValue()));
+        for (int i = 0; i <= 9999; i += 2) {
+            map = map.minus(String.valueOf(i));
+        }
+        assertThat(map.size(), equalTo(5000));
+        assertThat(map.containsKey("1234"), is(false));
+        assertThat(map.get("1235"), equalTo(1235));
+        Map<String, Integer> contents = new HashMap<>();
+        map.forEach(contents::put);
+        assertThat(contents.size(), equalTo(5000));
+    }
+
+    @Test
+    public void testOldVersionsAreNotModified() {
+        PersistentHashMap<String, Integer> first = PersistentHashMap.<String, Integer>empty().plus("one", 1);
+        PersistentHashMap<String, Integer> second = first.plus("two", 2).minus("one");
+        assertThat(first.size(), equalTo(1));
+        assertThat(first.get("one"), equalTo(1));
+        assertThat(first.containsKey("two"), is(false));
+        assertThat(second.size(), equalTo(1));
+        assertThat(second.containsKey("one"), is(false));
+        assertThat(second.get("two"), equalTo(2));
+    }
+
+    @Test
+    public void testHashCollisions() {
+        PersistentHashMap<CollidingKey, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i <= 99; i++) {
+            map = map.plus(new CollidingKey(i), i);
+        }
+        assertThat(map.size(), equalTo(100));
+        PersistentHashMap<CollidingKey, Integer> fullMap = map;
+        IntStream.rangeClosed(0, 99).forEach(i -> assertThat(fullMap.get(new CollidingKey(i)), equalTo(i)));
+        PersistentHashMap<CollidingKey, Integer> withoutOdd = map;
+        for (int i = 1; i <= 99; i += 2) {
+            withoutOdd = withoutOdd.minus(new CollidingKey(i));
+        }
+        assertThat(withoutOdd.size(), equalTo(50));
+        assertThat(withoutOdd.containsKey(new CollidingKey(1)), is(false));
+        assertThat(withoutOdd.get(new CollidingKey(2)), equalTo(2));
+    }
+
+    private static class CollidingKey {
+
+        private final int value;
+
+        CollidingKey(int value) {
+            this.value = value;
+        }
+
+        //Only two distinct hashes sharing lowest bits
+        @Override
+        public int hashCode() {
+            return (value % 2 == 0) ? 1 : 1 + (1 << 20);
+        }
+
+        @Override
+        public boolean equals(Object another) {
+            return another instanceof CollidingKey && ((CollidingKey) another).value == value;
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package org.meridor.perspective.sql.impl.index.impl;
+
+import org.junit.Test;
+import org.meridor.perspective.sql.impl.index.Index;
+import org.meridor.perspective.sql.impl.index.IndexStatistics;
+import org.meridor.perspective.sql.impl.index.SortedIndex;
+
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.meridor.perspective.sql.impl.index.Keys.key;
+
+public class SkipListIndexTest {
+    
+    private static SortedIndex createIndex() {
+        SortedIndex index = new SkipListIndex(new IndexSignature("test", Collections.singleton("value")));
+        index.put(key(10), "4");
+        index.put(key(2), "2");
+        index.put(key(-1), "1");
+        index.put(key(2.5), "3");
+        return index;
+    }
+
+    @Test
+    public void testGetByKey() {
+        SortedIndex index = createIndex();
+        assertThat(index.get(key(2)), contains("2"));
+        assertThat(index.get(key(3)), empty());
+        index.delete(key(2), "2");
+        assertThat(index.get(key(2)), empty());
+    }
+
+    @Test
+    public void testNumericRange() {
+        SortedIndex index = createIndex();
+        assertThat(index.get(key(2), true, key(10), false), contains("2", "3"));
+        assertThat(index.get(key(2), false, key(10), true), contains("3", "4"));
+        assertThat(index.get(null, false, key(2.5), true), contains("1", "2", "3"));
+        assertThat(index.get(key(2), true, null, false), contains("2", "3", "4"));
+        assertThat(index.get(key(10), true, key(2), true), empty());
+    }
+
+    @Test
+    public void testStatistics() {
+        SortedIndex index = createIndex();
+        index.put(key(2), "5");
+        assertThat(index.count(key(2)), equalTo(2));
+        assertThat(index.count(key(3)), equalTo(0));
+        assertThat(index.count(key(2), true, key(10), false), equalTo(3L));
+        assertThat(index.count(key(10), true, key(2), true), equalTo(0L));
+        IndexStatistics statistics = index.getStatistics();
+        assertThat(statistics.getKeysCount(), equalTo(4));
+        assertThat(statistics.getIdsCount(), equalTo(5L));
+        assertThat(statistics.getAverageIdsPerKey(), equalTo(1.25));
+        assertThat(statistics.getPostingListSizes()[0], equalTo(3));
+        assertThat(statistics.getPostingListSizes()[1], equalTo(1));
+        assertThat(statistics.getMaxIdsPerKey(), equalTo(3L));
+        
+        index.delete(key(2), "2");
+        index.delete(key(2), "5");
+        statistics = index.getStatistics();
+        assertThat(statistics.getKeysCount(), equalTo(3));
+        assertThat(statistics.getIdsCount(), equalTo(3L));
+        assertThat(statistics.getAverageIdsPerKey(), equalTo(1.0));
+        assertThat(statistics.getPostingListSizes()[1], equalTo(0));
+    }
+
+    @Test
+    public void testRemovedKeysArePruned() {
+        SkipListIndex index = new SkipListIndex(new IndexSignature("test", Collections.singleton("value")));
+        for (int i = 0; i <= 9; i++) {
+            index.put(key(i), String.valueOf(i));
+        }
+        Index snapshot = index.snapshot();
+        //Keys are pruned when removed keys outnumber remaining ones
+        for (int i = 0; i <= 5; i++) {
+            index.delete(key(i), String.valueOf(i));
+        }
+        assertThat(index.getSortedKeysCount(), equalTo(4));
+        assertThat(index.get(key(0), true, null, false), contains("6", "7", "8", "9"));
+        
+        //Snapshot still uses keys it was created with
+        assertThat(((SortedIndex) snapshot).count(key(0), true, null, false), equalTo(10L));
+        
+        index.put(key(5), "5");
+        assertThat(index.get(key(0), true, null, false), contains("5", "6", "7", "8", "9"));
+    }
+
+    @Test
+    public void testAbsentKeysAreNotCountedAsRemoved() {
+        SkipListIndex index = new SkipListIndex(new IndexSignature("test", Collections.singleton("value")));
+        for (int i = 0; i <= 9; i++) {
+            index.put(key(i), String.valueOf(i));
+        }
+        for (int i = 0; i <= 10; i++) {
+            index.delete(key(100), "100");
+        }
+        index.delete(key(0), "0");
+        assertThat(index.getSortedKeysCount(), equalTo(10));
+    }
+
+    @Test
+    public void testSnapshotWriteDoesNotChangeKeys() {
+        SkipListIndex index = new SkipListIndex(new IndexSignature("test", Collections.singleton("value")));
+        index.put(key(1), "1");
+        Index snapshot = index.snapshot();
+        try {
+            snapshot.put(key(2), "2");
+            fail("Snapshot should be read-only");
+        } catch (UnsupportedOperationException e) {
+            assertThat(index.getSortedKeysCount(), equalTo(1));
+        }
+    }
+
+    @Test
+    public void testStringRange() {
+        SortedIndex index = new SkipListIndex(new IndexSignature("test", Collections.singleton("value")));
+        index.put(key("abc"), "1");
+        index.put(key("abd"), "2");
+        index.put(key("ab"), "3");
+        index.put(key("b"), "4");
+        assertThat(index.get(key("ab"), true, key("ac"), false), contains("3", "1", "2"));
+        assertThat(index.get(key("abc"), false, null, false), contains("2", "4"));
+    }
+
+}
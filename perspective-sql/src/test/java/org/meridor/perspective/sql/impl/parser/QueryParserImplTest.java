@@ -42,6 +42,15 @@ public class QueryParserImplTest {
         assertThat(queryParser.getQueryType(), equalTo(QueryType.EXPLAIN));
     }
     
+    @Test
+    public void testExplainAnalyzeQuery() throws Exception {
+        QueryParser queryParser = parse(
+                "explain analyze select * from instances",
+                QueryParser.class
+        );
+        assertThat(queryParser.getQueryType(), equalTo(QueryType.EXPLAIN_ANALYZE));
+    }
+    
     @Test
     public void testTableAliases() throws Exception {
         SelectQueryAware selectQueryAware = parse(
@@ -65,6 +74,69 @@ public class QueryParserImplTest {
         assertThat(selectQueryAware.getGroupByExpressions(), contains(new ColumnExpression("id")));
     }
     
+    @Test
+    public void testAggregateFunctions() throws Exception {
+        SelectQueryAware selectQueryAware = parse(
+                "select project_id, COUNT(*), max(name) from instances group by project_id having count(*) > 1",
+                SelectQueryAware.class
+        );
+        AggregateFunctionExpression countAll = new AggregateFunctionExpression(AggregateFunction.COUNT, new ColumnExpression());
+        AggregateFunctionExpression maxName = new AggregateFunctionExpression(AggregateFunction.MAX, new ColumnExpression("name"));
+        assertThat(selectQueryAware.getSelectionMap().keySet(), contains("project_id", "count(*)", "max(name)"));
+        assertThat(selectQueryAware.getSelectionMap().values(), contains(new ColumnExpression("project_id"), countAll, maxName));
+        assertThat(selectQueryAware.getHavingExpression(), equalTo(Optional.of(
+                new SimpleBooleanExpression(countAll, BooleanRelation.GREATER_THAN, 1)
+        )));
+    }
+    
+    @Test
+    public void testSubqueryInFromClause() throws Exception {
+        SelectQueryAware selectQueryAware = parse(
+                "select d.*, p.project_name from (select i.id, name as instance_name, project_id from instances i where name = 'test') as d join projects p on d.project_id = p.id",
+                SelectQueryAware.class
+        );
+        assertThat(selectQueryAware.getTableAliases(), equalTo(new HashMap<String, String>(){
+            {
+                put("d", Subquery.DERIVED_TABLE);
+                put("p", "projects");
+            }
+        }));
+        DataSource dataSource = selectQueryAware.getDataSource().get();
+        assertThat(dataSource.getTableAlias(), equalTo(Optional.of("d")));
+        assertThat(dataSource.getSubquery().isPresent(), is(true));
+        Subquery subquery = dataSource.getSubquery().get();
+        assertThat(subquery.getColumnNames(), contains("id", "instance_name", "project_id"));
+        SelectQueryAware subquerySelectQueryAware = subquery.getSelectQueryAware();
+        assertThat(subquerySelectQueryAware.getTableAliases(), equalTo(Collections.singletonMap("i", "instances")));
+        assertThat(subquerySelectQueryAware.getWhereExpression(), equalTo(Optional.of(
+                new SimpleBooleanExpression(new ColumnExpression("name"), BooleanRelation.EQUAL, "test")
+        )));
+
+        //Derived table columns are expanded because they are not stored in any table
+        assertThat(selectQueryAware.getSelectionMap().keySet(), contains("id", "instance_name", "project_id", "p.project_name"));
+        assertThat(selectQueryAware.getSelectionMap().values(), contains(
+                new ColumnExpression("id", "d"),
+                new ColumnExpression("instance_name", "d"),
+                new ColumnExpression("project_id", "d"),
+                new ColumnExpression("project_name", "p")
+        ));
+    }
+
+    @Test(expected = SQLSyntaxErrorException.class)
+    public void testSubqueryInFromClauseHidesOriginalColumns() throws Exception {
+        parse("select d.name from (select name as instance_name from instances) as d", SelectQueryAware.class);
+    }
+
+    @Test(expected = SQLSyntaxErrorException.class)
+    public void testSubqueryInFromClauseWithDuplicateColumns() throws Exception {
+        parse("select * from (select i.id, p.id from instances i join projects p on i.project_id = p.id) as d", SelectQueryAware.class);
+    }
+    
+    @Test(expected = SQLSyntaxErrorException.class)
+    public void testAggregateFunctionInWhereClause() throws Exception {
+        parse("select * from instances where count(*) > 1", SelectQueryAware.class);
+    }
+    
     @Test
     public void testOrderByClause() throws Exception {
         SelectQueryAware selectQueryAware = parse(
@@ -245,6 +317,34 @@ public class QueryParserImplTest {
         );
     }
 
+    @Test
+    public void testWhereParameters() throws Exception {
+        testBooleanRelation(
+                "select * from instances where id = ?1 and name = ?:name",
+                new BinaryBooleanExpression(
+                        new SimpleBooleanExpression(new ColumnExpression("id"), BooleanRelation.EQUAL, ParameterExpression.positional(1)),
+                        BinaryBooleanOperator.AND,
+                        new SimpleBooleanExpression(new ColumnExpression("name"), BooleanRelation.EQUAL, ParameterExpression.named("name"))
+                )
+        );
+    }
+
+    @Test
+    public void testSelectParameterWithAlias() throws Exception {
+        SelectQueryAware selectQueryAware = parse(
+                "select ?1 as value from instances",
+                SelectQueryAware.class
+        );
+        assertThat(selectQueryAware.getSelectionMap().keySet(), contains("value"));
+        assertThat(selectQueryAware.getSelectionMap().values(), contains(ParameterExpression.positional(1)));
+    }
+
+    //Column name can't depend on parameter value
+    @Test(expected = SQLSyntaxErrorException.class)
+    public void testSelectParameterWithoutAlias() throws Exception {
+        parse("select ?1 from instances");
+    }
+
     @Test
     public void testWhereLessThan() throws Exception {
         testBooleanRelation(
@@ -382,6 +482,63 @@ public class QueryParserImplTest {
         );
     }
 
+    @Test
+    public void testInSubqueryExpression() throws Exception {
+        SelectQueryAware selectQueryAware = parse(
+                "select * from instances where project_id in (select id from projects where project_name = 'test')",
+                SelectQueryAware.class
+        );
+        assertThat(selectQueryAware.getWhereExpression().isPresent(), is(true));
+        assertThat(selectQueryAware.getWhereExpression().get(), is(instanceOf(InSubqueryExpression.class)));
+        InSubqueryExpression inSubqueryExpression = (InSubqueryExpression) selectQueryAware.getWhereExpression().get();
+        assertThat(inSubqueryExpression.getValue(), equalTo(new ColumnExpression("project_id")));
+        SelectQueryAware subquery = inSubqueryExpression.getSubquery().getSelectQueryAware();
+        assertThat(subquery.getTableAliases(), equalTo(Collections.singletonMap("projects", "projects")));
+        assertThat(subquery.getSelectionMap().values(), contains(new ColumnExpression("id")));
+        assertThat(subquery.getWhereExpression(), equalTo(Optional.of(
+                new SimpleBooleanExpression(new ColumnExpression("project_name"), BooleanRelation.EQUAL, "test")
+        )));
+        
+        //Subquery clauses should not leak to outer query
+        assertThat(selectQueryAware.getTableAliases(), equalTo(Collections.singletonMap("instances", "instances")));
+        assertThat(selectQueryAware.getSelectionMap().values(), contains(new ColumnExpression()));
+    }
+
+    @Test
+    public void testNotInSubqueryExpression() throws Exception {
+        SelectQueryAware selectQueryAware = parse(
+                "select * from instances where project_id not in (select id from projects)",
+                SelectQueryAware.class
+        );
+        BooleanExpression whereExpression = selectQueryAware.getWhereExpression().get();
+        assertThat(whereExpression, is(instanceOf(UnaryBooleanExpression.class)));
+        assertThat(((UnaryBooleanExpression) whereExpression).getValue(), is(instanceOf(InSubqueryExpression.class)));
+    }
+
+    @Test
+    public void testExistsExpression() throws Exception {
+        SelectQueryAware selectQueryAware = parse(
+                "select * from instances where exists (select * from projects limit 1)",
+                SelectQueryAware.class
+        );
+        BooleanExpression whereExpression = selectQueryAware.getWhereExpression().get();
+        assertThat(whereExpression, is(instanceOf(ExistsExpression.class)));
+        SelectQueryAware subquery = ((ExistsExpression) whereExpression).getSubquery().getSelectQueryAware();
+        assertThat(subquery.getLimitCount(), equalTo(Optional.of(1)));
+        assertThat(selectQueryAware.getLimitCount(), equalTo(Optional.empty()));
+    }
+
+    @Test(expected = SQLSyntaxErrorException.class)
+    public void testInSubqueryWithSeveralColumns() throws Exception {
+        parse("select * from instances where project_id in (select id, project_name from projects)");
+    }
+
+    @Test(expected = SQLSyntaxErrorException.class)
+    public void testCorrelatedSubquery() throws Exception {
+        //Outer query columns are not available in subquery
+        parse("select * from instances where exists (select id from projects where projects.id = instances.project_id)");
+    }
+
     @Test
     public void testLikeExpression() throws Exception {
         testBooleanRelation(
@@ -0,0 +1,91 @@
+package org.meridor.perspective.sql.impl.storage.columnar;
+
+import org.junit.Test;
+import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.DataRow;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ColumnarRowsTest {
+
+    private static final List<String> COLUMNS = Arrays.asList("id", "state", "enabled", "memory", "created");
+
+    private static final List<List<Object>> ROWS = Arrays.asList(
+            Arrays.asList(1, "launched", true, 2048L, "2016-01-01"),
+            Arrays.asList(2, "launched", false, null, "2016-01-02"),
+            Arrays.asList(3, "error", null, 1024L, "2016-01-03"),
+            Arrays.asList(null, "launched", true, 512L, null)
+    );
+
+    private DataContainer createContainer() {
+        return ColumnarRows.createDataContainer(Collections.singletonMap("instances", COLUMNS), ROWS);
+    }
+
+    private static ColumnarRows getRows(DataContainer dataContainer) {
+        return (ColumnarRows) dataContainer.getRowsView().get();
+    }
+
+    @Test
+    public void testValuesAreNotChanged() {
+        DataContainer dataContainer = createContainer();
+        assertThat(dataContainer.getRowsView().get(), is(instanceOf(ColumnarRows.class)));
+        List<DataRow> rows = dataContainer.getRows();
+        assertThat(rows, hasSize(4));
+        for (int i = 0; i <= ROWS.size() - 1; i++) {
+            assertThat(rows.get(i).getValues(), equalTo(ROWS.get(i)));
+        }
+        assertThat(rows.get(1).get("memory"), is(nullValue()));
+        assertThat(rows.get(0).get("memory"), equalTo(2048L));
+        assertThat(rows.get(3).get("state", "instances"), equalTo("launched"));
+    }
+
+    @Test
+    public void testSelectAndProject() {
+        ColumnarRows rows = getRows(createContainer())
+                .select(new int[]{0, 2, 3})
+                .select(new int[]{1, 2})
+                .project(new int[]{1, 0});
+        assertThat(rows.size(), equalTo(2));
+        DataContainer dataContainer = new DataContainer(Collections.singletonMap("any", Arrays.asList("state", "id")), rows);
+        assertThat(dataContainer.getColumnNames(), contains("state", "id"));
+        assertThat(dataContainer.getRows().get(0).getValues(), contains("error", 3));
+        assertThat(dataContainer.getRows().get(1).getValues(), contains("launched", null));
+    }
+
+    @Test
+    public void testToData() {
+        DataContainer dataContainer = createContainer();
+        assertThat(dataContainer.toData().getColumnNames(), equalTo(COLUMNS));
+        assertThat(dataContainer.toData().getRows().get(2).getValues(), equalTo(ROWS.get(2)));
+    }
+
+    @Test
+    public void testRowsAreCopiedWhenAdding() {
+        DataContainer dataContainer = createContainer();
+        ColumnarRows rows = getRows(dataContainer);
+        List<Object> newRow = Arrays.asList(5, "queued", false, 0L, "2016-01-05");
+        dataContainer.addRow(newRow);
+        assertThat(dataContainer.getRowsView().isPresent(), is(false));
+        assertThat(dataContainer.getRows(), hasSize(5));
+        assertThat(dataContainer.getRows().get(0).getValues(), equalTo(ROWS.get(0)));
+        assertThat(dataContainer.getRows().get(0).getDataContainer(), is(sameInstance(dataContainer)));
+        assertThat(dataContainer.getRows().get(4).getValues(), equalTo(newRow));
+        assertThat(rows.size(), equalTo(4));
+    }
+
+    @Test
+    public void testMixedTypes() {
+        List<Object> values = Arrays.asList(1, 2L, "three", null);
+        ColumnVector columnVector = ColumnVectors.create(values);
+        assertThat(columnVector.size(), equalTo(4));
+        for (int i = 0; i <= values.size() - 1; i++) {
+            assertThat(columnVector.get(i), equalTo(values.get(i)));
+        }
+    }
+
+}
@@ -3,18 +3,21 @@ package org.meridor.perspective.sql.impl.storage.impl;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.impl.QueryCache;
 import org.meridor.perspective.sql.impl.expression.MockTable;
 import org.meridor.perspective.sql.impl.storage.DataFetcher;
 import org.meridor.perspective.sql.impl.table.Column;
+import org.meridor.perspective.sql.impl.task.QueryContext;
+import org.meridor.perspective.sql.impl.task.SharedValues;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.function.Supplier;
 
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.assertThat;
 
@@ -25,6 +28,12 @@ public class DataFetcherImplTest {
     @Autowired
     private DataFetcher dataFetcher;
 
+    @Autowired
+    private QueryCache queryCache;
+
+    @Autowired
+    private TestTableFetcher testTableFetcher;
+
     @Test
     public void testFetchExistingTable() {
         final String TABLE_ALIAS = "alias";
@@ -41,6 +50,33 @@ public class DataFetcherImplTest {
         assertThat(columnsMap.get(TABLE_ALIAS), contains(COLUMN_NAME));
     }
 
+    @Test
+    public void testBatchFetchIsSharedUntilTableChanges() {
+        List<Column> columns = Collections.singletonList(new Column("column", String.class, null, new MockTable()));
+        SharedValues batchValues = new SharedValues();
+        Supplier<DataContainer> fetch = () -> new QueryContext(0, 0, 0, batchValues).call(() -> dataFetcher.fetch("existing", "alias", columns));
+        int fetchesCount = testTableFetcher.getFetchesCount();
+        fetch.get();
+        fetch.get();
+        assertThat(testTableFetcher.getFetchesCount(), equalTo(fetchesCount + 1));
+        
+        queryCache.invalidate("existing");
+        fetch.get();
+        assertThat(testTableFetcher.getFetchesCount(), equalTo(fetchesCount + 2));
+    }
+
+    @Test
+    public void testRestrictedFetchReadsOnlyGivenRows() {
+        List<Column> columns = Collections.singletonList(new Column("column", String.class, null, new MockTable()));
+        QueryContext queryContext = new QueryContext(0, 0, 0, new SharedValues());
+        queryContext.restrictRows("existing", Collections.singleton("id"));
+        queryContext.call(() -> dataFetcher.fetch("existing", "alias", columns));
+        assertThat(testTableFetcher.getLastIds(), equalTo(Optional.of(Collections.singleton("id"))));
+
+        queryContext.call(() -> dataFetcher.fetch("existing", columns, new HashSet<>(Arrays.asList("id", "another-id"))));
+        assertThat(testTableFetcher.getLastIds(), equalTo(Optional.of(Collections.singleton("id"))));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testFetchMissingTable() {
         dataFetcher.fetch(
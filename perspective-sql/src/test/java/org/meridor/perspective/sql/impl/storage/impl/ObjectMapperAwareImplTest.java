@@ -8,8 +8,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
+import java.util.function.Function;
 
+import static org.hamcrest.Matchers.arrayContaining;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
@@ -31,6 +35,21 @@ public class ObjectMapperAwareImplTest {
         assertThat(mappedValues.get(TestObjectMapper.COLUMN_NAME), equalTo(VALUE));
     }
     
+    @Test
+    public void testRowMapper() {
+        ObjectMapper<TestObject> testObjectMapper = objectMapperAware.get(TestObject.class);
+        final String VALUE = "test";
+        Function<TestObject, Object[]> rowMapper = testObjectMapper.getRowMapper(
+                Arrays.asList(TestObjectMapper.COLUMN_NAME, TestObjectMapper.COLUMN_NAME)
+        );
+        assertThat(rowMapper.apply(new TestObject(VALUE)), arrayContaining(VALUE, VALUE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRowMapperWithMissingColumn() {
+        objectMapperAware.get(TestObject.class).getRowMapper(Collections.singletonList("missing"));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testGetMissingObjectMapper() {
         objectMapperAware.get(Void.class);
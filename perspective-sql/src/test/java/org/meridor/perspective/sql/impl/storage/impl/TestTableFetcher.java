@@ -5,12 +5,27 @@ import org.meridor.perspective.sql.impl.table.Column;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 public class TestTableFetcher implements TableFetcher {
 
+    private final AtomicInteger fetchesCount = new AtomicInteger();
+
+    private volatile Set<String> lastIds;
+
+    public int getFetchesCount() {
+        return fetchesCount.get();
+    }
+
+    public Optional<Set<String>> getLastIds() {
+        return Optional.ofNullable(lastIds);
+    }
+
     @Override
     public Map<String, List<Object>> fetch(Set<String> ids, Collection<Column> columns) {
+        fetchesCount.incrementAndGet();
+        lastIds = ids;
         return Collections.singletonMap("id", Collections.singletonList("value"));
     }
 
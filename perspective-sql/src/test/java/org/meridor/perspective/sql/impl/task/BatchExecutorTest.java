@@ -0,0 +1,99 @@
+package org.meridor.perspective.sql.impl.task;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class BatchExecutorTest {
+
+    private BatchExecutor batchExecutor;
+
+    @After
+    public void after() {
+        if (batchExecutor != null) {
+            batchExecutor.destroy();
+        }
+    }
+
+    @Test
+    public void testResultsOrder() {
+        createBatchExecutor(2);
+        List<Supplier<Integer>> actions = Arrays.asList(
+                () -> sleepAndReturn(100, 1),
+                () -> 2,
+                () -> sleepAndReturn(50, 3)
+        );
+        assertThat(batchExecutor.execute(actions), contains(1, 2, 3));
+    }
+
+    @Test
+    public void testActionsAreConcurrent() {
+        createBatchExecutor(1);
+        //Both actions can only finish when they run at the same time
+        CountDownLatch latch = new CountDownLatch(2);
+        Supplier<Boolean> action = () -> {
+            latch.countDown();
+            try {
+                return latch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        };
+        assertThat(batchExecutor.execute(Arrays.asList(action, action)), contains(true, true));
+    }
+
+    @Test
+    public void testNestedBatches() {
+        createBatchExecutor(1);
+        Supplier<List<Integer>> nestedBatch = () -> batchExecutor.execute(Arrays.asList(() -> 1, () -> 2));
+        assertThat(
+                batchExecutor.execute(Arrays.asList(nestedBatch, nestedBatch, nestedBatch)),
+                equalTo(Collections.nCopies(3, Arrays.asList(1, 2)))
+        );
+    }
+
+    @Test
+    public void testSequentialExecution() {
+        createBatchExecutor(0);
+        Thread currentThread = Thread.currentThread();
+        List<Supplier<Thread>> actions = Arrays.asList(Thread::currentThread, Thread::currentThread);
+        assertThat(batchExecutor.execute(actions), contains(currentThread, currentThread));
+        assertThat(batchExecutor.execute(Collections.emptyList()), is(empty()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExceptionIsRethrown() {
+        createBatchExecutor(2);
+        batchExecutor.execute(Arrays.asList(
+                () -> 1,
+                () -> {
+                    throw new IllegalArgumentException("failed");
+                }
+        ));
+    }
+
+    private void createBatchExecutor(int threadsCount) {
+        batchExecutor = new BatchExecutor();
+        batchExecutor.setThreadsCount(threadsCount);
+        batchExecutor.init();
+    }
+
+    private static int sleepAndReturn(long millis, int value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+}
@@ -7,6 +7,7 @@ import org.meridor.perspective.sql.DataContainer;
 import org.meridor.perspective.sql.DataRow;
 import org.meridor.perspective.sql.ExecutionResult;
 import org.meridor.perspective.sql.impl.expression.*;
+import org.meridor.perspective.sql.impl.storage.columnar.ColumnarRows;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.test.context.ContextConfiguration;
@@ -16,6 +17,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertThat;
 
 @ContextConfiguration(locations = "/META-INF/spring/test-context.xml")
@@ -63,4 +65,19 @@ public class FilterTaskTest {
         assertThat(data.get(FIRST_COLUMN), equalTo("two"));
         assertThat(data.get(SECOND_COLUMN), equalTo(2));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testIterateOverColumnarData() throws Exception {
+        FilterTask filterTask = applicationContext.getBean(FilterTask.class);
+        filterTask.setCondition(new SimpleBooleanExpression(new ColumnExpression(SECOND_COLUMN), BooleanRelation.GREATER_THAN, 1));
+        DataContainer input = ColumnarRows.createDataContainer(
+                getInput().getData().getColumnsMap(),
+                Arrays.asList(createRow("one", 1), createRow("two", 2), createRow("three", 3))
+        );
+        ExecutionResult output = TaskUtils.materialize(filterTask.iterate(TaskUtils.iterate(input)));
+        assertThat(output.getData().getRowsView().get(), instanceOf(ColumnarRows.class));
+        assertThat(output.getCount(), equalTo(2));
+        assertThat(output.getData().getRows().get(0).get(FIRST_COLUMN), equalTo("two"));
+        assertThat(output.getData().getRows().get(1).get(FIRST_COLUMN), equalTo("three"));
+    }
+}
@@ -5,6 +5,8 @@ import org.junit.runner.RunWith;
 import org.meridor.perspective.sql.DataContainer;
 import org.meridor.perspective.sql.DataRow;
 import org.meridor.perspective.sql.ExecutionResult;
+import org.meridor.perspective.sql.impl.expression.AggregateFunction;
+import org.meridor.perspective.sql.impl.expression.AggregateFunctionExpression;
 import org.meridor.perspective.sql.impl.expression.ColumnExpression;
 import org.meridor.perspective.sql.impl.expression.FunctionExpression;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +20,7 @@ import java.util.stream.Collectors;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
+import static org.meridor.perspective.sql.impl.expression.AggregateFunctionExpression.AGGREGATES_TABLE_ALIAS;
 
 @ContextConfiguration(locations = "/META-INF/spring/test-context.xml")
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -57,6 +60,48 @@ public class GroupTaskTest {
         return groupTask.execute(createInput(withNullRow));
     }
 
+    @Test
+    public void testAggregateFunctions() throws Exception {
+        GroupTask groupTask = applicationContext.getBean(GroupTask.class);
+        groupTask.addExpression(new ColumnExpression(FIRST_COLUMN, TABLE_NAME));
+        ColumnExpression secondColumn = new ColumnExpression(SECOND_COLUMN, TABLE_NAME);
+        Arrays.asList(
+                new AggregateFunctionExpression(AggregateFunction.COUNT, new ColumnExpression()),
+                new AggregateFunctionExpression(AggregateFunction.SUM, secondColumn),
+                new AggregateFunctionExpression(AggregateFunction.AVG, secondColumn),
+                new AggregateFunctionExpression(AggregateFunction.MIN, secondColumn),
+                new AggregateFunctionExpression(AggregateFunction.MAX, secondColumn)
+        ).forEach(groupTask::addAggregateFunction);
+        ExecutionResult output = groupTask.execute(createInput(false));
+        assertThat(output.getCount(), equalTo(2));
+        assertThat(output.getData().getColumnsMap().get(AGGREGATES_TABLE_ALIAS), contains(
+                "count(*)", "sum(mock.numWithDefaultValue)", "avg(mock.numWithDefaultValue)",
+                "min(mock.numWithDefaultValue)", "max(mock.numWithDefaultValue)"
+        ));
+        List<List<?>> dataRows = output.getData().getRows().stream()
+                .map(DataRow::getValues)
+                .collect(Collectors.toList());
+        assertThat(dataRows, contains(
+                Arrays.asList("one", 1, 1, 1L, 1d, 1, 1),
+                Arrays.asList("two", 1, 3, 1L, 1d / 3, -2, 2)
+        ));
+    }
+
+    @Test
+    public void testAggregateFunctionsOnEmptyInput() throws Exception {
+        GroupTask groupTask = applicationContext.getBean(GroupTask.class);
+        groupTask.addAggregateFunction(new AggregateFunctionExpression(AggregateFunction.COUNT, new ColumnExpression()));
+        groupTask.addAggregateFunction(new AggregateFunctionExpression(
+                AggregateFunction.MAX,
+                new ColumnExpression(SECOND_COLUMN, TABLE_NAME)
+        ));
+        ExecutionResult input = createInput(false);
+        input.getData().getRows().clear();
+        ExecutionResult output = groupTask.execute(input);
+        assertThat(output.getCount(), equalTo(1));
+        assertThat(output.getData().getRows().get(0).getValues(), contains(null, null, 0, null));
+    }
+
     @Test(expected = SQLException.class)
     public void testNullValue() throws Exception {
         groupBy(true);
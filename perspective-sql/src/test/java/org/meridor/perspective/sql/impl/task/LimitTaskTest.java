@@ -8,6 +8,7 @@ import org.meridor.perspective.sql.ExecutionResult;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
@@ -51,6 +52,20 @@ public class LimitTaskTest {
         doChecks(output, 1, 2);
     }
     
+    @Test
+    public void testStopsPullingWhenSatisfied() throws Exception {
+        DataContainer dataContainer = getInput().getData();
+        AtomicInteger pulledRows = new AtomicInteger();
+        RowIterator input = TaskUtils.iterate(
+                dataContainer.getColumnsMap(),
+                dataContainer.getRows().stream().peek(dr -> pulledRows.incrementAndGet()).iterator()
+        );
+        LimitTask limitTask = new LimitTask(OFFSET, COUNT);
+        ExecutionResult output = TaskUtils.materialize(limitTask.iterate(input));
+        doChecks(output, 6, 7);
+        assertThat(pulledRows.get(), equalTo(OFFSET + COUNT));
+    }
+    
     private void doChecks(ExecutionResult output, int firstValue, int secondValue) {
         assertThat(output.getCount(), equalTo(COUNT));
         List<DataRow> data = output.getData().getRows();
@@ -1,12 +1,12 @@
 package org.meridor.perspective.sql.impl.task;
 
 import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.impl.expression.FetchCondition;
 import org.meridor.perspective.sql.impl.storage.DataFetcher;
 import org.meridor.perspective.sql.impl.table.Column;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
@@ -14,6 +14,7 @@ public class MockDataFetcher implements DataFetcher {
 
     private final Map<String, List<List<Object>>> dataMap = new LinkedHashMap<>();
     private final Map<String, List<String>> columnsMap = new LinkedHashMap<>();
+    private final Map<String, FetchCondition> fetchConditions = new HashMap<>();
 
     @Override
     public Map<String, List<Object>> fetch(String tableName, Collection<Column> columns, Set<String> ids) {
@@ -25,17 +26,37 @@ public class MockDataFetcher implements DataFetcher {
                         .filter(dr -> ids == null || ids.contains(MockDataFetcher.getId(dr)))
                         .collect(Collectors.toMap(
                                 MockDataFetcher::getId,
-                                Function.identity())
+                                dr -> project(tableName, columns, dr))
                         );
     }
 
+    //Only columns known to mock data fetcher can be projected
+    private List<Object> project(String tableName, Collection<Column> columns, List<Object> dr) {
+        List<String> tableColumnNames = columnsMap.getOrDefault(tableName, Collections.emptyList());
+        List<String> columnNames = getColumnNames(tableName, columns);
+        if (columnNames.equals(tableColumnNames)) {
+            return dr;
+        }
+        return columnNames.stream()
+                .map(cn -> dr.get(tableColumnNames.indexOf(cn)))
+                .collect(Collectors.toList());
+    }
+
+    private List<String> getColumnNames(String tableName, Collection<Column> columns) {
+        List<String> tableColumnNames = columnsMap.getOrDefault(tableName, Collections.emptyList());
+        List<String> columnNames = columns.stream()
+                .map(Column::getName)
+                .collect(Collectors.toList());
+        return tableColumnNames.containsAll(columnNames) ? columnNames : tableColumnNames;
+    }
+
     private static String getId(List<Object> dr) {
         return String.valueOf(dr.get(0));
     }
     
     @Override
     public DataContainer fetch(String tableName, String tableAlias, Collection<Column> columns) {
-        List<String> columnNames = columnsMap.getOrDefault(tableName, Collections.emptyList());
+        List<String> columnNames = getColumnNames(tableName, columns);
         Map<String, List<String>> columnsMap = Collections.singletonMap(tableAlias, columnNames);
         DataContainer dataContainer = new DataContainer(columnsMap);
         fetch(tableName, columns, null).values()
@@ -43,6 +64,17 @@ public class MockDataFetcher implements DataFetcher {
         return dataContainer;
     }
     
+    //Storage is allowed to ignore fetch condition so we only remember it
+    @Override
+    public DataContainer fetch(String tableName, String tableAlias, Collection<Column> columns, FetchCondition condition) {
+        fetchConditions.put(tableName, condition);
+        return fetch(tableName, tableAlias, columns);
+    }
+
+    public Optional<FetchCondition> getFetchCondition(String tableName) {
+        return Optional.ofNullable(fetchConditions.get(tableName));
+    }
+
     public void setTableData(String tableName, List<String> columns, List<List<Object>> data) {
         this.columnsMap.put(tableName, columns);
         this.dataMap.put(tableName, data);
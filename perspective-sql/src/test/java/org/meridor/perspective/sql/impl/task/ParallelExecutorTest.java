@@ -0,0 +1,158 @@
+package org.meridor.perspective.sql.impl.task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.meridor.perspective.beans.BooleanRelation;
+import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.DataRow;
+import org.meridor.perspective.sql.ExecutionResult;
+import org.meridor.perspective.sql.impl.expression.*;
+import org.meridor.perspective.sql.impl.storage.columnar.ColumnarRows;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.meridor.perspective.sql.impl.expression.AggregateFunctionExpression.AGGREGATES_TABLE_ALIAS;
+
+@ContextConfiguration(locations = "/META-INF/spring/test-context.xml")
+@RunWith(SpringJUnit4ClassRunner.class)
+public class ParallelExecutorTest {
+
+    private static final String TABLE_NAME = "mock";
+    private static final String FIRST_COLUMN = "str";
+    private static final String SECOND_COLUMN = "num";
+    private static final int ROWS_COUNT = 11;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private ParallelExecutor parallelExecutor;
+
+    @Before
+    public void before() {
+        parallelExecutor.setThreshold(1);
+        parallelExecutor.setMorselSize(2);
+    }
+
+    @After
+    public void after() {
+        parallelExecutor.setThreshold(50000);
+        parallelExecutor.setMorselSize(4096);
+    }
+
+    @Test
+    public void testProcess() {
+        List<Integer> morselStarts = parallelExecutor.process(ROWS_COUNT, (from, to) -> from);
+        assertThat(morselStarts, contains(0, 2, 4, 6, 8, 10));
+    }
+
+    @Test
+    public void testFilter() throws Exception {
+        FilterTask filterTask = applicationContext.getBean(FilterTask.class);
+        filterTask.setCondition(new SimpleBooleanExpression(
+                new ColumnExpression(SECOND_COLUMN, TABLE_NAME),
+                BooleanRelation.GREATER_THAN,
+                2
+        ));
+        ExecutionResult output = filterTask.execute(createInput(createDataContainer()));
+        assertThat(getValues(output), equalTo(getValues(createDataContainer(), 3)));
+    }
+
+    @Test
+    public void testFilterColumnarData() throws Exception {
+        DataContainer dataContainer = createDataContainer();
+        DataContainer columnarDataContainer = ColumnarRows.createDataContainer(
+                dataContainer.getColumnsMap(),
+                getValues(dataContainer, 0)
+        );
+        FilterTask filterTask = applicationContext.getBean(FilterTask.class);
+        filterTask.setCondition(new SimpleBooleanExpression(
+                new ColumnExpression(SECOND_COLUMN, TABLE_NAME),
+                BooleanRelation.GREATER_THAN,
+                2
+        ));
+        ExecutionResult output = filterTask.execute(createInput(columnarDataContainer));
+        assertThat(output.getData().getRowsView().get(), instanceOf(ColumnarRows.class));
+        assertThat(getValues(output), equalTo(getValues(dataContainer, 3)));
+    }
+
+    @Test
+    public void testSelect() throws Exception {
+        Map<String, Object> selectionMap = Collections.singletonMap("abs", new FunctionExpression(
+                "abs",
+                Collections.singletonList(new ColumnExpression(SECOND_COLUMN, TABLE_NAME))
+        ));
+        SelectTask selectTask = applicationContext.getBean(
+                SelectTask.class,
+                selectionMap,
+                Collections.singletonMap(TABLE_NAME, TABLE_NAME)
+        );
+        ExecutionResult output = selectTask.execute(createInput(createDataContainer()));
+        List<List<Object>> expectedValues = new ArrayList<>();
+        for (int i = 0; i <= ROWS_COUNT - 1; i++) {
+            expectedValues.add(Collections.singletonList((double) i));
+        }
+        assertThat(getValues(output), equalTo(expectedValues));
+    }
+
+    @Test
+    public void testGroup() throws Exception {
+        GroupTask groupTask = applicationContext.getBean(GroupTask.class);
+        groupTask.addExpression(new ColumnExpression(FIRST_COLUMN, TABLE_NAME));
+        ColumnExpression secondColumn = new ColumnExpression(SECOND_COLUMN, TABLE_NAME);
+        Arrays.asList(
+                new AggregateFunctionExpression(AggregateFunction.COUNT, new ColumnExpression()),
+                new AggregateFunctionExpression(AggregateFunction.SUM, secondColumn),
+                new AggregateFunctionExpression(AggregateFunction.AVG, secondColumn),
+                new AggregateFunctionExpression(AggregateFunction.MIN, secondColumn),
+                new AggregateFunctionExpression(AggregateFunction.MAX, secondColumn)
+        ).forEach(groupTask::addAggregateFunction);
+        ExecutionResult output = groupTask.execute(createInput(createDataContainer()));
+        assertThat(output.getData().getColumnsMap().get(AGGREGATES_TABLE_ALIAS), hasSize(5));
+        assertThat(getValues(output), contains(
+                Arrays.asList("even", 0, 6, 30L, 5d, 0, 10),
+                Arrays.asList("odd", 1, 5, 25L, 5d, 1, 9)
+        ));
+    }
+
+    private DataContainer createDataContainer() {
+        Map<String, List<String>> columnsMap = Collections.singletonMap(
+                TABLE_NAME,
+                Arrays.asList(FIRST_COLUMN, SECOND_COLUMN)
+        );
+        DataContainer dataContainer = new DataContainer(columnsMap);
+        for (int i = 0; i <= ROWS_COUNT - 1; i++) {
+            dataContainer.addRow(Arrays.asList(i % 2 == 0 ? "even" : "odd", i));
+        }
+        return dataContainer;
+    }
+
+    private static ExecutionResult createInput(DataContainer dataContainer) {
+        ExecutionResult executionResult = new ExecutionResult();
+        executionResult.setCount(dataContainer.getRows().size());
+        executionResult.setData(dataContainer);
+        return executionResult;
+    }
+
+    private static List<List<Object>> getValues(ExecutionResult executionResult) {
+        return getValues(executionResult.getData(), 0);
+    }
+
+    private static List<List<Object>> getValues(DataContainer dataContainer, int skip) {
+        return dataContainer.getRows().stream()
+                .skip(skip)
+                .map(DataRow::getValues)
+                .map(ArrayList::new)
+                .collect(Collectors.toList());
+    }
+
+}
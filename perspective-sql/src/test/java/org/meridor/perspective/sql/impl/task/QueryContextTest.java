@@ -0,0 +1,118 @@
+package org.meridor.perspective.sql.impl.task;
+
+import org.junit.Test;
+import org.meridor.perspective.sql.DataContainer;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeThat;
+
+public class QueryContextTest {
+
+    @Test
+    public void testNoContext() {
+        assertThat(QueryContext.current(), is(nullValue()));
+        QueryContext.addRows(Integer.MAX_VALUE);
+        QueryContext.check();
+    }
+
+    @Test
+    public void testContextIsBound() {
+        QueryContext queryContext = new QueryContext(0, 0, 0);
+        assertThat(queryContext.call(QueryContext::current), equalTo(queryContext));
+        assertThat(QueryContext.current(), is(nullValue()));
+    }
+
+    @Test(expected = QueryAbortedException.class)
+    public void testCancel() {
+        QueryContext queryContext = new QueryContext(0, 0, 0);
+        queryContext.cancel();
+        queryContext.call(() -> {
+            QueryContext.check();
+            return null;
+        });
+    }
+
+    @Test(expected = QueryAbortedException.class)
+    public void testMaxRows() {
+        QueryContext queryContext = new QueryContext(0, 10, 0);
+        queryContext.call(() -> {
+            QueryContext.addRows(5);
+            QueryContext.addRows(6);
+            return null;
+        });
+    }
+
+    @Test(expected = QueryAbortedException.class)
+    public void testTimeout() {
+        QueryContext queryContext = new QueryContext(1, 0, 0);
+        queryContext.call(() -> {
+            while (true) {
+                QueryContext.check();
+            }
+        });
+    }
+
+    @Test(expected = QueryAbortedException.class)
+    public void testAllocatedBytesOfAllThreadsAreCounted() throws Exception {
+        assumeThat(ExecutionProfiler.getAllocatedBytes(), greaterThanOrEqualTo(0L));
+        QueryContext queryContext = new QueryContext(0, 0, 1024 * 1024);
+        Thread thread = new Thread(() -> queryContext.call(() -> new byte[2 * 1024 * 1024]));
+        thread.start();
+        thread.join();
+        queryContext.call(() -> {
+            QueryContext.addRows(1024);
+            return null;
+        });
+    }
+
+    @Test
+    public void testComputeOnce() {
+        AtomicInteger computationsCount = new AtomicInteger();
+        QueryContext queryContext = new QueryContext(0, 0, 0);
+        queryContext.call(() -> QueryContext.computeOnce("key", computationsCount::incrementAndGet));
+        queryContext.call(() -> QueryContext.computeOnce("key", computationsCount::incrementAndGet));
+        assertThat(computationsCount.get(), equalTo(1));
+        new QueryContext(0, 0, 0).call(() -> QueryContext.computeOnce("key", computationsCount::incrementAndGet));
+        assertThat(computationsCount.get(), equalTo(2));
+    }
+
+    @Test
+    public void testComputeOncePerBatch() {
+        AtomicInteger computationsCount = new AtomicInteger();
+        SharedValues batchValues = new SharedValues();
+        new QueryContext(0, 0, 0, batchValues).call(() -> QueryContext.computeOncePerBatch("key", computationsCount::incrementAndGet));
+        new QueryContext(0, 0, 0, batchValues).call(() -> QueryContext.computeOncePerBatch("key", computationsCount::incrementAndGet));
+        assertThat(computationsCount.get(), equalTo(1));
+        
+        //Values are not kept outside of batch
+        QueryContext queryContext = new QueryContext(0, 0, 0);
+        queryContext.call(() -> QueryContext.computeOncePerBatch("key", computationsCount::incrementAndGet));
+        queryContext.call(() -> QueryContext.computeOncePerBatch("key", computationsCount::incrementAndGet));
+        assertThat(computationsCount.get(), equalTo(3));
+    }
+
+    @Test
+    public void testMaterializedRowsAreCounted() {
+        DataContainer dataContainer = new DataContainer(Collections.singletonList("col"));
+        for (int i = 0; i <= 9; i++) {
+            dataContainer.addRow(Collections.singletonList(i));
+        }
+        QueryContext queryContext = new QueryContext(0, 5, 0);
+        SQLException exception = queryContext.call(() -> {
+            try {
+                TaskUtils.materialize(TaskUtils.iterate(dataContainer));
+                return null;
+            } catch (SQLException e) {
+                return e;
+            }
+        });
+        assertThat(exception, is(notNullValue()));
+        assertThat(exception.getCause(), instanceOf(QueryAbortedException.class));
+    }
+
+}
@@ -12,6 +12,7 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import java.sql.SQLException;
 import java.util.*;
 
 import static org.hamcrest.Matchers.*;
@@ -88,6 +89,21 @@ public class SelectTaskTest {
         assertThat(executionResult.getData().getRows().size(), is(greaterThan(0)));
     }
     
+    @Test(expected = SQLException.class)
+    public void testEvaluationErrorWhileLookingAhead() throws Exception {
+        //Rows are pulled when checking for singleton data container, so error is thrown by iterate call
+        Map<String, Object> selectionMap = Collections.singletonMap(
+                FIRST_ALIAS,
+                new FunctionExpression("abs", Collections.singletonList(new ColumnExpression(FIRST_COLUMN, TABLE_NAME)))
+        );
+        SelectTask selectTask = applicationContext.getBean(
+                SelectTask.class,
+                selectionMap,
+                Collections.singletonMap(TABLE_ALIAS, TABLE_NAME)
+        );
+        selectTask.iterate(TaskUtils.iterate(getInput().getData()));
+    }
+
     @Test
     public void testSelectAll() throws Exception {
         Map<String, Object> selectionMap = new HashMap<String, Object>() {
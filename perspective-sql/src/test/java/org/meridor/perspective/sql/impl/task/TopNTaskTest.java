@@ -0,0 +1,91 @@
+package org.meridor.perspective.sql.impl.task;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.meridor.perspective.sql.DataContainer;
+import org.meridor.perspective.sql.DataRow;
+import org.meridor.perspective.sql.ExecutionResult;
+import org.meridor.perspective.sql.impl.expression.ColumnExpression;
+import org.meridor.perspective.sql.impl.expression.OrderDirection;
+import org.meridor.perspective.sql.impl.expression.OrderExpression;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.*;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+@ContextConfiguration(locations = "/META-INF/spring/test-context.xml")
+@RunWith(SpringJUnit4ClassRunner.class)
+public class TopNTaskTest {
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    private static final String FIRST_COLUMN = "str";
+    private static final String SECOND_COLUMN = "num";
+    private static final String TABLE_NAME = "mock";
+
+    private static ExecutionResult getInput() {
+        ExecutionResult input = new ExecutionResult();
+        input.setCount(6);
+        DataContainer dataContainer = new DataContainer(Collections.singletonMap(
+                TABLE_NAME,
+                Arrays.asList(FIRST_COLUMN, SECOND_COLUMN)
+        ));
+        dataContainer.addRow(createRow("b", 3));
+        dataContainer.addRow(createRow(null, 1));
+        dataContainer.addRow(createRow("b", 2));
+        dataContainer.addRow(createRow("a", 4));
+        dataContainer.addRow(createRow("c", 5));
+        dataContainer.addRow(createRow("a", 3));
+        input.setData(dataContainer);
+        return input;
+    }
+
+    private static List<Object> createRow(String first, Integer second) {
+        return Arrays.asList(first, second);
+    }
+
+    private OrderTask createOrderTask(OrderExpression... orderExpressions) {
+        OrderTask orderTask = applicationContext.getBean(OrderTask.class);
+        Arrays.stream(orderExpressions).forEach(orderTask::addExpression);
+        return orderTask;
+    }
+
+    @Test
+    public void testExecute() throws Exception {
+        OrderTask orderTask = createOrderTask(
+                new OrderExpression(new ColumnExpression(FIRST_COLUMN, TABLE_NAME)),
+                new OrderExpression(new ColumnExpression(SECOND_COLUMN, TABLE_NAME), OrderDirection.DESC)
+        );
+        TopNTask topNTask = new TopNTask(orderTask, 1, 2);
+        ExecutionResult executionResult = topNTask.execute(getInput());
+        assertThat(executionResult.getCount(), equalTo(3));
+        List<DataRow> data = executionResult.getData().getRows();
+        assertThat(data.get(0).getValues(), equalTo(createRow("a", 4)));
+        assertThat(data.get(1).getValues(), equalTo(createRow("a", 3)));
+        assertThat(data.get(2).getValues(), equalTo(createRow("b", 3)));
+    }
+
+    @Test
+    public void testSameResultsAsOrderTask() throws Exception {
+        OrderTask orderTask = createOrderTask(
+                new OrderExpression(new ColumnExpression(FIRST_COLUMN, TABLE_NAME), OrderDirection.DESC)
+        );
+        TopNTask topNTask = new TopNTask(orderTask, 0, 10);
+        ExecutionResult topNResult = topNTask.execute(getInput());
+        ExecutionResult orderResult = orderTask.execute(getInput());
+        assertThat(rowsAsValues(topNResult), equalTo(rowsAsValues(orderResult)));
+    }
+
+    private static List<List<Object>> rowsAsValues(ExecutionResult executionResult) {
+        List<List<Object>> ret = new ArrayList<>();
+        executionResult.getData().getRows().forEach(dr -> ret.add(dr.getValues()));
+        return ret;
+    }
+
+}
@@ -8,9 +8,11 @@ import org.meridor.perspective.sql.impl.expression.BinaryBooleanExpression;
 import org.meridor.perspective.sql.impl.expression.BinaryBooleanOperator;
 import org.meridor.perspective.sql.impl.expression.ColumnRelation;
 import org.meridor.perspective.sql.impl.expression.IndexBooleanExpression;
+import org.meridor.perspective.sql.impl.expression.ValueRange;
 import org.meridor.perspective.sql.impl.index.Index;
 import org.meridor.perspective.sql.impl.index.impl.HashTableIndex;
 import org.meridor.perspective.sql.impl.index.impl.IndexSignature;
+import org.meridor.perspective.sql.impl.index.impl.SkipListIndex;
 import org.meridor.perspective.sql.impl.parser.DataSource;
 import org.meridor.perspective.sql.impl.parser.JoinType;
 import org.meridor.perspective.sql.impl.storage.IndexStorage;
@@ -112,6 +114,26 @@ public class IndexScanStrategyTest {
         assertThat(result.getRows().get(1).getValues(), contains("5", "fifth", "2"));
     }
     
+    @Test
+    public void testFetchByRange() {
+        IndexSignature nameIndexSignature = INSTANCES_NAME_INDEX.getSignature();
+        SkipListIndex sortedNameIndex = new SkipListIndex(nameIndexSignature);
+        INSTANCES_NAME_INDEX.getKeys().forEach(k -> INSTANCES_NAME_INDEX.get(k).forEach(id -> sortedNameIndex.put(k, id)));
+        indexStorage.update(nameIndexSignature, any -> sortedNameIndex);
+        
+        IndexBooleanExpression expression = new IndexBooleanExpression(
+                Collections.singletonMap(PROJECT_ID, Collections.singleton("2")),
+                Collections.singletonMap(NAME, ValueRange.startingWith("f"))
+        );
+        DataSource dataSource = new DataSource(INSTANCES_ALIAS);
+        dataSource.setCondition(expression);
+
+        DataContainer result = getStrategy().process(dataSource, TWO_TABLE_ALIASES);
+        assertThat(result.getRows(), hasSize(2));
+        assertThat(result.getRows().get(0).getValues(), contains("1", "first", "2"));
+        assertThat(result.getRows().get(1).getValues(), contains("5", "fifth", "2"));
+    }
+    
     @Test
     public void testInnerJoin() {
         //Simple join without condition
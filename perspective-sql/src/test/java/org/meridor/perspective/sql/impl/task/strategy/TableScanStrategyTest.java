@@ -7,6 +7,7 @@ import org.meridor.perspective.beans.BooleanRelation;
 import org.meridor.perspective.sql.DataContainer;
 import org.meridor.perspective.sql.DataRow;
 import org.meridor.perspective.sql.impl.expression.ColumnExpression;
+import org.meridor.perspective.sql.impl.expression.FetchCondition;
 import org.meridor.perspective.sql.impl.expression.SimpleBooleanExpression;
 import org.meridor.perspective.sql.impl.parser.DataSource;
 import org.meridor.perspective.sql.impl.parser.JoinType;
@@ -54,6 +55,36 @@ public class TableScanStrategyTest {
         assertThat(rowsAsValues(rows), equalTo(INSTANCES_DATA));
     }
 
+    @Test
+    public void testFetchSelectedColumns() throws Exception {
+        DataSource dataSource = new DataSource(INSTANCES_ALIAS);
+        dataSource.getFetchedColumns().add(NAME);
+        DataSourceStrategy strategy = getStrategy();
+        DataContainer dataContainer = strategy.process(dataSource, Collections.singletonMap(INSTANCES_ALIAS, INSTANCES_TABLE));
+        assertThat(dataContainer.getColumnsMap(), equalTo(Collections.singletonMap(INSTANCES_ALIAS, Collections.singletonList(NAME))));
+        assertThat(rowsAsValues(dataContainer.getRows()), containsInAnyOrder(
+                Collections.singletonList("first"),
+                Collections.singletonList("second"),
+                Collections.singletonList("third"),
+                Collections.singletonList("third"),
+                Collections.singletonList("fifth")
+        ));
+    }
+
+    @Test
+    public void testFetchConditionIsPassedToStorage() throws Exception {
+        DataSource dataSource = new DataSource(INSTANCES_ALIAS);
+        FetchCondition fetchCondition = new FetchCondition(
+                Collections.singletonMap(NAME, Collections.singleton("first")),
+                Collections.emptyMap(),
+                Collections.emptyMap()
+        );
+        dataSource.setFetchCondition(fetchCondition);
+        DataSourceStrategy strategy = getStrategy();
+        strategy.process(dataSource, Collections.singletonMap(INSTANCES_ALIAS, INSTANCES_TABLE));
+        assertThat(dataFetcher.getFetchCondition(INSTANCES_TABLE).get(), equalTo(fetchCondition));
+    }
+
     private DataSourceStrategy getStrategy() {
         return applicationContext.getBean(TableScanStrategy.class);
     }
@@ -127,6 +158,51 @@ public class TableScanStrategyTest {
         assertThat(rowsAsValues(rows), equalTo(correctData));
     }
 
+    @Test
+    public void testInnerJoinWithSmallerLeftTable() throws Exception {
+        Arrays.asList("4", "5", "6").forEach(
+                id -> dataFetcher.addDataRow(PROJECTS_TABLE, Arrays.asList(id, "project_" + id))
+        );
+        DataSource dataSource = prepareJoinDataSource(ds -> {
+            ds.setJoinType(JoinType.INNER);
+            ds.setCondition(new SimpleBooleanExpression(
+                    new ColumnExpression(ID, PROJECTS_ALIAS),
+                    BooleanRelation.EQUAL,
+                    new ColumnExpression(PROJECT_ID, INSTANCES_ALIAS)
+            ));
+            return ds;
+        });
+        DataSourceStrategy strategy = getStrategy();
+        DataContainer dataContainer = strategy.process(dataSource, TWO_TABLE_ALIASES);
+        doCommonAssertions(dataContainer, 5);
+
+        List<DataRow> rows = dataContainer.getRows();
+        List<List<Object>> correctData = Arrays.asList(
+                Arrays.asList("2", "second", "1", "1", "first_project"),
+                Arrays.asList("1", "first", "2", "2", "second_project"),
+                Arrays.asList("3", "third", "2", "2", "second_project"),
+                Arrays.asList("5", "fifth", "2", "2", "second_project"),
+                Arrays.asList("4", "third", "3", "3", "third_project")
+        );
+        assertThat(rowsAsValues(rows), equalTo(correctData));
+    }
+
+    @Test
+    public void testInnerJoinByNonEquiCondition() throws Exception {
+        DataSource dataSource = prepareJoinDataSource(ds -> {
+            ds.setJoinType(JoinType.INNER);
+            ds.setCondition(new SimpleBooleanExpression(
+                    new ColumnExpression(PROJECT_ID, INSTANCES_ALIAS),
+                    BooleanRelation.NOT_EQUAL,
+                    new ColumnExpression(ID, PROJECTS_ALIAS)
+            ));
+            return ds;
+        });
+        DataSourceStrategy strategy = getStrategy();
+        DataContainer dataContainer = strategy.process(dataSource, TWO_TABLE_ALIASES);
+        doCommonAssertions(dataContainer, 10);
+    }
+
     private static SimpleBooleanExpression prepareJoinCondition() {
         return new SimpleBooleanExpression(
                 new ColumnExpression(PROJECT_ID, INSTANCES_ALIAS),